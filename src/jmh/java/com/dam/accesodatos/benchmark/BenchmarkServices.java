@@ -0,0 +1,94 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.nativeapi.DepartmentStatsView;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl.DecodeMode;
+import com.dam.accesodatos.mongodb.reactive.ReactiveMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserServiceImpl;
+import com.dam.accesodatos.mongodb.springdata.UserRepository;
+import com.mongodb.client.MongoClient;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+/**
+ * Construye los servicios fuera del contexto de Spring, con los mismos
+ * valores por defecto que application.yml.
+ * Salvo que se indique otra, la caché de usuarios está desactivada para medir el acceso a MongoDB.
+ * Sin change stream no hay ecos que reconocer: las escrituras propias no se anotan (LocalUserWrites.disabled()).
+ * Los índices se crean igual que al arrancar la aplicación (@PostConstruct no se ejecuta aquí).
+ */
+final class BenchmarkServices {
+
+    static final String DATABASE = "benchmark_db";
+
+    private BenchmarkServices() {
+    }
+
+    static NativeMongoUserServiceImpl nativeService(MongoClient client) {
+        return nativeService(client, DecodeMode.CODEC);
+    }
+
+    static NativeMongoUserServiceImpl nativeService(MongoClient client, DecodeMode decodeMode) {
+        return nativeService(client, decodeMode, UserCache.disabled());
+    }
+
+    static NativeMongoUserServiceImpl nativeService(MongoClient client, DecodeMode decodeMode, UserCache userCache) {
+        NativeMongoUserServiceImpl service = new NativeMongoUserServiceImpl(client, DATABASE, 500, 1000, 100,
+                "ACKNOWLEDGED", "primary", decodeMode, true, userCache, new DepartmentStatsView(client, DATABASE),
+                countCache(client), textIndex(client), new UserFacetIndex(client, DATABASE), LocalUserWrites.disabled());
+        service.ensureIndexes();
+        return service;
+    }
+
+    static SpringDataUserServiceImpl springDataService(MongoClient client) {
+        return springDataService(client, UserCache.disabled());
+    }
+
+    static SpringDataUserServiceImpl springDataService(MongoClient client, UserCache userCache) {
+        MongoTemplate mongoTemplate = new MongoTemplate(client, DATABASE);
+        UserRepository repository = new MongoRepositoryFactory(mongoTemplate).getRepository(UserRepository.class);
+        SpringDataUserServiceImpl service = new SpringDataUserServiceImpl(repository, mongoTemplate, 1000, 100, true, userCache,
+                countCache(client), textIndex(client), new UserFacetIndex(client, DATABASE), LocalUserWrites.disabled());
+        service.ensureIndexes();
+        return service;
+    }
+
+    /**
+     * Servicio reactivo sobre reactiveClient; client (síncrono) es el que usan sus
+     * estructuras en memoria para construirse, como en la aplicación.
+     */
+    static ReactiveMongoUserServiceImpl reactiveService(MongoClient client,
+                                                        com.mongodb.reactivestreams.client.MongoClient reactiveClient) {
+        return new ReactiveMongoUserServiceImpl(new ReactiveMongoTemplate(reactiveClient, DATABASE), UserCache.disabled(),
+                countCache(client), textIndex(client), new UserFacetIndex(client, DATABASE), LocalUserWrites.disabled());
+    }
+
+    /**
+     * Índice de texto con los valores por defecto de application.yml (crea el índice en MongoDB).
+     */
+    static UserTextIndex textIndex(MongoClient client) {
+        UserTextIndex textIndex = new UserTextIndex(client, DATABASE, UserTextIndex.Mode.AUTO, true, 60000);
+        textIndex.ensureIndex();
+        return textIndex;
+    }
+
+    /**
+     * Contadores por departamento con los valores por defecto de application.yml.
+     */
+    static DepartmentCountCache countCache(MongoClient client) {
+        return new DepartmentCountCache(client, DATABASE, 30000, false);
+    }
+
+    /**
+     * Caché con los valores por defecto de application.yml.
+     */
+    static UserCache userCache() {
+        return new UserCache(10000, 300);
+    }
+}
@@ -0,0 +1,95 @@
+package com.dam.accesodatos.benchmark;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por operación de resolver MongoDatabase/MongoCollection en cada llamada
+ * (como hacía NativeMongoUserServiceImpl.getCollection()) frente a reutilizar
+ * un handle ya configurado en un campo.
+ *
+ * - resolve*: solo el coste de obtener el handle (sin red)
+ * - findById*: el mismo coste sumado a un find por _id real contra MemoryBackend
+ *
+ * Ejecutar: ./gradlew jmh -Pjmh.includes=CollectionHandleBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollectionHandleBenchmark {
+
+    private static final String DATABASE = "benchmark_db";
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoCollection<Document> cachedCollection;
+    private ObjectId existingId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://localhost:" + address.getPort());
+        cachedCollection = configure(client.getDatabase(DATABASE).getCollection("users"));
+
+        existingId = new ObjectId();
+        cachedCollection.insertOne(new Document("_id", existingId)
+                .append("name", "Benchmark User")
+                .append("email", "bench@empresa.com")
+                .append("department", "IT"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    private static MongoCollection<Document> configure(MongoCollection<Document> collection) {
+        return collection
+                .withWriteConcern(WriteConcern.ACKNOWLEDGED)
+                .withReadPreference(ReadPreference.primary());
+    }
+
+    @Benchmark
+    public MongoCollection<Document> resolvePerCall() {
+        return configure(client.getDatabase(DATABASE).getCollection("users"));
+    }
+
+    @Benchmark
+    public MongoCollection<Document> resolveCached() {
+        return cachedCollection;
+    }
+
+    @Benchmark
+    public Document findByIdResolvingPerCall() {
+        return configure(client.getDatabase(DATABASE).getCollection("users"))
+                .find(Filters.eq("_id", existingId))
+                .first();
+    }
+
+    @Benchmark
+    public Document findByIdCachedHandle() {
+        return cachedCollection.find(Filters.eq("_id", existingId)).first();
+    }
+}
@@ -0,0 +1,88 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserServiceImpl;
+import com.dam.accesodatos.mongodb.springdata.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Borrado con Spring Data bajo concurrencia:
+ * - existsThenDelete: existsById() + deleteById() (dos round trips, como antes)
+ * - singleRemove: SpringDataUserServiceImpl.deleteUser() → un único findAndRemove con
+ *   proyección al departamento (borra y devuelve el documento, o null si ya no existía)
+ *
+ * Cada hilo borra un usuario recién creado en un @Setup(Level.Invocation), fuera de la medida.
+ *
+ * Ejecutar: ./gradlew jmh -Pjmh.includes=ConcurrentDeleteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class ConcurrentDeleteBenchmark {
+
+    @Param({"MEMORY", "FLAPDOODLE"})
+    private MongoBackend backendType;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private MongoBackend.Running backend;
+    private SpringDataUserServiceImpl service;
+    private UserRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = backendType.start();
+        service = BenchmarkServices.springDataService(backend.client());
+        MongoTemplate mongoTemplate = new MongoTemplate(backend.client(), BenchmarkServices.DATABASE);
+        repository = new MongoRepositoryFactory(mongoTemplate).getRepository(UserRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.close();
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        String id;
+
+        @Setup(Level.Invocation)
+        public void create(ConcurrentDeleteBenchmark benchmark) {
+            long n = benchmark.emailSequence.incrementAndGet();
+            User user = benchmark.service.createUser(
+                    new UserCreateDto("Usuario " + n, "delete" + n + "@empresa.com", "IT", "Developer"));
+            id = user.getId();
+        }
+    }
+
+    @Benchmark
+    public boolean existsThenDelete(DeleteTarget target) {
+        if (!repository.existsById(target.id)) {
+            return false;
+        }
+        repository.deleteById(target.id);
+        return true;
+    }
+
+    @Benchmark
+    public boolean singleRemove(DeleteTarget target) {
+        return service.deleteUser(target.id);
+    }
+}
@@ -0,0 +1,74 @@
+package com.dam.accesodatos.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Servidores MongoDB contra los que se ejecutan los benchmarks:
+ * - MEMORY: mongo-java-server (MemoryBackend), el mismo que usan los tests
+ * - FLAPDOODLE: mongod real embebido (descarga el binario la primera vez)
+ */
+public enum MongoBackend {
+
+    MEMORY {
+        @Override
+        public Running start() {
+            MongoServer server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind();
+            String connectionString = "mongodb://localhost:" + address.getPort();
+            return new Running(MongoClients.create(connectionString), connectionString, server::shutdownNow);
+        }
+    },
+
+    FLAPDOODLE {
+        @Override
+        public Running start() {
+            TransitionWalker.ReachedState<RunningMongodProcess> mongod = Mongod.instance().start(Version.Main.V7_0);
+            ServerAddress address = mongod.current().getServerAddress();
+            String connectionString = "mongodb://" + address.getHost() + ":" + address.getPort();
+            return new Running(MongoClients.create(connectionString), connectionString, mongod::close);
+        }
+    };
+
+    public abstract Running start();
+
+    /**
+     * Servidor arrancado y su cliente. close() cierra ambos.
+     * connectionString() permite abrir otros clientes (p. ej. el reactivo) contra el mismo servidor.
+     */
+    public static final class Running implements AutoCloseable {
+
+        private final MongoClient client;
+        private final String connectionString;
+        private final Runnable shutdown;
+
+        Running(MongoClient client, String connectionString, Runnable shutdown) {
+            this.client = client;
+            this.connectionString = connectionString;
+            this.shutdown = shutdown;
+        }
+
+        public MongoClient client() {
+            return client;
+        }
+
+        public String connectionString() {
+            return connectionString;
+        }
+
+        @Override
+        public void close() {
+            client.close();
+            shutdown.run();
+        }
+    }
+}
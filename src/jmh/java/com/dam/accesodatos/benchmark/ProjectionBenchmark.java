@@ -0,0 +1,118 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserProjection;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /users completo frente a GET /users?fields=id,name,department con la API nativa:
+ * lectura de MongoDB + serialización JSON de la respuesta.
+ *
+ * - read*: solo la consulta y la decodificación
+ * - response*: consulta + JSON (lo que paga el endpoint)
+ *
+ * El tamaño en bytes de cada respuesta aparece en los resultados de response* como
+ * contador auxiliar (responseBytes), junto al tiempo.
+ *
+ * Ejecutar: ./gradlew jmh -Pjmh.includes=ProjectionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+
+    @Param({"MEMORY", "FLAPDOODLE"})
+    private MongoBackend backendType;
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"id,name,department"})
+    private String fields;
+
+    private MongoBackend.Running backend;
+    private NativeMongoUserServiceImpl service;
+    private UserProjection projection;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = backendType.start();
+        service = BenchmarkServices.nativeService(backend.client());
+        projection = UserProjection.parse(fields);
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        List<UserCreateDto> dtos = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            dtos.add(new UserCreateDto("Usuario " + i, "user" + i + "@empresa.com",
+                    DEPARTMENTS[i % DEPARTMENTS.length], "Developer"));
+        }
+        service.createUsers(dtos);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.close();
+    }
+
+    @Benchmark
+    public Object readFull() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public Object readProjected() {
+        return service.findAll(projection);
+    }
+
+    /**
+     * Contador que JMH muestra junto al tiempo: bytes del JSON de la respuesta.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public byte[] responseFull(ResponseSize size) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(service.findAll());
+        size.responseBytes = json.length;
+        return json;
+    }
+
+    @Benchmark
+    public byte[] responseProjected(ResponseSize size) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(service.findAll(projection));
+        size.responseBytes = json.length;
+        return json;
+    }
+}
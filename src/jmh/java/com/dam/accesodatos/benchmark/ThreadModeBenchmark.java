@@ -0,0 +1,207 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.config.MongoRequestLimiter;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.reactive.ReactiveMongoUserServiceImpl;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga: hilos de plataforma frente a hilos virtuales con el driver síncrono,
+ * y frente al servicio reactivo de /api/reactive.
+ *
+ * Cada invocación lanza `requests` peticiones simultáneas de findUserById (como un
+ * pico de clientes HTTP) y espera a que terminen todas:
+ * - PLATFORM: pool fijo de 200 hilos, como Tomcat por defecto (server.tomcat.threads.max);
+ *   el resto de peticiones espera en la cola del executor
+ * - VIRTUAL: un hilo virtual por petición (spring.threads.virtual.enabled=true) y
+ *   MongoRequestLimiter con tantos permisos como conexiones tiene el pool (100)
+ * - VIRTUAL_UNLIMITED: hilos virtuales sin semáforo; todas las peticiones compiten
+ *   directamente por las conexiones del pool
+ * - REACTIVE: ReactiveMongoUserServiceImpl con el driver reactivo; las peticiones se
+ *   suscriben todas a la vez (flatMap sin límite de concurrencia) sin ocupar un hilo
+ *   cada una, y esperan igualmente por las conexiones del pool (100)
+ *
+ * Resultado: tiempo por ráfaga (ms/op; peticiones por segundo = requests / tiempo) y,
+ * como contadores auxiliares, el pico de hilos de plataforma vivos, la memoria de heap
+ * usada y el percentil 99 de la latencia de las peticiones (desde que se lanzan hasta
+ * que se completan) en la peor ráfaga de la iteración. Para la memoria asignada por
+ * petición añadir profilers = ['gc'] al bloque jmh de build.gradle.
+ *
+ * Ejecutar: ./gradlew jmh -Pjmh.includes=ThreadModeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModeBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_MAX_SIZE = 100;
+    private static final int USERS = 1_000;
+
+    public enum ThreadMode {
+        PLATFORM,
+        VIRTUAL,
+        VIRTUAL_UNLIMITED,
+        REACTIVE
+    }
+
+    @Param({"MEMORY", "FLAPDOODLE"})
+    private MongoBackend backendType;
+
+    @Param({"PLATFORM", "VIRTUAL", "VIRTUAL_UNLIMITED", "REACTIVE"})
+    private ThreadMode threadMode;
+
+    @Param({"1000", "5000"})
+    private int requests;
+
+    private MongoBackend.Running backend;
+    private NativeMongoUserServiceImpl service;
+    private MongoClient reactiveClient;
+    private ReactiveMongoUserServiceImpl reactiveService;
+    private ExecutorService executor;
+    private MongoRequestLimiter limiter;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = backendType.start();
+        service = BenchmarkServices.nativeService(backend.client());
+        List<UserCreateDto> dtos = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            dtos.add(new UserCreateDto("Usuario " + i, "thread" + i + "@empresa.com", "IT", "Developer"));
+        }
+        service.createUsers(dtos);
+        ids = service.findAll().stream().map(User::getId).toArray(String[]::new);
+
+        if (threadMode == ThreadMode.REACTIVE) {
+            reactiveClient = MongoClients.create(backend.connectionString());
+            reactiveService = BenchmarkServices.reactiveService(backend.client(), reactiveClient);
+            return;
+        }
+        executor = threadMode == ThreadMode.PLATFORM
+                ? Executors.newFixedThreadPool(PLATFORM_THREADS)
+                : Executors.newVirtualThreadPerTaskExecutor();
+        limiter = new MongoRequestLimiter(threadMode == ThreadMode.VIRTUAL ? POOL_MAX_SIZE : 0, 120_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (reactiveClient != null) {
+            reactiveClient.close();
+        }
+        backend.close();
+    }
+
+    /**
+     * Contadores que JMH muestra junto al tiempo de cada ráfaga.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resources {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        public long peakPlatformThreads;
+        public long usedHeapMb;
+        public double p99LatencyMs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threads.resetPeakThreadCount();
+            peakPlatformThreads = 0;
+            usedHeapMb = 0;
+            p99LatencyMs = 0;
+        }
+
+        /**
+         * @param latencies latencia de cada petición de la ráfaga, en nanosegundos (se ordena)
+         */
+        void record(long[] latencies) {
+            peakPlatformThreads = Math.max(peakPlatformThreads, threads.getPeakThreadCount());
+            Runtime runtime = Runtime.getRuntime();
+            usedHeapMb = Math.max(usedHeapMb, (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+            Arrays.sort(latencies);
+            long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+            p99LatencyMs = Math.max(p99LatencyMs, p99 / 1_000_000.0);
+        }
+    }
+
+    @Benchmark
+    public void burst(Resources resources, Blackhole blackhole) throws Exception {
+        long[] latencies = new long[requests];
+        if (threadMode == ThreadMode.REACTIVE) {
+            Flux.range(0, requests)
+                    .flatMap(i -> {
+                        long start = System.nanoTime();
+                        return reactiveService.findUserById(randomId())
+                                .doOnNext(user -> latencies[i] = System.nanoTime() - start);
+                    }, requests)
+                    .doOnNext(blackhole::consume)
+                    .blockLast();
+        } else {
+            List<Future<User>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                int request = i;
+                String id = randomId();
+                long start = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    User user = handle(id);
+                    latencies[request] = System.nanoTime() - start;
+                    return user;
+                }));
+            }
+            for (Future<User> future : futures) {
+                blackhole.consume(future.get());
+            }
+        }
+        resources.record(latencies);
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    /**
+     * Lo que hacen preHandle/afterCompletion de MongoRequestLimiter alrededor del controlador.
+     */
+    private User handle(String id) {
+        boolean permit = limiter.acquire();
+        try {
+            return service.findUserById(id);
+        } finally {
+            if (permit) {
+                limiter.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl.DecodeMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de usuarios con la API nativa en los dos modos de decodificación:
+ * - CODEC: BSON → User con UserCodec
+ * - DOCUMENT: BSON → Document → mapDocumentToUser()
+ *
+ * Ejecutar: ./gradlew jmh -Pjmh.includes=UserDecodeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDecodeBenchmark {
+
+    @Param({"CODEC", "DOCUMENT"})
+    private DecodeMode decodeMode;
+
+    @Param({"1000"})
+    private int users;
+
+    private MongoBackend.Running backend;
+    private NativeMongoUserServiceImpl service;
+    private String existingId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = MongoBackend.MEMORY.start();
+        service = BenchmarkServices.nativeService(backend.client(), decodeMode);
+
+        List<UserCreateDto> dtos = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            dtos.add(new UserCreateDto("Usuario " + i, "user" + i + "@empresa.com", "IT", "Developer"));
+        }
+        existingId = service.createUsers(dtos).getItems().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.close();
+    }
+
+    @Benchmark
+    public User findById() {
+        return service.findUserById(existingId);
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return service.findAll();
+    }
+}
@@ -0,0 +1,210 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserService;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl.DecodeMode;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CRUD y aggregation a través de los dos servicios (API nativa y Spring Data),
+ * contra MongoDB en memoria y contra un mongod embebido (Flapdoodle).
+ *
+ * Cada combinación stack × backend × caché es un @Param, por lo que JMH las mide por separado:
+ * ./gradlew jmh -Pjmh.includes=UserServiceBenchmark
+ *
+ * delete necesita un usuario nuevo en cada invocación: se crea en un @Setup(Level.Invocation)
+ * que JMH no incluye en la medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+
+    public enum Stack {
+        NATIVE,
+        SPRING_DATA
+    }
+
+    /**
+     * Operaciones comunes a los dos servicios.
+     */
+    private interface UserOperations {
+        User create(UserCreateDto dto);
+
+        User findById(String id);
+
+        User update(String id, UserUpdateDto dto);
+
+        boolean delete(String id);
+
+        List<DepartmentStatsDto> stats();
+    }
+
+    @Param({"NATIVE", "SPRING_DATA"})
+    private Stack stack;
+
+    @Param({"MEMORY", "FLAPDOODLE"})
+    private MongoBackend backendType;
+
+    /** Caché de usuarios (UserCache): afecta sobre todo a findById. */
+    @Param({"false", "true"})
+    private boolean userCache;
+
+    @Param({"1000"})
+    private int seedUsers;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private MongoBackend.Running backend;
+    private UserOperations operations;
+    private List<String> seededIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = backendType.start();
+        UserCache cache = userCache ? BenchmarkServices.userCache() : UserCache.disabled();
+        operations = stack == Stack.NATIVE
+                ? nativeOperations(BenchmarkServices.nativeService(backend.client(), DecodeMode.CODEC, cache))
+                : springDataOperations(BenchmarkServices.springDataService(backend.client(), cache));
+
+        seededIds = new ArrayList<>(seedUsers);
+        for (int i = 0; i < seedUsers; i++) {
+            seededIds.add(operations.create(newUser()).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.close();
+    }
+
+    /**
+     * Usuario recién creado para el benchmark de delete (fuera de la medida).
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        String id;
+
+        @Setup(Level.Invocation)
+        public void create(UserServiceBenchmark benchmark) {
+            id = benchmark.operations.create(benchmark.newUser()).getId();
+        }
+    }
+
+    @Benchmark
+    public User create() {
+        return operations.create(newUser());
+    }
+
+    @Benchmark
+    public User findById() {
+        return operations.findById(randomSeededId());
+    }
+
+    @Benchmark
+    public User update() {
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setRole("Role " + ThreadLocalRandom.current().nextInt(100));
+        return operations.update(randomSeededId(), dto);
+    }
+
+    @Benchmark
+    public boolean delete(DeleteTarget target) {
+        return operations.delete(target.id);
+    }
+
+    @Benchmark
+    public List<DepartmentStatsDto> statsByDepartment() {
+        return operations.stats();
+    }
+
+    UserCreateDto newUser() {
+        long n = emailSequence.incrementAndGet();
+        String department = DEPARTMENTS[(int) (n % DEPARTMENTS.length)];
+        return new UserCreateDto("Usuario " + n, "bench" + n + "@empresa.com", department, "Developer");
+    }
+
+    private String randomSeededId() {
+        return seededIds.get(ThreadLocalRandom.current().nextInt(seededIds.size()));
+    }
+
+    private static UserOperations nativeOperations(NativeMongoUserService service) {
+        return new UserOperations() {
+            @Override
+            public User create(UserCreateDto dto) {
+                return service.createUser(dto);
+            }
+
+            @Override
+            public User findById(String id) {
+                return service.findUserById(id);
+            }
+
+            @Override
+            public User update(String id, UserUpdateDto dto) {
+                return service.updateUser(id, dto);
+            }
+
+            @Override
+            public boolean delete(String id) {
+                return service.deleteUser(id);
+            }
+
+            @Override
+            public List<DepartmentStatsDto> stats() {
+                return service.getStatsByDepartment();
+            }
+        };
+    }
+
+    private static UserOperations springDataOperations(SpringDataUserService service) {
+        return new UserOperations() {
+            @Override
+            public User create(UserCreateDto dto) {
+                return service.createUser(dto);
+            }
+
+            @Override
+            public User findById(String id) {
+                return service.findUserById(id);
+            }
+
+            @Override
+            public User update(String id, UserUpdateDto dto) {
+                return service.updateUser(id, dto);
+            }
+
+            @Override
+            public boolean delete(String id) {
+                return service.deleteUser(id);
+            }
+
+            @Override
+            public List<DepartmentStatsDto> stats() {
+                return service.getStatsByDepartment();
+            }
+        };
+    }
+}
@@ -3,6 +3,7 @@ package com.dam.accesodatos;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Aplicación Spring Boot para proyecto pedagógico de MongoDB
@@ -23,6 +24,7 @@ import org.springframework.data.mongodb.config.EnableMongoAuditing;
  */
 @SpringBootApplication
 @EnableMongoAuditing // Habilita @CreatedDate y @LastModifiedDate automáticos
+@EnableScheduling // Reconciliación periódica de las estadísticas por departamento (@Scheduled)
 public class MongoDbTeachingApplication {
 
     public static void main(String[] args) {
@@ -40,6 +40,11 @@ import java.util.Arrays;
  * - Este inicializador carga 8 usuarios de ejemplo
  * - Distribuidos en varios departamentos para practicar queries
  * - Uno inactivo para demostrar filtros booleanos
+ *
+ * PRUEBAS DE CARGA:
+ * - Con app.data.synthetic.users > 0 carga en su lugar ese número de usuarios
+ *   generados (ver SyntheticDataGenerator): insertMany en paralelo y por lotes
+ *   con el driver nativo, en vez de saveAll()
  */
 @Configuration
 public class DataInitializer {
@@ -60,9 +65,10 @@ public class DataInitializer {
      * 1. Verifica si ya hay datos (repository.count() > 0)
      * 2. Si hay datos, omite inicialización (idempotencia)
      * 3. Si no hay datos, carga 8 usuarios de ejemplo
+     *    (o los usuarios sintéticos, si app.data.synthetic.users > 0)
      */
     @Bean
-    public CommandLineRunner initDatabase(UserRepository repository) {
+    public CommandLineRunner initDatabase(UserRepository repository, SyntheticDataGenerator syntheticData) {
         return args -> {
             // Idempotencia: solo cargar si BD está vacía
             if (repository.count() > 0) {
@@ -70,6 +76,11 @@ public class DataInitializer {
                 return;
             }
 
+            if (syntheticData.isEnabled()) {
+                syntheticData.load();
+                return;
+            }
+
             log.info("Inicializando base de datos con usuarios de prueba...");
 
             // Crear 8 usuarios de ejemplo para prácticas
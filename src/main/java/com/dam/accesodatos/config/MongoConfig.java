@@ -1,5 +1,12 @@
 package com.dam.accesodatos.config;
 
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.UserChangeListener;
+import com.dam.accesodatos.mongodb.UserChangeStream;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,8 +14,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * CONFIGURACIÓN DE MONGODB
  * ========================
@@ -28,7 +40,7 @@ import org.springframework.data.mongodb.repository.config.EnableMongoRepositorie
  * VENTAJAS MongoDB:
  * - No necesitas definir esquema (schema-less)
  * - Conexión más simple (solo host:port/database)
- * - No requiere pool de conexiones complejo
+ * - El pool de conexiones va integrado en el driver (configurable en mongoClient())
  *
  * VENTAJAS JPA:
  * - Control explícito de transacciones
@@ -50,6 +62,70 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${spring.data.mongodb.port}")
     private int port;  // Por defecto 27017 para MongoDB
 
+    /*
+     * POOL DE CONEXIONES Y TIMEOUTS
+     * =============================
+     * Equivalente HikariCP:
+     * spring.data.mongodb.pool.max-size         | maximumPoolSize
+     * spring.data.mongodb.pool.min-size         | minimumIdle
+     * spring.data.mongodb.pool.max-wait-ms      | connectionTimeout (espera por conexión libre)
+     * spring.data.mongodb.pool.max-idle-ms      | idleTimeout
+     * spring.data.mongodb.pool.max-connecting   | (sin equivalente: conexiones abriéndose a la vez)
+     */
+    @Value("${spring.data.mongodb.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${spring.data.mongodb.pool.min-size:0}")
+    private int poolMinSize;
+
+    @Value("${spring.data.mongodb.pool.max-wait-ms:120000}")
+    private long poolMaxWaitMs;
+
+    @Value("${spring.data.mongodb.pool.max-connecting:2}")
+    private int poolMaxConnecting;
+
+    @Value("${spring.data.mongodb.pool.max-idle-ms:0}")
+    private long poolMaxIdleMs;
+
+    @Value("${spring.data.mongodb.pool.slow-checkout-ms:100}")
+    private long slowCheckoutMs;
+
+    @Value("${spring.data.mongodb.connect-timeout-ms:10000}")
+    private int connectTimeoutMs;
+
+    @Value("${spring.data.mongodb.socket-timeout-ms:0}")
+    private int socketTimeoutMs;
+
+    @Value("${spring.data.mongodb.compressors:}")
+    private String compressors;  // Lista separada por comas: snappy, zlib, zstd (snappy/zstd requieren su librería)
+
+    @Value("${spring.data.mongodb.read-preference:primary}")
+    private String readPreference;
+
+    /*
+     * CHANGE STREAM DE USERS (ver UserChangeStream)
+     * app.change-stream.enabled               | arrancar el listener con la aplicación
+     * app.change-stream.mode                  | AUTO (change stream o polling si no se admite) o POLLING
+     * app.change-stream.queue-capacity        | eventos pendientes de repartir antes de frenar la lectura
+     * app.change-stream.poll-interval-ms      | frecuencia del polling sobre updatedAt
+     * app.change-stream.checkpoint-interval-ms| cada cuánto se guarda el resume token
+     * app.change-stream.local-echo-window-ms  | ventana en la que un cambio se toma por propio (ver LocalUserWrites)
+     */
+    @Value("${app.change-stream.enabled:true}")
+    private boolean changeStreamEnabled;
+
+    @Value("${app.change-stream.mode:AUTO}")
+    private UserChangeStream.Mode changeStreamMode;
+
+    @Value("${app.change-stream.queue-capacity:1000}")
+    private int changeStreamQueueCapacity;
+
+    @Value("${app.change-stream.poll-interval-ms:1000}")
+    private long changeStreamPollIntervalMs;
+
+    @Value("${app.change-stream.checkpoint-interval-ms:1000}")
+    private long changeStreamCheckpointIntervalMs;
+
     /**
      * NOMBRE DE LA BASE DE DATOS
      * ==========================
@@ -87,8 +163,10 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Override
     @Bean
     public MongoClient mongoClient() {
-        String connectionString = String.format("mongodb://%s:%d", host, port);
-        return MongoClients.create(connectionString);
+        MongoClientSettings settings = clientSettings()
+                .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(mongoPoolMetrics()))
+                .build();
+        return MongoClients.create(settings);
         
         // Equivalente JDBC sería:
         // @Bean
@@ -97,10 +175,94 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         //     config.setJdbcUrl("jdbc:mysql://localhost:3306/db");
         //     config.setUsername("user");
         //     config.setPassword("pass");
+        //     config.setMaximumPoolSize(100);
+        //     config.setConnectionTimeout(120000);
         //     return new HikariDataSource(config);
         // }
     }
 
+    /**
+     * Ajustes comunes a los clientes síncrono y reactivo: servidor, pool, timeouts,
+     * compresión y read preference.
+     */
+    private MongoClientSettings.Builder clientSettings() {
+        String connectionString = String.format("mongodb://%s:%d", host, port);
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(poolMaxSize)
+                        .minSize(poolMinSize)
+                        .maxWaitTime(poolMaxWaitMs, TimeUnit.MILLISECONDS)
+                        .maxConnecting(poolMaxConnecting)
+                        .maxConnectionIdleTime(poolMaxIdleMs, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                        .readTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS))
+                .compressorList(buildCompressors())
+                .readPreference(ReadPreference.valueOf(readPreference));
+    }
+
+    /**
+     * CLIENTE REACTIVO (REACTIVE STREAMS)
+     * ===================================
+     * Mismo servidor y pool que mongoClient(), pero con el driver mongodb-driver-reactivestreams:
+     * las operaciones devuelven un Publisher y no bloquean el hilo que las lanza.
+     *
+     * MongoDB:                                      | JDBC/JPA:
+     * --------------------------------------------- | ---------------------------------------
+     * com.mongodb.reactivestreams.client.MongoClient| R2DBC ConnectionFactory (no JDBC:
+     * ReactiveMongoTemplate                         |   JDBC siempre bloquea el hilo)
+     *
+     * Tiene su propio pool de conexiones: GET /api/admin/mongo/pool solo mide el síncrono.
+     */
+    @Bean
+    public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient() {
+        return com.mongodb.reactivestreams.client.MongoClients.create(clientSettings().build());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate() {
+        return new ReactiveMongoTemplate(reactiveMongoClient(), getDatabaseName());
+    }
+
+    /**
+     * LISTENER DE EVENTOS DEL POOL
+     * ============================
+     * Registrado en mongoClient() para contar préstamos, devoluciones y tiempo de espera.
+     * Consultable en GET /api/admin/mongo/pool.
+     */
+    @Bean
+    public MongoPoolMetrics mongoPoolMetrics() {
+        return new MongoPoolMetrics(slowCheckoutMs);
+    }
+
+    /**
+     * LISTENER DE CAMBIOS DE LA COLECCIÓN USERS
+     * =========================================
+     * Arranca con el contexto (SmartLifecycle) sobre el mismo MongoClient y reparte
+     * los cambios a todos los beans UserChangeListener (caché de usuarios, estadísticas).
+     * Consultable en GET /api/admin/change-stream.
+     */
+    @Bean
+    public UserChangeStream userChangeStream(List<UserChangeListener> listeners, LocalUserWrites localWrites) {
+        return new UserChangeStream(mongoClient(), databaseName, listeners, localWrites, changeStreamEnabled, changeStreamMode,
+                changeStreamQueueCapacity, changeStreamPollIntervalMs, changeStreamCheckpointIntervalMs);
+    }
+
+    private List<MongoCompressor> buildCompressors() {
+        List<MongoCompressor> result = new ArrayList<>();
+        for (String name : compressors.split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "" -> { }
+                case "snappy" -> result.add(MongoCompressor.createSnappyCompressor());
+                case "zlib" -> result.add(MongoCompressor.createZlibCompressor());
+                case "zstd" -> result.add(MongoCompressor.createZstdCompressor());
+                default -> throw new IllegalArgumentException("Compresor MongoDB desconocido: " + name);
+            }
+        }
+        return result;
+    }
+
     /**
      * MONGOTEMPLATE (API DE BAJO NIVEL)
      * =================================
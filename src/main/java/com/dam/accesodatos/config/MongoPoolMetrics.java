@@ -0,0 +1,103 @@
+package com.dam.accesodatos.config;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MÉTRICAS DEL POOL DE CONEXIONES DE MONGODB
+ * ==========================================
+ * ConnectionPoolListener que el driver invoca en cada evento del pool
+ * (crear, prestar, devolver, cerrar conexión).
+ *
+ * Equivalente JDBC/HikariCP:
+ * HikariPoolMXBean → getActiveConnections(), getThreadsAwaitingConnection()
+ *
+ * Permite dimensionar maxPoolSize con datos reales: si el tiempo de espera
+ * medio o máximo crece, los hilos están haciendo cola por una conexión.
+ * Los contadores son LongAdder/AtomicLong porque los eventos llegan desde
+ * todos los hilos que usan el MongoClient.
+ */
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoPoolMetrics.class);
+
+    private final long slowCheckoutThresholdMs;
+
+    private final LongAdder checkedOut = new LongAdder();
+    private final LongAdder checkedIn = new LongAdder();
+    private final LongAdder checkOutFailed = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong inUse = new AtomicLong();
+
+    public MongoPoolMetrics(long slowCheckoutThresholdMs) {
+        this.slowCheckoutThresholdMs = slowCheckoutThresholdMs;
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        created.increment();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        closed.increment();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.increment();
+        inUse.incrementAndGet();
+        long waitNanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitMs >= slowCheckoutThresholdMs) {
+            log.warn("Espera de {} ms para obtener conexión del pool ({} en uso)", waitMs, inUse.get());
+        }
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkOutFailed.increment();
+        log.warn("No se pudo obtener conexión del pool: {}", event.getReason());
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedIn.increment();
+        inUse.decrementAndGet();
+    }
+
+    /**
+     * Instantánea de los contadores del pool (para el endpoint de administración).
+     */
+    public Map<String, Object> snapshot() {
+        long outs = checkedOut.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inUse", inUse.get());
+        stats.put("open", created.sum() - closed.sum());
+        stats.put("created", created.sum());
+        stats.put("closed", closed.sum());
+        stats.put("checkedOut", outs);
+        stats.put("checkedIn", checkedIn.sum());
+        stats.put("checkOutFailed", checkOutFailed.sum());
+        stats.put("avgWaitMicros", outs == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum() / outs));
+        stats.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+        return stats;
+    }
+}
@@ -0,0 +1,196 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.exception.MongoBusyException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LÍMITE DE PETICIONES CONCURRENTES CONTRA MONGODB
+ * ================================================
+ * Semaphore delante del pool de conexiones para las peticiones de /api/native
+ * y /api/springdata (ver WebConfig).
+ *
+ * Con hilos de plataforma, Tomcat ya limita la concurrencia (200 hilos por defecto).
+ * Con hilos virtuales (spring.threads.virtual.enabled=true) cada petición tiene su
+ * propio hilo: 5000 peticiones a la vez serían 5000 hilos pidiendo una de las
+ * 100 conexiones del pool, y las que no la consigan en max-wait-ms fallan con
+ * MongoTimeoutException. El semáforo deja pasar tantas peticiones como conexiones
+ * y el resto espera aparcado (un hilo virtual en espera apenas ocupa memoria).
+ *
+ * Equivalente JDBC/HikariCP:
+ * maximumPoolSize + connectionTimeout, con la cola delante del pool en lugar de dentro
+ *
+ * app.mongodb.request-permits:
+ * - -1 (por defecto): tantos permisos como spring.data.mongodb.pool.max-size si los
+ *   hilos son virtuales; sin límite con hilos de plataforma
+ * - 0: sin límite
+ * - N: N permisos
+ *
+ * Las respuestas asíncronas (/users/stream) conservan el permiso mientras se recorre
+ * el cursor en otro hilo: se devuelve en afterCompletion del despacho ASYNC que cierra
+ * la petición o, si ese despacho no llega (cliente desconectado), al completarse el
+ * AsyncContext. Devolverlo al salir del método del controlador dejaría los streams
+ * fuera del límite.
+ */
+@Component
+public class MongoRequestLimiter implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoRequestLimiter.class);
+
+    private static final String PERMIT_ATTRIBUTE = MongoRequestLimiter.class.getName() + ".permit";
+
+    private final boolean virtualThreads;
+    private final int permits;
+    private final long waitMs;
+    private final Semaphore semaphore;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    @Autowired
+    public MongoRequestLimiter(@Value("${app.mongodb.request-permits:-1}") int requestPermits,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               @Value("${spring.data.mongodb.pool.max-size:100}") int poolMaxSize,
+                               @Value("${app.mongodb.request-permit-wait-ms:${spring.data.mongodb.pool.max-wait-ms:120000}}") long waitMs) {
+        this.virtualThreads = virtualThreads;
+        this.permits = requestPermits < 0 ? (virtualThreads ? poolMaxSize : 0) : requestPermits;
+        this.waitMs = waitMs;
+        this.semaphore = permits > 0 ? new Semaphore(permits, true) : null;
+        log.info("Hilos de {}: límite de peticiones contra MongoDB {}",
+                virtualThreads ? "virtuales" : "plataforma",
+                permits > 0 ? permits + " (espera máxima " + waitMs + " ms)" : "desactivado");
+    }
+
+    /**
+     * Limitador con un número fijo de permisos (0 = sin límite), para uso fuera de Spring.
+     */
+    public MongoRequestLimiter(int permits, long waitMs) {
+        this(permits, true, permits, waitMs);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        if (acquire()) {
+            request.setAttribute(PERMIT_ATTRIBUTE, new AtomicBoolean(true));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // El permiso sigue tomado; solo se asegura su devolución si no hay despacho ASYNC
+        AtomicBoolean permit = permitOf(request);
+        if (permit != null && request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    releaseOnce(permit);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AtomicBoolean permit = permitOf(request);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            releaseOnce(permit);
+        }
+    }
+
+    private static AtomicBoolean permitOf(HttpServletRequest request) {
+        return (AtomicBoolean) request.getAttribute(PERMIT_ATTRIBUTE);
+    }
+
+    /**
+     * Devuelve el permiso de una petición una sola vez (afterCompletion y onComplete
+     * pueden llegar ambos, en hilos distintos).
+     */
+    private void releaseOnce(AtomicBoolean permit) {
+        if (permit.compareAndSet(true, false)) {
+            release();
+        }
+    }
+
+    /**
+     * Espera un permiso como máximo waitMs.
+     *
+     * @return true si se ha tomado un permiso (hay que llamar a release()),
+     *         false si el límite está desactivado
+     * @throws MongoBusyException si no hay permiso libre a tiempo
+     */
+    public boolean acquire() {
+        if (semaphore == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = semaphore.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ok = false;
+        }
+        totalWaitNanos.add(System.nanoTime() - start);
+        if (!ok) {
+            rejected.increment();
+            throw new MongoBusyException(waitMs);
+        }
+        acquired.increment();
+        return true;
+    }
+
+    public void release() {
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = acquired.sum() + rejected.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", virtualThreads ? "VIRTUAL" : "PLATFORM");
+        stats.put("enabled", semaphore != null);
+        stats.put("permits", permits);
+        stats.put("inUse", semaphore != null ? permits - semaphore.availablePermits() : 0);
+        stats.put("waiting", semaphore != null ? semaphore.getQueueLength() : 0);
+        stats.put("acquired", acquired.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("avgWaitMs", count == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / count);
+        stats.put("maxWaitMs", waitMs);
+        return stats;
+    }
+}
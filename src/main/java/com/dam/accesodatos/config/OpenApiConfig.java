@@ -40,16 +40,12 @@ public class OpenApiConfig {
                                 **Spring Data** (`/api/springdata`): Usa las abstracciones de Spring Data MongoDB
                                 como MongoRepository y MongoTemplate. Más productivo para desarrollo real.
 
+                                **API Reactiva** (`/api/reactive`): Usa el driver reactivo (Reactive Streams) con
+                                ReactiveMongoTemplate. Devuelve Mono/Flux y no bloquea hilos mientras espera a MongoDB.
+
                                 ## Usuarios de prueba
                                 - `admin` / `admin123` (rol ADMIN)
                                 - `user` / `user123` (rol USER)
-
-                                ## Métodos TODO para estudiantes
-                                Los siguientes métodos deben ser implementados por los estudiantes:
-                                - `findAll()` - Listar todos los usuarios
-                                - `findUsersByDepartment()` - Filtrar por departamento
-                                - `searchUsers()` - Búsqueda avanzada con paginación
-                                - `countByDepartment()` - Contar usuarios por departamento
                                 """)
                         .contact(new Contact()
                                 .name("DAM - Acceso a Datos")
@@ -67,6 +63,12 @@ public class OpenApiConfig {
                                 .description("Endpoints usando el driver nativo de MongoDB"),
                         new Tag()
                                 .name("Spring Data")
-                                .description("Endpoints usando Spring Data MongoDB")));
+                                .description("Endpoints usando Spring Data MongoDB"),
+                        new Tag()
+                                .name("API Reactiva")
+                                .description("Endpoints usando el driver reactivo de MongoDB (Reactive Streams)"),
+                        new Tag()
+                                .name("Administración")
+                                .description("Endpoints de diagnóstico de la conexión con MongoDB y de la caché de usuarios, de los planes de consulta, de las estadísticas materializadas, del change stream y del límite de concurrencia")));
     }
 }
@@ -0,0 +1,349 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserServiceImpl;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GENERADOR DE USUARIOS SINTÉTICOS PARA PRUEBAS DE CARGA
+ * ======================================================
+ * Con app.data.synthetic.users > 0, DataInitializer carga ese número de usuarios
+ * generados en lugar de los 8 de ejemplo.
+ *
+ * MongoDB (driver nativo):                      | SQL:
+ * --------------------------------------------- | ------------------------------------------
+ * dropIndex(nombre) de los que se recrean,     | DROP INDEX ... / ALTER INDEX ... UNUSABLE
+ *   salvo los únicos, antes de cargar           |   (salvo los UNIQUE)
+ * insertMany(lote, { ordered: false })          | INSERT ... VALUES (...), (...) en lotes
+ *   en varios hilos a la vez                    |   (o COPY / LOAD DATA INFILE)
+ * createIndexes(...) al terminar                | CREATE INDEX ... tras la carga
+ *
+ * - Cada hilo genera un lote de batch-size usuarios y lo inserta con un insertMany
+ *   desordenado: el servidor no se detiene en el primer error y puede aplicar las
+ *   escrituras sin respetar el orden de la lista
+ * - Mantener los índices documento a documento es más caro que construirlos una vez al
+ *   final (una ordenación por índice): se eliminan antes de la carga los índices que se
+ *   crean después con los mismos métodos que al arrancar (los de NativeMongoUserServiceImpl,
+ *   los declarados en User y user_text). Los demás no se tocan: el de updatedAt que crea
+ *   UserChangeStream en modo POLLING o los creados a mano no se recrearían. Los únicos
+ *   (email) se mantienen: sin ellos la carga podría dejar duplicados y la creación del
+ *   índice fallaría al final, o la API aceptaría emails repetidos mientras dura la carga
+ * - Los datos dependen solo de seed: cada lote usa su propio generador, derivado de seed
+ *   y del número de lote, así que da igual qué hilo lo genere o en qué orden terminen
+ * - department sigue la distribución de app.data.synthetic.departments ("IT:30,HR:10":
+ *   pesos relativos) y una fracción inactive-ratio de usuarios queda con active = false
+ *
+ * Las escrituras no pasan por los servicios: department_stats se reconcilia al terminar
+ * el arranque (DepartmentStatsView) y los índices en memoria se descartan aquí.
+ */
+@Component
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String USERS_COLLECTION = "users";
+
+    private static final String[] FIRST_NAMES = {
+            "Juan", "María", "Carlos", "Ana", "Luis", "Elena", "Pedro", "Laura", "Javier", "Lucía",
+            "Miguel", "Carmen", "David", "Sofía", "Pablo", "Marta", "Sergio", "Paula", "Jorge", "Raquel",
+            "Álvaro", "Cristina", "Diego", "Beatriz", "Andrés", "Nuria", "Rubén", "Irene", "Óscar", "Silvia"};
+
+    private static final String[] LAST_NAMES = {
+            "García", "Fernández", "González", "Rodríguez", "López", "Martínez", "Sánchez", "Pérez",
+            "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez",
+            "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos"};
+
+    private static final Map<String, String[]> ROLES_BY_DEPARTMENT = Map.of(
+            "IT", new String[]{"Developer", "Senior Developer", "DevOps", "QA Engineer", "Architect"},
+            "HR", new String[]{"Recruiter", "Manager", "HR Specialist"},
+            "Finance", new String[]{"Analyst", "Accountant", "Controller"},
+            "Marketing", new String[]{"Specialist", "Content Manager", "SEO Analyst"},
+            "Sales", new String[]{"Representative", "Account Manager", "Sales Director"});
+
+    private static final String[] DEFAULT_ROLES = {"Analyst", "Specialist", "Manager", "Assistant"};
+
+    /** createdAt se reparte en los tres años anteriores a esta fecha (fija para que seed baste). */
+    private static final Instant HISTORY_END = Instant.parse("2025-01-01T00:00:00Z");
+    private static final long HISTORY_MILLIS = Duration.ofDays(3 * 365).toMillis();
+
+    /** Mezcla de seed con el número de lote (constante de SplittableRandom, 2^64 / φ). */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final MongoCollection<Document> users;
+    private final int userCount;
+    private final String[] departments;
+    private final double[] cumulativeWeights;
+    private final double inactiveRatio;
+    private final long seed;
+    private final int batchSize;
+    private final int threads;
+    private final boolean createIndexes;
+
+    private final NativeMongoUserServiceImpl nativeService;
+    private final SpringDataUserServiceImpl springDataService;
+    private final UserTextIndex textIndex;
+    private final UserFacetIndex facetIndex;
+    private final DepartmentCountCache countCache;
+
+    @Autowired
+    public SyntheticDataGenerator(MongoClient mongoClient,
+                                  @Value("${spring.data.mongodb.database}") String databaseName,
+                                  @Value("${app.data.synthetic.users:0}") int userCount,
+                                  @Value("${app.data.synthetic.departments:IT:30,Sales:25,Marketing:15,Finance:15,HR:15}")
+                                  String departmentWeights,
+                                  @Value("${app.data.synthetic.inactive-ratio:0.1}") double inactiveRatio,
+                                  @Value("${app.data.synthetic.seed:42}") long seed,
+                                  @Value("${app.data.synthetic.batch-size:1000}") int batchSize,
+                                  @Value("${app.data.synthetic.threads:0}") int threads,
+                                  @Value("${spring.data.mongodb.auto-index-creation:true}") boolean createIndexes,
+                                  NativeMongoUserServiceImpl nativeService,
+                                  SpringDataUserServiceImpl springDataService,
+                                  UserTextIndex textIndex,
+                                  UserFacetIndex facetIndex,
+                                  DepartmentCountCache countCache) {
+        this.users = mongoClient.getDatabase(databaseName).getCollection(USERS_COLLECTION);
+        this.userCount = Math.max(0, userCount);
+        Map<String, Double> weights = parseWeights(departmentWeights);
+        this.departments = weights.keySet().toArray(new String[0]);
+        this.cumulativeWeights = new double[departments.length];
+        double total = 0;
+        for (int i = 0; i < departments.length; i++) {
+            total += weights.get(departments[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.inactiveRatio = Math.max(0, Math.min(1, inactiveRatio));
+        this.seed = seed;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.createIndexes = createIndexes;
+        this.nativeService = nativeService;
+        this.springDataService = springDataService;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+        this.countCache = countCache;
+    }
+
+    public boolean isEnabled() {
+        return userCount > 0;
+    }
+
+    /**
+     * Carga userCount usuarios en la colección users (que se supone vacía).
+     *
+     * @return número de usuarios insertados
+     */
+    public long load() {
+        int batches = (userCount + batchSize - 1) / batchSize;
+        log.info("Generando {} usuarios sintéticos: {} lotes de {} en {} hilos (seed {}, departamentos {}, inactivos {})",
+                userCount, batches, batchSize, threads, seed, Arrays.toString(departments), inactiveRatio);
+
+        if (createIndexes) {
+            List<String> dropped = dropRebuiltIndexes();
+            log.info("Índices no únicos de {} eliminados: {} (se crearán tras la carga)",
+                    USERS_COLLECTION, dropped);
+        }
+
+        long start = System.nanoTime();
+        AtomicLong inserted = new AtomicLong();
+        AtomicInteger completed = new AtomicInteger();
+        int progressEvery = Math.max(1, batches / 10);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(batches);
+            for (int batch = 0; batch < batches; batch++) {
+                int current = batch;
+                futures.add(executor.submit(() -> {
+                    inserted.addAndGet(insertBatch(current));
+                    int done = completed.incrementAndGet();
+                    if (done % progressEvery == 0 || done == batches) {
+                        logProgress(inserted.get(), start);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error en la carga sintética: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga sintética interrumpida", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        long loadNanos = System.nanoTime() - start;
+        log.info("✓ {} usuarios sintéticos insertados en {} ms ({} usuarios/s)", inserted.get(),
+                TimeUnit.NANOSECONDS.toMillis(loadNanos), perSecond(inserted.get(), loadNanos));
+
+        if (createIndexes) {
+            long indexStart = System.nanoTime();
+            nativeService.ensureIndexes();
+            springDataService.ensureIndexes();
+            textIndex.ensureIndex();
+            log.info("✓ Índices de {} creados en {} ms", USERS_COLLECTION,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - indexStart));
+        }
+        countCache.invalidate();
+        textIndex.invalidate();
+        facetIndex.invalidate();
+        return inserted.get();
+    }
+
+    /**
+     * Elimina los índices que load() vuelve a crear al terminar, salvo los únicos, que siguen
+     * rechazando duplicados durante la carga. Los que no se recrean (updatedAt, manuales) se
+     * mantienen.
+     *
+     * @return nombres de los índices eliminados
+     */
+    private List<String> dropRebuiltIndexes() {
+        Set<String> rebuilt = new HashSet<>(NativeMongoUserServiceImpl.indexNames());
+        rebuilt.addAll(springDataService.indexNames());
+        rebuilt.add(UserTextIndex.INDEX_NAME);
+        List<String> dropped = new ArrayList<>();
+        for (Document index : users.listIndexes()) {
+            String name = index.getString("name");
+            if (rebuilt.contains(name) && !Boolean.TRUE.equals(index.get("unique"))) {
+                users.dropIndex(name);
+                dropped.add(name);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Genera e inserta el lote batch (usuarios [batch * batchSize, ...)).
+     * Con ordered(false) un error (p.ej. email duplicado) no detiene el resto del lote.
+     */
+    private long insertBatch(int batch) {
+        int from = batch * batchSize;
+        int to = Math.min(from + batchSize, userCount);
+        SplittableRandom random = new SplittableRandom(seed * GOLDEN_GAMMA + batch);
+        List<Document> docs = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            docs.add(generateUser(i, random));
+        }
+        try {
+            users.insertMany(docs, new InsertManyOptions().ordered(false));
+            return docs.size();
+        } catch (MongoBulkWriteException e) {
+            int failed = e.getWriteErrors().size();
+            log.warn("Lote {}: {} de {} usuarios no insertados: {}", batch, failed, docs.size(),
+                    e.getWriteErrors().get(0).getMessage());
+            return docs.size() - failed;
+        }
+    }
+
+    /**
+     * Mismo documento que NativeMongoUserServiceImpl.createUser(); el índice del usuario
+     * en el email lo hace único.
+     */
+    private Document generateUser(int index, SplittableRandom random) {
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String secondLastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String name = firstName + " " + lastName + " " + secondLastName;
+        String email = NameSearch.normalize(firstName) + "." + NameSearch.normalize(lastName) + "." + index
+                + "@empresa.com";
+        String department = pickDepartment(random);
+        String[] roles = ROLES_BY_DEPARTMENT.getOrDefault(department, DEFAULT_ROLES);
+        Date createdAt = Date.from(HISTORY_END.minusMillis(random.nextLong(HISTORY_MILLIS)));
+        Date updatedAt = new Date(createdAt.getTime()
+                + random.nextLong(HISTORY_END.toEpochMilli() - createdAt.getTime() + 1));
+        return new Document()
+                .append("name", name)
+                .append(NameSearch.FIELD, NameSearch.keys(name))
+                .append("email", email)
+                .append("department", department)
+                .append("role", roles[random.nextInt(roles.length)])
+                .append("active", random.nextDouble() >= inactiveRatio)
+                .append("createdAt", createdAt)
+                .append("updatedAt", updatedAt);
+    }
+
+    private String pickDepartment(SplittableRandom random) {
+        return departmentAt(random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+    }
+
+    /**
+     * Departamento del tramo de pesos acumulados en el que cae point, de [0, peso total).
+     * Con "IT:30,HR:10": [0, 30) → IT y [30, 40) → HR.
+     */
+    String departmentAt(double point) {
+        int slot = Arrays.binarySearch(cumulativeWeights, point);
+        // Sin coincidencia exacta binarySearch devuelve -(punto de inserción) - 1
+        int index = slot >= 0 ? slot + 1 : -slot - 1;
+        return departments[Math.min(index, departments.length - 1)];
+    }
+
+    private void logProgress(long inserted, long start) {
+        long elapsed = System.nanoTime() - start;
+        log.info("Carga sintética: {}/{} usuarios ({}%), {} usuarios/s", inserted, userCount,
+                inserted * 100 / userCount, perSecond(inserted, elapsed));
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos > 0 ? count * TimeUnit.SECONDS.toNanos(1) / nanos : count;
+    }
+
+    /**
+     * "IT:30,HR:10" → {IT=30, HR=10}. Un departamento sin peso ("IT") pesa 1.
+     */
+    static Map<String, Double> parseWeights(String spec) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            String department = colon >= 0 ? trimmed.substring(0, colon).trim() : trimmed;
+            double weight;
+            try {
+                weight = colon >= 0 ? Double.parseDouble(trimmed.substring(colon + 1).trim()) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Peso no válido en app.data.synthetic.departments: " + trimmed, e);
+            }
+            if (department.isEmpty() || !(weight > 0)) {
+                throw new IllegalArgumentException("Departamento o peso no válido en app.data.synthetic.departments: " + trimmed);
+            }
+            weights.merge(department, weight, Double::sum);
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("app.data.synthetic.departments no puede estar vacío");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,29 @@
+package com.dam.accesodatos.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Interceptores de Spring MVC.
+ *
+ * MongoRequestLimiter solo se aplica a las APIs bloqueantes: /api/reactive no ocupa
+ * un hilo por petición y su cliente tiene su propio pool.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final MongoRequestLimiter mongoRequestLimiter;
+
+    @Autowired
+    public WebConfig(MongoRequestLimiter mongoRequestLimiter) {
+        this.mongoRequestLimiter = mongoRequestLimiter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(mongoRequestLimiter)
+                .addPathPatterns("/api/native/**", "/api/springdata/**");
+    }
+}
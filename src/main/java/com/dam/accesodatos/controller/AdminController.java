@@ -0,0 +1,177 @@
+package com.dam.accesodatos.controller;
+
+import com.dam.accesodatos.config.MongoPoolMetrics;
+import com.dam.accesodatos.config.MongoRequestLimiter;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.QueryPlanReporter;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserChangeStream;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.nativeapi.DepartmentStatsView;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@Tag(name = "Administración", description = "Endpoints de diagnóstico de la conexión con MongoDB y de la caché de usuarios, de la búsqueda de texto y por facetas, de los planes de consulta, de las estadísticas materializadas, del change stream y del límite de concurrencia")
+public class AdminController {
+
+    private final MongoPoolMetrics poolMetrics;
+    private final MongoRequestLimiter requestLimiter;
+    private final UserCache userCache;
+    private final DepartmentCountCache countCache;
+    private final QueryPlanReporter queryPlanReporter;
+    private final DepartmentStatsView departmentStats;
+    private final UserChangeStream userChangeStream;
+    private final UserTextIndex textIndex;
+    private final UserFacetIndex facetIndex;
+
+    @Autowired
+    public AdminController(MongoPoolMetrics poolMetrics, MongoRequestLimiter requestLimiter, UserCache userCache,
+                           DepartmentCountCache countCache, QueryPlanReporter queryPlanReporter,
+                           DepartmentStatsView departmentStats, UserChangeStream userChangeStream,
+                           UserTextIndex textIndex, UserFacetIndex facetIndex) {
+        this.poolMetrics = poolMetrics;
+        this.requestLimiter = requestLimiter;
+        this.userCache = userCache;
+        this.countCache = countCache;
+        this.queryPlanReporter = queryPlanReporter;
+        this.departmentStats = departmentStats;
+        this.userChangeStream = userChangeStream;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+    }
+
+    @GetMapping("/mongo/pool")
+    @Operation(summary = "Métricas del pool de conexiones",
+            description = "Conexiones en uso, abiertas, préstamos, fallos y tiempo de espera medio/máximo para obtener conexión")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> poolStats() {
+        return ResponseEntity.ok(poolMetrics.snapshot());
+    }
+
+    @GetMapping("/mongo/limiter")
+    @Operation(summary = "Límite de peticiones concurrentes",
+            description = "Modo de hilos (PLATFORM/VIRTUAL), permisos del semáforo en uso, peticiones en espera, rechazadas y espera media")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> requestLimiterStats() {
+        return ResponseEntity.ok(requestLimiter.snapshot());
+    }
+
+    @GetMapping("/cache/users")
+    @Operation(summary = "Métricas de la caché de usuarios",
+            description = "Tamaño, aciertos, fallos, ratio de acierto, expulsiones por tamaño y caducidades por TTL")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> userCacheStats() {
+        return ResponseEntity.ok(userCache.snapshot());
+    }
+
+    @DeleteMapping("/cache/users")
+    @Operation(summary = "Vaciar la caché de usuarios",
+            description = "Descarta todas las entradas; las siguientes lecturas por ID irán a MongoDB")
+    @ApiResponse(responseCode = "204", description = "Caché vaciada")
+    public ResponseEntity<Void> clearUserCache() {
+        userCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/cache/counts")
+    @Operation(summary = "Estado de la caché de contadores por departamento",
+            description = "Última siembra ($group), antigüedad, departamentos, consultas servidas desde memoria y siembras")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> countCacheStats() {
+        return ResponseEntity.ok(countCache.snapshot());
+    }
+
+    @DeleteMapping("/cache/counts")
+    @Operation(summary = "Descartar los contadores por departamento",
+            description = "La siguiente consulta de conteo vuelve a sembrarlos desde MongoDB")
+    @ApiResponse(responseCode = "204", description = "Contadores descartados")
+    public ResponseEntity<Void> clearCountCache() {
+        countCache.invalidate();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/search/text")
+    @Operation(summary = "Estado de la búsqueda de texto",
+            description = "Si se usa $text o el índice en memoria, tamaño del índice en memoria, consultas de cada tipo y reconstrucciones")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> textIndexStats() {
+        return ResponseEntity.ok(textIndex.snapshot());
+    }
+
+    @DeleteMapping("/search/text")
+    @Operation(summary = "Descartar el índice de texto en memoria",
+            description = "La siguiente búsqueda de texto sin $text lo reconstruye desde MongoDB")
+    @ApiResponse(responseCode = "204", description = "Índice descartado")
+    public ResponseEntity<Void> clearTextIndex() {
+        textIndex.invalidate();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/search/facets")
+    @Operation(summary = "Estado del índice de facetas",
+            description = "Usuarios indexados, slots libres, valores de department y role, memoria de los bitmaps, consultas y reconstrucciones")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas")
+    public ResponseEntity<Map<String, Object>> facetIndexStats() {
+        return ResponseEntity.ok(facetIndex.snapshot());
+    }
+
+    @DeleteMapping("/search/facets")
+    @Operation(summary = "Descartar el índice de facetas",
+            description = "La siguiente consulta de facetas lo reconstruye desde MongoDB")
+    @ApiResponse(responseCode = "204", description = "Índice descartado")
+    public ResponseEntity<Void> clearFacetIndex() {
+        facetIndex.invalidate();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/explain")
+    @Operation(summary = "Planes de ejecución de las consultas de usuarios",
+            description = "Ejecuta explain(\"executionStats\") de las consultas de ambos servicios: etapas del plan, " +
+                    "índice usado, claves y documentos examinados frente a devueltos")
+    @ApiResponse(responseCode = "200", description = "Planes obtenidos")
+    public ResponseEntity<List<Map<String, Object>>> explain(@RequestParam(defaultValue = "IT") String department) {
+        return ResponseEntity.ok(queryPlanReporter.explainAll(department));
+    }
+
+    @GetMapping("/change-stream")
+    @Operation(summary = "Estado del listener de cambios de users",
+            description = "Origen (change stream o polling sobre updatedAt), eventos recibidos y repartidos, " +
+                    "ecos de escrituras propias, cola pendiente y errores de los consumidores")
+    @ApiResponse(responseCode = "200", description = "Estado obtenido")
+    public ResponseEntity<Map<String, Object>> changeStreamStats() {
+        return ResponseEntity.ok(userChangeStream.snapshot());
+    }
+
+    @GetMapping("/stats/departments/reconciliation")
+    @Operation(summary = "Última reconciliación de las estadísticas por departamento",
+            description = "Departamentos cuyos contadores materializados no coincidían con el recálculo desde users")
+    @ApiResponse(responseCode = "200", description = "Informe obtenido")
+    @ApiResponse(responseCode = "204", description = "Todavía no se ha ejecutado ninguna reconciliación")
+    public ResponseEntity<Map<String, Object>> lastStatsReconciliation() {
+        Map<String, Object> report = departmentStats.lastReconciliation();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/stats/departments/reconciliation")
+    @Operation(summary = "Reconciliar ahora las estadísticas por departamento",
+            description = "Recalcula con $group sobre users, informa del drift y corrige department_stats")
+    @ApiResponse(responseCode = "200", description = "Reconciliación ejecutada")
+    public ResponseEntity<Map<String, Object>> reconcileStats() {
+        return ResponseEntity.ok(departmentStats.reconcile());
+    }
+}
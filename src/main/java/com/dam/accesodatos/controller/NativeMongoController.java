@@ -1,11 +1,24 @@
 package com.dam.accesodatos.controller;
 
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
 import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
 import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,9 +27,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,10 +43,12 @@ import java.util.Map;
 public class NativeMongoController {
 
     private final NativeMongoUserService userService;
+    private final ObjectWriter userWriter;
 
     @Autowired
-    public NativeMongoController(NativeMongoUserService userService) {
+    public NativeMongoController(NativeMongoUserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userWriter = objectMapper.writerFor(User.class);
     }
 
     @GetMapping("/test-connection")
@@ -52,6 +71,15 @@ public class NativeMongoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(user);
     }
 
+    @PostMapping("/users/bulk")
+    @Operation(summary = "Crear usuarios en bloque",
+            description = "Inserta una lista de usuarios en lotes no ordenados y devuelve el resultado de cada elemento: CREATED, DUPLICATE_EMAIL, INVALID (no pasa la validación o es nulo; no se envía) o FAILED")
+    @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el estado de cada elemento)")
+    public ResponseEntity<BulkCreateResultDto> createUsers(@RequestBody List<UserCreateDto> dtos) {
+        BulkCreateResultDto result = userService.createUsers(dtos);
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/users/{id}")
     @Operation(summary = "Buscar por ID", description = "Obtiene un usuario por su ID de MongoDB")
     @ApiResponses({
@@ -65,6 +93,39 @@ public class NativeMongoController {
         return ResponseEntity.ok(user);
     }
 
+    @PostMapping("/users/batch-get")
+    @Operation(summary = "Buscar varios por ID",
+            description = "Resuelve hasta app.mongodb.batch-get-max-ids IDs con una sola consulta $in sobre _id. Devuelve un resultado por ID en el orden de la petición: FOUND, NOT_FOUND o INVALID_ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Búsqueda completada (revisar el estado de cada ID)"),
+            @ApiResponse(responseCode = "400", description = "Demasiados IDs en la petición")
+    })
+    public ResponseEntity<BatchGetResultDto> findUsersByIds(@RequestBody List<String> ids) {
+        BatchGetResultDto result = userService.findUsersByIds(ids);
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/users/bulk")
+    @Operation(summary = "Actualizar usuarios en bloque",
+            description = "Aplica a cada ID sus propios cambios con un único bulkWrite de UpdateOneModel no ordenado (en lotes de app.mongodb.bulk-chunk-size). Devuelve matched/modified y el resultado de cada elemento: UPDATED, NOT_FOUND, INVALID_ID, INVALID (no pasa la validación, sin update o nulo; no se envía), DUPLICATE_EMAIL o FAILED")
+    @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el estado de cada elemento)")
+    public ResponseEntity<BulkUpdateResultDto> updateUsers(@RequestBody List<BulkUpdateItemDto> items) {
+        BulkUpdateResultDto result = userService.updateUsers(items);
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/users/bulk/by-filter")
+    @Operation(summary = "Actualizar usuarios por filtro",
+            description = "Aplica los mismos cambios a todos los usuarios que cumplen el filtro (name, department, active) con un único updateMany; si cambian department o active se recuentan las estadísticas materializadas. Devuelve matched/modified")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Actualización completada"),
+            @ApiResponse(responseCode = "400", description = "Filtro vacío, sin cambios o con email")
+    })
+    public ResponseEntity<BulkUpdateResultDto> updateUsersByFilter(@Valid @RequestBody BulkUpdateByFilterDto request) {
+        BulkUpdateResultDto result = userService.updateUsersByFilter(request);
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/users/{id}")
     @Operation(summary = "Actualizar usuario", description = "Actualiza los datos de un usuario existente")
     @ApiResponses({
@@ -95,38 +156,142 @@ public class NativeMongoController {
     }
 
     @GetMapping("/users")
-    @Operation(summary = "Listar todos (TODO)", description = "Lista todos los usuarios. PENDIENTE: Los estudiantes deben implementar este método")
-    public ResponseEntity<List<User>> findAll() {
+    @Operation(summary = "Listar todos",
+            description = "Lista todos los usuarios. Con fields solo se leen de MongoDB los campos indicados (proyección)")
+    public ResponseEntity<List<?>> findAll(
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo")
+            @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.findAll(projection));
+        }
         List<User> users = userService.findAll();
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping(value = "/users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Listar todos en streaming (NDJSON)",
+            description = "Recorre la colección con un cursor y escribe un usuario JSON por línea sin acumularlos en memoria")
+    @ApiResponse(responseCode = "200", description = "Flujo de usuarios en formato application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAll(
+            @Parameter(description = "Documentos por lote del cursor (0 = valor por defecto)")
+            @RequestParam(defaultValue = "0") int batchSize) {
+        StreamingResponseBody body = out -> userService.streamAll(batchSize, user -> {
+            try {
+                out.write(userWriter.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/users/department/{department}")
-    @Operation(summary = "Buscar por departamento (TODO)", description = "Filtra usuarios por departamento. PENDIENTE: Los estudiantes deben implementar este método")
-    public ResponseEntity<List<User>> findUsersByDepartment(
-            @Parameter(description = "Nombre del departamento (IT, HR, Finance, etc.)") @PathVariable String department) {
+    @Operation(summary = "Buscar por departamento", description = "Filtra usuarios por departamento con Filters.eq. Admite fields para proyectar campos")
+    public ResponseEntity<List<?>> findUsersByDepartment(
+            @Parameter(description = "Nombre del departamento (IT, HR, Finance, etc.)") @PathVariable String department,
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo")
+            @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.findUsersByDepartment(department, projection));
+        }
         List<User> users = userService.findUsersByDepartment(department);
         return ResponseEntity.ok(users);
     }
 
     @PostMapping("/users/search")
-    @Operation(summary = "Búsqueda avanzada (TODO)", description = "Búsqueda con filtros y paginación. PENDIENTE: Los estudiantes deben implementar este método")
-    public ResponseEntity<List<User>> searchUsers(@RequestBody UserQueryDto query) {
+    @Operation(summary = "Búsqueda avanzada",
+            description = "Búsqueda con filtros y paginación por offset (page/size). Admite fields para proyectar campos. " +
+                    "Con faceted = true devuelve la página junto con el total y los recuentos por department, role y active " +
+                    "calculados en una sola agregación ($facet)")
+    public ResponseEntity<?> searchUsers(
+            @Valid @RequestBody UserQueryDto query,
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo. " +
+                    "No se aplica en modo facetado")
+            @RequestParam(required = false) String fields) {
+        if (query.isFaceted()) {
+            FacetedSearchResultDto result = userService.searchUsersFaceted(query);
+            return ResponseEntity.ok(result);
+        }
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.searchUsers(query, projection));
+        }
         List<User> users = userService.searchUsers(query);
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/users/autocomplete")
+    @Operation(summary = "Autocompletar nombres",
+            description = "Usuarios con alguna palabra del nombre que empieza por q, sin distinguir mayúsculas ni tildes. " +
+                    "Usa el índice nameSearch y devuelve como mucho limit resultados (máximo 50)")
+    public ResponseEntity<List<User>> autocomplete(
+            @Parameter(description = "Texto escrito por el usuario (p.ej. garci, jose g)") @RequestParam String q,
+            @Parameter(description = "Número máximo de resultados") @RequestParam(defaultValue = "10") int limit) {
+        List<User> users = userService.findUsersByNamePrefix(q, limit);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/users/fulltext")
+    @Operation(summary = "Búsqueda de texto por relevancia",
+            description = "Busca las palabras de q en name, role y department con $text, ordenando por textScore. " +
+                    "Sin índice de texto responde un índice en memoria equivalente (source = MEMORY_INDEX)")
+    public ResponseEntity<TextSearchResultDto> fullTextSearch(
+            @Parameter(description = "Palabras a buscar (p.ej. ana ventas)") @RequestParam String q,
+            @Parameter(description = "Página, empezando en 0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Resultados por página (máximo 100)") @RequestParam(defaultValue = "10") int size) {
+        TextSearchResultDto result = userService.fullTextSearch(q, page, size);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/users/search/facets")
+    @Operation(summary = "Recuentos por faceta",
+            description = "Total y número de usuarios por department, role y active para los filtros enviados. " +
+                    "Cada faceta se cuenta con el resto de filtros; los recuentos salen de bitmaps en memoria")
+    public ResponseEntity<UserFacetsDto> searchFacets(@RequestBody UserQueryDto query) {
+        UserFacetsDto facets = userService.searchFacets(query);
+        return ResponseEntity.ok(facets);
+    }
+
+    @PostMapping("/users/search/keyset")
+    @Operation(summary = "Búsqueda con paginación por keyset",
+            description = "Búsqueda con filtros paginada por (sortBy, _id). Enviar el nextToken recibido en continuationToken para obtener la página siguiente")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Página de resultados"),
+            @ApiResponse(responseCode = "400", description = "Token de continuación inválido")
+    })
+    public ResponseEntity<UserPageDto> searchUsersPage(@Valid @RequestBody UserQueryDto query) {
+        UserPageDto page = userService.searchUsersPage(query);
+        return ResponseEntity.ok(page);
+    }
+
     @GetMapping("/users/count/department/{department}")
-    @Operation(summary = "Contar por departamento (TODO)", description = "Cuenta usuarios por departamento. PENDIENTE: Los estudiantes deben implementar este método")
-    public ResponseEntity<Map<String, Object>> countByDepartment(
+    @Operation(summary = "Contar por departamento",
+            description = "Cuenta usuarios por departamento. Con la caché de contadores activa responde desde memoria: " +
+                    "source, asOf, ageMs y maxStalenessMs indican la antigüedad del número")
+    public ResponseEntity<UserCountDto> countByDepartment(
             @Parameter(description = "Nombre del departamento") @PathVariable String department) {
-        long count = userService.countByDepartment(department);
-        return ResponseEntity.ok(Map.of("department", department, "count", count));
+        UserCountDto count = userService.countUsersByDepartment(department);
+        return ResponseEntity.ok(count);
+    }
+
+    @GetMapping("/users/count")
+    @Operation(summary = "Contar todos",
+            description = "Total de usuarios: estimatedDocumentCount si app.cache.counts.estimated-total=true, " +
+                    "si no la caché de contadores o un conteo exacto")
+    public ResponseEntity<UserCountDto> countUsers() {
+        UserCountDto count = userService.countUsers();
+        return ResponseEntity.ok(count);
     }
 
     @GetMapping("/stats/departments")
-    @Operation(summary = "Estadísticas por departamento (Aggregation Pipeline)",
-            description = "Ejemplo de Aggregation Pipeline de MongoDB. Agrupa usuarios por departamento y calcula totales y activos.")
+    @Operation(summary = "Estadísticas por departamento (vista materializada)",
+            description = "Lee la colección department_stats, que las escrituras mantienen con $inc. " +
+                    "El Aggregation Pipeline equivalente se usa para reconciliarla periódicamente.")
     @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas exitosamente")
     public ResponseEntity<List<DepartmentStatsDto>> getStatsByDepartment() {
         List<DepartmentStatsDto> stats = userService.getStatsByDepartment();
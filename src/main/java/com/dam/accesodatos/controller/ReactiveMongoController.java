@@ -0,0 +1,150 @@
+package com.dam.accesodatos.controller;
+
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.reactive.ReactiveMongoUserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mismos endpoints que NativeMongoController, pero devolviendo Mono/Flux.
+ *
+ * Spring MVC trata Mono y Flux como valores de retorno asíncronos: el hilo del servidor
+ * vuelve al pool en cuanto el método retorna y la respuesta se escribe cuando el driver
+ * reactivo completa la operación. Los errores (UserNotFoundException, ...) llegan
+ * a GlobalExceptionHandler igual que en los controladores bloqueantes.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@Tag(name = "API Reactiva", description = "Endpoints usando el driver reactivo de MongoDB (Reactive Streams)")
+public class ReactiveMongoController {
+
+    private final ReactiveMongoUserService userService;
+
+    @Autowired
+    public ReactiveMongoController(ReactiveMongoUserService userService) {
+        this.userService = userService;
+    }
+
+    @GetMapping("/test-connection")
+    @Operation(summary = "Probar conexión", description = "Verifica la conexión reactiva con MongoDB y muestra información de la base de datos")
+    @ApiResponse(responseCode = "200", description = "Conexión exitosa")
+    public Mono<Map<String, String>> testConnection() {
+        return userService.testConnection().map(result -> Map.of("message", result));
+    }
+
+    @PostMapping("/users")
+    @Operation(summary = "Crear usuario", description = "Crea un nuevo usuario en la base de datos")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Usuario creado exitosamente"),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+            @ApiResponse(responseCode = "409", description = "Email ya registrado")
+    })
+    public Mono<ResponseEntity<User>> createUser(@Valid @RequestBody UserCreateDto dto) {
+        return userService.createUser(dto)
+                .map(user -> ResponseEntity.status(HttpStatus.CREATED).body(user));
+    }
+
+    @GetMapping("/users/{id}")
+    @Operation(summary = "Buscar por ID", description = "Obtiene un usuario por su ID de MongoDB")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Usuario encontrado"),
+            @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
+            @ApiResponse(responseCode = "400", description = "ID inválido")
+    })
+    public Mono<User> findUserById(
+            @Parameter(description = "ID del usuario (ObjectId de 24 caracteres hex)") @PathVariable String id) {
+        return userService.findUserById(id);
+    }
+
+    @PutMapping("/users/{id}")
+    @Operation(summary = "Actualizar usuario", description = "Actualiza los datos de un usuario existente")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Usuario actualizado"),
+            @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
+            @ApiResponse(responseCode = "409", description = "Email ya registrado")
+    })
+    public Mono<User> updateUser(
+            @Parameter(description = "ID del usuario") @PathVariable String id,
+            @Valid @RequestBody UserUpdateDto dto) {
+        return userService.updateUser(id, dto);
+    }
+
+    @DeleteMapping("/users/{id}")
+    @Operation(summary = "Eliminar usuario", description = "Elimina un usuario de la base de datos")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Usuario eliminado"),
+            @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
+    })
+    public Mono<ResponseEntity<Void>> deleteUser(
+            @Parameter(description = "ID del usuario") @PathVariable String id) {
+        return userService.deleteUser(id)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    /**
+     * Como JSON el Flux se agrega en una lista antes de escribirse; para recibir cada
+     * usuario según llega del cursor usar /users/stream (NDJSON).
+     */
+    @GetMapping("/users")
+    @Operation(summary = "Listar todos", description = "Lista todos los usuarios")
+    public Mono<List<User>> findAll() {
+        return userService.findAll().collectList();
+    }
+
+    @GetMapping(value = "/users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Listar todos en streaming (NDJSON)",
+            description = "Escribe un usuario JSON por línea según los emite el cursor reactivo, con backpressure")
+    @ApiResponse(responseCode = "200", description = "Flujo de usuarios en formato application/x-ndjson")
+    public Flux<User> streamAll() {
+        return userService.findAll();
+    }
+
+    @GetMapping("/users/department/{department}")
+    @Operation(summary = "Buscar por departamento", description = "Filtra usuarios por departamento")
+    public Mono<List<User>> findUsersByDepartment(
+            @Parameter(description = "Nombre del departamento (IT, HR, Finance, etc.)") @PathVariable String department) {
+        return userService.findUsersByDepartment(department).collectList();
+    }
+
+    @PostMapping("/users/search")
+    @Operation(summary = "Búsqueda avanzada", description = "Búsqueda con filtros y paginación por offset (page/size)")
+    public Mono<List<User>> searchUsers(@Valid @RequestBody UserQueryDto query) {
+        return userService.searchUsers(query).collectList();
+    }
+
+    @GetMapping("/users/count/department/{department}")
+    @Operation(summary = "Contar por departamento", description = "Cuenta usuarios por departamento")
+    public Mono<Map<String, Object>> countByDepartment(
+            @Parameter(description = "Nombre del departamento") @PathVariable String department) {
+        return userService.countByDepartment(department)
+                .map(count -> Map.<String, Object>of("department", department, "count", count));
+    }
+
+    @GetMapping("/stats/departments")
+    @Operation(summary = "Estadísticas por departamento",
+            description = "Aggregation Pipeline ($group + $sort) sobre la colección users con el driver reactivo")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas exitosamente")
+    public Mono<List<DepartmentStatsDto>> getStatsByDepartment() {
+        return userService.getStatsByDepartment().collectList();
+    }
+}
@@ -1,7 +1,19 @@
 package com.dam.accesodatos.controller;
 
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
 import com.dam.accesodatos.mongodb.springdata.SpringDataUserService;
@@ -51,6 +63,15 @@ public class SpringDataController {
         return ResponseEntity.status(HttpStatus.CREATED).body(user);
     }
 
+    @PostMapping("/users/bulk")
+    @Operation(summary = "Crear usuarios en bloque",
+            description = "Inserta una lista de usuarios en lotes no ordenados y devuelve el resultado de cada elemento: CREATED, DUPLICATE_EMAIL, INVALID (no pasa la validación o es nulo; no se envía) o FAILED")
+    @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el estado de cada elemento)")
+    public ResponseEntity<BulkCreateResultDto> createUsers(@RequestBody List<UserCreateDto> dtos) {
+        BulkCreateResultDto result = userService.createUsers(dtos);
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/users/{id}")
     @Operation(summary = "Buscar por ID", description = "Obtiene un usuario usando findById de MongoRepository")
     @ApiResponses({
@@ -63,8 +84,41 @@ public class SpringDataController {
         return ResponseEntity.ok(user);
     }
 
+    @PostMapping("/users/batch-get")
+    @Operation(summary = "Buscar varios por ID",
+            description = "Resuelve hasta app.mongodb.batch-get-max-ids IDs con una sola consulta (findAllById). Devuelve un resultado por ID en el orden de la petición: FOUND, NOT_FOUND o INVALID_ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Búsqueda completada (revisar el estado de cada ID)"),
+            @ApiResponse(responseCode = "400", description = "Demasiados IDs en la petición")
+    })
+    public ResponseEntity<BatchGetResultDto> findUsersByIds(@RequestBody List<String> ids) {
+        BatchGetResultDto result = userService.findUsersByIds(ids);
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/users/bulk")
+    @Operation(summary = "Actualizar usuarios en bloque",
+            description = "Aplica a cada ID sus propios cambios con BulkOperations.updateOne en modo UNORDERED (en lotes de app.mongodb.bulk-chunk-size). Devuelve matched/modified y el resultado de cada elemento: UPDATED, NOT_FOUND, INVALID_ID, INVALID (no pasa la validación, sin update o nulo; no se envía), DUPLICATE_EMAIL o FAILED")
+    @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el estado de cada elemento)")
+    public ResponseEntity<BulkUpdateResultDto> updateUsers(@RequestBody List<BulkUpdateItemDto> items) {
+        BulkUpdateResultDto result = userService.updateUsers(items);
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/users/bulk/by-filter")
+    @Operation(summary = "Actualizar usuarios por filtro",
+            description = "Aplica los mismos cambios a todos los usuarios que cumplen el filtro (name, department, active) con un único updateMulti de MongoTemplate. Devuelve matched/modified")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Actualización completada"),
+            @ApiResponse(responseCode = "400", description = "Filtro vacío, sin cambios o con email")
+    })
+    public ResponseEntity<BulkUpdateResultDto> updateUsersByFilter(@Valid @RequestBody BulkUpdateByFilterDto request) {
+        BulkUpdateResultDto result = userService.updateUsersByFilter(request);
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/users/{id}")
-    @Operation(summary = "Actualizar usuario", description = "Actualiza un usuario usando save de MongoRepository")
+    @Operation(summary = "Actualizar usuario", description = "Actualiza solo los campos enviados con findAndModify de MongoTemplate (un round trip)")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Usuario actualizado"),
             @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
@@ -78,7 +132,7 @@ public class SpringDataController {
     }
 
     @DeleteMapping("/users/{id}")
-    @Operation(summary = "Eliminar usuario", description = "Elimina un usuario usando deleteById de MongoRepository")
+    @Operation(summary = "Eliminar usuario", description = "Elimina un usuario con un único remove de MongoTemplate (getDeletedCount decide 204/404)")
     @ApiResponses({
             @ApiResponse(responseCode = "204", description = "Usuario eliminado"),
             @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
@@ -93,32 +147,124 @@ public class SpringDataController {
     }
 
     @GetMapping("/users")
-    @Operation(summary = "Listar todos (TODO)", description = "Lista todos los usuarios. PENDIENTE: Los estudiantes deben usar findAll() de MongoRepository")
-    public ResponseEntity<List<User>> findAll() {
+    @Operation(summary = "Listar todos",
+            description = "Lista todos los usuarios. Con fields solo se leen de MongoDB los campos indicados (proyección)")
+    public ResponseEntity<List<?>> findAll(
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo")
+            @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.findAll(projection));
+        }
         List<User> users = userService.findAll();
         return ResponseEntity.ok(users);
     }
 
     @GetMapping("/users/department/{department}")
-    @Operation(summary = "Buscar por departamento (TODO)", description = "Filtra usuarios por departamento. PENDIENTE: Los estudiantes deben usar Query Methods derivados")
-    public ResponseEntity<List<User>> findUsersByDepartment(
-            @Parameter(description = "Nombre del departamento") @PathVariable String department) {
+    @Operation(summary = "Buscar por departamento", description = "Filtra usuarios por departamento con el Query Method findByDepartment. Admite fields para proyectar campos")
+    public ResponseEntity<List<?>> findUsersByDepartment(
+            @Parameter(description = "Nombre del departamento") @PathVariable String department,
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo")
+            @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.findUsersByDepartment(department, projection));
+        }
         List<User> users = userService.findUsersByDepartment(department);
         return ResponseEntity.ok(users);
     }
 
     @PostMapping("/users/search")
-    @Operation(summary = "Búsqueda avanzada (TODO)", description = "Búsqueda con filtros y paginación. PENDIENTE: Los estudiantes deben usar MongoTemplate con Criteria")
-    public ResponseEntity<List<User>> searchUsers(@RequestBody UserQueryDto query) {
+    @Operation(summary = "Búsqueda avanzada",
+            description = "Búsqueda con filtros y paginación por offset (page/size). Admite fields para proyectar campos. " +
+                    "Con faceted = true devuelve la página junto con el total y los recuentos por department, role y active " +
+                    "calculados en una sola agregación ($facet)")
+    public ResponseEntity<?> searchUsers(
+            @Valid @RequestBody UserQueryDto query,
+            @Parameter(description = "Campos a devolver separados por comas (p.ej. id,name,department). Sin indicar: usuario completo. " +
+                    "No se aplica en modo facetado")
+            @RequestParam(required = false) String fields) {
+        if (query.isFaceted()) {
+            FacetedSearchResultDto result = userService.searchUsersFaceted(query);
+            return ResponseEntity.ok(result);
+        }
+        UserProjection projection = UserProjection.parse(fields);
+        if (projection != null) {
+            return ResponseEntity.ok(userService.searchUsers(query, projection));
+        }
         List<User> users = userService.searchUsers(query);
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/users/autocomplete")
+    @Operation(summary = "Autocompletar nombres",
+            description = "Usuarios con alguna palabra del nombre que empieza por q, sin distinguir mayúsculas ni tildes. " +
+                    "Usa el índice nameSearch y devuelve como mucho limit resultados (máximo 50)")
+    public ResponseEntity<List<User>> autocomplete(
+            @Parameter(description = "Texto escrito por el usuario (p.ej. garci, jose g)") @RequestParam String q,
+            @Parameter(description = "Número máximo de resultados") @RequestParam(defaultValue = "10") int limit) {
+        List<User> users = userService.findUsersByNamePrefix(q, limit);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/users/fulltext")
+    @Operation(summary = "Búsqueda de texto por relevancia",
+            description = "Busca las palabras de q en name, role y department con $text, ordenando por textScore. " +
+                    "Sin índice de texto responde un índice en memoria equivalente (source = MEMORY_INDEX)")
+    public ResponseEntity<TextSearchResultDto> fullTextSearch(
+            @Parameter(description = "Palabras a buscar (p.ej. ana ventas)") @RequestParam String q,
+            @Parameter(description = "Página, empezando en 0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Resultados por página (máximo 100)") @RequestParam(defaultValue = "10") int size) {
+        TextSearchResultDto result = userService.fullTextSearch(q, page, size);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/users/search/facets")
+    @Operation(summary = "Recuentos por faceta",
+            description = "Total y número de usuarios por department, role y active para los filtros enviados. " +
+                    "Cada faceta se cuenta con el resto de filtros; los recuentos salen de bitmaps en memoria")
+    public ResponseEntity<UserFacetsDto> searchFacets(@RequestBody UserQueryDto query) {
+        UserFacetsDto facets = userService.searchFacets(query);
+        return ResponseEntity.ok(facets);
+    }
+
+    @PostMapping("/users/search/keyset")
+    @Operation(summary = "Búsqueda con paginación por keyset",
+            description = "Búsqueda con filtros paginada por (sortBy, _id). Enviar el nextToken recibido en continuationToken para obtener la página siguiente")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Página de resultados"),
+            @ApiResponse(responseCode = "400", description = "Token de continuación inválido")
+    })
+    public ResponseEntity<UserPageDto> searchUsersPage(@Valid @RequestBody UserQueryDto query) {
+        UserPageDto page = userService.searchUsersPage(query);
+        return ResponseEntity.ok(page);
+    }
+
     @GetMapping("/users/count/department/{department}")
-    @Operation(summary = "Contar por departamento (TODO)", description = "Cuenta usuarios por departamento. PENDIENTE: Los estudiantes deben usar countByDepartment del Repository")
-    public ResponseEntity<Map<String, Object>> countByDepartment(
+    @Operation(summary = "Contar por departamento",
+            description = "Cuenta usuarios por departamento. Con la caché de contadores activa responde desde memoria: " +
+                    "source, asOf, ageMs y maxStalenessMs indican la antigüedad del número")
+    public ResponseEntity<UserCountDto> countByDepartment(
             @Parameter(description = "Nombre del departamento") @PathVariable String department) {
-        long count = userService.countByDepartment(department);
-        return ResponseEntity.ok(Map.of("department", department, "count", count));
+        UserCountDto count = userService.countUsersByDepartment(department);
+        return ResponseEntity.ok(count);
+    }
+
+    @GetMapping("/users/count")
+    @Operation(summary = "Contar todos",
+            description = "Total de usuarios: estimatedDocumentCount si app.cache.counts.estimated-total=true, " +
+                    "si no la caché de contadores o un conteo exacto")
+    public ResponseEntity<UserCountDto> countUsers() {
+        UserCountDto count = userService.countUsers();
+        return ResponseEntity.ok(count);
+    }
+
+    @GetMapping("/stats/departments")
+    @Operation(summary = "Estadísticas por departamento (Aggregation)",
+            description = "Mismo pipeline que la API nativa, construido con Aggregation de Spring Data")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas exitosamente")
+    public ResponseEntity<List<DepartmentStatsDto>> getStatsByDepartment() {
+        List<DepartmentStatsDto> stats = userService.getStatsByDepartment();
+        return ResponseEntity.ok(stats);
     }
 }
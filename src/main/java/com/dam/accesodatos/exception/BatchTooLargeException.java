@@ -0,0 +1,21 @@
+package com.dam.accesodatos.exception;
+
+public class BatchTooLargeException extends RuntimeException {
+
+    private final int size;
+    private final int maxSize;
+
+    public BatchTooLargeException(int size, int maxSize) {
+        super("La petición incluye " + size + " elementos; el máximo es " + maxSize);
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
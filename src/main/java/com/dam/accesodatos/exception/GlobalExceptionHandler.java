@@ -2,6 +2,7 @@ package com.dam.accesodatos.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -36,6 +37,45 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), e.getInvalidId());
     }
 
+    @ExceptionHandler(InvalidContinuationTokenException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidContinuationToken(InvalidContinuationTokenException e) {
+        log.warn("Token de continuación inválido: {}", e.getToken());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), e.getToken());
+    }
+
+    @ExceptionHandler(InvalidProjectionException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidProjection(InvalidProjectionException e) {
+        log.warn("Proyección inválida: {}", e.getField());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), e.getField());
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidPageRequest(InvalidPageRequestException e) {
+        log.warn("Paginación inválida ({}): {}", e.getField(), e.getMessage());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), e.getField());
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handleBatchTooLarge(BatchTooLargeException e) {
+        log.warn("Lote demasiado grande: {} elementos (máximo {})", e.getSize(), e.getMaxSize());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), "maxSize=" + e.getMaxSize());
+    }
+
+    @ExceptionHandler(InvalidBulkUpdateException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidBulkUpdate(InvalidBulkUpdateException e) {
+        log.warn("Actualización masiva rechazada ({}): {}", e.getField(), e.getMessage());
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage(), e.getField());
+    }
+
+    @ExceptionHandler(MongoBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleMongoBusy(MongoBusyException e) {
+        log.warn("Petición rechazada por el límite de concurrencia tras {} ms", e.getWaitMs());
+        ResponseEntity<Map<String, Object>> error = buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), null);
+        return ResponseEntity.status(error.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error.getBody());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException e) {
         Map<String, String> errors = new HashMap<>();
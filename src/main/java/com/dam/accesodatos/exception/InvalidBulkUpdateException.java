@@ -0,0 +1,15 @@
+package com.dam.accesodatos.exception;
+
+public class InvalidBulkUpdateException extends RuntimeException {
+
+    private final String field;
+
+    public InvalidBulkUpdateException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
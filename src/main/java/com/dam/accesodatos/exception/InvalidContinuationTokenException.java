@@ -0,0 +1,15 @@
+package com.dam.accesodatos.exception;
+
+public class InvalidContinuationTokenException extends RuntimeException {
+
+    private final String token;
+
+    public InvalidContinuationTokenException(String token, Throwable cause) {
+        super("Token de continuación inválido: " + token, cause);
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
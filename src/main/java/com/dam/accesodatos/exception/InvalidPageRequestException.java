@@ -0,0 +1,15 @@
+package com.dam.accesodatos.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+
+    private final String field;
+
+    public InvalidPageRequestException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
@@ -0,0 +1,15 @@
+package com.dam.accesodatos.exception;
+
+public class InvalidProjectionException extends RuntimeException {
+
+    private final String field;
+
+    public InvalidProjectionException(String field) {
+        super("Campo no válido en fields: " + field);
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
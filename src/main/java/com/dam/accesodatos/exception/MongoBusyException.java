@@ -0,0 +1,15 @@
+package com.dam.accesodatos.exception;
+
+public class MongoBusyException extends RuntimeException {
+
+    private final long waitMs;
+
+    public MongoBusyException(long waitMs) {
+        super("Demasiadas peticiones concurrentes contra MongoDB: sin permiso libre tras " + waitMs + " ms");
+        this.waitMs = waitMs;
+    }
+
+    public long getWaitMs() {
+        return waitMs;
+    }
+}
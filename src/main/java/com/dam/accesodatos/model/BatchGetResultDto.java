@@ -0,0 +1,157 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una búsqueda de varios usuarios por ID: totales y un resultado por cada
+ * ID de la petición (en el mismo orden), de modo que un ID inexistente o mal formado
+ * no invalida el resto.
+ */
+public class BatchGetResultDto {
+
+    public enum ItemStatus {
+        FOUND,
+        NOT_FOUND,
+        INVALID_ID
+    }
+
+    public static class ItemResult {
+
+        private int index;
+        private ItemStatus status;
+        private String id;
+        private User user;
+        private String error;
+
+        public ItemResult() {
+        }
+
+        public ItemResult(int index, ItemStatus status, String id, User user, String error) {
+            this.index = index;
+            this.status = status;
+            this.id = id;
+            this.user = user;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public ItemStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(ItemStatus status) {
+            this.status = status;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public void setUser(User user) {
+            this.user = user;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    private int requested;
+    private int found;
+    private int notFound;
+    private int invalid;
+    private List<ItemResult> items = new ArrayList<>();
+
+    public BatchGetResultDto() {
+    }
+
+    public BatchGetResultDto(int requested) {
+        this.requested = requested;
+        this.items = new ArrayList<>(requested);
+    }
+
+    public void addFound(int index, String id, User user) {
+        items.add(new ItemResult(index, ItemStatus.FOUND, id, user, null));
+        found++;
+    }
+
+    public void addNotFound(int index, String id) {
+        items.add(new ItemResult(index, ItemStatus.NOT_FOUND, id, null, "Usuario no encontrado con ID: " + id));
+        notFound++;
+    }
+
+    public void addInvalid(int index, String id) {
+        items.add(new ItemResult(index, ItemStatus.INVALID_ID, id, null, "ID de usuario inválido: " + id));
+        invalid++;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getFound() {
+        return found;
+    }
+
+    public void setFound(int found) {
+        this.found = found;
+    }
+
+    public int getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(int notFound) {
+        this.notFound = notFound;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(int invalid) {
+        this.invalid = invalid;
+    }
+
+    public List<ItemResult> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemResult> items) {
+        this.items = items;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchGetResultDto{" +
+                "requested=" + requested +
+                ", found=" + found +
+                ", notFound=" + notFound +
+                ", invalid=" + invalid +
+                '}';
+    }
+}
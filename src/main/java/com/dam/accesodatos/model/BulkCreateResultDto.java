@@ -0,0 +1,173 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una inserción masiva: totales y un resultado por cada elemento
+ * de la petición (en el mismo orden), de modo que un email duplicado o un elemento
+ * que no pasa la validación (INVALID, no se envía a MongoDB) no invalida el lote.
+ */
+public class BulkCreateResultDto {
+
+    public enum ItemStatus {
+        CREATED,
+        DUPLICATE_EMAIL,
+        INVALID,
+        FAILED
+    }
+
+    public static class ItemResult {
+
+        private int index;
+        private ItemStatus status;
+        private String id;
+        private String email;
+        private String error;
+
+        public ItemResult() {
+        }
+
+        public ItemResult(int index, ItemStatus status, String id, String email, String error) {
+            this.index = index;
+            this.status = status;
+            this.id = id;
+            this.email = email;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public ItemStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(ItemStatus status) {
+            this.status = status;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    private int requested;
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private List<ItemResult> items = new ArrayList<>();
+
+    public BulkCreateResultDto() {
+    }
+
+    public BulkCreateResultDto(int requested) {
+        this.requested = requested;
+        this.items = new ArrayList<>(requested);
+    }
+
+    public void addCreated(int index, String id, String email) {
+        items.add(new ItemResult(index, ItemStatus.CREATED, id, email, null));
+        created++;
+    }
+
+    public void addDuplicate(int index, String email) {
+        items.add(new ItemResult(index, ItemStatus.DUPLICATE_EMAIL, null, email, "El email '" + email + "' ya está registrado"));
+        duplicates++;
+    }
+
+    public void addInvalid(int index, String email, String error) {
+        items.add(new ItemResult(index, ItemStatus.INVALID, null, email, error));
+        invalid++;
+    }
+
+    public void addFailed(int index, String email, String error) {
+        items.add(new ItemResult(index, ItemStatus.FAILED, null, email, error));
+        failed++;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(int invalid) {
+        this.invalid = invalid;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<ItemResult> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemResult> items) {
+        this.items = items;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkCreateResultDto{" +
+                "requested=" + requested +
+                ", created=" + created +
+                ", duplicates=" + duplicates +
+                ", invalid=" + invalid +
+                ", failed=" + failed +
+                '}';
+    }
+}
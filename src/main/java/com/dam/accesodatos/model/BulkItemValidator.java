@@ -0,0 +1,49 @@
+package com.dam.accesodatos.model;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * VALIDACIÓN POR ELEMENTO EN LAS OPERACIONES MASIVAS
+ * ==================================================
+ * @Valid sobre @RequestBody List<UserCreateDto> no valida los elementos (la lista no es
+ * un bean), y con List<@Valid UserCreateDto> un solo elemento inválido rechazaría la
+ * petición entera con 400. Aquí cada elemento se valida con el Validator de Jakarta Bean
+ * Validation (las mismas anotaciones que comprueba @Valid) y los servicios lo informan
+ * como INVALID sin tocar el resto del lote.
+ *
+ * MongoDB:                                        | JDBC:
+ * ----------------------------------------------- | ---------------------------------------------
+ * (el servidor no valida: sin $jsonSchema en la    | CHECK / NOT NULL rechazan la fila y, con
+ *  colección, insertMany guarda lo que reciba)     | executeBatch, BatchUpdateException por fila
+ *
+ * Un elemento null (p.ej. [{...}, null]) también es inválido.
+ */
+public final class BulkItemValidator {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private BulkItemValidator() {
+    }
+
+    /**
+     * null si el elemento es válido; si no, sus errores como "campo: mensaje; campo: mensaje".
+     */
+    public static String violations(Object item) {
+        if (item == null) {
+            return "El elemento es nulo";
+        }
+        Set<ConstraintViolation<Object>> violations = VALIDATOR.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
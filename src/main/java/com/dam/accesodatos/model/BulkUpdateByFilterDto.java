@@ -0,0 +1,63 @@
+package com.dam.accesodatos.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Actualización masiva por filtro: los mismos cambios para todos los usuarios que
+ * cumplen el filtro (name, department, role y active de UserQueryDto; el resto se ignora).
+ *
+ * Ejemplo: todo el departamento "Ventas" pasa a "Comercial"
+ * { "filter": { "department": "Ventas" }, "update": { "department": "Comercial" } }
+ */
+public class BulkUpdateByFilterDto {
+
+    @NotNull(message = "El filtro es obligatorio")
+    private UserQueryDto filter;
+
+    @NotNull(message = "Los cambios son obligatorios")
+    @Valid
+    private UserUpdateDto update;
+
+    public BulkUpdateByFilterDto() {
+    }
+
+    public BulkUpdateByFilterDto(UserQueryDto filter, UserUpdateDto update) {
+        this.filter = filter;
+        this.update = update;
+    }
+
+    public UserQueryDto getFilter() {
+        return filter;
+    }
+
+    public void setFilter(UserQueryDto filter) {
+        this.filter = filter;
+    }
+
+    public UserUpdateDto getUpdate() {
+        return update;
+    }
+
+    public void setUpdate(UserUpdateDto update) {
+        this.update = update;
+    }
+
+    /**
+     * true si el filtro tiene algún criterio: sin ninguno se actualizaría toda la colección.
+     */
+    public boolean hasCriteria() {
+        return filter != null && ((filter.getName() != null && !filter.getName().isBlank())
+                || (filter.getDepartment() != null && !filter.getDepartment().isBlank())
+                || (filter.getRole() != null && !filter.getRole().isBlank())
+                || filter.getActive() != null);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUpdateByFilterDto{" +
+                "filter=" + filter +
+                ", update=" + update +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.dam.accesodatos.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Elemento de una actualización masiva: el ID del usuario y los cambios a aplicarle
+ * (solo los campos informados, como en updateUser).
+ */
+public class BulkUpdateItemDto {
+
+    private String id;
+
+    @Valid
+    @NotNull(message = "El elemento no incluye cambios (update)")
+    private UserUpdateDto update;
+
+    public BulkUpdateItemDto() {
+    }
+
+    public BulkUpdateItemDto(String id, UserUpdateDto update) {
+        this.id = id;
+        this.update = update;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public UserUpdateDto getUpdate() {
+        return update;
+    }
+
+    public void setUpdate(UserUpdateDto update) {
+        this.update = update;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUpdateItemDto{" +
+                "id='" + id + '\'' +
+                ", update=" + update +
+                '}';
+    }
+}
@@ -0,0 +1,231 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una actualización masiva: los contadores del servidor (matched/modified)
+ * y, cuando la petición es una lista de (id, cambios), un resultado por elemento en el
+ * mismo orden, de modo que un ID inexistente, un email duplicado o un elemento que no pasa
+ * la validación (INVALID, no se envía a MongoDB) no invalida el resto.
+ * En la actualización por filtro no hay elementos: solo los contadores.
+ */
+public class BulkUpdateResultDto {
+
+    public enum ItemStatus {
+        UPDATED,
+        NOT_FOUND,
+        INVALID_ID,
+        INVALID,
+        DUPLICATE_EMAIL,
+        FAILED
+    }
+
+    public static class ItemResult {
+
+        private int index;
+        private ItemStatus status;
+        private String id;
+        private String error;
+
+        public ItemResult() {
+        }
+
+        public ItemResult(int index, ItemStatus status, String id, String error) {
+            this.index = index;
+            this.status = status;
+            this.id = id;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public ItemStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(ItemStatus status) {
+            this.status = status;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    private int requested;
+    private long matched;
+    private long modified;
+    private int updated;
+    private int notFound;
+    private int invalid;
+    private int invalidItems;
+    private int duplicates;
+    private int failed;
+    private List<ItemResult> items = new ArrayList<>();
+
+    public BulkUpdateResultDto() {
+    }
+
+    public BulkUpdateResultDto(int requested) {
+        this.requested = requested;
+        this.items = new ArrayList<>(requested);
+    }
+
+    /**
+     * Resultado de un updateMany: solo los contadores del servidor.
+     */
+    public static BulkUpdateResultDto ofUpdateMany(long matched, long modified) {
+        BulkUpdateResultDto result = new BulkUpdateResultDto();
+        result.addCounts(matched, modified);
+        return result;
+    }
+
+    public void addCounts(long matched, long modified) {
+        this.matched += matched;
+        this.modified += modified;
+    }
+
+    public void addUpdated(int index, String id) {
+        items.add(new ItemResult(index, ItemStatus.UPDATED, id, null));
+        updated++;
+    }
+
+    public void addNotFound(int index, String id) {
+        items.add(new ItemResult(index, ItemStatus.NOT_FOUND, id, "Usuario no encontrado con ID: " + id));
+        notFound++;
+    }
+
+    public void addInvalid(int index, String id) {
+        items.add(new ItemResult(index, ItemStatus.INVALID_ID, id, "ID de usuario inválido: " + id));
+        invalid++;
+    }
+
+    public void addInvalidItem(int index, String id, String error) {
+        items.add(new ItemResult(index, ItemStatus.INVALID, id, error));
+        invalidItems++;
+    }
+
+    public void addDuplicate(int index, String id, String email) {
+        items.add(new ItemResult(index, ItemStatus.DUPLICATE_EMAIL, id, "El email '" + email + "' ya está registrado"));
+        duplicates++;
+    }
+
+    public void addFailed(int index, String id, String error) {
+        items.add(new ItemResult(index, ItemStatus.FAILED, id, error));
+        failed++;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public void setMatched(long matched) {
+        this.matched = matched;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public void setModified(long modified) {
+        this.modified = modified;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(int notFound) {
+        this.notFound = notFound;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(int invalid) {
+        this.invalid = invalid;
+    }
+
+    public int getInvalidItems() {
+        return invalidItems;
+    }
+
+    public void setInvalidItems(int invalidItems) {
+        this.invalidItems = invalidItems;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<ItemResult> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemResult> items) {
+        this.items = items;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUpdateResultDto{" +
+                "requested=" + requested +
+                ", matched=" + matched +
+                ", modified=" + modified +
+                ", updated=" + updated +
+                ", notFound=" + notFound +
+                ", invalid=" + invalid +
+                ", invalidItems=" + invalidItems +
+                ", duplicates=" + duplicates +
+                ", failed=" + failed +
+                '}';
+    }
+}
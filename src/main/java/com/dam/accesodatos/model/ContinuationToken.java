@@ -0,0 +1,107 @@
+package com.dam.accesodatos.model;
+
+import com.dam.accesodatos.exception.InvalidContinuationTokenException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * TOKEN DE CONTINUACIÓN PARA PAGINACIÓN POR KEYSET (SEEK)
+ * =======================================================
+ * Guarda el par (valor del campo de ordenación, _id) del último documento devuelto.
+ * La página siguiente se pide con un filtro de rango en lugar de skip():
+ *
+ * db.users.find({ $or: [
+ *     { name: { $gt: "García" } },
+ *     { name: "García", _id: { $gt: ObjectId("...") } }
+ * ]}).sort({ name: 1, _id: 1 }).limit(10)
+ *
+ * Equivalente SQL:
+ * SELECT * FROM users WHERE (name, id) > (?, ?) ORDER BY name, id LIMIT 10
+ *
+ * Con skip(offset) el servidor recorre y descarta offset documentos (O(offset)).
+ * Con keyset, y solo si existe el índice { campo: 1, _id: 1 } (por eso únicamente
+ * se admiten UserQueryDto.KEYSET_SORT_FIELDS), el $or se resuelve con dos rangos de
+ * ese índice y el orden sale del propio índice: la latencia no depende de la
+ * profundidad de la página. Sin ese índice el servidor filtra y ordena en memoria
+ * todos los documentos que quedan por delante del token.
+ *
+ * El token se serializa como Extended JSON en Base64 URL-safe para conservar
+ * los tipos BSON (Date, ObjectId, Boolean) del valor de ordenación. Lo envía el
+ * cliente, así que decode() solo acepta un valor escalar: un documento en "v" se
+ * enviaría como operador ({ $gt: { $ne: ... } }) y con null, { $gt: null } no
+ * encuentra nada y la paginación terminaría sin avisar.
+ */
+public final class ContinuationToken {
+
+    private final String sortField;
+    private final boolean ascending;
+    private final Object lastValue;
+    private final ObjectId lastId;
+
+    public ContinuationToken(String sortField, boolean ascending, Object lastValue, ObjectId lastId) {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public static ContinuationToken fromLastDocument(Document doc, String sortField, boolean ascending) {
+        return new ContinuationToken(sortField, ascending, doc.get(sortField), doc.getObjectId("_id"));
+    }
+
+    public String encode() {
+        Document doc = new Document("f", sortField)
+                .append("a", ascending)
+                .append("v", lastValue)
+                .append("id", lastId);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(doc.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ContinuationToken decode(String token) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            Document doc = Document.parse(json);
+            String sortField = doc.getString("f");
+            if (!UserQueryDto.KEYSET_SORT_FIELDS.contains(sortField)) {
+                throw new IllegalArgumentException("Campo de ordenación no permitido: " + sortField);
+            }
+            Object lastValue = doc.get("v");
+            if (!isScalar(lastValue)) {
+                throw new IllegalArgumentException("Valor de ordenación no válido: " + lastValue);
+            }
+            ObjectId lastId = doc.getObjectId("id");
+            if (lastId == null) {
+                throw new IllegalArgumentException("El token no contiene _id");
+            }
+            return new ContinuationToken(sortField, doc.getBoolean("a", true), lastValue, lastId);
+        } catch (RuntimeException e) {
+            throw new InvalidContinuationTokenException(token, e);
+        }
+    }
+
+    private static boolean isScalar(Object value) {
+        return value instanceof String || value instanceof Date || value instanceof Number
+                || value instanceof Boolean || value instanceof ObjectId;
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public Object getLastValue() {
+        return lastValue;
+    }
+
+    public ObjectId getLastId() {
+        return lastId;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Respuesta de una búsqueda en modo facetado (UserQueryDto.faceted): la página de
+ * usuarios y, en facets, el total y los recuentos por department, role y active de
+ * todos los usuarios que cumplen los filtros, obtenidos en la misma agregación.
+ */
+public class FacetedSearchResultDto {
+
+    private List<User> users = new ArrayList<>();
+    private int page;
+    private int size;
+    private UserFacetsDto facets;
+
+    public FacetedSearchResultDto() {
+    }
+
+    public FacetedSearchResultDto(List<User> users, int page, int size, UserFacetsDto facets) {
+        this.users = users;
+        this.page = page;
+        this.size = size;
+        this.facets = facets;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<User> users) {
+        this.users = users;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public UserFacetsDto getFacets() {
+        return facets;
+    }
+
+    public void setFacets(UserFacetsDto facets) {
+        this.facets = facets;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetedSearchResultDto{" +
+                "users=" + users.size() +
+                ", page=" + page +
+                ", size=" + size +
+                ", facets=" + facets +
+                '}';
+    }
+}
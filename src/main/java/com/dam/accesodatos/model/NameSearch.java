@@ -0,0 +1,99 @@
+package com.dam.accesodatos.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * NOMBRE NORMALIZADO PARA BÚSQUEDAS INDEXADAS
+ * ===========================================
+ * { name: /garc/i } es un $regex sin ancla e insensible a mayúsculas: no puede usar
+ * el índice de name y recorre toda la colección. Aquí el nombre se guarda además
+ * normalizado (minúsculas, sin tildes ni signos) en el campo nameSearch, con una
+ * entrada por cada palabra:
+ *
+ * name: "Ana García-Pérez"
+ * nameSearch: ["ana garcia perez", "garcia perez", "perez"]
+ *
+ * MongoDB:                                   | SQL:
+ * ------------------------------------------ | ------------------------------------------
+ * createIndex({ nameSearch: 1 })             | CREATE INDEX ON users(name_search)
+ *   (multikey: una entrada por elemento)     |   + tabla auxiliar con una fila por palabra
+ * find({ nameSearch: /^garcia p/ })          | WHERE name_search LIKE 'garcia p%'
+ *   (prefijo anclado = rango del índice)     |   (prefijo = rango del índice B-tree)
+ *
+ * Un $regex anclado con ^ y sin opciones se resuelve como un rango del índice:
+ * "garc" busca ["garc", "gard"). Como hay una entrada por palabra, cualquier prefijo
+ * de cualquier palabra del nombre (o de varias seguidas) encuentra al usuario.
+ *
+ * La normalización quita todo lo que no es letra o dígito, así que el prefijo
+ * resultante nunca contiene metacaracteres de regex.
+ */
+public final class NameSearch {
+
+    public static final String FIELD = "nameSearch";
+
+    /** Resultados como máximo por cada petición de autocompletado. */
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NameSearch() {
+    }
+
+    /**
+     * "  José  GARCÍA-Pérez " → "jose garcia perez" (null si no queda nada).
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String normalized = SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Valores de nameSearch para un nombre: el nombre normalizado y el resto a partir
+     * de cada palabra (vacío si el nombre no tiene letras ni dígitos).
+     */
+    public static List<String> keys(String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        if (normalized == null) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    /**
+     * $regex de prefijo anclado para lo que ha escrito el usuario
+     * ("Garcí" → "^garci"), o null si no queda nada que buscar.
+     */
+    public static String prefixRegex(String text) {
+        String normalized = normalize(text);
+        return normalized == null ? null : "^" + normalized;
+    }
+
+    /**
+     * $regex sin ancla sobre el nombre normalizado: encuentra el texto en cualquier
+     * posición, sin distinguir tildes, pero recorre todas las entradas del índice.
+     */
+    public static String containsRegex(String text) {
+        return normalize(text);
+    }
+
+    /**
+     * Límite de autocompletado dentro de [1, MAX_SUGGESTIONS].
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+    }
+}
@@ -0,0 +1,127 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Página de una búsqueda de texto: usuarios de mayor a menor relevancia con su
+ * puntuación y de dónde sale el resultado (ver UserTextIndex).
+ */
+public class TextSearchResultDto {
+
+    public enum Source {
+        /** $text sobre el índice de texto de MongoDB, ordenado por textScore */
+        TEXT_INDEX,
+        /** Índice invertido en memoria (servidor sin $text o sin índice de texto) */
+        MEMORY_INDEX
+    }
+
+    public static class Hit {
+
+        private User user;
+        private double score;
+
+        public Hit() {
+        }
+
+        public Hit(User user, double score) {
+            this.user = user;
+            this.score = score;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public void setUser(User user) {
+            this.user = user;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+    }
+
+    private String query;
+    private Source source;
+    private int page;
+    private int size;
+    private boolean hasMore;
+    private List<Hit> hits = new ArrayList<>();
+
+    public TextSearchResultDto() {
+    }
+
+    public TextSearchResultDto(String query, Source source, int page, int size, List<Hit> hits, boolean hasMore) {
+        this.query = query;
+        this.source = source;
+        this.page = page;
+        this.size = size;
+        this.hits = hits;
+        this.hasMore = hasMore;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public void setSource(Source source) {
+        this.source = source;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<Hit> getHits() {
+        return hits;
+    }
+
+    public void setHits(List<Hit> hits) {
+        this.hits = hits;
+    }
+
+    @Override
+    public String toString() {
+        return "TextSearchResultDto{" +
+                "query='" + query + '\'' +
+                ", source=" + source +
+                ", page=" + page +
+                ", size=" + size +
+                ", hits=" + hits.size() +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -1,12 +1,16 @@
 package com.dam.accesodatos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import org.springframework.data.annotation.*;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -34,8 +38,46 @@ import java.util.Objects;
  * - JOINs eficientes para consultas relacionales
  */
 @Document(collection = "users")  // Equivalente a @Entity + @Table(name = "users") en JPA
+/*
+ * ÍNDICE COMPUESTO department + active + name + _id
+ * ================================================
+ * Equivalente SQL:
+ * CREATE INDEX department_active_name_id ON users(department, active, name, id);
+ *
+ * Sirve con un solo índice a las consultas por departamento:
+ * - { department: ? }                                   → prefijo del índice
+ * - { department: ?, active: ? } ordenado por (name, _id) → igualdad + orden sin SORT en
+ *   memoria: las búsquedas desempatan por _id, así que _id tiene que estar en el índice
+ * - proyección { department, name, _id: 0 }            → consulta cubierta (no lee documentos)
+ *
+ * Por eso department ya no lleva @Indexed: un índice que es prefijo de otro solo
+ * añade coste a cada escritura. NativeMongoUserServiceImpl crea los mismos índices
+ * (mismo nombre y claves) al arrancar. El nombre cambia respecto al antiguo
+ * department_active_name (sin _id): MongoDB no admite dos definiciones con el mismo
+ * nombre, y el antiguo se puede borrar a mano con dropIndex.
+ *
+ * ÍNDICES { campo: 1, _id: 1 } PARA PAGINACIÓN POR KEYSET
+ * ======================================================
+ * CREATE INDEX name_id ON users(name, id);  CREATE INDEX createdAt_id ON users(created_at, id);
+ *
+ * Las búsquedas ordenan por (campo, _id) y la página siguiente filtra por
+ * (campo, _id) > (último valor, último _id): con un índice solo sobre el campo, el
+ * desempate por _id obliga a un SORT en memoria. Recorridos al revés sirven el orden
+ * DESC. Solo estos campos admiten keyset (UserQueryDto.KEYSET_SORT_FIELDS); name_id
+ * sustituye al antiguo índice sobre name, que era su prefijo.
+ */
+@CompoundIndexes({
+        @CompoundIndex(name = User.INDEX_DEPARTMENT_ACTIVE_NAME_ID,
+                def = "{'department': 1, 'active': 1, 'name': 1, '_id': 1}"),
+        @CompoundIndex(name = User.INDEX_NAME_ID, def = "{'name': 1, '_id': 1}"),
+        @CompoundIndex(name = User.INDEX_CREATED_AT_ID, def = "{'createdAt': 1, '_id': 1}")
+})
 public class User {
 
+    public static final String INDEX_DEPARTMENT_ACTIVE_NAME_ID = "department_active_name_id";
+    public static final String INDEX_NAME_ID = "name_id";
+    public static final String INDEX_CREATED_AT_ID = "createdAt_id";
+
     /**
      * CAMPO ID (CLAVE PRIMARIA)
      * =========================
@@ -57,10 +99,11 @@ public class User {
     /**
      * CAMPO NAME CON ÍNDICE
      * =====================
-     * @Indexed: Crea un índice en MongoDB para búsquedas rápidas por nombre
+     * El índice compuesto name_id (ver arriba) sirve las búsquedas por nombre y el
+     * orden (name, _id) de la paginación; un @Indexed aquí sería su prefijo.
      * 
      * Equivalente SQL:
-     * CREATE INDEX idx_name ON users(name);
+     * CREATE INDEX name_id ON users(name, id);
      * 
      * Sin índice: MongoDB escanea TODOS los documentos (O(n))
      * Con índice: Búsqueda en tiempo logarítmico (O(log n))
@@ -71,9 +114,25 @@ public class User {
      */
     @NotBlank(message = "El nombre es obligatorio")
     @Size(min = 2, max = 50, message = "El nombre debe tener entre 2 y 50 caracteres")
-    @Indexed  // Crea índice para búsquedas rápidas
     private String name;
 
+    /**
+     * NOMBRE NORMALIZADO PARA BÚSQUEDAS (DERIVADO DE name)
+     * ====================================================
+     * Minúsculas, sin tildes y con una entrada por palabra (ver NameSearch):
+     * "Ana García" → ["ana garcia", "garcia"]. Se recalcula en cada cambio de name
+     * y permite buscar por prefijo de palabra con el índice (multikey) en lugar
+     * de un $regex /.../i que recorre la colección.
+     *
+     * Equivalente SQL: columna calculada + índice
+     * ALTER TABLE users ADD name_search VARCHAR(50) AS (LOWER(UNACCENT(name)));
+     *
+     * No se incluye en las respuestas JSON.
+     */
+    @Indexed
+    @JsonIgnore
+    private List<String> nameSearch;
+
     /**
      * CAMPO EMAIL CON ÍNDICE ÚNICO
      * ============================
@@ -93,9 +152,10 @@ public class User {
     private String email;
 
     /**
-     * CAMPO DEPARTMENT CON ÍNDICE
-     * ===========================
-     * Este campo tendrá índice porque se usará frecuentemente en filtros:
+     * CAMPO DEPARTMENT (ÍNDICE COMPUESTO)
+     * ===================================
+     * Se usa frecuentemente en filtros, y lo indexa el índice compuesto
+     * department_active_name_id declarado en la clase (department es su primer campo):
      * - findByDepartment(String department)
      * - Consultas de estadísticas por departamento
      * 
@@ -104,8 +164,7 @@ public class User {
      * - JPA: @ManyToOne Department con clave foránea
      */
     @NotBlank(message = "El departamento es obligatorio")
-    @Indexed  // Optimiza consultas como: db.users.find({department: "IT"})
-    private String department;
+    private String department;  // db.users.find({department: "IT"}) usa department_active_name_id
 
     /**
      * CAMPO ROLE (SIN ÍNDICE)
@@ -205,6 +264,7 @@ public class User {
     public User(String name, String email, String department, String role) {
         this();
         this.name = name;
+        this.nameSearch = NameSearch.keys(name);
         this.email = email;
         this.department = department;
         this.role = role;
@@ -220,6 +280,30 @@ public class User {
         this.id = id;
     }
 
+    /**
+     * CONSTRUCTOR COMPLETO (PARA CODECS)
+     * ==================================
+     * Asigna todos los campos directamente, sin pasar por los setters
+     * (que recalculan updatedAt con LocalDateTime.now()).
+     * Usado al decodificar BSON a mano en UserCodec y al copiar en UserCache.
+     * nameSearch se recibe ya calculado (el guardado en MongoDB): normalizar el nombre
+     * en cada lectura costaría más que el resto de la decodificación.
+     *
+     * Spring Data sigue usando el constructor sin argumentos.
+     */
+    public User(String id, String name, List<String> nameSearch, String email, String department, String role,
+                Boolean active, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.nameSearch = nameSearch;
+        this.email = email;
+        this.department = department;
+        this.role = role;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     public String getId() {
         return id;
     }
@@ -248,9 +332,18 @@ public class User {
      */
     public void setName(String name) {
         this.name = name;
+        this.nameSearch = NameSearch.keys(name);
         this.updatedAt = LocalDateTime.now();
     }
 
+    public List<String> getNameSearch() {
+        return nameSearch;
+    }
+
+    public void setNameSearch(List<String> nameSearch) {
+        this.nameSearch = nameSearch;
+    }
+
     public String getEmail() {
         return email;
     }
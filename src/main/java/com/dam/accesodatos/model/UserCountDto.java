@@ -0,0 +1,85 @@
+package com.dam.accesodatos.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Número de usuarios (de un departamento o de toda la colección) y cómo de reciente es.
+ *
+ * - source: de dónde sale el número (ver Source)
+ * - asOf: instante del último recálculo desde MongoDB (null si el número es de ahora)
+ * - ageMs: milisegundos desde asOf (0 si el número es de ahora)
+ * - maxStalenessMs: cota del retraso respecto a escrituras que no pasan por esta
+ *   instancia (otro proceso, mongosh); las propias ya están incluidas. 0 = exacto
+ */
+public class UserCountDto {
+
+    public enum Source {
+        /** countDocuments en el momento de la petición: exacto */
+        COUNT,
+        /** Contador en memoria, recalculado con un $group y ajustado en cada escritura */
+        CACHE,
+        /** estimatedDocumentCount: metadatos de la colección, sin filtro ni recorrido */
+        ESTIMATED
+    }
+
+    private final String department;
+    private final long count;
+    private final Source source;
+    private final LocalDateTime asOf;
+    private final long ageMs;
+    private final long maxStalenessMs;
+
+    public UserCountDto(String department, long count, Source source, LocalDateTime asOf, long ageMs,
+                        long maxStalenessMs) {
+        this.department = department;
+        this.count = count;
+        this.source = source;
+        this.asOf = asOf;
+        this.ageMs = ageMs;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    /**
+     * Número leído de MongoDB en esta petición.
+     */
+    public static UserCountDto now(String department, long count, Source source) {
+        return new UserCountDto(department, count, source, null, 0, 0);
+    }
+
+    /**
+     * null en el total de la colección.
+     */
+    public String getDepartment() {
+        return department;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public long getAgeMs() {
+        return ageMs;
+    }
+
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
+    @Override
+    public String toString() {
+        return "UserCountDto{" +
+                "department='" + department + '\'' +
+                ", count=" + count +
+                ", source=" + source +
+                ", ageMs=" + ageMs +
+                '}';
+    }
+}
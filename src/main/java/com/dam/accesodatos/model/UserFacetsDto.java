@@ -0,0 +1,70 @@
+package com.dam.accesodatos.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recuentos de una búsqueda: total de usuarios que cumplen el filtro y, por cada faceta
+ * (department, role, active), cuántos habría con cada valor manteniendo el resto de
+ * filtros (los valores sin usuarios no aparecen). Ordenados de más a menos usuarios.
+ */
+public class UserFacetsDto {
+
+    private long total;
+    private Map<String, Long> departments = new LinkedHashMap<>();
+    private Map<String, Long> roles = new LinkedHashMap<>();
+    private Map<Boolean, Long> active = new LinkedHashMap<>();
+
+    public UserFacetsDto() {
+    }
+
+    public UserFacetsDto(long total, Map<String, Long> departments, Map<String, Long> roles,
+                         Map<Boolean, Long> active) {
+        this.total = total;
+        this.departments = departments;
+        this.roles = roles;
+        this.active = active;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getDepartments() {
+        return departments;
+    }
+
+    public void setDepartments(Map<String, Long> departments) {
+        this.departments = departments;
+    }
+
+    public Map<String, Long> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(Map<String, Long> roles) {
+        this.roles = roles;
+    }
+
+    public Map<Boolean, Long> getActive() {
+        return active;
+    }
+
+    public void setActive(Map<Boolean, Long> active) {
+        this.active = active;
+    }
+
+    @Override
+    public String toString() {
+        return "UserFacetsDto{" +
+                "total=" + total +
+                ", departments=" + departments +
+                ", roles=" + roles +
+                ", active=" + active +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.dam.accesodatos.model;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por keyset (seek).
+ * nextToken es null cuando no quedan más resultados.
+ */
+public class UserPageDto {
+
+    private List<User> content;
+    private int size;
+    private String nextToken;
+
+    public UserPageDto() {
+    }
+
+    public UserPageDto(List<User> content, String nextToken) {
+        this.content = content;
+        this.size = content.size();
+        this.nextToken = nextToken;
+    }
+
+    public List<User> getContent() {
+        return content;
+    }
+
+    public void setContent(List<User> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    public boolean isHasMore() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPageDto{" +
+                "size=" + size +
+                ", nextToken='" + nextToken + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+package com.dam.accesodatos.model;
+
+import com.dam.accesodatos.exception.InvalidProjectionException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PROYECCIÓN DE CAMPOS DE USUARIO (?fields=id,name,department)
+ * ============================================================
+ * MongoDB:                                    | SQL:
+ * ------------------------------------------- | -------------------------------------------
+ * find({}, { name: 1, department: 1 })        | SELECT id, name, department FROM users
+ * Projections.include("name", "department")   |
+ * query.fields().include("name", "department")|
+ *
+ * El servidor solo envía los campos pedidos: menos bytes por la red y menos
+ * trabajo al decodificar. El resultado se devuelve como un mapa con solo esos
+ * campos (no se construye un User con el resto a null).
+ *
+ * Los nombres son los de la API (id, createdAt...); "id" corresponde a "_id".
+ * _id se devuelve siempre en MongoDB salvo que se excluya explícitamente.
+ */
+public final class UserProjection {
+
+    /** Campos de User que se pueden pedir, en el orden en que se serializan. */
+    public static final List<String> ALLOWED_FIELDS = List.of(
+            "id", "name", "email", "department", "role", "active", "createdAt", "updatedAt");
+
+    private final Set<String> fields;
+
+    private UserProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parsea el parámetro fields (lista separada por comas).
+     * Devuelve null si no se indica ningún campo: sin proyección, User completo.
+     *
+     * @throws InvalidProjectionException si algún campo no existe en User
+     */
+    public static UserProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALLOWED_FIELDS.contains(name)) {
+                throw new InvalidProjectionException(name);
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            return null;
+        }
+        // Orden estable en la respuesta, independiente del orden de la petición
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String allowed : ALLOWED_FIELDS) {
+            if (requested.contains(allowed)) {
+                ordered.add(allowed);
+            }
+        }
+        return new UserProjection(Collections.unmodifiableSet(ordered));
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public boolean includesId() {
+        return fields.contains("id");
+    }
+
+    /**
+     * Nombres de los campos en el documento, sin _id (se trata aparte).
+     */
+    public List<String> documentFields() {
+        List<String> names = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            if (!"id".equals(field)) {
+                names.add(field);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Convierte el documento proyectado en la respuesta: ObjectId → String hex,
+     * Date → LocalDateTime (zona del sistema, como en User).
+     * Los campos pedidos que no existan en el documento no aparecen.
+     */
+    public Map<String, Object> toView(Document doc) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        for (String field : fields) {
+            Object value = doc.get("id".equals(field) ? "_id" : field);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof ObjectId objectId) {
+                value = objectId.toHexString();
+            } else if (value instanceof Date date) {
+                value = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+            }
+            view.put(field, value);
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return "UserProjection" + fields;
+    }
+}
@@ -1,16 +1,63 @@
 package com.dam.accesodatos.model;
 
+import com.dam.accesodatos.exception.InvalidPageRequestException;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+import java.util.Set;
+
 public class UserQueryDto {
 
+    /**
+     * Campos por los que se permite ordenar. Cualquier otro valor de sortBy
+     * se sustituye por "name" para no ordenar por campos sin índice ni inexistentes.
+     */
+    public static final Set<String> SORTABLE_FIELDS =
+            Set.of("name", "email", "department", "role", "active", "createdAt", "updatedAt");
+
+    /**
+     * Campos por los que se permite paginar por keyset: los que tienen índice
+     * { campo: 1, _id: 1 } (User.INDEX_NAME_ID, User.INDEX_CREATED_AT_ID), que sirve el
+     * orden (campo, _id) y el rango del token sin SORT en memoria. Cualquier otro sortBy
+     * se sustituye por "name" en searchUsersPage().
+     */
+    public static final Set<String> KEYSET_SORT_FIELDS = Set.of("name", "createdAt");
+
+    /**
+     * Resultados por página como máximo: page/size se traducen en skip/limit y un limit
+     * grande devolvería colecciones enteras (limit(0) en MongoDB significa "sin límite").
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Cómo se compara name (siempre sin distinguir mayúsculas ni tildes, sobre nameSearch):
+     * - PREFIX (por defecto): prefijo de cualquier palabra del nombre; usa el índice
+     * - CONTAINS: el texto en cualquier posición; recorre todas las entradas del índice
+     */
+    public enum NameMatch {
+        PREFIX,
+        CONTAINS
+    }
+
     private String name;
+    private NameMatch nameMatch;
     private String department;
+    private String role;
     private Boolean active;
+    @Min(value = 0, message = "page no puede ser negativo")
     private Integer page;
+
+    @Min(value = 1, message = "size debe ser al menos 1")
+    @Max(value = MAX_PAGE_SIZE, message = "size no puede ser mayor que " + MAX_PAGE_SIZE)
     private Integer size;
+
     private String sortBy;
     private String sortDirection;
+    private String continuationToken;
+    private boolean faceted;
 
     public UserQueryDto() {
+        this.nameMatch = NameMatch.PREFIX;
         this.page = 0;
         this.size = 10;
         this.sortBy = "name";
@@ -25,6 +72,14 @@ public class UserQueryDto {
         this.name = name;
     }
 
+    public NameMatch getNameMatch() {
+        return nameMatch;
+    }
+
+    public void setNameMatch(NameMatch nameMatch) {
+        this.nameMatch = nameMatch != null ? nameMatch : NameMatch.PREFIX;
+    }
+
     public String getDepartment() {
         return department;
     }
@@ -33,6 +88,14 @@ public class UserQueryDto {
         this.department = department;
     }
 
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
     public Boolean getActive() {
         return active;
     }
@@ -73,20 +136,74 @@ public class UserQueryDto {
         this.sortDirection = sortDirection != null ? sortDirection : "ASC";
     }
 
+    /**
+     * Token de continuación devuelto por la página anterior (paginación por keyset).
+     * Si está presente se ignora page y la búsqueda continúa tras el último documento devuelto.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Modo facetado: la búsqueda devuelve además el total y los recuentos por department,
+     * role y active ($facet en una sola agregación). Usa page/size; continuationToken se ignora.
+     */
+    public boolean isFaceted() {
+        return faceted;
+    }
+
+    public void setFaceted(boolean faceted) {
+        this.faceted = faceted;
+    }
+
+    /**
+     * Los servicios lo comprueban antes de paginar (las llamadas que no pasan por
+     * @Valid del controlador, como el servicio reactivo o los tests, también).
+     */
+    public void checkPaging() {
+        if (page < 0) {
+            throw new InvalidPageRequestException("page", "page no puede ser negativo: " + page);
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("size",
+                    "size debe estar entre 1 y " + MAX_PAGE_SIZE + ": " + size);
+        }
+    }
+
     public int getOffset() {
         return page * size;
     }
 
+    public String resolveSortField() {
+        return SORTABLE_FIELDS.contains(sortBy) ? sortBy : "name";
+    }
+
+    public String resolveKeysetSortField() {
+        return KEYSET_SORT_FIELDS.contains(sortBy) ? sortBy : "name";
+    }
+
+    public boolean isAscending() {
+        return !"DESC".equalsIgnoreCase(sortDirection);
+    }
+
     @Override
     public String toString() {
         return "UserQueryDto{" +
                 "name='" + name + '\'' +
+                ", nameMatch=" + nameMatch +
                 ", department='" + department + '\'' +
+                ", role='" + role + '\'' +
                 ", active=" + active +
                 ", page=" + page +
                 ", size=" + size +
                 ", sortBy='" + sortBy + '\'' +
                 ", sortDirection='" + sortDirection + '\'' +
+                ", continuationToken='" + continuationToken + '\'' +
+                ", faceted=" + faceted +
                 '}';
     }
 }
@@ -3,6 +3,9 @@ package com.dam.accesodatos.model;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class UserUpdateDto {
 
     @Size(min = 2, max = 50, message = "El nombre debe tener entre 2 y 50 caracteres")
@@ -78,6 +81,32 @@ public class UserUpdateDto {
         }
     }
 
+    /**
+     * Campos informados (no-null) con el nombre que tienen en el documento,
+     * en el orden del DTO. Es el contenido del $set de una actualización parcial.
+     * Si cambia name también se incluye nameSearch, que se deriva de él.
+     */
+    public Map<String, Object> changedFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (this.name != null) {
+            fields.put("name", this.name);
+            fields.put(NameSearch.FIELD, NameSearch.keys(this.name));
+        }
+        if (this.email != null) {
+            fields.put("email", this.email);
+        }
+        if (this.department != null) {
+            fields.put("department", this.department);
+        }
+        if (this.role != null) {
+            fields.put("role", this.role);
+        }
+        if (this.active != null) {
+            fields.put("active", this.active);
+        }
+        return fields;
+    }
+
     @Override
     public String toString() {
         return "UserUpdateDto{" +
@@ -0,0 +1,290 @@
+package com.dam.accesodatos.mongodb;
+
+import com.dam.accesodatos.model.UserCountDto;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CACHÉ DE CONTADORES DE USUARIOS POR DEPARTAMENTO
+ * ===============================================
+ * countByDepartment() se consulta cada pocos segundos desde los paneles, para todos los
+ * departamentos: un countDocuments por petición. Aquí los contadores viven en memoria:
+ *
+ * MongoDB:                                            | SQL:
+ * --------------------------------------------------- | ---------------------------------------
+ * aggregate([{ $group: { _id: "$department",          | SELECT department, COUNT(*)
+ *                        count: { $sum: 1 } } }])     | FROM users GROUP BY department
+ * (una pasada cada max-staleness-ms)                  | (vista materializada con REFRESH)
+ *
+ * - Se siembran con un único $group sobre users. Solo la primera consulta espera a la
+ *   siembra: después se vuelve a sembrar en segundo plano (@Scheduled, cada
+ *   app.cache.counts.refresh-check-ms se comprueba si hace falta) y mientras tanto las
+ *   consultas siguen respondiendo con los contadores anteriores
+ * - Los servicios (API nativa, Spring Data y reactiva) los ajustan al crear, borrar o
+ *   cambiar de departamento un usuario: sus propias escrituras se ven al momento
+ * - Las escrituras de otros procesos (otra instancia, mongosh) llegan como eventos de
+ *   UserChangeStream. Los ecos de las escrituras propias (ya ajustadas) se ignoran; un
+ *   INSERT externo trae el documento completo y suma 1 a su departamento, salvo que se
+ *   creara antes de la última siembra (el $group ya lo contó)
+ * - Lo que un evento no permite deducir (un DELETE no trae el departamento; un UPDATE que
+ *   puede haber cambiado de departamento no trae el anterior) no se ajusta: se corrige al
+ *   volver a sembrar cuando los contadores superan max-staleness-ms. Lo mismo sin change
+ *   stream. Cada respuesta indica asOf, ageMs y maxStalenessMs
+ * - Un ajuste que coincide con una siembra puede perderse o contarse dos veces
+ *   (el $group no es una instantánea respecto a las escrituras en curso): el error
+ *   también desaparece en la siguiente siembra
+ *
+ * Con max-staleness-ms = 0 la caché está desactivada y los servicios cuentan en MongoDB.
+ * Con estimated-total = true el total sin filtro se sirve con estimatedDocumentCount
+ * (metadatos de la colección, O(1)) en lugar de contar documentos.
+ */
+@Component
+public class DepartmentCountCache implements UserChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DepartmentCountCache.class);
+
+    private static final String USERS_COLLECTION = "users";
+
+    /**
+     * Contadores de una siembra. null no es una clave válida en ConcurrentHashMap:
+     * los usuarios sin departamento solo cuentan en total.
+     */
+    private record Counts(Map<String, LongAdder> byDepartment, LongAdder total,
+                          LocalDateTime seededAt, long seededAtNanos, Date seedStartedAt) {
+
+        void add(String department, long delta) {
+            if (department != null) {
+                byDepartment.computeIfAbsent(department, d -> new LongAdder()).add(delta);
+            }
+        }
+    }
+
+    private final MongoCollection<Document> users;
+    private final long maxStalenessMs;
+    private final boolean estimatedTotal;
+
+    private volatile Counts counts;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder seeds = new LongAdder();
+    private final LongAdder changeEvents = new LongAdder();
+    /** Eventos externos aplicados como +1 sobre los contadores. */
+    private final LongAdder appliedEvents = new LongAdder();
+    /** Eventos externos que no se pueden deducir: esperan a la siguiente siembra. */
+    private final LongAdder underivedEvents = new LongAdder();
+
+    @Autowired
+    public DepartmentCountCache(MongoClient mongoClient,
+                                @Value("${spring.data.mongodb.database}") String databaseName,
+                                @Value("${app.cache.counts.max-staleness-ms:30000}") long maxStalenessMs,
+                                @Value("${app.cache.counts.estimated-total:false}") boolean estimatedTotal) {
+        this.users = mongoClient.getDatabase(databaseName).getCollection(USERS_COLLECTION);
+        this.maxStalenessMs = Math.max(0, maxStalenessMs);
+        this.estimatedTotal = estimatedTotal;
+    }
+
+    public boolean isEnabled() {
+        return maxStalenessMs > 0;
+    }
+
+    /**
+     * true si el total sin filtro debe servirse con estimatedDocumentCount.
+     */
+    public boolean isEstimatedTotal() {
+        return estimatedTotal;
+    }
+
+    public UserCountDto count(String department) {
+        Counts current = current();
+        LongAdder counter = department != null ? current.byDepartment().get(department) : null;
+        return toDto(department, counter != null ? counter.sum() : 0, current);
+    }
+
+    public UserCountDto countAll() {
+        Counts current = current();
+        return toDto(null, current.total().sum(), current);
+    }
+
+    public void userCreated(String department) {
+        Counts current = counts;
+        if (current != null) {
+            current.add(department, 1);
+            current.total().increment();
+        }
+    }
+
+    public void usersCreated(List<String> departments) {
+        departments.forEach(this::userCreated);
+    }
+
+    public void userDeleted(String department) {
+        Counts current = counts;
+        if (current != null) {
+            current.add(department, -1);
+            current.total().decrement();
+        }
+    }
+
+    public void userMoved(String oldDepartment, String newDepartment) {
+        Counts current = counts;
+        if (current != null && !Objects.equals(oldDepartment, newDepartment)) {
+            current.add(oldDepartment, -1);
+            current.add(newDepartment, 1);
+        }
+    }
+
+    /**
+     * Descarta los contadores: la siguiente consulta vuelve a sembrar.
+     */
+    public void invalidate() {
+        counts = null;
+    }
+
+    @Override
+    public void onUserChange(UserChangeEvent event) {
+        if (event.type() == UserChangeEvent.Type.RESET) {
+            invalidate();
+            return;
+        }
+        changeEvents.increment();
+        Counts current = counts;
+        // Sin contadores no hay nada que ajustar; un eco propio ya se ajustó al escribir
+        if (current == null || event.isLocal()) {
+            return;
+        }
+        switch (event.type()) {
+            case INSERT -> {
+                Document doc = event.document();
+                if (doc != null && !countedBySeed(current, doc)) {
+                    current.add(doc.getString("department"), 1);
+                    current.total().increment();
+                    appliedEvents.increment();
+                }
+            }
+            case UPDATE -> {
+                if (event.mayHaveChanged("department")) {
+                    underivedEvents.increment();
+                }
+            }
+            case DELETE -> underivedEvents.increment();
+            default -> { }
+        }
+    }
+
+    /**
+     * true si el usuario se creó antes de empezar la siembra: el $group ya lo contó.
+     */
+    private static boolean countedBySeed(Counts current, Document doc) {
+        return doc.get("createdAt") instanceof Date createdAt && createdAt.before(current.seedStartedAt());
+    }
+
+    /**
+     * Siembra en segundo plano los contadores más viejos que max-staleness-ms.
+     * Unos contadores que nadie ha pedido todavía no se siembran.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.counts.refresh-check-ms:1000}")
+    public void refreshInBackground() {
+        Counts current = counts;
+        if (!isEnabled() || current == null) {
+            return;
+        }
+        if (ageMs(current) >= maxStalenessMs) {
+            try {
+                seed(current);
+            } catch (Exception e) {
+                // Se siguen sirviendo los contadores anteriores; se reintenta en la siguiente comprobación
+                log.error("Error al sembrar los contadores por departamento: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Counts current = counts;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("estimatedTotal", estimatedTotal);
+        stats.put("maxStalenessMs", maxStalenessMs);
+        stats.put("seededAt", current != null ? current.seededAt().toString() : null);
+        stats.put("ageMs", current != null ? ageMs(current) : null);
+        stats.put("departments", current != null ? current.byDepartment().size() : 0);
+        stats.put("hits", hits.sum());
+        stats.put("seeds", seeds.sum());
+        stats.put("changeEvents", changeEvents.sum());
+        stats.put("appliedEvents", appliedEvents.sum());
+        stats.put("underivedEvents", underivedEvents.sum());
+        return stats;
+    }
+
+    /**
+     * Solo se siembra en el hilo de la petición si no hay contadores (primera consulta o
+     * tras invalidate()); unos contadores viejos se sirven hasta que refreshInBackground()
+     * los sustituye.
+     */
+    private Counts current() {
+        Counts current = counts;
+        if (current == null) {
+            current = seed(null);
+        } else {
+            hits.increment();
+        }
+        return current;
+    }
+
+    /**
+     * Una sola siembra a la vez: quien llega mientras otro siembra usa su resultado.
+     */
+    private synchronized Counts seed(Counts stale) {
+        Counts current = counts;
+        if (current != null && current != stale) {
+            return current;
+        }
+        // Las altas creadas a partir de aquí pueden no estar en el $group: sus eventos suman
+        Date startedAt = new Date();
+        long start = System.nanoTime();
+        Map<String, LongAdder> byDepartment = new ConcurrentHashMap<>();
+        LongAdder total = new LongAdder();
+        for (Document group : users.aggregate(List.of(
+                Aggregates.group("$department", Accumulators.sum("count", 1))))) {
+            long count = ((Number) group.get("count")).longValue();
+            total.add(count);
+            String department = group.getString("_id");
+            if (department != null) {
+                byDepartment.computeIfAbsent(department, d -> new LongAdder()).add(count);
+            }
+        }
+        current = new Counts(byDepartment, total, LocalDateTime.now(), start, startedAt);
+        counts = current;
+        seeds.increment();
+        log.debug("Contadores por departamento sembrados: {} departamentos, {} usuarios en {} ms",
+                byDepartment.size(), total.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return current;
+    }
+
+    private UserCountDto toDto(String department, long count, Counts current) {
+        return new UserCountDto(department, count, UserCountDto.Source.CACHE, current.seededAt(),
+                ageMs(current), maxStalenessMs);
+    }
+
+    private static long ageMs(Counts current) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.seededAtNanos());
+    }
+}
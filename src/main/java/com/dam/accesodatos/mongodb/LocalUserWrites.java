@@ -0,0 +1,135 @@
+package com.dam.accesodatos.mongodb;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ESCRITURAS PROPIAS RECIENTES
+ * ============================
+ * UserChangeStream también entrega los cambios hechos por esta misma instancia (el "eco"
+ * de sus escrituras). Los servicios ya los han aplicado al escribir (caché, contadores,
+ * estadísticas): aplicarlos otra vez desde el evento contaría dos veces o invalidaría
+ * la entrada que se acaba de guardar.
+ *
+ * MongoDB:                                      | SQL:
+ * --------------------------------------------- | ---------------------------------------------
+ * (sin equivalente en el servidor: el change    | Debezium/triggers: columna "origin" o
+ *  stream no dice qué cliente hizo el cambio)   | session_replication_role para ignorar lo propio
+ *
+ * - Los servicios anotan el _id ANTES de escribir (record/recordWithStats): el evento
+ *   no puede llegar antes que la anotación
+ * - UserChangeStream marca como local (UserChangeEvent.localWrite()) el evento de un _id
+ *   anotado hace menos de app.change-stream.local-echo-window-ms
+ * - recordWithStats: la escritura también se ha aplicado a department_stats
+ *   (solo lo hace la API nativa, ver DepartmentStatsView)
+ *
+ * LIMITACIONES:
+ * - Un cambio externo sobre un usuario escrito aquí dentro de la ventana también se toma
+ *   por propio: lo corrigen el TTL de la caché, max-staleness-ms de los contadores y la
+ *   reconciliación periódica de las estadísticas
+ * - Las escrituras sin _id conocido (updateMany por filtro) no se anotan: esos métodos
+ *   ya descartan o recuentan lo derivado
+ *
+ * Con window-ms = 0 no se anota nada (todos los eventos se tratan como externos).
+ */
+@Component
+public class LocalUserWrites {
+
+    private record Entry(long atNanos, UserChangeEvent.LocalWrite write) {
+    }
+
+    private final long windowNanos;
+    private final Map<String, Entry> writes = new ConcurrentHashMap<>();
+    private volatile long lastPurgeNanos = System.nanoTime();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder echoes = new LongAdder();
+
+    @Autowired
+    public LocalUserWrites(@Value("${app.change-stream.local-echo-window-ms:30000}") long windowMs) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMs));
+    }
+
+    /**
+     * Sin anotaciones: para servicios construidos fuera de Spring (benchmarks, tests).
+     */
+    public static LocalUserWrites disabled() {
+        return new LocalUserWrites(0);
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    /**
+     * Escritura aplicada a la caché y a los contadores e índices en memoria.
+     */
+    public void record(String id) {
+        put(id, UserChangeEvent.LocalWrite.IN_MEMORY);
+    }
+
+    public void record(Collection<String> ids) {
+        ids.forEach(this::record);
+    }
+
+    /**
+     * Escritura aplicada además a department_stats.
+     */
+    public void recordWithStats(String id) {
+        put(id, UserChangeEvent.LocalWrite.WITH_STATS);
+    }
+
+    public void recordWithStats(Collection<String> ids) {
+        ids.forEach(this::recordWithStats);
+    }
+
+    /**
+     * Escritura propia anotada para id dentro de la ventana, o null si no la hay.
+     */
+    public UserChangeEvent.LocalWrite find(String id) {
+        if (!isEnabled() || id == null) {
+            return null;
+        }
+        Entry entry = writes.get(id);
+        if (entry == null || System.nanoTime() - entry.atNanos() >= windowNanos) {
+            return null;
+        }
+        echoes.increment();
+        return entry.write();
+    }
+
+    private void put(String id, UserChangeEvent.LocalWrite write) {
+        if (!isEnabled() || id == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        // WITH_STATS se conserva: el eco del alta aún puede estar por llegar
+        writes.merge(id, new Entry(now, write), (previous, next) ->
+                previous.write() == UserChangeEvent.LocalWrite.WITH_STATS && now - previous.atNanos() < windowNanos
+                        ? new Entry(now, UserChangeEvent.LocalWrite.WITH_STATS)
+                        : next);
+        recorded.increment();
+        // Limpieza amortizada: como mucho una pasada por ventana
+        if (now - lastPurgeNanos >= windowNanos) {
+            lastPurgeNanos = now;
+            writes.values().removeIf(entry -> now - entry.atNanos() >= windowNanos);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMs", TimeUnit.NANOSECONDS.toMillis(windowNanos));
+        stats.put("tracked", writes.size());
+        stats.put("recorded", recorded.sum());
+        stats.put("echoes", echoes.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dam.accesodatos.mongodb;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoServerException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import java.util.List;
+
+/**
+ * CLASIFICACIÓN DE ERRORES DE MONGODB POR CÓDIGO
+ * ==============================================
+ * Traduce las excepciones del driver y de Spring Data a la categoría del error
+ * (ErrorCategory del driver) a partir del código que devuelve el servidor, en lugar
+ * de buscar "duplicate key" / "E11000" en el mensaje.
+ *
+ * MongoDB:                                   | JDBC:
+ * ------------------------------------------ | ------------------------------------------
+ * e.getCode() == 11000                       | e.getSQLState().startsWith("23")
+ * ErrorCategory.fromErrorCode(e.getCode())   | SQLIntegrityConstraintViolationException
+ *   == ErrorCategory.DUPLICATE_KEY           | (subclase elegida por el driver)
+ *
+ * Cada API lanza una excepción distinta para el mismo E11000:
+ * - insertOne / updateOne (driver): MongoWriteException con un WriteError
+ * - findOneAndUpdate (driver): MongoCommandException (MongoServerException) con el código
+ * - insertMany / bulkWrite (driver): MongoBulkWriteException con un WriteError por elemento
+ * - MongoTemplate / repositorios: DuplicateKeyException (traducida por MongoExceptionTranslator)
+ * - BulkOperations de Spring Data: BulkOperationException con un BulkWriteError por elemento
+ *
+ * Se recorre la cadena de causas, así que también sirve con excepciones envueltas.
+ */
+public final class MongoErrors {
+
+    /** Código de servidor IndexNotFound. */
+    static final int INDEX_NOT_FOUND = 27;
+
+    private MongoErrors() {
+    }
+
+    /**
+     * Categoría del primer error de MongoDB en la cadena de causas
+     * (UNCATEGORIZED si no hay ninguno o el código no tiene categoría propia).
+     */
+    public static ErrorCategory categoryOf(Throwable e) {
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            if (current instanceof DuplicateKeyException) {
+                return ErrorCategory.DUPLICATE_KEY;
+            }
+            if (current instanceof MongoWriteException write) {
+                return write.getError().getCategory();
+            }
+            if (current instanceof MongoBulkWriteException bulk) {
+                return categoryOf(bulk.getWriteErrors());
+            }
+            if (current instanceof BulkOperationException bulk) {
+                return categoryOf(bulk.getErrors());
+            }
+            if (current instanceof MongoServerException server) {
+                return ErrorCategory.fromErrorCode(server.getCode());
+            }
+        }
+        return ErrorCategory.UNCATEGORIZED;
+    }
+
+    /**
+     * true si la excepción es una violación de índice único (E11000 y equivalentes).
+     */
+    public static boolean isDuplicateKey(Throwable e) {
+        return categoryOf(e) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    /**
+     * true si el servidor ha respondido que falta un índice que la consulta necesita
+     * (IndexNotFound, 27: p.ej. $text sin índice de texto). Es lo único que justifica
+     * pasar a la alternativa sin índice; el resto de errores se propagan.
+     */
+    public static boolean isIndexNotFound(Throwable e) {
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            if (current instanceof MongoServerException server) {
+                return server.getCode() == INDEX_NOT_FOUND;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * true si el error de un elemento de una escritura masiva es una violación de índice único.
+     * Sirve para los BulkWriteError de insertMany/bulkWrite y de BulkOperations (subclase de WriteError).
+     */
+    public static boolean isDuplicateKey(WriteError error) {
+        return error.getCategory() == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    /**
+     * Escritura masiva vista como una sola operación: cuenta el primer error.
+     * Para clasificar cada elemento usar isDuplicateKey(WriteError).
+     */
+    private static ErrorCategory categoryOf(List<? extends WriteError> errors) {
+        return errors.isEmpty() ? ErrorCategory.UNCATEGORIZED : errors.get(0).getCategory();
+    }
+}
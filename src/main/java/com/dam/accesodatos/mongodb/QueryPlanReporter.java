@@ -0,0 +1,153 @@
+package com.dam.accesodatos.mongodb;
+
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserService;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserService;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PLANES DE EJECUCIÓN DE LAS CONSULTAS DE LOS SERVICIOS
+ * =====================================================
+ * MongoDB:                                        | SQL:
+ * ----------------------------------------------- | ---------------------------------
+ * db.users.find({...}).explain("executionStats")  | EXPLAIN ANALYZE SELECT ...
+ * winningPlan: IXSCAN → FETCH                     | Index Scan using ... on users
+ * winningPlan: COLLSCAN                           | Seq Scan on users
+ *
+ * Para cada QueryShape de cada servicio se ejecuta explain y se resume:
+ * - stages / indexName: etapas del plan ganador (COLLSCAN = sin índice)
+ * - totalKeysExamined / totalDocsExamined / nReturned
+ * - docsExaminedPerReturned: ~1 es un índice selectivo; muy alto, el índice no filtra
+ *   (o no hay índice). 0 documentos examinados con resultados = consulta cubierta.
+ *
+ * Si el servidor no soporta explain (p.ej. el backend en memoria de los tests)
+ * la forma se devuelve con el campo "error" en lugar de las estadísticas.
+ */
+@Component
+public class QueryPlanReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanReporter.class);
+
+    private final MongoClient mongoClient;
+    private final String databaseName;
+    private final NativeMongoUserService nativeService;
+    private final SpringDataUserService springDataService;
+
+    @Autowired
+    public QueryPlanReporter(MongoClient mongoClient,
+                             @Value("${spring.data.mongodb.database}") String databaseName,
+                             NativeMongoUserService nativeService,
+                             SpringDataUserService springDataService) {
+        this.mongoClient = mongoClient;
+        this.databaseName = databaseName;
+        this.nativeService = nativeService;
+        this.springDataService = springDataService;
+    }
+
+    public List<Map<String, Object>> explainAll(String department) {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (QueryShape shape : nativeService.queryShapes(department)) {
+            report.add(explain("native", shape));
+        }
+        for (QueryShape shape : springDataService.queryShapes(department)) {
+            report.add(explain("springdata", shape));
+        }
+        return report;
+    }
+
+    private Map<String, Object> explain(String service, QueryShape shape) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("service", service);
+        entry.put("operation", shape.operation());
+        entry.put("filter", toJson(shape.filter()));
+        if (shape.sort() != null) {
+            entry.put("sort", toJson(shape.sort()));
+        }
+        if (shape.projection() != null) {
+            entry.put("projection", toJson(shape.projection()));
+        }
+        try {
+            MongoCollection<Document> collection = mongoClient.getDatabase(databaseName).getCollection("users");
+            FindIterable<Document> find = collection.find(shape.filter()).limit(shape.limit());
+            if (shape.sort() != null) {
+                find.sort(shape.sort());
+            }
+            if (shape.projection() != null) {
+                find.projection(shape.projection());
+            }
+            Document explain = find.explain(ExplainVerbosity.EXECUTION_STATS);
+            summarize(explain, entry);
+        } catch (Exception e) {
+            log.warn("No se pudo obtener el plan de {}.{}: {}", service, shape.operation(), e.getMessage());
+            entry.put("error", e.getMessage());
+        }
+        return entry;
+    }
+
+    private void summarize(Document explain, Map<String, Object> entry) {
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        // Desde MongoDB 5.1 (motor SBE) el árbol de etapas va dentro de queryPlan
+        if (winningPlan.containsKey("queryPlan")) {
+            winningPlan = winningPlan.get("queryPlan", Document.class);
+        }
+        List<String> stages = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        collectStages(winningPlan, stages, indexes);
+        entry.put("stages", stages);
+        entry.put("indexName", indexes.isEmpty() ? null : String.join(",", indexes));
+
+        Document stats = explain.get("executionStats", Document.class);
+        long returned = number(stats, "nReturned");
+        long docsExamined = number(stats, "totalDocsExamined");
+        entry.put("nReturned", returned);
+        entry.put("totalKeysExamined", number(stats, "totalKeysExamined"));
+        entry.put("totalDocsExamined", docsExamined);
+        entry.put("executionTimeMillis", number(stats, "executionTimeMillis"));
+        entry.put("docsExaminedPerReturned", returned == 0 ? null : (double) docsExamined / returned);
+    }
+
+    /**
+     * Recorre el árbol del plan en profundidad (inputStage / inputStages),
+     * de la etapa final a la de acceso: p.ej. [LIMIT, FETCH, IXSCAN].
+     */
+    @SuppressWarnings("unchecked")
+    private void collectStages(Document stage, List<String> stages, List<String> indexes) {
+        stages.add(stage.getString("stage"));
+        if (stage.getString("indexName") != null) {
+            indexes.add(stage.getString("indexName"));
+        }
+        if (stage.get("inputStage") instanceof Document input) {
+            collectStages(input, stages, indexes);
+        }
+        if (stage.get("inputStages") instanceof List<?> inputs) {
+            for (Document input : (List<Document>) inputs) {
+                collectStages(input, stages, indexes);
+            }
+        }
+    }
+
+    private long number(Document doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    private String toJson(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, mongoClient.getDatabase(databaseName).getCodecRegistry())
+                .toJson();
+    }
+}
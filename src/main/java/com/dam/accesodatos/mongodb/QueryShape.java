@@ -0,0 +1,13 @@
+package com.dam.accesodatos.mongodb;
+
+import org.bson.conversions.Bson;
+
+/**
+ * Forma de una consulta que ejecuta un servicio (filtro, orden, proyección y límite),
+ * construida con el mismo código que la consulta real. QueryPlanReporter la ejecuta
+ * con explain("executionStats") para ver qué índice usa y cuántos documentos lee.
+ *
+ * sort y projection pueden ser null; limit 0 = sin límite.
+ */
+public record QueryShape(String operation, Bson filter, Bson sort, Bson projection, int limit) {
+}
@@ -0,0 +1,267 @@
+package com.dam.accesodatos.mongodb;
+
+import com.dam.accesodatos.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * CACHÉ READ-THROUGH DE USUARIOS POR ID
+ * =====================================
+ * Caché en memoria del proceso, compartida por los dos servicios (API nativa y
+ * Spring Data), que trabajan sobre la misma colección "users".
+ *
+ * Equivalente JPA: la caché de segundo nivel de Hibernate (@Cacheable + Ehcache/Caffeine),
+ * que evita el SELECT ... WHERE id = ? cuando la entidad ya se leyó.
+ *
+ * FUNCIONAMIENTO:
+ * - get(id, loader): si el usuario está en caché y no ha caducado se devuelve sin ir a MongoDB;
+ *   si no, se llama al loader (find por _id) y se guarda el resultado
+ * - Límite de tamaño: LinkedHashMap en orden de acceso, se expulsa el usado hace más tiempo (LRU)
+ * - TTL: cada entrada caduca a los ttl desde que se guardó, aunque nadie la invalide
+ *   (cubre escrituras que no pasan por los servicios: mongosh, otra instancia...)
+ * - put()/invalidate(): los servicios actualizan o borran la entrada en create/update/delete
+ *
+ * CONSISTENCIA:
+ * - User es mutable: se guarda y se devuelve siempre una copia, para que quien
+ *   modifique el objeto devuelto no altere el contenido de la caché
+ * - Una lectura que empezó antes de una escritura no guarda su resultado
+ *   (podría ser el valor antiguo): cada put/invalidate incrementa un contador de
+ *   escrituras y get() solo guarda si el contador no ha cambiado durante la carga
+ *
+ * CAMBIOS EXTERNOS:
+ * Como UserChangeListener recibe los cambios de users de cualquier origen (otra instancia,
+ * un proceso batch, mongosh): invalida el usuario cambiado y, ante RESET, vacía la caché.
+ * Las escrituras propias también llegan, pero marcadas como locales (ver LocalUserWrites):
+ * se ignoran para no invalidar la entrada que el servicio acaba de guardar con put().
+ *
+ * max-size = 0 o ttl = 0 desactivan la caché (todas las lecturas van a MongoDB).
+ */
+@Component
+public class UserCache implements UserChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+
+    private record Entry(User user, long expiresAtNanos) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** Se incrementa en cada put/invalidate: detecta escrituras concurrentes con una carga. */
+    private final AtomicLong writeStamp = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @Autowired
+    public UserCache(@Value("${app.cache.users.max-size:10000}") int maxSize,
+                     @Value("${app.cache.users.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        log.info("Caché de usuarios: maxSize={}, ttl={}s{}", this.maxSize, ttlSeconds, isEnabled() ? "" : " (desactivada)");
+    }
+
+    /**
+     * Caché sin capacidad: todas las lecturas llegan al loader.
+     */
+    public static UserCache disabled() {
+        return new UserCache(0, 0);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * Devuelve el usuario cacheado o lo carga con loader.
+     * El loader puede lanzar excepciones (p.ej. UserNotFoundException): no se cachean.
+     */
+    public User get(String id, Function<String, User> loader) {
+        if (!isEnabled()) {
+            return loader.apply(id);
+        }
+
+        long now = System.nanoTime();
+        User cached = null;
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (now - entry.expiresAtNanos() < 0) {
+                    hits.increment();
+                    cached = entry.user();
+                } else {
+                    entries.remove(id);
+                    expirations.increment();
+                }
+            }
+        }
+        if (cached != null) {
+            // Las copias se hacen fuera del monitor: el User guardado nunca se modifica
+            return copy(cached);
+        }
+
+        misses.increment();
+        long stamp = writeStamp.get();
+        User loaded = loader.apply(id);
+        if (loaded != null) {
+            User stored = copy(loaded);
+            synchronized (entries) {
+                if (writeStamp.get() == stamp) {
+                    entries.put(id, new Entry(stored, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Versión multi-get de get(): devuelve los usuarios cacheados y carga el resto
+     * con UNA llamada a loader (p.ej. un find con $in sobre _id).
+     *
+     * @param ids    ids sin repetir
+     * @param loader recibe los ids que no están en caché y devuelve los encontrados por id
+     * @return usuarios encontrados por id; los que no existen no aparecen (y no se cachean)
+     */
+    public Map<String, User> getAll(Collection<String> ids, Function<Collection<String>, Map<String, User>> loader) {
+        if (!isEnabled()) {
+            return loader.apply(ids);
+        }
+
+        Map<String, User> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (String id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null && now - entry.expiresAtNanos() < 0) {
+                    hits.increment();
+                    found.put(id, entry.user());
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(id);
+                    expirations.increment();
+                }
+                missing.add(id);
+            }
+        }
+        found.replaceAll((id, user) -> copy(user));
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.add(missing.size());
+        long stamp = writeStamp.get();
+        Map<String, User> loaded = loader.apply(missing);
+        Map<String, User> stored = new HashMap<>();
+        loaded.forEach((id, user) -> stored.put(id, copy(user)));
+        synchronized (entries) {
+            if (writeStamp.get() == stamp) {
+                long expiresAt = System.nanoTime() + ttlNanos;
+                stored.forEach((id, user) -> entries.put(id, new Entry(user, expiresAt)));
+            }
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    /**
+     * Guarda (o reemplaza) el usuario tras crearlo o actualizarlo.
+     */
+    public void put(User user) {
+        if (!isEnabled() || user == null || user.getId() == null) {
+            return;
+        }
+        User stored = copy(user);
+        synchronized (entries) {
+            writeStamp.incrementAndGet();
+            entries.put(user.getId(), new Entry(stored, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Elimina la entrada (usuario borrado o actualizado sin valor final conocido).
+     */
+    public void invalidate(String id) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (entries) {
+            writeStamp.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            writeStamp.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void onUserChange(UserChangeEvent event) {
+        if (event.type() == UserChangeEvent.Type.RESET) {
+            clear();
+        } else if (event.userId() != null && !event.isLocal()) {
+            invalidate(event.userId());
+        }
+    }
+
+    /**
+     * Instantánea de los contadores (para el endpoint de administración).
+     */
+    public Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private static User copy(User user) {
+        // nameSearch se copia tal cual: recalcularlo (NFD + regex) en cada acierto no aporta nada
+        List<String> nameSearch = user.getNameSearch() != null ? List.copyOf(user.getNameSearch()) : null;
+        return new User(user.getId(), user.getName(), nameSearch, user.getEmail(), user.getDepartment(),
+                user.getRole(), user.getActive(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+}
@@ -0,0 +1,78 @@
+package com.dam.accesodatos.mongodb;
+
+import org.bson.Document;
+
+import java.util.Set;
+
+/**
+ * Cambio en la colección users, tal como lo entrega UserChangeStream a sus consumidores.
+ *
+ * - userId: _id del usuario en hexadecimal (null en RESET)
+ * - document: documento completo tras el cambio; null en DELETE, en RESET y si el
+ *   usuario ya no existía cuando se leyó (update seguido de delete)
+ * - updatedFields: en UPDATE, campos modificados o eliminados según el updateDescription
+ *   del change stream; null si no se sabe (replaceOne, polling) o en otros tipos.
+ *   Sirve para saber si un valor anterior (p. ej. el departamento) puede haber cambiado:
+ *   el documento anterior no llega (fullDocumentBeforeChange exige MongoDB 6.0 y
+ *   changeStreamPreAndPostImages activado en la colección)
+ * - localWrite: no null si el usuario lo ha escrito esta misma instancia hace poco
+ *   (ver LocalUserWrites): sus servicios ya han aplicado el cambio
+ *
+ * RESET indica que se han podido perder cambios (historial del oplog caducado,
+ * colección borrada o renombrada): el consumidor debe descartar todo lo derivado.
+ */
+public record UserChangeEvent(Type type, String userId, Document document, Set<String> updatedFields,
+                              LocalWrite localWrite) {
+
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE,
+        RESET
+    }
+
+    /**
+     * Qué han aplicado ya los servicios de esta instancia al escribir.
+     */
+    public enum LocalWrite {
+        /** Caché de usuarios, contadores por departamento e índices en memoria. */
+        IN_MEMORY,
+        /** Lo anterior y además department_stats (API nativa). */
+        WITH_STATS
+    }
+
+    public UserChangeEvent(Type type, String userId, Document document) {
+        this(type, userId, document, null, null);
+    }
+
+    public UserChangeEvent(Type type, String userId, Document document, Set<String> updatedFields) {
+        this(type, userId, document, updatedFields, null);
+    }
+
+    public static UserChangeEvent reset() {
+        return new UserChangeEvent(Type.RESET, null, null);
+    }
+
+    public UserChangeEvent withLocalWrite(LocalWrite localWrite) {
+        return new UserChangeEvent(type, userId, document, updatedFields, localWrite);
+    }
+
+    /**
+     * true si es el eco de una escritura de esta instancia.
+     */
+    public boolean isLocal() {
+        return localWrite != null;
+    }
+
+    /**
+     * true si el cambio puede haber modificado field: siempre en DELETE y RESET, y en
+     * UPDATE salvo que updatedFields diga que no.
+     */
+    public boolean mayHaveChanged(String field) {
+        return switch (type) {
+            case INSERT -> false;
+            case UPDATE -> updatedFields == null || updatedFields.contains(field);
+            case DELETE, RESET -> true;
+        };
+    }
+}
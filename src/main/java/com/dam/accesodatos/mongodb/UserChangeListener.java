@@ -0,0 +1,14 @@
+package com.dam.accesodatos.mongodb;
+
+/**
+ * Consumidor de los cambios de la colección users (caché, contadores, índices de búsqueda...).
+ *
+ * Los beans que implementan esta interfaz se registran solos en UserChangeStream.
+ * Se invoca siempre desde el mismo hilo de reparto y en el orden de los cambios:
+ * un consumidor lento frena la lectura del change stream (no se pierden eventos).
+ */
+@FunctionalInterface
+public interface UserChangeListener {
+
+    void onUserChange(UserChangeEvent event);
+}
@@ -0,0 +1,420 @@
+package com.dam.accesodatos.mongodb;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CHANGE STREAM DE LA COLECCIÓN USERS
+ * ===================================
+ * Escucha los cambios de users (de esta instancia, de otras o de procesos batch)
+ * y los reparte a los UserChangeListener registrados (caché, estadísticas...).
+ *
+ * MongoDB:                                         | SQL:
+ * ------------------------------------------------ | ------------------------------------------
+ * db.users.watch([], { fullDocument:               | LISTEN/NOTIFY (PostgreSQL), CDC con Debezium
+ *   "updateLookup", resumeAfter: token })          | sobre el binlog/WAL
+ *
+ * FUNCIONAMIENTO:
+ * - Un hilo lee el change stream (tryNext con maxAwaitTime para poder pararlo)
+ * - Cada evento se entrega a un ThreadPoolExecutor de un solo hilo con cola acotada:
+ *   los consumidores se ejecutan en orden y, si la cola se llena, el hilo lector se
+ *   bloquea hasta que haya hueco (backpressure: se lee más despacio, no se pierden eventos)
+ * - El resume token se guarda en la colección change_stream_checkpoints como mucho una
+ *   vez por checkpoint-interval-ms: al reiniciar se continúa donde se dejó
+ * - Si el token ya no está en el oplog (ChangeStreamHistoryLost) se empieza de cero
+ *   y se envía RESET para que los consumidores descarten su estado
+ * - Los cambios de usuarios que esta instancia acaba de escribir llegan marcados
+ *   (UserChangeEvent.localWrite(), ver LocalUserWrites): los consumidores no vuelven
+ *   a aplicar lo que los servicios ya aplicaron
+ *
+ * ALTERNATIVA POR POLLING:
+ * Los change streams requieren replica set o sharded cluster (el mongod embebido de
+ * desarrollo es standalone). Si el servidor no los admite, o con mode=POLLING, se
+ * consulta cada poll-interval-ms { updatedAt: { $gte: marca } } ordenado por updatedAt
+ * (con índice en updatedAt, creado al entrar en este modo). Limitaciones:
+ * - Los borrados no se detectan (la caché los cubre con el TTL y las estadísticas
+ *   con la reconciliación periódica)
+ * - Las escrituras que no actualizan updatedAt no se detectan
+ */
+public class UserChangeStream implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeStream.class);
+
+    static final String CHECKPOINT_COLLECTION = "change_stream_checkpoints";
+    private static final String CHECKPOINT_ID = "users";
+
+    /** El historial del oplog ya no contiene el resume token guardado. */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final long RETRY_DELAY_MS = 5000;
+
+    public enum Mode {
+        /** Change stream si el servidor lo admite; si no, polling. */
+        AUTO,
+        POLLING
+    }
+
+    private final MongoCollection<Document> users;
+    private final MongoCollection<BsonDocument> checkpoints;
+    private final List<UserChangeListener> listeners;
+    private final LocalUserWrites localWrites;
+    private final boolean enabled;
+    private final Mode mode;
+    private final int queueCapacity;
+    private final long pollIntervalMs;
+    private final long checkpointIntervalMs;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder localEchoes = new LongAdder();
+    private final LongAdder listenerErrors = new LongAdder();
+
+    private volatile boolean running;
+    private volatile String activeSource = "STOPPED";
+    private volatile Date lastEventAt;
+    private Thread reader;
+    private ThreadPoolExecutor dispatcher;
+    private long lastCheckpointNanos;
+
+    public UserChangeStream(MongoClient mongoClient, String databaseName, List<UserChangeListener> listeners,
+                            LocalUserWrites localWrites, boolean enabled, Mode mode, int queueCapacity, long pollIntervalMs,
+                            long checkpointIntervalMs) {
+        MongoDatabase database = mongoClient.getDatabase(databaseName);
+        this.users = database.getCollection("users");
+        this.checkpoints = database.getCollection(CHECKPOINT_COLLECTION, BsonDocument.class);
+        this.listeners = new CopyOnWriteArrayList<>(listeners);
+        this.localWrites = localWrites;
+        this.enabled = enabled;
+        this.mode = mode;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.pollIntervalMs = Math.max(1, pollIntervalMs);
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    /**
+     * Registra un consumidor adicional (los beans UserChangeListener ya vienen registrados).
+     */
+    public void register(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unregister(UserChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        lastCheckpointNanos = System.nanoTime();
+        dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "users-change-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    // Cola llena: el lector espera a que haya hueco (en lugar de descartar el evento)
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Reparto de cambios interrumpido", e);
+                    }
+                });
+        reader = new Thread(this::readLoop, "users-change-stream");
+        reader.setDaemon(true);
+        reader.start();
+        log.info("Change stream de users iniciado (modo {}, cola de {} eventos, {} consumidores)",
+                mode, queueCapacity, listeners.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        reader.interrupt();
+        try {
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+            dispatcher.shutdown();
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        activeSource = "STOPPED";
+        log.info("Change stream de users detenido");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void readLoop() {
+        boolean changeStreamSupported = mode == Mode.AUTO;
+        while (running) {
+            try {
+                if (changeStreamSupported) {
+                    changeStreamSupported = watch();
+                } else {
+                    poll();
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Error leyendo los cambios de users, reintentando en {} ms: {}",
+                        RETRY_DELAY_MS, e.getMessage(), e);
+                sleep(RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Lee el change stream hasta que se pare el componente.
+     *
+     * @return false si el servidor no admite change streams (hay que usar polling)
+     */
+    private boolean watch() {
+        BsonDocument resumeToken = loadCheckpoint("resumeToken");
+        var stream = users.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        try {
+            cursor = stream.cursor();
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST && resumeToken != null) {
+                log.warn("El resume token guardado ya no está en el oplog: se reinicia el change stream");
+                saveCheckpoint("resumeToken", null);
+                dispatch(UserChangeEvent.reset());
+                return true;
+            }
+            log.warn("El servidor no admite change streams ({}): se usa polling sobre updatedAt", e.getErrorMessage());
+            return false;
+        }
+
+        activeSource = "CHANGE_STREAM";
+        try (cursor) {
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    dispatch(toEvent(change));
+                }
+                BsonDocument token = cursor.getResumeToken();
+                if (token != null) {
+                    checkpointIfDue("resumeToken", token, !running);
+                }
+            }
+        }
+        return true;
+    }
+
+    private UserChangeEvent toEvent(ChangeStreamDocument<Document> change) {
+        BsonDocument key = change.getDocumentKey();
+        String id = key == null ? null : hexId(key.get("_id"));
+        return switch (change.getOperationType()) {
+            case INSERT -> new UserChangeEvent(UserChangeEvent.Type.INSERT, id, change.getFullDocument());
+            case UPDATE -> new UserChangeEvent(UserChangeEvent.Type.UPDATE, id, change.getFullDocument(),
+                    updatedFields(change.getUpdateDescription()));
+            case REPLACE -> new UserChangeEvent(UserChangeEvent.Type.UPDATE, id, change.getFullDocument());
+            case DELETE -> new UserChangeEvent(UserChangeEvent.Type.DELETE, id, null);
+            // drop, rename, dropDatabase, invalidate...: el estado derivado ya no es fiable
+            default -> UserChangeEvent.reset();
+        };
+    }
+
+    /**
+     * Campos de primer nivel que toca un update ({ "address.city": ... } cuenta como address).
+     */
+    private static Set<String> updatedFields(UpdateDescription description) {
+        if (description == null) {
+            return null;
+        }
+        Set<String> fields = new HashSet<>();
+        if (description.getUpdatedFields() != null) {
+            description.getUpdatedFields().keySet().forEach(path -> fields.add(topLevel(path)));
+        }
+        if (description.getRemovedFields() != null) {
+            description.getRemovedFields().forEach(path -> fields.add(topLevel(path)));
+        }
+        return fields;
+    }
+
+    private static String topLevel(String path) {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+
+    /**
+     * Polling sobre updatedAt hasta que se pare el componente.
+     * Se guarda la marca (el mayor updatedAt visto) y los _id ya repartidos con ese
+     * mismo updatedAt, porque la consulta usa $gte para no perder escrituras del mismo milisegundo.
+     */
+    private void poll() {
+        users.createIndex(Indexes.ascending("updatedAt"), new IndexOptions().name("updatedAt"));
+        BsonDocument stored = loadCheckpoint("pollWatermark");
+        // Sin marca guardada se empieza desde ahora (no se reparte la colección entera)
+        Date watermark = stored != null && stored.containsKey("at")
+                ? new Date(stored.getDateTime("at").getValue())
+                : new Date();
+        Set<String> seenAtWatermark = new HashSet<>();
+
+        activeSource = "POLLING";
+        while (running) {
+            try (MongoCursor<Document> cursor = users.find(Filters.gte("updatedAt", watermark))
+                    .sort(Sorts.ascending("updatedAt", "_id"))
+                    .iterator()) {
+                while (cursor.hasNext()) {
+                    Document doc = cursor.next();
+                    String id = doc.get("_id") instanceof ObjectId objectId
+                            ? objectId.toHexString()
+                            : String.valueOf(doc.get("_id"));
+                    Date updatedAt = doc.getDate("updatedAt");
+                    if (updatedAt.after(watermark)) {
+                        watermark = updatedAt;
+                        seenAtWatermark.clear();
+                    }
+                    if (!seenAtWatermark.add(id)) {
+                        continue;
+                    }
+                    boolean created = updatedAt.equals(doc.getDate("createdAt"));
+                    dispatch(new UserChangeEvent(
+                            created ? UserChangeEvent.Type.INSERT : UserChangeEvent.Type.UPDATE, id, doc));
+                }
+            }
+            checkpointIfDue("pollWatermark", new BsonDocument("at", new BsonDateTime(watermark.getTime())), false);
+            sleep(pollIntervalMs);
+        }
+        checkpointIfDue("pollWatermark", new BsonDocument("at", new BsonDateTime(watermark.getTime())), true);
+    }
+
+    private void dispatch(UserChangeEvent change) {
+        received.increment();
+        lastEventAt = new Date();
+        UserChangeEvent.LocalWrite localWrite = localWrites.find(change.userId());
+        if (localWrite != null) {
+            localEchoes.increment();
+        }
+        UserChangeEvent event = localWrite != null ? change.withLocalWrite(localWrite) : change;
+        dispatcher.execute(() -> {
+            for (UserChangeListener listener : listeners) {
+                try {
+                    listener.onUserChange(event);
+                } catch (Exception e) {
+                    listenerErrors.increment();
+                    log.error("Error en el consumidor {} con {}: {}", listener, event.type(), e.getMessage(), e);
+                }
+            }
+            dispatched.increment();
+        });
+    }
+
+    private void checkpointIfDue(String field, BsonDocument value, boolean force) {
+        long now = System.nanoTime();
+        if (force || now - lastCheckpointNanos >= TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMs)) {
+            saveCheckpoint(field, value);
+            lastCheckpointNanos = now;
+        }
+    }
+
+    private BsonDocument loadCheckpoint(String field) {
+        BsonDocument checkpoint = checkpoints.find(Filters.eq("_id", CHECKPOINT_ID)).first();
+        if (checkpoint == null || !checkpoint.isDocument(field)) {
+            return null;
+        }
+        return checkpoint.getDocument(field);
+    }
+
+    private void saveCheckpoint(String field, BsonDocument value) {
+        try {
+            checkpoints.updateOne(Filters.eq("_id", CHECKPOINT_ID),
+                    value == null
+                            ? Updates.unset(field)
+                            : Updates.combine(Updates.set(field, value), Updates.set("savedAt", new Date())),
+                    new UpdateOptions().upsert(true));
+        } catch (Exception e) {
+            // Sin checkpoint solo se pierde poder continuar tras un reinicio
+            log.warn("No se pudo guardar el checkpoint del change stream: {}", e.getMessage());
+        }
+    }
+
+    private static String hexId(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Estado del listener (para el endpoint de administración).
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mode", mode);
+        stats.put("source", activeSource);
+        stats.put("listeners", listeners.size());
+        stats.put("received", received.sum());
+        stats.put("dispatched", dispatched.sum());
+        stats.put("localEchoes", localEchoes.sum());
+        stats.put("localWrites", localWrites.snapshot());
+        stats.put("queued", dispatcher == null ? 0 : dispatcher.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("listenerErrors", listenerErrors.sum());
+        stats.put("lastEventAt", lastEventAt);
+        return stats;
+    }
+}
@@ -0,0 +1,518 @@
+package com.dam.accesodatos.mongodb;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ÍNDICE DE FACETAS EN MEMORIA (department, role, active)
+ * =======================================================
+ * El panel de administración repite constantemente las mismas combinaciones de filtros
+ * y pide cuántos usuarios hay por cada valor. Son campos de pocos valores distintos:
+ * aquí cada valor tiene un bitmap (BitSet) con un bit por usuario y los filtros y
+ * recuentos se resuelven con AND y cardinality(), sin consultar MongoDB.
+ *
+ * MongoDB:                                          | SQL:
+ * ------------------------------------------------- | ------------------------------------------
+ * aggregate([{ $match: { role: "Dev" } },           | SELECT department, COUNT(*) FROM users
+ *   { $group: { _id: "$department",                 | WHERE role = 'Dev' GROUP BY department
+ *               count: { $sum: 1 } } }])            | (Oracle/PostgreSQL: índices bitmap,
+ * (una agregación por faceta y por petición)        |  BitmapAnd entre ellos)
+ *
+ * - Cada usuario ocupa una posición (slot) en los bitmaps; el _id de cada slot se
+ *   guarda aparte. Un bitmap ocupa un bit por usuario: 100.000 usuarios son ~12 KB
+ *   por valor, frente a un Set<String> de 100.000 IDs (varios MB)
+ * - Los recuentos de cada faceta se calculan con el resto de filtros (no con el suyo):
+ *   con department=IT, departments indica cuántos habría en cada departamento
+ * - Se construye con una pasada sobre users la primera vez que se necesita
+ * - Los servicios (también el reactivo) lo ajustan al crear, actualizar o borrar; las
+ *   actualizaciones por filtro lo descartan (no se sabe qué usuarios han cambiado) y se
+ *   reconstruye en la siguiente consulta. Los cambios de otros procesos llegan por
+ *   UserChangeStream, pero en modo POLLING los borrados no llegan nunca: cada
+ *   app.search.facets.rebuild-interval-ms se reconstruye desde MongoDB en segundo
+ *   plano y se sustituye, como la reconciliación de DepartmentStatsView
+ * - Los slots de los usuarios borrados se recompactan cuando son más que los vivos
+ *
+ * Lecturas concurrentes con un ReadWriteLock: solo las escrituras se excluyen.
+ */
+@Component
+public class UserFacetIndex implements UserChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserFacetIndex.class);
+
+    private static final String USERS_COLLECTION = "users";
+
+    /** Slots libres (usuarios borrados) a partir de los cuales se plantea recompactar. */
+    private static final int MIN_DEAD_SLOTS_TO_COMPACT = 1024;
+
+    /** IDs del filtro de nombre que se pasan a slots con cada toma del cerrojo de lectura. */
+    private static final int NAME_MATCH_CHUNK = 1024;
+
+    /**
+     * Bitmaps de una construcción. department/role null no se indexan (como en MongoDB,
+     * { department: "IT" } no los encuentra); active solo cuenta si es true o false.
+     */
+    private static final class Postings {
+        final Map<String, Integer> slots = new HashMap<>();
+        final List<String> ids = new ArrayList<>();
+        final List<String> departments = new ArrayList<>();
+        final List<String> roles = new ArrayList<>();
+        final BitSet live = new BitSet();
+        final BitSet activeTrue = new BitSet();
+        final BitSet activeFalse = new BitSet();
+        final Map<String, BitSet> byDepartment = new HashMap<>();
+        final Map<String, BitSet> byRole = new HashMap<>();
+        int dead;
+    }
+
+    private final MongoCollection<Document> users;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** null hasta la primera consulta o tras invalidate(). */
+    private Postings postings;
+
+    /** Escrituras aplicadas a postings: la reconstrucción periódica lo usa para detectar carreras. */
+    private long writes;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    @Autowired
+    public UserFacetIndex(MongoClient mongoClient,
+                          @Value("${spring.data.mongodb.database}") String databaseName) {
+        this.users = mongoClient.getDatabase(databaseName).getCollection(USERS_COLLECTION);
+    }
+
+    /**
+     * Total y recuentos por faceta para los filtros department, role y active de query.
+     *
+     * @param nameMatches IDs de los usuarios que cumplen el filtro de nombre, o null si
+     *                    query no filtra por nombre (el nombre no está en el índice).
+     *                    Se recorren una sola vez y se pasan a un bitmap por bloques,
+     *                    sin copiarlos: puede ser directamente el cursor de MongoDB
+     */
+    public UserFacetsDto facets(UserQueryDto query, Iterable<String> nameMatches) {
+        queries.increment();
+        // Si mientras tanto se reconstruye o recompacta, current ya no cambia: sus slots siguen valiendo
+        Postings current = current();
+        BitSet byName = nameMatches != null ? slotsOf(current, nameMatches) : null;
+        lock.readLock().lock();
+        try {
+            BitSet byDepartment = isSet(query.getDepartment()) ? posting(current.byDepartment, query.getDepartment()) : null;
+            BitSet byRole = isSet(query.getRole()) ? posting(current.byRole, query.getRole()) : null;
+            BitSet byActive = query.getActive() == null ? null
+                    : query.getActive() ? current.activeTrue : current.activeFalse;
+
+            long total = and(current.live, byName, byDepartment, byRole, byActive).cardinality();
+            Map<String, Long> departments = counts(current.byDepartment, and(current.live, byName, byRole, byActive));
+            Map<String, Long> roles = counts(current.byRole, and(current.live, byName, byDepartment, byActive));
+
+            BitSet activeBase = and(current.live, byName, byDepartment, byRole);
+            Map<Boolean, Long> active = new LinkedHashMap<>();
+            long activeCount = and(activeBase, current.activeTrue).cardinality();
+            long inactiveCount = and(activeBase, current.activeFalse).cardinality();
+            if (activeCount > 0) {
+                active.put(true, activeCount);
+            }
+            if (inactiveCount > 0) {
+                active.put(false, inactiveCount);
+            }
+            return new UserFacetsDto(total, departments, roles, active);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bitmap de los slots de ids. Los IDs se leen sin el cerrojo (pueden venir de un
+     * cursor, con sus round trips) y se traducen por bloques de NAME_MATCH_CHUNK:
+     * la memoria no crece con el número de coincidencias y las escrituras no esperan a MongoDB.
+     */
+    private BitSet slotsOf(Postings current, Iterable<String> ids) {
+        BitSet bits = new BitSet();
+        List<String> chunk = new ArrayList<>(NAME_MATCH_CHUNK);
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == NAME_MATCH_CHUNK) {
+                markSlots(current, chunk, bits);
+                chunk.clear();
+            }
+        }
+        markSlots(current, chunk, bits);
+        return bits;
+    }
+
+    private void markSlots(Postings current, List<String> ids, BitSet bits) {
+        lock.readLock().lock();
+        try {
+            for (String id : ids) {
+                Integer slot = current.slots.get(id);
+                if (slot != null) {
+                    bits.set(slot);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Alta o modificación completa de un usuario hecha por esta instancia.
+     */
+    public void userSaved(User user) {
+        if (user.getId() != null) {
+            userSaved(user.getId(), user.getDepartment(), user.getRole(), user.getActive());
+        }
+    }
+
+    public void userSaved(String id, String department, String role, Boolean active) {
+        lock.writeLock().lock();
+        try {
+            if (postings != null) {
+                put(postings, id, department, role, active);
+                writes++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Actualización parcial: solo cambian los campos informados en update.
+     * Si el usuario no estaba indexado se descarta el índice (falta el resto de campos).
+     */
+    public void userUpdated(String id, UserUpdateDto update) {
+        if (update.getDepartment() == null && update.getRole() == null && update.getActive() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (postings == null) {
+                return;
+            }
+            Integer slot = postings.slots.get(id);
+            if (slot == null) {
+                postings = null;
+                return;
+            }
+            put(postings, id,
+                    update.getDepartment() != null ? update.getDepartment() : postings.departments.get(slot),
+                    update.getRole() != null ? update.getRole() : postings.roles.get(slot),
+                    update.getActive() != null ? update.getActive() : activeAt(postings, slot));
+            writes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void userDeleted(String id) {
+        lock.writeLock().lock();
+        try {
+            if (postings != null) {
+                remove(postings, id);
+                writes++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta el índice: la siguiente consulta lo reconstruye desde MongoDB.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            postings = null;
+            writes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * CORRECCIÓN DEL DRIFT
+     * ====================
+     * Lo que no llega por los servicios ni por UserChangeStream (borrados en modo POLLING,
+     * eventos perdidos) se corrige reconstruyendo el índice desde MongoDB. La pasada se
+     * hace sin cerrojo, mientras las consultas siguen usando el índice actual, y luego se
+     * sustituye. Si durante la pasada ha habido escrituras, el índice nuevo podría no
+     * tenerlas: se descarta el actual y la siguiente consulta lo reconstruye.
+     * Un índice que no se ha construido todavía no se toca.
+     */
+    @Scheduled(initialDelayString = "${app.search.facets.rebuild-interval-ms:300000}",
+            fixedDelayString = "${app.search.facets.rebuild-interval-ms:300000}")
+    public void rebuildPeriodically() {
+        long stamp;
+        lock.readLock().lock();
+        try {
+            if (postings == null) {
+                return;
+            }
+            stamp = writes;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Postings rebuilt = build();
+            lock.writeLock().lock();
+            try {
+                if (writes == stamp) {
+                    postings = rebuilt;
+                } else {
+                    log.debug("Escrituras durante la reconstrucción del índice de facetas: se descarta");
+                    postings = null;
+                    writes++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("Error al reconstruir el índice de facetas: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onUserChange(UserChangeEvent event) {
+        switch (event.type()) {
+            case INSERT, UPDATE -> {
+                Document doc = event.document();
+                if (doc != null) {
+                    userSaved(event.userId(), doc.getString("department"), doc.getString("role"), doc.getBoolean("active"));
+                } else {
+                    userDeleted(event.userId());
+                }
+            }
+            case DELETE -> userDeleted(event.userId());
+            case RESET -> invalidate();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("built", postings != null);
+            stats.put("users", postings != null ? postings.slots.size() : 0);
+            stats.put("deadSlots", postings != null ? postings.dead : 0);
+            stats.put("departments", postings != null ? postings.byDepartment.size() : 0);
+            stats.put("roles", postings != null ? postings.byRole.size() : 0);
+            stats.put("bitmapBytes", postings != null ? bitmapBytes(postings) : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("queries", queries.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+
+    /**
+     * Índice listo para consultar: lo construye o recompacta si hace falta.
+     */
+    private Postings current() {
+        lock.readLock().lock();
+        try {
+            if (postings != null && !needsCompaction(postings)) {
+                return postings;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Un ReentrantReadWriteLock no pasa de lectura a escritura: se suelta y se pide el de escritura
+        return ensureBuilt();
+    }
+
+    private Postings ensureBuilt() {
+        lock.writeLock().lock();
+        try {
+            if (postings == null) {
+                postings = build();
+            } else if (needsCompaction(postings)) {
+                postings = compact(postings);
+            }
+            return postings;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean needsCompaction(Postings current) {
+        return current.dead >= MIN_DEAD_SLOTS_TO_COMPACT && current.dead > current.slots.size();
+    }
+
+    private Postings build() {
+        long start = System.nanoTime();
+        Postings built = new Postings();
+        for (Document doc : users.find().projection(Projections.include("department", "role", "active"))) {
+            if (doc.get("_id") instanceof ObjectId objectId) {
+                put(built, objectId.toHexString(), doc.getString("department"), doc.getString("role"),
+                        doc.get("active") instanceof Boolean active ? active : null);
+            }
+        }
+        rebuilds.increment();
+        log.debug("Índice de facetas construido: {} usuarios, {} departamentos, {} roles en {} ms",
+                built.slots.size(), built.byDepartment.size(), built.byRole.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return built;
+    }
+
+    /**
+     * Vuelve a numerar los slots vivos desde 0: los bitmaps dejan de arrastrar los huecos.
+     */
+    private Postings compact(Postings old) {
+        Postings compacted = new Postings();
+        for (int slot = old.live.nextSetBit(0); slot >= 0; slot = old.live.nextSetBit(slot + 1)) {
+            put(compacted, old.ids.get(slot), old.departments.get(slot), old.roles.get(slot), activeAt(old, slot));
+        }
+        compactions.increment();
+        return compacted;
+    }
+
+    private static void put(Postings target, String id, String department, String role, Boolean active) {
+        Integer existing = target.slots.get(id);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            clear(target, slot);
+        } else {
+            slot = target.ids.size();
+            target.slots.put(id, slot);
+            target.ids.add(id);
+            target.departments.add(null);
+            target.roles.add(null);
+        }
+        target.live.set(slot);
+        target.departments.set(slot, department);
+        target.roles.set(slot, role);
+        if (department != null) {
+            target.byDepartment.computeIfAbsent(department, d -> new BitSet()).set(slot);
+        }
+        if (role != null) {
+            target.byRole.computeIfAbsent(role, r -> new BitSet()).set(slot);
+        }
+        if (active != null) {
+            (active ? target.activeTrue : target.activeFalse).set(slot);
+        }
+    }
+
+    private static void remove(Postings target, String id) {
+        Integer slot = target.slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        clear(target, slot);
+        target.live.clear(slot);
+        target.ids.set(slot, null);
+        target.departments.set(slot, null);
+        target.roles.set(slot, null);
+        target.dead++;
+    }
+
+    /**
+     * Quita el slot de los bitmaps de sus valores actuales (los vacíos se eliminan).
+     */
+    private static void clear(Postings target, int slot) {
+        clearBit(target.byDepartment, target.departments.get(slot), slot);
+        clearBit(target.byRole, target.roles.get(slot), slot);
+        target.activeTrue.clear(slot);
+        target.activeFalse.clear(slot);
+    }
+
+    private static void clearBit(Map<String, BitSet> postings, String value, int slot) {
+        if (value == null) {
+            return;
+        }
+        BitSet bits = postings.get(value);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                postings.remove(value);
+            }
+        }
+    }
+
+    private static Boolean activeAt(Postings source, int slot) {
+        if (source.activeTrue.get(slot)) {
+            return true;
+        }
+        return source.activeFalse.get(slot) ? false : null;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Bitmap de un valor; uno vacío si nadie lo tiene (el filtro no encuentra a nadie).
+     */
+    private static BitSet posting(Map<String, BitSet> postings, String value) {
+        return Objects.requireNonNullElseGet(postings.get(value), BitSet::new);
+    }
+
+    /**
+     * AND de base con los bitmaps no null (base no se modifica).
+     */
+    private static BitSet and(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Long> counts(Map<String, BitSet> postings, BitSet base) {
+        Map<String, Long> counts = new HashMap<>();
+        postings.forEach((value, bits) -> {
+            long count = and(base, bits).cardinality();
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private static long bitmapBytes(Postings source) {
+        long bits = source.live.size() + source.activeTrue.size() + source.activeFalse.size();
+        for (BitSet posting : source.byDepartment.values()) {
+            bits += posting.size();
+        }
+        for (BitSet posting : source.byRole.values()) {
+            bits += posting.size();
+        }
+        return bits / 8;
+    }
+}
@@ -0,0 +1,415 @@
+package com.dam.accesodatos.mongodb;
+
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.TextSearchResultDto;
+import com.dam.accesodatos.model.User;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * BÚSQUEDA DE TEXTO SOBRE name, role Y department
+ * ===============================================
+ * Índice de texto de MongoDB y, donde $text no está disponible, un índice invertido
+ * equivalente en memoria.
+ *
+ * MongoDB:                                          | SQL (PostgreSQL):
+ * ------------------------------------------------- | ------------------------------------------
+ * createIndex({ name: "text", role: "text",         | CREATE INDEX ON users USING GIN (
+ *   department: "text" }, { weights: { name: 10,    |   setweight(to_tsvector(name), 'A') ||
+ *   role: 4, department: 2 } })                     |   setweight(to_tsvector(role), 'B') ...)
+ * find({ $text: { $search: "ana ventas" } },        | WHERE tsv @@ plainto_tsquery('ana ventas')
+ *      { score: { $meta: "textScore" } })           | ORDER BY ts_rank(tsv, query) DESC
+ *   .sort({ score: { $meta: "textScore" } })        |
+ *
+ * - Encuentra los usuarios con alguna de las palabras buscadas en cualquiera de los
+ *   tres campos; la puntuación (textScore) pesa más las coincidencias en name
+ * - default_language "none": sin stemming ni palabras vacías. Así el índice en memoria
+ *   (que no sabe lematizar) devuelve lo mismo que $text: palabras completas, sin
+ *   distinguir mayúsculas ni tildes (normalizadas igual que NameSearch)
+ * - Solo puede haber un índice de texto por colección: se crea aquí, no en los servicios
+ *
+ * ALTERNATIVA EN MEMORIA:
+ * Sin el índice de texto (createIndexes desactivado, servidores que no implementan $text
+ * como el backend en memoria de los tests) o con mode=MEMORY, se responde con un índice
+ * invertido palabra → { id → puntuación }:
+ * - Se construye con una pasada sobre users la primera vez que se necesita
+ * - Los servicios lo ajustan al crear, actualizar o borrar (userSaved/userDeleted); las
+ *   escrituras masivas y los cambios del change stream que no traen documento lo descartan
+ *   (invalidate) y se reconstruye en la siguiente búsqueda
+ * - La puntuación sigue la fórmula de MongoDB simplificada: por cada palabra encontrada en
+ *   un campo, peso × (0,5 + 0,5 × apariciones / palabras del campo)
+ *
+ * Si $text falla porque el índice de texto no existe (código IndexNotFound: alguien lo ha
+ * borrado), se responde en memoria y cada app.search.text.recheck-ms se vuelve a mirar
+ * listIndexes: en cuanto el índice vuelve a existir, las búsquedas vuelven a $text.
+ * Cualquier otro error del servidor se propaga.
+ */
+@Component
+public class UserTextIndex implements UserChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserTextIndex.class);
+
+    private static final String USERS_COLLECTION = "users";
+
+    public static final String INDEX_NAME = "user_text";
+
+    /** Nombre del campo con la puntuación en las consultas $text. */
+    public static final String SCORE_FIELD = "score";
+
+    /** Resultados como máximo por página. */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** Página más alta: page × size (el skip) siempre cabe en un int. */
+    public static final int MAX_PAGE = Integer.MAX_VALUE / MAX_PAGE_SIZE - 1;
+
+    /** Campos del índice y su peso (name primero: es lo que más se busca). */
+    static final Map<String, Integer> WEIGHTS = weights();
+
+    public enum Mode {
+        /** $text si existe el índice de texto; si no, el índice en memoria */
+        AUTO,
+        /** Siempre el índice en memoria (pruebas, servidores sin $text) */
+        MEMORY
+    }
+
+    /** Un resultado del índice en memoria: _id en hexadecimal y puntuación. */
+    public record Hit(String id, double score) {
+    }
+
+    private final MongoCollection<Document> users;
+    private final Mode mode;
+    private final boolean createIndex;
+    private final long recheckNanos;
+
+    private volatile boolean textIndexAvailable;
+    private volatile long textIndexCheckedAtNanos;
+    private final Object recheckLock = new Object();
+
+    /** palabra → (id → puntuación); null hasta la primera búsqueda en memoria. */
+    private Map<String, Map<String, Double>> postings;
+    /** id → palabras del usuario, para poder quitarlo al actualizar o borrar. */
+    private Map<String, Set<String>> termsById;
+
+    private final LongAdder textQueries = new LongAdder();
+    private final LongAdder memoryQueries = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder indexChecks = new LongAdder();
+
+    @Autowired
+    public UserTextIndex(MongoClient mongoClient,
+                         @Value("${spring.data.mongodb.database}") String databaseName,
+                         @Value("${app.search.text.mode:AUTO}") Mode mode,
+                         @Value("${spring.data.mongodb.auto-index-creation:true}") boolean createIndex,
+                         @Value("${app.search.text.recheck-ms:60000}") long recheckMs) {
+        this.users = mongoClient.getDatabase(databaseName).getCollection(USERS_COLLECTION);
+        this.mode = mode;
+        this.createIndex = createIndex;
+        this.recheckNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, recheckMs));
+    }
+
+    private static Map<String, Integer> weights() {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("name", 10);
+        weights.put("role", 4);
+        weights.put("department", 2);
+        return weights;
+    }
+
+    /**
+     * Definición del índice de texto (también para quien quiera crearlo a mano).
+     */
+    public static IndexModel indexModel() {
+        Document weights = new Document();
+        WEIGHTS.forEach(weights::append);
+        return new IndexModel(
+                Indexes.compoundIndex(WEIGHTS.keySet().stream().map(Indexes::text).toList()),
+                new IndexOptions().name(INDEX_NAME).weights(weights).defaultLanguage("none"));
+    }
+
+    /**
+     * Crea el índice de texto (si está activada la creación de índices) y comprueba
+     * que existe: algunos servidores aceptan createIndexes pero no lo crean.
+     * Un fallo se registra y deja activa la alternativa en memoria.
+     */
+    @PostConstruct
+    public void ensureIndex() {
+        if (mode == Mode.MEMORY) {
+            log.info("Búsqueda de texto con el índice en memoria (app.search.text.mode=MEMORY)");
+            return;
+        }
+        if (createIndex) {
+            try {
+                users.createIndexes(List.of(indexModel()));
+            } catch (Exception e) {
+                log.warn("No se pudo crear el índice de texto {}: {}", INDEX_NAME, e.getMessage());
+            }
+        }
+        checkTextIndex();
+        log.info("Búsqueda de texto con {}", textIndexAvailable ? "$text (" + INDEX_NAME + ")" : "el índice en memoria");
+    }
+
+    /**
+     * true si las búsquedas deben ir a MongoDB con $text. Sin índice, en modo AUTO se
+     * vuelve a comprobar como mucho una vez cada recheck-ms.
+     */
+    public boolean isTextIndexAvailable() {
+        if (!textIndexAvailable && mode == Mode.AUTO && recheckNanos > 0
+                && System.nanoTime() - textIndexCheckedAtNanos >= recheckNanos) {
+            recheckTextIndex();
+        }
+        return textIndexAvailable;
+    }
+
+    /**
+     * El servidor ha respondido que el índice de texto no existe (MongoErrors.isIndexNotFound):
+     * se usa el índice en memoria hasta la siguiente comprobación.
+     */
+    public void textIndexMissing(Exception e) {
+        textIndexCheckedAtNanos = System.nanoTime();
+        if (textIndexAvailable) {
+            textIndexAvailable = false;
+            log.warn("Índice de texto {} no disponible, se usa el índice en memoria: {}", INDEX_NAME, e.getMessage());
+        }
+    }
+
+    /**
+     * Una sola comprobación a la vez: quien llega mientras otro comprueba usa su resultado.
+     * Cerrojo propio para no bloquear el índice en memoria durante listIndexes.
+     */
+    private void recheckTextIndex() {
+        synchronized (recheckLock) {
+            if (textIndexAvailable || System.nanoTime() - textIndexCheckedAtNanos < recheckNanos) {
+                return;
+            }
+            checkTextIndex();
+        }
+        if (textIndexAvailable) {
+            log.info("Índice de texto {} disponible de nuevo: búsquedas con $text", INDEX_NAME);
+        }
+    }
+
+    private void checkTextIndex() {
+        indexChecks.increment();
+        try {
+            List<String> names = new ArrayList<>();
+            users.listIndexes().forEach(index -> names.add(index.getString("name")));
+            textIndexAvailable = names.contains(INDEX_NAME);
+        } catch (Exception e) {
+            log.warn("No se pudieron listar los índices de {}: {}", USERS_COLLECTION, e.getMessage());
+        } finally {
+            textIndexCheckedAtNanos = System.nanoTime();
+        }
+    }
+
+    public void textQueryExecuted() {
+        textQueries.increment();
+    }
+
+    /**
+     * Tamaño de página dentro de [1, MAX_PAGE_SIZE].
+     */
+    public static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Número de página dentro de [0, MAX_PAGE].
+     */
+    public static int pageNumber(int page) {
+        return Math.max(0, Math.min(page, MAX_PAGE));
+    }
+
+    /**
+     * Resultados que saltar: calculado en long y acotado a int (FindIterable.skip).
+     */
+    public static int skip(int page, int size) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) page * size);
+    }
+
+    /**
+     * Palabras de un texto tal como las indexa (y las busca) el índice en memoria.
+     */
+    public static List<String> terms(String text) {
+        String normalized = NameSearch.normalize(text);
+        return normalized == null ? List.of() : List.of(normalized.split(" "));
+    }
+
+    /**
+     * Búsqueda en memoria: usuarios con alguna de las palabras de text, de mayor a menor
+     * puntuación (a igual puntuación, por _id para que la paginación sea estable).
+     */
+    public synchronized List<Hit> search(String text, int skip, int limit) {
+        memoryQueries.increment();
+        if (postings == null) {
+            rebuild();
+        }
+        Map<String, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(terms(text))) {
+            Map<String, Double> posting = postings.get(term);
+            if (posting != null) {
+                posting.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+        }
+        return scores.entrySet().stream()
+                .map(entry -> new Hit(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::id))
+                .skip(skip)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Página de resultados del índice en memoria. loader recibe los IDs de la página y
+     * devuelve los usuarios (p.ej. de la caché o con un $in); los que ya no existen se omiten.
+     */
+    public TextSearchResultDto searchPage(String text, int page, int size,
+                                          Function<Collection<String>, Map<String, User>> loader) {
+        List<Hit> found = search(text, skip(page, size), size + 1);
+        List<Hit> pageHits = found.subList(0, Math.min(size, found.size()));
+        Map<String, User> users = pageHits.isEmpty()
+                ? Map.of()
+                : loader.apply(pageHits.stream().map(Hit::id).toList());
+        List<TextSearchResultDto.Hit> hits = new ArrayList<>(pageHits.size());
+        for (Hit hit : pageHits) {
+            User user = users.get(hit.id());
+            if (user != null) {
+                hits.add(new TextSearchResultDto.Hit(user, hit.score()));
+            }
+        }
+        return new TextSearchResultDto(text, TextSearchResultDto.Source.MEMORY_INDEX, page, size, hits,
+                found.size() > size);
+    }
+
+    /**
+     * Alta o modificación de un usuario hecha por esta instancia.
+     */
+    public synchronized void userSaved(User user) {
+        if (postings != null && user.getId() != null) {
+            index(user.getId(), user.getName(), user.getRole(), user.getDepartment());
+        }
+    }
+
+    public synchronized void userDeleted(String id) {
+        if (postings != null) {
+            remove(id);
+        }
+    }
+
+    /**
+     * Descarta el índice en memoria: la siguiente búsqueda lo reconstruye.
+     */
+    public synchronized void invalidate() {
+        postings = null;
+        termsById = null;
+    }
+
+    @Override
+    public void onUserChange(UserChangeEvent event) {
+        switch (event.type()) {
+            case INSERT, UPDATE -> {
+                if (event.document() != null) {
+                    indexDocument(event.userId(), event.document());
+                } else {
+                    userDeleted(event.userId());
+                }
+            }
+            case DELETE -> userDeleted(event.userId());
+            case RESET -> invalidate();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("textIndexAvailable", textIndexAvailable);
+        synchronized (this) {
+            stats.put("memoryIndexBuilt", postings != null);
+            stats.put("memoryIndexUsers", termsById != null ? termsById.size() : 0);
+            stats.put("memoryIndexTerms", postings != null ? postings.size() : 0);
+        }
+        stats.put("textQueries", textQueries.sum());
+        stats.put("memoryQueries", memoryQueries.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("indexChecks", indexChecks.sum());
+        return stats;
+    }
+
+    private synchronized void indexDocument(String id, Document doc) {
+        if (postings != null && id != null) {
+            index(id, doc.getString("name"), doc.getString("role"), doc.getString("department"));
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        postings = new HashMap<>();
+        termsById = new HashMap<>();
+        for (Document doc : users.find().projection(Projections.include(new ArrayList<>(WEIGHTS.keySet())))) {
+            if (doc.get("_id") instanceof ObjectId objectId) {
+                index(objectId.toHexString(), doc.getString("name"), doc.getString("role"), doc.getString("department"));
+            }
+        }
+        rebuilds.increment();
+        log.debug("Índice de texto en memoria construido: {} usuarios, {} palabras en {} ms",
+                termsById.size(), postings.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void index(String id, String name, String role, String department) {
+        remove(id);
+        Map<String, Double> scores = new HashMap<>();
+        score(scores, name, WEIGHTS.get("name"));
+        score(scores, role, WEIGHTS.get("role"));
+        score(scores, department, WEIGHTS.get("department"));
+        scores.forEach((term, score) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, score));
+        termsById.put(id, scores.keySet());
+    }
+
+    private static void score(Map<String, Double> scores, String field, int weight) {
+        List<String> terms = terms(field);
+        Map<String, Integer> occurrences = new HashMap<>();
+        terms.forEach(term -> occurrences.merge(term, 1, Integer::sum));
+        occurrences.forEach((term, count) ->
+                scores.merge(term, weight * (0.5 + 0.5 * count / terms.size()), Double::sum));
+    }
+
+    private void remove(String id) {
+        Set<String> terms = termsById.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<String, Double> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
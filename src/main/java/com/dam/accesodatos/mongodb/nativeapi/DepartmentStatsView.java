@@ -0,0 +1,413 @@
+package com.dam.accesodatos.mongodb.nativeapi;
+
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.mongodb.UserChangeEvent;
+import com.dam.accesodatos.mongodb.UserChangeListener;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ESTADÍSTICAS POR DEPARTAMENTO MATERIALIZADAS
+ * ============================================
+ * Colección "department_stats" con un documento por departamento:
+ * { _id: "IT", totalUsers: 12, activeUsers: 10 }
+ *
+ * MongoDB:                                        | SQL:
+ * ----------------------------------------------- | ---------------------------------------------
+ * updateOne({ _id: "IT" },                        | UPDATE department_stats
+ *   { $inc: { totalUsers: 1, activeUsers: 1 } },  |   SET total_users = total_users + 1 ...
+ *   { upsert: true })                             | (mantenido por triggers AFTER INSERT/UPDATE/DELETE)
+ * find().sort({ totalUsers: -1 })                 | SELECT * FROM department_stats ORDER BY 2 DESC
+ *
+ * En lugar de agrupar toda la colección users en cada petición ($group, O(usuarios)),
+ * NativeMongoUserServiceImpl aplica un $inc al crear, borrar o cambiar de departamento/estado
+ * a un usuario, y getStatsByDepartment() solo lee esta colección (O(departamentos)).
+ *
+ * CONSISTENCIA:
+ * - El $inc y la escritura en users son operaciones separadas (sin transacción,
+ *   que en MongoDB requiere replica set): si el $inc falla se registra y el usuario
+ *   queda escrito igualmente
+ * - Las escrituras que no pasan por la API nativa (Spring Data, mongosh, DataInitializer)
+ *   no actualizan los contadores
+ * - Como UserChangeListener recibe los cambios de cualquier origen. Los de la API nativa
+ *   de esta instancia llegan marcados (LocalWrite.WITH_STATS) y se ignoran: ya se aplicaron.
+ *   Cada alta de otro origen suma +1 con los datos del propio evento (documento completo);
+ *   las altas se acumulan por departamento y se envían en un único bulkWrite cada
+ *   app.stats.departments.change-flush-ms (O(departamentos), sin recontar users)
+ * - El evento solo trae el documento posterior: un borrado no indica el departamento
+ *   y un cambio de departamento o de estado no indica el anterior. Esos cambios (y los
+ *   UPDATE del modo POLLING, sin updateDescription) no se pueden aplicar como $inc:
+ *   quedan para la reconciliación periódica. RESET reconcilia al momento
+ * - Un alta con createdAt anterior al inicio de la última reconciliación ya está contada
+ *   en su $group y no se suma (p.ej. el eco de DataInitializer tras reconcileOnStartup)
+ * - reconcile() recalcula desde cero con el $group, informa de las diferencias (drift)
+ *   y corrige solo los departamentos afectados. Se ejecuta al arrancar la aplicación
+ *   y cada app.stats.departments.reconcile-interval-ms
+ */
+@Component
+public class DepartmentStatsView implements UserChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DepartmentStatsView.class);
+
+    static final String COLLECTION_NAME = "department_stats";
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final MongoCollection<Document> users;
+    private final MongoCollection<Document> stats;
+
+    /** Altas de otros orígenes recibidas por el change stream, pendientes de aplicar (acceso sincronizado). */
+    private final Map<String, Delta> pendingDeltas = new HashMap<>();
+
+    /** Inicio de la última reconciliación: las altas anteriores ya están en su $group. */
+    private volatile Date lastReconcileStartedAt;
+
+    /** Resultado de la última reconciliación (null hasta la primera). */
+    private volatile Map<String, Object> lastReconciliation;
+
+    @Autowired
+    public DepartmentStatsView(MongoClient mongoClient,
+                               @Value("${spring.data.mongodb.database}") String databaseName) {
+        MongoDatabase database = mongoClient.getDatabase(databaseName);
+        this.users = database.getCollection("users");
+        this.stats = database.getCollection(COLLECTION_NAME);
+    }
+
+    /** Contadores pendientes de aplicar a un departamento. */
+    private static final class Delta {
+        long total;
+        long active;
+
+        void add(long total, boolean active) {
+            this.total += total;
+            if (active) {
+                this.active += total;
+            }
+        }
+    }
+
+    /**
+     * Usuario nuevo (createUser siempre los crea activos).
+     */
+    public void userCreated(String department) {
+        Map<String, Delta> deltas = new HashMap<>();
+        delta(deltas, department).add(1, true);
+        apply(deltas);
+    }
+
+    /**
+     * Usuarios nuevos de una inserción masiva: se agrupan por departamento
+     * y se envía un único bulkWrite con un $inc por departamento.
+     */
+    public void usersCreated(List<String> departments) {
+        Map<String, Delta> deltas = new HashMap<>();
+        for (String department : departments) {
+            delta(deltas, department).add(1, true);
+        }
+        apply(deltas);
+    }
+
+    public void userDeleted(String department, boolean active) {
+        Map<String, Delta> deltas = new HashMap<>();
+        delta(deltas, department).add(-1, active);
+        apply(deltas);
+    }
+
+    /**
+     * Cambio de departamento y/o de estado: -1 en el anterior, +1 en el nuevo.
+     * Si ni el departamento ni el estado cambian no se escribe nada.
+     */
+    public void userChanged(String oldDepartment, boolean oldActive, String newDepartment, boolean newActive) {
+        Map<String, Delta> deltas = new HashMap<>();
+        delta(deltas, oldDepartment).add(-1, oldActive);
+        delta(deltas, newDepartment).add(1, newActive);
+        apply(deltas);
+    }
+
+    private static Delta delta(Map<String, Delta> deltas, String department) {
+        return deltas.computeIfAbsent(department, d -> new Delta());
+    }
+
+    private void apply(Map<String, Delta> deltas) {
+        List<WriteModel<Document>> writes = new ArrayList<>(deltas.size());
+        deltas.forEach((department, delta) -> {
+            if (delta.total != 0 || delta.active != 0) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", department),
+                        Updates.combine(Updates.inc("totalUsers", delta.total), Updates.inc("activeUsers", delta.active)),
+                        UPSERT));
+            }
+        });
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            stats.bulkWrite(writes);
+        } catch (Exception e) {
+            // El usuario ya está escrito: la siguiente reconciliación corrige el contador
+            log.error("No se pudieron actualizar las estadísticas de {}: {}", deltas.keySet(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onUserChange(UserChangeEvent event) {
+        switch (event.type()) {
+            case INSERT -> {
+                Document doc = event.document();
+                if (event.localWrite() == UserChangeEvent.LocalWrite.WITH_STATS || doc == null
+                        || countedByLastReconcile(doc)) {
+                    return;
+                }
+                synchronized (pendingDeltas) {
+                    // Mismo criterio que el $group: solo active == true cuenta como activo
+                    delta(pendingDeltas, doc.getString("department")).add(1, Boolean.TRUE.equals(doc.get("active")));
+                }
+            }
+            case RESET -> runReconciliation();
+            // Sin el documento anterior no hay $inc posible: los corrige la reconciliación periódica
+            case UPDATE, DELETE -> { }
+        }
+    }
+
+    private boolean countedByLastReconcile(Document doc) {
+        Date reconciledFrom = lastReconcileStartedAt;
+        return reconciledFrom != null && doc.get("createdAt") instanceof Date createdAt
+                && createdAt.before(reconciledFrom);
+    }
+
+    /**
+     * Aplica las altas recibidas desde el último reparto: un $inc por departamento
+     * en un solo bulkWrite, por muchas altas que hayan llegado.
+     */
+    @Scheduled(fixedDelayString = "${app.stats.departments.change-flush-ms:1000}")
+    public void flushPendingChanges() {
+        Map<String, Delta> deltas;
+        synchronized (pendingDeltas) {
+            if (pendingDeltas.isEmpty()) {
+                return;
+            }
+            deltas = new HashMap<>(pendingDeltas);
+            pendingDeltas.clear();
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Recuento exacto de unos departamentos tras una escritura masiva de la API nativa:
+     * countDocuments({ department }) y countDocuments({ department, active: true }),
+     * ambos resueltos con el prefijo del índice department_active_name_id.
+     */
+    synchronized void recount(List<String> departments) {
+        List<WriteModel<Document>> writes = new ArrayList<>(departments.size());
+        for (String department : departments) {
+            long total = users.countDocuments(Filters.eq("department", department));
+            long active = users.countDocuments(Filters.and(
+                    Filters.eq("department", department), Filters.eq("active", true)));
+            writes.add(total == 0
+                    ? new DeleteOneModel<>(Filters.eq("_id", department))
+                    : new ReplaceOneModel<>(Filters.eq("_id", department), statsDocument(department, total, active),
+                            new ReplaceOptions().upsert(true)));
+        }
+        stats.bulkWrite(writes);
+        log.debug("Departamentos recontados: {}", departments);
+    }
+
+    /**
+     * Estadísticas materializadas, de más a menos usuarios.
+     * Los departamentos que se han quedado sin usuarios no se devuelven.
+     */
+    public List<DepartmentStatsDto> findAll() {
+        List<DepartmentStatsDto> result = new ArrayList<>();
+        try (MongoCursor<Document> cursor = stats.find(Filters.gt("totalUsers", 0))
+                .sort(Sorts.descending("totalUsers")).iterator()) {
+            while (cursor.hasNext()) {
+                result.add(toDto(cursor.next()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aggregation Pipeline sobre users (el cálculo "desde cero"):
+     * db.users.aggregate([
+     *   { $group: {
+     *       _id: "$department",
+     *       totalUsers: { $sum: 1 },
+     *       activeUsers: { $sum: { $cond: [{ $eq: ["$active", true] }, 1, 0] } }
+     *   }},
+     *   { $sort: { totalUsers: -1 } }
+     * ])
+     */
+    List<DepartmentStatsDto> aggregateFromUsers() {
+        List<Bson> pipeline = List.of(
+                Aggregates.group("$department",
+                        Accumulators.sum("totalUsers", 1),
+                        Accumulators.sum("activeUsers",
+                                new Document("$cond", List.of(
+                                        new Document("$eq", List.of("$active", true)),
+                                        1,
+                                        0)))),
+                Aggregates.sort(Sorts.descending("totalUsers")));
+
+        List<DepartmentStatsDto> result = new ArrayList<>();
+        try (MongoCursor<Document> cursor = users.aggregate(pipeline).iterator()) {
+            while (cursor.hasNext()) {
+                result.add(toDto(cursor.next()));
+            }
+        }
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        // Tras DataInitializer: los usuarios de ejemplo se insertan con el repositorio de Spring Data
+        runReconciliation();
+    }
+
+    @Scheduled(initialDelayString = "${app.stats.departments.reconcile-interval-ms:300000}",
+            fixedDelayString = "${app.stats.departments.reconcile-interval-ms:300000}")
+    public void reconcilePeriodically() {
+        runReconciliation();
+    }
+
+    private void runReconciliation() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Error al reconciliar las estadísticas por departamento: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * RECONCILIACIÓN
+     * ==============
+     * 1. Recalcula las estadísticas con el $group sobre users
+     * 2. Las compara con department_stats y anota cada diferencia (drift)
+     * 3. Reescribe solo los departamentos con diferencias (replaceOne con upsert,
+     *    o deleteOne si el departamento ya no tiene usuarios)
+     *
+     * Un $inc que llegue entre el paso 1 y el 3 puede perderse: aparecerá como
+     * drift en la siguiente reconciliación. Las altas del change stream pendientes de
+     * aplicar se descartan al empezar: el $group ya las cuenta.
+     */
+    public synchronized Map<String, Object> reconcile() {
+        long start = System.nanoTime();
+        // Las altas recibidas hasta ahora ya están escritas: el $group las incluye
+        lastReconcileStartedAt = new Date();
+        synchronized (pendingDeltas) {
+            pendingDeltas.clear();
+        }
+
+        Map<String, DepartmentStatsDto> expected = new LinkedHashMap<>();
+        for (DepartmentStatsDto dto : aggregateFromUsers()) {
+            expected.put(dto.getDepartment(), dto);
+        }
+        Map<String, DepartmentStatsDto> actual = new LinkedHashMap<>();
+        for (Document doc : stats.find()) {
+            actual.put(doc.getString("_id"), toDto(doc));
+        }
+
+        Set<String> departments = new LinkedHashSet<>(expected.keySet());
+        departments.addAll(actual.keySet());
+        List<Map<String, Object>> drift = new ArrayList<>();
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (String department : departments) {
+            DepartmentStatsDto wanted = expected.get(department);
+            DepartmentStatsDto stored = actual.get(department);
+            long expectedTotal = wanted == null ? 0 : wanted.getTotalUsers();
+            long expectedActive = wanted == null ? 0 : wanted.getActiveUsers();
+            long actualTotal = stored == null ? 0 : stored.getTotalUsers();
+            long actualActive = stored == null ? 0 : stored.getActiveUsers();
+            if (expectedTotal == actualTotal && expectedActive == actualActive) {
+                continue;
+            }
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("department", department);
+            entry.put("expectedTotalUsers", expectedTotal);
+            entry.put("actualTotalUsers", actualTotal);
+            entry.put("expectedActiveUsers", expectedActive);
+            entry.put("actualActiveUsers", actualActive);
+            drift.add(entry);
+
+            if (wanted == null) {
+                writes.add(new DeleteOneModel<>(Filters.eq("_id", department)));
+            } else {
+                writes.add(new ReplaceOneModel<>(Filters.eq("_id", department),
+                        statsDocument(department, expectedTotal, expectedActive),
+                        new ReplaceOptions().upsert(true)));
+            }
+        }
+        if (!writes.isEmpty()) {
+            stats.bulkWrite(writes);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("reconciledAt", LocalDateTime.now());
+        report.put("departments", expected.size());
+        report.put("driftedDepartments", drift.size());
+        report.put("drift", drift);
+        report.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastReconciliation = report;
+
+        if (drift.isEmpty()) {
+            log.debug("Estadísticas por departamento al día ({} departamentos)", expected.size());
+        } else {
+            log.warn("Estadísticas por departamento corregidas en {} departamentos: {}", drift.size(), drift);
+        }
+        return report;
+    }
+
+    /**
+     * Última reconciliación ejecutada, o null si todavía no se ha ejecutado ninguna.
+     */
+    public Map<String, Object> lastReconciliation() {
+        return lastReconciliation;
+    }
+
+    private static Document statsDocument(String department, long total, long active) {
+        return new Document("_id", department).append("totalUsers", total).append("activeUsers", active);
+    }
+
+    private static DepartmentStatsDto toDto(Document doc) {
+        return new DepartmentStatsDto(doc.getString("_id"), count(doc, "totalUsers"), count(doc, "activeUsers"));
+    }
+
+    private static long count(Document doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+}
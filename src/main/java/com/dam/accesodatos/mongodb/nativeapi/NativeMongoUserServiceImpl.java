@@ -1,23 +1,62 @@
 package com.dam.accesodatos.mongodb.nativeapi;
 
+import com.dam.accesodatos.exception.BatchTooLargeException;
 import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidBulkUpdateException;
 import com.dam.accesodatos.exception.InvalidUserIdException;
 import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkItemValidator;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
+import com.dam.accesodatos.model.ContinuationToken;
 import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.MongoErrors;
+import com.dam.accesodatos.mongodb.QueryShape;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.*;
-import com.mongodb.client.model.Accumulators;
 import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Facet;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
-import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
@@ -26,11 +65,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * SERVICIO CON API NATIVA DE MONGODB
@@ -71,6 +118,20 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
 
     private static final Logger log = LoggerFactory.getLogger(NativeMongoUserServiceImpl.class);
 
+    private static final String COLLECTION_NAME = "users";
+
+    /** findOneAndUpdate devuelve el documento ya modificado (se comparte: nunca se modifica). */
+    private static final FindOneAndUpdateOptions RETURN_UPDATED =
+            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    /** findOneAndUpdate devuelve el documento anterior (para saber de qué departamento/estado sale). */
+    private static final FindOneAndUpdateOptions RETURN_ORIGINAL =
+            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE);
+
+    /** findOneAndDelete devuelve solo los campos que necesitan las estadísticas. */
+    private static final FindOneAndDeleteOptions RETURN_STATS_FIELDS =
+            new FindOneAndDeleteOptions().projection(Projections.include("department", "active"));
+
     /**
      * MONGOCLIENT: Cliente del driver nativo
      * ======================================
@@ -84,14 +145,221 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
     private final MongoClient mongoClient;
     private final String databaseName;
 
+    /**
+     * HANDLES CACHEADOS
+     * =================
+     * MongoDatabase y MongoCollection son inmutables y thread-safe: se resuelven y
+     * configuran (write concern, read preference, codecs) UNA sola vez en el constructor.
+     *
+     * Equivalente JDBC: preparar el PreparedStatement una vez y reutilizarlo,
+     * en lugar de llamar a conn.prepareStatement() en cada operación.
+     */
+    private final MongoDatabase database;
+    private final MongoCollection<Document> collection;
+    private final MongoCollection<User> typedCollection;
+
+    /**
+     * Cómo se convierten los documentos leídos en User:
+     * - CODEC: UserCodec decodifica el BSON directamente en User (por defecto)
+     * - DOCUMENT: BSON → Document → mapDocumentToUser() (camino didáctico, útil para comparar)
+     * Los dos dan el mismo User para el mismo documento (ver UserCodecTest).
+     */
+    public enum DecodeMode {
+        CODEC,
+        DOCUMENT
+    }
+
+    private final DecodeMode decodeMode;
+
+    /**
+     * Tamaño de lote por defecto del cursor (documentos por getMore).
+     * Equivalente JDBC: stmt.setFetchSize(n)
+     */
+    private final int defaultBatchSize;
+
+    /**
+     * Documentos por cada insertMany en las inserciones masivas.
+     * Equivalente JDBC: número de addBatch() antes de cada executeBatch()
+     */
+    private final int bulkChunkSize;
+
+    /**
+     * IDs como máximo por cada findUsersByIds (una sola consulta con $in).
+     */
+    private final int batchGetMaxIds;
+
+    /**
+     * Caché read-through de findUserById (compartida con SpringDataUserServiceImpl).
+     * create/update/delete la mantienen al día.
+     */
+    private final UserCache userCache;
+
+    /**
+     * Estadísticas por departamento materializadas (colección department_stats):
+     * create/update/delete aplican un $inc y getStatsByDepartment() solo las lee.
+     */
+    private final DepartmentStatsView departmentStats;
+
+    /**
+     * Contadores de usuarios por departamento en memoria (compartidos con SpringDataUserServiceImpl):
+     * create/update/delete los ajustan y countByDepartment() los lee.
+     */
+    private final DepartmentCountCache countCache;
+
+    /**
+     * Índice de texto de users y su alternativa en memoria (compartido con SpringDataUserServiceImpl):
+     * create/update/delete la mantienen al día y fullTextSearch() la usa si no hay $text.
+     */
+    private final UserTextIndex textIndex;
+
+    /**
+     * Bitmaps de department, role y active (compartidos con SpringDataUserServiceImpl):
+     * create/update/delete los mantienen al día y searchFacets() cuenta con ellos.
+     */
+    private final UserFacetIndex facetIndex;
+
+    /**
+     * Ids escritos por este servicio (antes de cada escritura por _id): el change stream
+     * marca su eco para que la caché y los contadores no lo apliquen dos veces.
+     */
+    private final LocalUserWrites localWrites;
+
+    /**
+     * ÍNDICES DE LA COLECCIÓN
+     * =======================
+     * Los mismos que declara User con @Indexed/@CompoundIndex para Spring Data,
+     * con el mismo nombre: así da igual qué servicio los cree primero.
+     *
+     * MongoDB:                                     | SQL:
+     * -------------------------------------------- | --------------------------------------------
+     * createIndex({ name: 1, _id: 1 })             | CREATE INDEX name_id ON users(name, id)
+     * createIndex({ createdAt: 1, _id: 1 })        | CREATE INDEX createdAt_id ON users(created_at, id)
+     * createIndex({ email: 1 }, { unique: true })  | CREATE UNIQUE INDEX email ON users(email)
+     * createIndex({ department: 1, active: 1,      | CREATE INDEX department_active_name_id
+     *               name: 1, _id: 1 })             |   ON users(department, active, name, id)
+     * createIndex({ nameSearch: 1 })               | CREATE INDEX name_search ON users(name_search)
+     *
+     * El índice de texto (name, role, department) lo crea UserTextIndex.
+     */
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("name", "_id"), new IndexOptions().name(User.INDEX_NAME_ID)),
+            new IndexModel(Indexes.ascending("createdAt", "_id"), new IndexOptions().name(User.INDEX_CREATED_AT_ID)),
+            new IndexModel(Indexes.ascending("email"), new IndexOptions().name("email").unique(true)),
+            new IndexModel(Indexes.ascending("department", "active", "name", "_id"),
+                    new IndexOptions().name(User.INDEX_DEPARTMENT_ACTIVE_NAME_ID)),
+            new IndexModel(Indexes.ascending(NameSearch.FIELD), new IndexOptions().name(NameSearch.FIELD)));
+
+    private final boolean createIndexes;
+
+    /**
+     * Nombres de los índices que crea ensureIndexes().
+     */
+    public static List<String> indexNames() {
+        return INDEXES.stream().map(index -> index.getOptions().getName()).toList();
+    }
+
     @Autowired
     public NativeMongoUserServiceImpl(MongoClient mongoClient,
-                                      @Value("${spring.data.mongodb.database}") String databaseName) {
+                                      @Value("${spring.data.mongodb.database}") String databaseName,
+                                      @Value("${app.mongodb.cursor-batch-size:500}") int defaultBatchSize,
+                                      @Value("${app.mongodb.bulk-chunk-size:1000}") int bulkChunkSize,
+                                      @Value("${app.mongodb.batch-get-max-ids:100}") int batchGetMaxIds,
+                                      @Value("${app.mongodb.write-concern:ACKNOWLEDGED}") String writeConcern,
+                                      @Value("${spring.data.mongodb.read-preference:primary}") String readPreference,
+                                      @Value("${app.mongodb.decode-mode:CODEC}") DecodeMode decodeMode,
+                                      @Value("${spring.data.mongodb.auto-index-creation:true}") boolean createIndexes,
+                                      UserCache userCache,
+                                      DepartmentStatsView departmentStats,
+                                      DepartmentCountCache countCache,
+                                      UserTextIndex textIndex,
+                                      UserFacetIndex facetIndex,
+                                      LocalUserWrites localWrites) {
         this.mongoClient = mongoClient;
         this.databaseName = databaseName;
+        this.database = mongoClient.getDatabase(databaseName);
+        this.collection = database.getCollection(COLLECTION_NAME)
+                .withWriteConcern(resolveWriteConcern(writeConcern))
+                .withReadPreference(ReadPreference.valueOf(readPreference))
+                .withCodecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromCodecs(new UserCodec()),
+                        database.getCodecRegistry()));
+        this.typedCollection = collection.withDocumentClass(User.class);
+        this.decodeMode = decodeMode;
+        this.defaultBatchSize = defaultBatchSize;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+        this.batchGetMaxIds = Math.max(1, batchGetMaxIds);
+        this.createIndexes = createIndexes;
+        this.userCache = userCache;
+        this.departmentStats = departmentStats;
+        this.countCache = countCache;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+        this.localWrites = localWrites;
         log.info("NativeMongoUserService inicializado con base de datos: {}", databaseName);
     }
 
+    /**
+     * Crea los índices al arrancar (createIndexes es idempotente: si ya existen no hace nada)
+     * y rellena nameSearch en los documentos que aún no lo tienen.
+     * Un fallo (p.ej. emails ya duplicados que impiden el índice único) se registra
+     * pero no impide arrancar el servicio.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!createIndexes) {
+            return;
+        }
+        try {
+            List<String> created = getCollection().createIndexes(INDEXES);
+            log.info("Índices de {} verificados: {}", COLLECTION_NAME, created);
+        } catch (Exception e) {
+            log.error("No se pudieron crear los índices de {}: {}", COLLECTION_NAME, e.getMessage(), e);
+        }
+        try {
+            long updated = backfillNameSearch();
+            if (updated > 0) {
+                log.info("nameSearch calculado en {} usuarios existentes", updated);
+            }
+        } catch (Exception e) {
+            log.error("No se pudo calcular nameSearch en los usuarios existentes: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Documentos anteriores al campo nameSearch (o insertados por otro cliente, p.ej. mongosh):
+     * se calcula desde name y se guarda con bulkWrite en lotes de bulkChunkSize.
+     *
+     * MongoDB:                                          | SQL:
+     * ------------------------------------------------- | ------------------------------------------
+     * db.users.find({ nameSearch: { $exists: false } }, | UPDATE users SET name_search = f(name)
+     *               { name: 1 })                        | WHERE name_search IS NULL
+     *   + bulkWrite([{ updateOne: { $set: ... } }])     |
+     *
+     * @return número de documentos actualizados
+     */
+    long backfillNameSearch() {
+        long updated = 0;
+        List<UpdateOneModel<Document>> writes = new ArrayList<>();
+        try (MongoCursor<Document> cursor = getCollection().find(Filters.exists(NameSearch.FIELD, false))
+                .projection(Projections.include("name"))
+                .batchSize(bulkChunkSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", doc.get("_id")),
+                        Updates.set(NameSearch.FIELD, NameSearch.keys(doc.getString("name")))));
+                if (writes.size() == bulkChunkSize) {
+                    updated += getCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false)).getModifiedCount();
+                    writes.clear();
+                }
+            }
+        }
+        if (!writes.isEmpty()) {
+            updated += getCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        }
+        return updated;
+    }
+
     /**
      * OBTENER COLECCIÓN (EQUIVALENTE A OBTENER TABLE EN JDBC)
      * ========================================================
@@ -105,10 +373,41 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
      * - En MongoDB la "colección" es como una tabla, pero sin esquema fijo
      * - No necesitas CREATE TABLE, la colección se crea automáticamente al insertar el primer documento
      * - MongoCollection<Document> es typed (Document), en JDBC usas tipos primitivos
+     *
+     * La colección se resuelve una vez en el constructor: aquí solo se devuelve el handle.
      */
     private MongoCollection<Document> getCollection() {
-        return mongoClient.getDatabase(databaseName).getCollection("users");
-        // Equivalente JDBC no directo - prepararías statement cada vez
+        return collection;
+    }
+
+    /**
+     * Variante tipada de la colección: UserCodec decodifica BSON directamente en User.
+     * Comparte write concern, read preference y codec registry con getCollection().
+     */
+    private MongoCollection<User> getTypedCollection() {
+        return typedCollection;
+    }
+
+    /**
+     * Consulta de usuarios según el modo de decodificación configurado.
+     * sort null, skip/limit/batchSize 0 = valores por defecto del servidor.
+     */
+    private MongoIterable<User> findUsers(Bson filter, Bson sort, int skip, int limit, int batchSize) {
+        if (decodeMode == DecodeMode.CODEC) {
+            return getTypedCollection().find(filter)
+                    .sort(sort).skip(skip).limit(limit).batchSize(batchSize);
+        }
+        return getCollection().find(filter)
+                .sort(sort).skip(skip).limit(limit).batchSize(batchSize)
+                .map(this::mapDocumentToUser);
+    }
+
+    private static WriteConcern resolveWriteConcern(String name) {
+        WriteConcern writeConcern = WriteConcern.valueOf(name);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Write concern desconocido: " + name);
+        }
+        return writeConcern;
     }
 
     /**
@@ -149,8 +448,6 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
     public String testConnection() {
         log.debug("Probando conexión a MongoDB...");
         try {
-            MongoDatabase database = mongoClient.getDatabase(databaseName);
-
             List<String> collections = new ArrayList<>();
             database.listCollectionNames().into(collections);
 
@@ -218,29 +515,29 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
             MongoCollection<Document> collection = getCollection();
 
             // 2. Construir documento BSON (equivalente a setear parámetros en PreparedStatement)
-            Document doc = new Document()
-                    .append("name", dto.getName())           // En JDBC: stmt.setString(1, dto.getName())
-                    .append("email", dto.getEmail())         // En JDBC: stmt.setString(2, dto.getEmail())
-                    .append("department", dto.getDepartment())
-                    .append("role", dto.getRole())
-                    .append("active", true)
-                    .append("createdAt", new Date())         // MongoDB usa java.util.Date
-                    .append("updatedAt", new Date());        // En JDBC: stmt.setTimestamp(6, ...)
+            //    El _id se genera aquí (como haría el driver) para anotarlo antes de escribir
+            Document doc = toNewUserDocument(dto, new Date()).append("_id", new ObjectId());
+            localWrites.recordWithStats(doc.getObjectId("_id").toHexString());
 
             // 3. Insertar documento (equivalente a executeUpdate())
             InsertOneResult result = collection.insertOne(doc);
             
-            // 4. Obtener ID generado (MongoDB genera ObjectId automáticamente)
+            // 4. Obtener ID (sin _id en el documento, el driver genera el ObjectId automáticamente)
             ObjectId id = result.getInsertedId().asObjectId().getValue();
             // En JDBC: ResultSet keys = stmt.getGeneratedKeys(); keys.getLong(1);
 
             // 5. Mapear Document a User (en JDBC mapearías ResultSet a User)
             User user = mapDocumentToUser(doc, id.toString());
+            userCache.put(user);
+            departmentStats.userCreated(user.getDepartment());
+            countCache.userCreated(user.getDepartment());
+            textIndex.userSaved(user);
+            facetIndex.userSaved(user);
             log.info("Usuario creado exitosamente con ID: {}", id);
             return user;
         } catch (Exception e) {
             // Manejo de error de clave duplicada (índice único en email)
-            if (e.getMessage().contains("duplicate key") || e.getMessage().contains("E11000")) {
+            if (MongoErrors.isDuplicateKey(e)) {
                 log.warn("Intento de crear usuario con email duplicado: {}", dto.getEmail());
                 throw new DuplicateEmailException(dto.getEmail());
                 // En JDBC sería: SQLIntegrityConstraintViolationException
@@ -250,6 +547,90 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
         }
     }
 
+    /**
+     * INSERCIÓN MASIVA (BATCH INSERT)
+     * ===============================
+     * MongoDB:                                   | JDBC:
+     * ------------------------------------------ | ------------------------------------------
+     * collection.insertMany(docs,                | stmt.addBatch() por cada fila
+     *   new InsertManyOptions().ordered(false))  | stmt.executeBatch()
+     *
+     * Los documentos se envían en lotes de bulkChunkSize (un único round trip por lote).
+     * Con ordered(false) el servidor sigue insertando aunque un documento falle,
+     * y MongoBulkWriteException indica el índice (dentro del lote) de cada error.
+     * El _id se genera en el cliente para poder devolverlo por elemento.
+     * Los elementos que no pasan la validación (BulkItemValidator) no se envían y se
+     * informan como INVALID.
+     */
+    @Override
+    public BulkCreateResultDto createUsers(List<UserCreateDto> dtos) {
+        log.debug("Creando {} usuarios en lotes de {}", dtos.size(), bulkChunkSize);
+        BulkCreateResultDto result = new BulkCreateResultDto(dtos.size());
+        MongoCollection<Document> collection = getCollection();
+        InsertManyOptions options = new InsertManyOptions().ordered(false);
+
+        for (int from = 0; from < dtos.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, dtos.size());
+            Date now = new Date();
+            List<Document> docs = new ArrayList<>(to - from);
+            Map<Integer, String> invalid = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                String violations = BulkItemValidator.violations(dtos.get(i));
+                if (violations != null) {
+                    invalid.put(i, violations);
+                } else {
+                    docs.add(toNewUserDocument(dtos.get(i), now).append("_id", new ObjectId()));
+                }
+            }
+
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            List<String> createdDepartments = new ArrayList<>(to - from);
+            docs.forEach(doc -> localWrites.recordWithStats(doc.getObjectId("_id").toHexString()));
+            try {
+                if (!docs.isEmpty()) {
+                    collection.insertMany(docs, options);
+                }
+            } catch (MongoBulkWriteException e) {
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    errors.put(error.getIndex(), error);
+                }
+            } catch (Exception e) {
+                log.error("Error en inserción masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                throw new RuntimeException("Error en inserción masiva: " + e.getMessage(), e);
+            }
+
+            // position: índice dentro de docs (los inválidos no se enviaron)
+            int position = 0;
+            for (int i = from; i < to; i++) {
+                String email = dtos.get(i) != null ? dtos.get(i).getEmail() : null;
+                if (invalid.containsKey(i)) {
+                    result.addInvalid(i, email, invalid.get(i));
+                    continue;
+                }
+                BulkWriteError error = errors.get(position);
+                Document created = docs.get(position++);
+                if (error == null) {
+                    result.addCreated(i, created.getObjectId("_id").toHexString(), email);
+                    createdDepartments.add(dtos.get(i).getDepartment());
+                    facetIndex.userSaved(created.getObjectId("_id").toHexString(), created.getString("department"),
+                            created.getString("role"), created.getBoolean("active"));
+                } else if (MongoErrors.isDuplicateKey(error)) {
+                    result.addDuplicate(i, email);
+                } else {
+                    result.addFailed(i, email, error.getMessage());
+                }
+            }
+            departmentStats.usersCreated(createdDepartments);
+            countCache.usersCreated(createdDepartments);
+        }
+        if (result.getCreated() > 0) {
+            textIndex.invalidate();
+        }
+
+        log.info("Inserción masiva completada: {}", result);
+        return result;
+    }
+
     /**
      * EJEMPLO 2: BUSCAR POR ID (SELECT BY PRIMARY KEY)
      * ================================================
@@ -287,20 +668,25 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
     @Override
     public User findUserById(String id) {
         log.debug("Buscando usuario por ID: {}", id);
-        try {
-            MongoCollection<Document> collection = getCollection();
+        // Solo se consulta MongoDB si el usuario no está en caché (o ha caducado)
+        return userCache.get(id, this::loadUserById);
+    }
 
+    /**
+     * Lectura real por _id, sin pasar por la caché.
+     */
+    private User loadUserById(String id) {
+        try {
             // Buscar por _id (campo especial de MongoDB, equivalente a PRIMARY KEY en SQL)
-            Document doc = collection.find(Filters.eq("_id", new ObjectId(id))).first();
+            User user = findUsers(Filters.eq("_id", new ObjectId(id)), null, 0, 1, 0).first();
             // Equivalente JDBC:
             // SELECT * FROM users WHERE id = ?
 
-            if (doc == null) {
+            if (user == null) {
                 log.warn("Usuario no encontrado con ID: {}", id);
                 throw new UserNotFoundException(id);
             }
 
-            User user = mapDocumentToUser(doc);
             log.debug("Usuario encontrado: {}", user.getEmail());
             return user;
         } catch (UserNotFoundException e) {
@@ -315,6 +701,71 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
         }
     }
 
+    /**
+     * BUSCAR VARIOS POR ID (MULTI-GET)
+     * ================================
+     * MongoDB:                                        | SQL:
+     * ----------------------------------------------- | -----------------------------------------
+     * collection.find(Filters.in("_id", objectIds))   | SELECT * FROM users WHERE id IN (?, ?, ...)
+     *
+     * Una sola consulta (un round trip) en lugar de N findUserById. $in no garantiza
+     * orden ni dice qué IDs faltan: los resultados se indexan por _id y se recorren
+     * los IDs pedidos para devolverlos en el mismo orden, con los no encontrados
+     * marcados. Un ID mal formado se marca como inválido sin afectar al resto.
+     * Los usuarios que ya están en la caché no se piden a MongoDB.
+     */
+    @Override
+    public BatchGetResultDto findUsersByIds(List<String> ids) {
+        log.debug("Buscando {} usuarios por ID", ids.size());
+        if (ids.size() > batchGetMaxIds) {
+            throw new BatchTooLargeException(ids.size(), batchGetMaxIds);
+        }
+
+        // ObjectId.toHexString() normaliza el ID (minúsculas): clave común para pedir y buscar
+        List<String> normalized = new ArrayList<>(ids.size());
+        Set<String> lookup = new LinkedHashSet<>();
+        for (String id : ids) {
+            String key = id != null && ObjectId.isValid(id) ? new ObjectId(id).toHexString() : null;
+            normalized.add(key);
+            if (key != null) {
+                lookup.add(key);
+            }
+        }
+
+        Map<String, User> users = lookup.isEmpty() ? Map.of() : userCache.getAll(lookup, this::loadUsersByIds);
+
+        BatchGetResultDto result = new BatchGetResultDto(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            String key = normalized.get(i);
+            User user = key != null ? users.get(key) : null;
+            if (key == null) {
+                result.addInvalid(i, ids.get(i));
+            } else if (user == null) {
+                result.addNotFound(i, ids.get(i));
+            } else {
+                result.addFound(i, ids.get(i), user);
+            }
+        }
+        log.debug("Búsqueda múltiple completada: {}", result);
+        return result;
+    }
+
+    /**
+     * Lectura real con $in, sin pasar por la caché.
+     */
+    private Map<String, User> loadUsersByIds(Collection<String> ids) {
+        try {
+            List<ObjectId> objectIds = ids.stream().map(ObjectId::new).toList();
+            Map<String, User> users = new HashMap<>();
+            findUsers(Filters.in("_id", objectIds), null, 0, 0, objectIds.size())
+                    .forEach(user -> users.put(user.getId(), user));
+            return users;
+        } catch (Exception e) {
+            log.error("Error al buscar usuarios por ID: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios por ID: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * EJEMPLO 3: ACTUALIZAR USUARIO (UPDATE)
      * ======================================
@@ -329,8 +780,8 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
      *     Updates.set("email", "nuevo@email.com"),
      *     Updates.set("updatedAt", new Date())
      * );
-     * UpdateResult result = collection.updateOne(Filters.eq("_id", objectId), update);
-     * boolean updated = result.getModifiedCount() > 0;
+     * Document updated = collection.findOneAndUpdate(Filters.eq("_id", objectId), update,
+     *     new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
      *
      * JDBC:
      * -----
@@ -353,70 +804,81 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
      *     stmt.setObject(i + 1, params.get(i));
      * }
      * int rowsAffected = stmt.executeUpdate();
+     * // + SELECT ... WHERE id = ? para devolver la fila actualizada
+     * // (o UPDATE ... RETURNING * en PostgreSQL)
      *
      * VENTAJAS MONGODB:
      * - Updates.set() es más seguro que construir SQL dinámico
      * - Updates.combine() permite combinar múltiples updates fácilmente
      * - No necesitas manejar índices de parámetros manualmente
-     * - updateOne() garantiza que solo se actualice un documento
+     * - findOneAndUpdate() modifica y devuelve el documento en UN solo round trip,
+     *   de forma atómica: nadie puede cambiarlo entre la escritura y la lectura
      *
      * CONCEPTOS CLAVE:
-     * - Updates.set(campo, valor): Operador $set de MongoDB
+     * - Updates.set(campo, valor): Operador $set de MongoDB (solo viajan los campos informados)
      * - Updates.combine(): Combina múltiples operaciones de update
-     * - updateOne(): Actualiza el primer documento que coincida con el filtro
-     * - getModifiedCount(): Número de documentos realmente modificados
+     * - findOneAndUpdate(): Actualiza el primer documento que coincida con el filtro
+     * - ReturnDocument.AFTER: devuelve el documento ya actualizado (BEFORE = el anterior)
+     * - Si no hay coincidencia devuelve null (equivale a getMatchedCount() == 0)
+     *
+     * Si cambian department o active se pide el documento ANTERIOR (ReturnDocument.BEFORE)
+     * para mover el usuario en las estadísticas materializadas; el resultado se obtiene
+     * aplicando los cambios del DTO, sin una segunda consulta.
      */
     @Override
     public User updateUser(String id, UserUpdateDto dto) {
         log.debug("Actualizando usuario con ID: {}", id);
         try {
-            MongoCollection<Document> collection = getCollection();
-
             // Construir updates dinámicamente (solo campos no-null)
             List<Bson> updates = new ArrayList<>();
-            if (dto.getName() != null) {
-                updates.add(Updates.set("name", dto.getName()));
-            }
-            if (dto.getEmail() != null) {
-                updates.add(Updates.set("email", dto.getEmail()));
-            }
-            if (dto.getDepartment() != null) {
-                updates.add(Updates.set("department", dto.getDepartment()));
-            }
-            if (dto.getRole() != null) {
-                updates.add(Updates.set("role", dto.getRole()));
-            }
-            if (dto.getActive() != null) {
-                updates.add(Updates.set("active", dto.getActive()));
-            }
+            dto.changedFields().forEach((field, value) -> updates.add(Updates.set(field, value)));
             // Siempre actualizar updatedAt
-            updates.add(Updates.set("updatedAt", new Date()));
+            Date now = new Date();
+            updates.add(Updates.set("updatedAt", now));
 
             // Combinar todos los updates en una sola operación
             Bson updateOperation = Updates.combine(updates);
             // En MongoDB: { $set: { name: "X", email: "Y", updatedAt: Date } }
             // En SQL: UPDATE users SET name = ?, email = ?, updated_at = ? WHERE id = ?
 
-            // Ejecutar update
-            UpdateResult result = collection.updateOne(
-                    Filters.eq("_id", new ObjectId(id)),  // WHERE id = ?
-                    updateOperation                        // SET campo1 = ?, campo2 = ?
-            );
+            // Ejecutar update y recibir el documento en la misma operación
+            Bson filter = Filters.eq("_id", new ObjectId(id));  // WHERE id = ?
+            localWrites.recordWithStats(id);
+            boolean statsChange = dto.getDepartment() != null || dto.getActive() != null;
+            FindOneAndUpdateOptions options = statsChange ? RETURN_ORIGINAL : RETURN_UPDATED;
+            User user = decodeMode == DecodeMode.CODEC
+                    ? getTypedCollection().findOneAndUpdate(filter, updateOperation, options)
+                    : toUserOrNull(getCollection().findOneAndUpdate(filter, updateOperation, options));
 
-            // Verificar que se modificó algo
-            if (result.getMatchedCount() == 0) {
+            // null = ningún documento coincidió con el filtro
+            if (user == null) {
                 log.warn("Usuario no encontrado para actualizar con ID: {}", id);
                 throw new UserNotFoundException(id);
             }
 
-            // Obtener documento actualizado
-            User user = findUserById(id);
+            if (statsChange) {
+                // user es el documento anterior: se le aplican los mismos cambios que al $set
+                String oldDepartment = user.getDepartment();
+                boolean oldActive = Boolean.TRUE.equals(user.getActive());
+                dto.applyTo(user);
+                user.setUpdatedAt(LocalDateTime.ofInstant(now.toInstant(), ZoneId.systemDefault()));
+                departmentStats.userChanged(oldDepartment, oldActive,
+                        user.getDepartment(), Boolean.TRUE.equals(user.getActive()));
+                countCache.userMoved(oldDepartment, user.getDepartment());
+            }
+
+            userCache.put(user);
+            textIndex.userSaved(user);
+            facetIndex.userUpdated(id, dto);
             log.info("Usuario actualizado exitosamente: {}", id);
             return user;
-        } catch (UserNotFoundException | InvalidUserIdException e) {
+        } catch (UserNotFoundException e) {
             throw e;
+        } catch (IllegalArgumentException e) {
+            log.warn("ID de usuario inválido para actualizar: {}", id);
+            throw new InvalidUserIdException(id, e);
         } catch (Exception e) {
-            if (e.getMessage() != null && (e.getMessage().contains("duplicate key") || e.getMessage().contains("E11000"))) {
+            if (MongoErrors.isDuplicateKey(e)) {
                 log.warn("Intento de actualizar con email duplicado: {}", dto.getEmail());
                 throw new DuplicateEmailException(dto.getEmail());
             }
@@ -425,6 +887,240 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
         }
     }
 
+    /**
+     * ACTUALIZACIÓN MASIVA (BULK UPDATE)
+     * ==================================
+     * MongoDB:                                        | JDBC:
+     * ----------------------------------------------- | ------------------------------------------
+     * collection.bulkWrite(List.of(                   | UPDATE users SET ... WHERE id = ?
+     *   new UpdateOneModel(eq("_id", id1), $set1),    |   + stmt.addBatch() por cada fila
+     *   new UpdateOneModel(eq("_id", id2), $set2)),   | stmt.executeBatch()
+     *   new BulkWriteOptions().ordered(false))        |
+     *
+     * Cada elemento lleva su propio $set (campos informados + updatedAt) y se envían en
+     * lotes de bulkChunkSize: un round trip por lote en lugar de un updateUser por usuario.
+     * Con ordered(false) un email duplicado no detiene el lote.
+     *
+     * bulkWrite solo devuelve totales (matched/modified) y los errores por índice. Para
+     * saber qué IDs no existen y de qué departamento sale cada usuario, antes de cada lote
+     * se leen _id, department y active con un $in (una consulta por lote). Un usuario
+     * borrado entre esa lectura y el bulkWrite figura como UPDATED pero no suma en matched.
+     * Los departamentos afectados se recuentan en department_stats al terminar el lote.
+     * Los elementos que no pasan la validación (BulkItemValidator: nulos, sin update,
+     * email o nombre con formato incorrecto) no se envían y se informan como INVALID.
+     */
+    @Override
+    public BulkUpdateResultDto updateUsers(List<BulkUpdateItemDto> items) {
+        log.debug("Actualizando {} usuarios en lotes de {}", items.size(), bulkChunkSize);
+        BulkUpdateResultDto result = new BulkUpdateResultDto(items.size());
+        MongoCollection<Document> collection = getCollection();
+        BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+
+        for (int from = 0; from < items.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, items.size());
+
+            // 1. Elementos válidos y estado actual (department, active) de los usuarios que existen
+            String[] violations = new String[to - from];
+            List<ObjectId> objectIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                violations[i - from] = BulkItemValidator.violations(items.get(i));
+                ObjectId objectId = violations[i - from] == null ? toObjectIdOrNull(items.get(i).getId()) : null;
+                if (objectId != null) {
+                    objectIds.add(objectId);
+                }
+            }
+            Map<ObjectId, Document> current = new HashMap<>();
+            try {
+                if (!objectIds.isEmpty()) {
+                    collection.find(Filters.in("_id", objectIds))
+                            .projection(Projections.include("department", "active"))
+                            .forEach(doc -> current.put(doc.getObjectId("_id"), doc));
+                }
+            } catch (Exception e) {
+                log.error("Error en actualización masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                throw new RuntimeException("Error en actualización masiva: " + e.getMessage(), e);
+            }
+
+            // 2. Un UpdateOneModel por cada usuario que existe; writeIndex = posición en writes (-1 = ninguna)
+            Date now = new Date();
+            List<UpdateOneModel<Document>> writes = new ArrayList<>(to - from);
+            int[] writeIndex = new int[to - from];
+            for (int i = from; i < to; i++) {
+                writeIndex[i - from] = -1;
+                if (violations[i - from] != null) {
+                    continue;
+                }
+                BulkUpdateItemDto item = items.get(i);
+                ObjectId objectId = toObjectIdOrNull(item.getId());
+                if (objectId != null && current.containsKey(objectId)) {
+                    writeIndex[i - from] = writes.size();
+                    writes.add(new UpdateOneModel<>(Filters.eq("_id", objectId), buildUpdate(item.getUpdate(), now)));
+                    localWrites.recordWithStats(objectId.toHexString());
+                }
+            }
+
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            if (!writes.isEmpty()) {
+                try {
+                    BulkWriteResult written = collection.bulkWrite(writes, options);
+                    result.addCounts(written.getMatchedCount(), written.getModifiedCount());
+                } catch (MongoBulkWriteException e) {
+                    result.addCounts(e.getWriteResult().getMatchedCount(), e.getWriteResult().getModifiedCount());
+                    for (BulkWriteError error : e.getWriteErrors()) {
+                        errors.put(error.getIndex(), error);
+                    }
+                } catch (Exception e) {
+                    log.error("Error en actualización masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                    throw new RuntimeException("Error en actualización masiva: " + e.getMessage(), e);
+                }
+            }
+
+            // 3. Resultado por elemento, caché y contadores
+            Set<String> recount = new LinkedHashSet<>();
+            for (int i = from; i < to; i++) {
+                BulkUpdateItemDto item = items.get(i);
+                if (violations[i - from] != null) {
+                    result.addInvalidItem(i, item != null ? item.getId() : null, violations[i - from]);
+                    continue;
+                }
+                ObjectId objectId = toObjectIdOrNull(item.getId());
+                int write = writeIndex[i - from];
+                if (objectId == null) {
+                    result.addInvalid(i, item.getId());
+                } else if (write < 0) {
+                    result.addNotFound(i, item.getId());
+                } else if (errors.containsKey(write)) {
+                    BulkWriteError error = errors.get(write);
+                    if (MongoErrors.isDuplicateKey(error)) {
+                        result.addDuplicate(i, item.getId(), item.getUpdate().getEmail());
+                    } else {
+                        result.addFailed(i, item.getId(), error.getMessage());
+                    }
+                } else {
+                    result.addUpdated(i, item.getId());
+                    userCache.invalidate(objectId.toHexString());
+                    UserUpdateDto update = item.getUpdate();
+                    facetIndex.userUpdated(objectId.toHexString(), update);
+                    if (update.getDepartment() != null || update.getActive() != null) {
+                        // before se actualiza por si el mismo ID vuelve a aparecer en el lote
+                        Document before = current.get(objectId);
+                        String oldDepartment = before.getString("department");
+                        String newDepartment = update.getDepartment() != null ? update.getDepartment() : oldDepartment;
+                        recount.add(oldDepartment);
+                        recount.add(newDepartment);
+                        countCache.userMoved(oldDepartment, newDepartment);
+                        before.put("department", newDepartment);
+                    }
+                }
+            }
+            recountDepartments(recount);
+        }
+        if (result.getUpdated() > 0) {
+            textIndex.invalidate();
+        }
+
+        log.info("Actualización masiva completada: {}", result);
+        return result;
+    }
+
+    /**
+     * ACTUALIZACIÓN POR FILTRO (UPDATE ... WHERE)
+     * ===========================================
+     * MongoDB:                                        | SQL:
+     * ----------------------------------------------- | ------------------------------------------
+     * collection.updateMany(                          | UPDATE users
+     *   { department: "Ventas" },                     |   SET department = 'Comercial',
+     *   { $set: { department: "Comercial",            |       updated_at = ?
+     *             updatedAt: Date } })                | WHERE department = 'Ventas'
+     *
+     * Una sola operación en el servidor, sin traer los documentos al cliente.
+     * getMatchedCount() son los documentos que cumplen el filtro y getModifiedCount()
+     * los que han cambiado (como las filas afectadas de executeUpdate()).
+     *
+     * No se sabe qué usuarios se han modificado: si cambian department o active, los
+     * departamentos de origen (distinct antes del updateMany) y el de destino se recuentan,
+     * los contadores en memoria se vuelven a sembrar y se vacía la caché de usuarios.
+     * El email no se admite (es único) y el filtro debe tener algún criterio.
+     */
+    @Override
+    public BulkUpdateResultDto updateUsersByFilter(BulkUpdateByFilterDto request) {
+        log.debug("Actualizando usuarios por filtro: {}", request);
+        checkUpdateByFilter(request);
+        UserUpdateDto update = request.getUpdate();
+        Bson filter = buildSearchFilter(request.getFilter());
+        boolean statsChange = update.getDepartment() != null || update.getActive() != null;
+        try {
+            Set<String> recount = new LinkedHashSet<>();
+            if (statsChange) {
+                getCollection().distinct("department", filter, String.class).into(recount);
+                recount.add(update.getDepartment());
+            }
+
+            UpdateResult updated = getCollection().updateMany(filter, buildUpdate(update, new Date()));
+            // En SQL: int rows = stmt.executeUpdate();
+
+            if (updated.getMatchedCount() > 0) {
+                userCache.clear();
+                textIndex.invalidate();
+                facetIndex.invalidate();
+                if (update.getDepartment() != null) {
+                    countCache.invalidate();
+                }
+                recountDepartments(recount);
+            }
+            BulkUpdateResultDto result = BulkUpdateResultDto.ofUpdateMany(updated.getMatchedCount(), updated.getModifiedCount());
+            log.info("Actualización por filtro completada: {}", result);
+            return result;
+        } catch (Exception e) {
+            log.error("Error en actualización por filtro: {}", e.getMessage(), e);
+            throw new RuntimeException("Error en actualización por filtro: " + e.getMessage(), e);
+        }
+    }
+
+    private static void checkUpdateByFilter(BulkUpdateByFilterDto request) {
+        if (!request.hasCriteria()) {
+            throw new InvalidBulkUpdateException("filter",
+                    "El filtro debe incluir name, department, role o active: sin criterios se actualizarían todos los usuarios");
+        }
+        if (request.getUpdate() == null || request.getUpdate().changedFields().isEmpty()) {
+            throw new InvalidBulkUpdateException("update", "No hay campos que actualizar");
+        }
+        if (request.getUpdate().getEmail() != null) {
+            throw new InvalidBulkUpdateException("update.email",
+                    "El email es único: no se puede asignar el mismo a varios usuarios");
+        }
+    }
+
+    /**
+     * $set con los campos informados del DTO + updatedAt.
+     */
+    private static Bson buildUpdate(UserUpdateDto dto, Date now) {
+        List<Bson> updates = new ArrayList<>();
+        dto.changedFields().forEach((field, value) -> updates.add(Updates.set(field, value)));
+        updates.add(Updates.set("updatedAt", now));
+        return Updates.combine(updates);
+    }
+
+    private static ObjectId toObjectIdOrNull(String id) {
+        return id != null && ObjectId.isValid(id) ? new ObjectId(id) : null;
+    }
+
+    /**
+     * Recuento exacto en department_stats de los departamentos tocados por una escritura
+     * masiva. Como en los $inc, un fallo se registra: lo corrige la siguiente reconciliación.
+     */
+    private void recountDepartments(Set<String> departments) {
+        departments.remove(null);
+        if (departments.isEmpty()) {
+            return;
+        }
+        try {
+            departmentStats.recount(new ArrayList<>(departments));
+        } catch (Exception e) {
+            log.error("No se pudieron recontar los departamentos {}: {}", departments, e.getMessage(), e);
+        }
+    }
+
     /**
      * EJEMPLO 4: ELIMINAR USUARIO (DELETE)
      * ====================================
@@ -454,6 +1150,8 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
      * - deleteOne(): Elimina el primer documento que coincida
      * - deleteMany(): Eliminaría todos los documentos que coincidan
      * - getDeletedCount(): Número de documentos eliminados (0 o 1 con deleteOne)
+     * - findOneAndDelete(): borra y devuelve el documento borrado (o null) en la misma
+     *   operación; aquí solo department y active, para descontarlo de las estadísticas
      *
      * DIFERENCIA CON SQL:
      * - MongoDB no tiene claves foráneas ni CASCADE
@@ -467,10 +1165,17 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
             MongoCollection<Document> collection = getCollection();
 
             // Eliminar documento por _id
-            DeleteResult result = collection.deleteOne(Filters.eq("_id", new ObjectId(id)));
-            // Equivalente SQL: DELETE FROM users WHERE id = ?
+            ObjectId objectId = new ObjectId(id);
+            localWrites.recordWithStats(id);
+            Document deleted = collection.findOneAndDelete(Filters.eq("_id", objectId), RETURN_STATS_FIELDS);
+            // Equivalente SQL: DELETE FROM users WHERE id = ? RETURNING department, active
+            userCache.invalidate(id);
+            textIndex.userDeleted(id);
+            facetIndex.userDeleted(id);
 
-            if (result.getDeletedCount() > 0) {
+            if (deleted != null) {
+                departmentStats.userDeleted(deleted.getString("department"), deleted.getBoolean("active", true));
+                countCache.userDeleted(deleted.getString("department"));
                 log.info("Usuario eliminado exitosamente: {}", id);
                 return true;
             } else {
@@ -486,104 +1191,616 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
         }
     }
 
+    /**
+     * LISTAR TODOS LOS USUARIOS (SELECT * FROM users)
+     * ===============================================
+     * Recorre la colección con un MongoCursor y acumula los usuarios en una lista.
+     *
+     * IMPORTANTE:
+     * - Carga TODA la colección en memoria: válido para colecciones pequeñas
+     * - Para colecciones grandes usar streamAll(), que no acumula resultados
+     */
     @Override
     public List<User> findAll() {
-        // TODO: Implementar findAll() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Obtener la colección con getCollection()
-        // 2. Usar collection.find() sin filtros
-        // 3. Iterar con MongoCursor y mapear cada Document a User
-        // 4. Retornar la lista de usuarios
-        throw new UnsupportedOperationException("TODO: Implementar findAll() - Los estudiantes deben completar este método");
+        log.debug("Listando todos los usuarios");
+        List<User> users = new ArrayList<>();
+        streamAll(defaultBatchSize, users::add);
+        return users;
     }
 
+    /**
+     * STREAMING CON CURSOR (EQUIVALENTE A ResultSet CON setFetchSize EN JDBC)
+     * ======================================================================
+     * MongoDB:                                 | JDBC:
+     * ---------------------------------------- | ----------------------------------------
+     * collection.find().batchSize(500)         | stmt.setFetchSize(500)
+     * cursor.hasNext() / cursor.next()         | rs.next() / rs.getString(...)
+     *
+     * El driver solo mantiene en memoria el lote actual (batchSize documentos):
+     * cuando se agota, pide el siguiente al servidor (comando getMore).
+     * Cada usuario se entrega al consumidor en cuanto se mapea, por lo que el uso
+     * de heap es constante tenga la colección 8 o 20 millones de documentos.
+     */
+    @Override
+    public long streamAll(int batchSize, Consumer<User> consumer) {
+        int effectiveBatchSize = batchSize > 0 ? batchSize : defaultBatchSize;
+        log.debug("Recorriendo usuarios con cursor (batchSize={})", effectiveBatchSize);
+        long count = 0;
+        try (MongoCursor<User> cursor = findUsers(new Document(), null, 0, 0, effectiveBatchSize).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(cursor.next());
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            // El cliente cerró la conexión mientras se escribía la respuesta
+            log.warn("Streaming de usuarios interrumpido tras {} documentos: {}", count, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Error al recorrer usuarios: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al recorrer usuarios: " + e.getMessage(), e);
+        }
+        log.debug("Streaming completado: {} usuarios", count);
+        return count;
+    }
+
+    /**
+     * FILTRAR POR DEPARTAMENTO (SELECT ... WHERE department = ?)
+     * ==========================================================
+     * MongoDB:                                      | JDBC:
+     * --------------------------------------------- | ---------------------------------------------
+     * collection.find(Filters.eq("department", d))  | stmt = conn.prepareStatement(
+     *                                               |   "SELECT * FROM users WHERE department = ?")
+     *                                               | stmt.setString(1, d)
+     *
+     * department es el prefijo del índice compuesto department_active_name_id (@CompoundIndex en User),
+     * que sirve también para las consultas que solo filtran por departamento.
+     */
     @Override
     public List<User> findUsersByDepartment(String department) {
-        // TODO: Implementar findUsersByDepartment() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Obtener la colección con getCollection()
-        // 2. Usar Filters.eq("department", department)
-        // 3. Iterar con MongoCursor y mapear cada Document a User
-        // 4. Retornar la lista de usuarios
-        throw new UnsupportedOperationException("TODO: Implementar findUsersByDepartment() - Los estudiantes deben completar este método");
+        log.debug("Buscando usuarios del departamento: {}", department);
+        try {
+            List<User> users = new ArrayList<>();
+            findUsers(departmentFilter(department), null, 0, 0, defaultBatchSize).into(users);
+            log.debug("Encontrados {} usuarios en {}", users.size(), department);
+            return users;
+        } catch (Exception e) {
+            log.error("Error al buscar usuarios por departamento: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios por departamento: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * CONSULTAS CON PROYECCIÓN (SELECT id, name, department FROM users)
+     * =================================================================
+     * MongoDB:                                           | JDBC:
+     * -------------------------------------------------- | -------------------------------------
+     * collection.find(filter).projection(                | SELECT id, name, department
+     *     Projections.fields(                            |   FROM users WHERE ...
+     *         Projections.include("name", "department"), |
+     *         Projections.excludeId()))                  |
+     *
+     * Solo viajan por la red los campos pedidos y cada documento se convierte en
+     * un mapa con esos campos (UserProjection.toView), sin construir un User.
+     */
+    @Override
+    public List<Map<String, Object>> findAll(UserProjection projection) {
+        log.debug("Listando todos los usuarios con {}", projection);
+        return findProjected(new Document(), null, 0, 0, projection);
     }
 
     @Override
-    public List<User> searchUsers(UserQueryDto query) {
-        // TODO: Implementar searchUsers() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Construir filtros dinámicos con Filters.and()
-        // 2. Usar Filters.regex() para búsqueda parcial por nombre
-        // 3. Aplicar paginación con skip() y limit()
-        // 4. Aplicar ordenamiento con Sorts.ascending() o Sorts.descending()
-        throw new UnsupportedOperationException("TODO: Implementar searchUsers() - Los estudiantes deben completar este método");
+    public List<Map<String, Object>> findUsersByDepartment(String department, UserProjection projection) {
+        log.debug("Buscando usuarios del departamento {} con {}", department, projection);
+        return findProjected(departmentFilter(department), null, 0, 0, projection);
     }
 
     @Override
-    public long countByDepartment(String department) {
-        // TODO: Implementar countByDepartment() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Obtener la colección con getCollection()
-        // 2. Usar collection.countDocuments(Filters.eq("department", department))
-        throw new UnsupportedOperationException("TODO: Implementar countByDepartment() - Los estudiantes deben completar este método");
+    public List<Map<String, Object>> searchUsers(UserQueryDto query, UserProjection projection) {
+        log.debug("Buscando usuarios con filtros: {} y {}", query, projection);
+        query.checkPaging();
+        if (query.getContinuationToken() == null) {
+            return findProjected(buildSearchFilter(query),
+                    buildSort(query.resolveSortField(), query.isAscending()),
+                    query.getOffset(), query.getSize(), projection);
+        }
+        // Con token: misma página que searchUsersPage, pero proyectada
+        ContinuationToken token = ContinuationToken.decode(query.getContinuationToken());
+        return findProjected(Filters.and(buildSearchFilter(query), buildKeysetFilter(token)),
+                buildSort(token.getSortField(), token.isAscending()),
+                0, query.getSize(), projection);
+    }
+
+    private List<Map<String, Object>> findProjected(Bson filter, Bson sort, int skip, int limit,
+                                                    UserProjection projection) {
+        try {
+            List<Map<String, Object>> views = new ArrayList<>();
+            getCollection().find(filter)
+                    .projection(buildProjection(projection))
+                    .sort(sort).skip(skip).limit(limit).batchSize(defaultBatchSize)
+                    .map(projection::toView)
+                    .into(views);
+            log.debug("Consulta proyectada completada: {} usuarios", views.size());
+            return views;
+        } catch (Exception e) {
+            log.error("Error en consulta proyectada: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
     }
 
     /**
-     * Ejemplo de Aggregation Pipeline: Obtiene estadísticas de usuarios por departamento.
+     * BÚSQUEDA CON FILTROS DINÁMICOS Y PAGINACIÓN POR OFFSET
+     * =====================================================
+     * MongoDB:
+     * db.users.find({ nameSearch: /^juan/, department: "IT", active: true })
+     *         .sort({ name: 1, _id: 1 }).skip(20).limit(10)
      *
-     * Este método demuestra el uso del framework de agregación de MongoDB, que permite:
-     * - Agrupar documentos por campo ($group)
-     * - Calcular totales ($sum)
-     * - Calcular condicionalmente ($cond)
-     * - Ordenar resultados ($sort)
+     * SQL:
+     * SELECT * FROM users WHERE name_search LIKE 'juan%' AND department = ? AND active = ?
+     * ORDER BY name, id LIMIT 10 OFFSET 20
+     *
+     * name se busca como prefijo de palabra sobre nameSearch (ver NameSearch), sin
+     * distinguir mayúsculas ni tildes; con nameMatch = CONTAINS, en cualquier posición.
+     *
+     * IMPORTANTE: skip(n) recorre y descarta n documentos en el servidor,
+     * por lo que las páginas profundas son cada vez más lentas.
+     * Para recorrer muchas páginas usar searchUsersPage() (keyset).
+     */
+    @Override
+    public List<User> searchUsers(UserQueryDto query) {
+        log.debug("Buscando usuarios con filtros: {}", query);
+        query.checkPaging();
+        if (query.getContinuationToken() != null) {
+            return searchUsersPage(query).getContent();
+        }
+        try {
+            List<User> users = new ArrayList<>();
+            findUsers(buildSearchFilter(query),
+                    buildSort(query.resolveSortField(), query.isAscending()),
+                    query.getOffset(), query.getSize(), 0)
+                    .into(users);
+            log.debug("Búsqueda completada: {} usuarios", users.size());
+            return users;
+        } catch (Exception e) {
+            log.error("Error al buscar usuarios: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * BÚSQUEDA FACETADA EN UNA SOLA AGREGACIÓN
+     * ========================================
+     * La página, el total y los recuentos por department, role y active salen de una
+     * sola agregación, en lugar de un find() más un count por cada faceta:
      *
-     * Pipeline equivalente en MongoDB Shell:
      * db.users.aggregate([
-     *   { $group: {
-     *       _id: "$department",
-     *       totalUsers: { $sum: 1 },
-     *       activeUsers: { $sum: { $cond: [{ $eq: ["$active", true] }, 1, 0] } }
-     *   }},
-     *   { $sort: { totalUsers: -1 } }
+     *   { $match: { department: "IT", active: true } },   // usa los índices
+     *   { $facet: {
+     *       users:       [{ $sort: { name: 1, _id: 1 } }, { $skip: 20 }, { $limit: 10 }],
+     *       total:       [{ $count: "count" }],
+     *       departments: [{ $sortByCount: "$department" }],
+     *       roles:       [{ $sortByCount: "$role" }],
+     *       active:      [{ $sortByCount: "$active" }] } }
      * ])
+     *
+     * SQL: SELECT ... LIMIT 10 OFFSET 20, SELECT COUNT(*) ... y un GROUP BY por faceta
+     * (o GROUPING SETS ((department), (role), (active)) sobre el mismo WHERE)
+     *
+     * Solo el $match inicial puede usar índices: cada rama de $facet recorre los
+     * documentos que salen de él. Los recuentos son de todos los filtros a la vez (a
+     * diferencia de searchFacets(), que cuenta cada faceta sin su propio filtro).
+     * El resultado es un único documento: como el resto de documentos, máximo 16 MB.
      */
     @Override
-    public List<DepartmentStatsDto> getStatsByDepartment() {
-        log.debug("Obteniendo estadísticas por departamento con aggregation pipeline");
+    public FacetedSearchResultDto searchUsersFaceted(UserQueryDto query) {
+        log.debug("Búsqueda facetada: {}", query);
+        query.checkPaging();
         try {
-            MongoCollection<Document> collection = getCollection();
-            List<DepartmentStatsDto> stats = new ArrayList<>();
-
-            // Pipeline de agregación usando el Aggregates builder
-            List<org.bson.conversions.Bson> pipeline = List.of(
-                    // Etapa 1: Agrupar por departamento y calcular totales
-                    Aggregates.group("$department",
-                            Accumulators.sum("totalUsers", 1),
-                            Accumulators.sum("activeUsers",
-                                    new Document("$cond", List.of(
-                                            new Document("$eq", List.of("$active", true)),
-                                            1,
-                                            0
-                                    ))
-                            )
-                    ),
-                    // Etapa 2: Ordenar por total de usuarios descendente
-                    Aggregates.sort(Sorts.descending("totalUsers"))
-            );
-
-            // Ejecutar el pipeline y mapear resultados
-            try (MongoCursor<Document> cursor = collection.aggregate(pipeline).iterator()) {
-                while (cursor.hasNext()) {
-                    Document doc = cursor.next();
-                    DepartmentStatsDto dto = new DepartmentStatsDto(
-                            doc.getString("_id"),           // department
-                            doc.getInteger("totalUsers"),   // total
-                            doc.getInteger("activeUsers")   // active
-                    );
-                    stats.add(dto);
+            Document result = getCollection().aggregate(List.of(
+                    Aggregates.match(buildSearchFilter(query)),
+                    Aggregates.facet(
+                            new Facet("users",
+                                    Aggregates.sort(buildSort(query.resolveSortField(), query.isAscending())),
+                                    Aggregates.skip(query.getOffset()),
+                                    Aggregates.limit(query.getSize())),
+                            new Facet("total", Aggregates.count("count")),
+                            new Facet("departments", Aggregates.sortByCount("$department")),
+                            new Facet("roles", Aggregates.sortByCount("$role")),
+                            new Facet("active", Aggregates.sortByCount("$active")))))
+                    .first();
+
+            List<User> users = new ArrayList<>();
+            for (Document doc : result.getList("users", Document.class)) {
+                users.add(mapDocumentToUser(doc));
+            }
+            List<Document> total = result.getList("total", Document.class);
+            Map<Boolean, Long> active = new LinkedHashMap<>();
+            for (Document doc : result.getList("active", Document.class)) {
+                if (doc.get("_id") instanceof Boolean value) {
+                    active.put(value, ((Number) doc.get("count")).longValue());
+                }
+            }
+            UserFacetsDto facets = new UserFacetsDto(
+                    total.isEmpty() ? 0 : ((Number) total.get(0).get("count")).longValue(),
+                    toFacetCounts(result.getList("departments", Document.class)),
+                    toFacetCounts(result.getList("roles", Document.class)),
+                    active);
+            log.debug("Búsqueda facetada completada: {} usuarios de {}", users.size(), facets.getTotal());
+            return new FacetedSearchResultDto(users, query.getPage(), query.getSize(), facets);
+        } catch (Exception e) {
+            log.error("Error en búsqueda facetada: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Salida de $sortByCount ({ _id: valor, count: n }, de más a menos) como mapa ordenado.
+     * Los usuarios sin el campo (_id null) no cuentan para ningún valor.
+     */
+    private Map<String, Long> toFacetCounts(List<Document> buckets) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Document bucket : buckets) {
+            if (bucket.get("_id") instanceof String value) {
+                counts.put(value, ((Number) bucket.get("count")).longValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * AUTOCOMPLETADO POR PREFIJO DE NOMBRE
+     * ====================================
+     * MongoDB:                                        | SQL:
+     * ----------------------------------------------- | -----------------------------------------
+     * db.users.find({ nameSearch: /^garci/ })         | SELECT * FROM users
+     *         .limit(10)                              | WHERE name_search LIKE 'garci%' LIMIT 10
+     *
+     * Sin sort: el plan es un IXSCAN de nameSearch que se detiene al llegar a limit, así
+     * que el coste no depende de cuántos usuarios coinciden. Ordenar por name obligaría a
+     * leer todas las coincidencias y ordenarlas en memoria; así salen en el orden del
+     * índice (alfabético por la palabra que coincide). Un usuario aparece una sola vez
+     * aunque coincidan varias de sus entradas.
+     */
+    @Override
+    public List<User> findUsersByNamePrefix(String prefix, int limit) {
+        log.debug("Autocompletando nombres con prefijo: {}", prefix);
+        String regex = NameSearch.prefixRegex(prefix);
+        if (regex == null) {
+            return new ArrayList<>();
+        }
+        try {
+            List<User> users = new ArrayList<>();
+            findUsers(Filters.regex(NameSearch.FIELD, regex), null, 0, NameSearch.clampLimit(limit), 0)
+                    .into(users);
+            return users;
+        } catch (Exception e) {
+            log.error("Error al autocompletar nombres: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * BÚSQUEDA DE TEXTO POR RELEVANCIA
+     * ================================
+     * MongoDB:                                            | SQL (PostgreSQL):
+     * --------------------------------------------------- | ---------------------------------------
+     * db.users.find({ $text: { $search: "ana ventas" } }, | SELECT *, ts_rank(tsv, q) AS score
+     *               { score: { $meta: "textScore" } })    | FROM users WHERE tsv @@ q
+     *   .sort({ score: { $meta: "textScore" } })          | ORDER BY score DESC
+     *   .skip(page * size).limit(size + 1)                | LIMIT size + 1 OFFSET page * size
+     *
+     * La proyección con $meta añade la puntuación al documento completo. Se pide un
+     * resultado más para saber si hay página siguiente. Si no hay índice de texto (o el
+     * servidor responde IndexNotFound), responde el índice en memoria de UserTextIndex.
+     * page se acota a UserTextIndex.MAX_PAGE para que page × size no desborde el int de skip().
+     */
+    @Override
+    public TextSearchResultDto fullTextSearch(String text, int page, int size) {
+        log.debug("Búsqueda de texto: {} (página {}, tamaño {})", text, page, size);
+        int pageNumber = UserTextIndex.pageNumber(page);
+        int pageSize = UserTextIndex.pageSize(size);
+        if (textIndex.isTextIndexAvailable() && !UserTextIndex.terms(text).isEmpty()) {
+            try {
+                List<Document> docs = new ArrayList<>();
+                getCollection().find(Filters.text(text))
+                        .projection(Projections.metaTextScore(UserTextIndex.SCORE_FIELD))
+                        .sort(Sorts.metaTextScore(UserTextIndex.SCORE_FIELD))
+                        .skip(UserTextIndex.skip(pageNumber, pageSize))
+                        .limit(pageSize + 1)
+                        .into(docs);
+                textIndex.textQueryExecuted();
+
+                List<TextSearchResultDto.Hit> hits = new ArrayList<>(pageSize);
+                for (Document doc : docs.subList(0, Math.min(pageSize, docs.size()))) {
+                    double score = ((Number) doc.get(UserTextIndex.SCORE_FIELD)).doubleValue();
+                    hits.add(new TextSearchResultDto.Hit(mapDocumentToUser(doc), score));
+                }
+                return new TextSearchResultDto(text, TextSearchResultDto.Source.TEXT_INDEX, pageNumber, pageSize,
+                        hits, docs.size() > pageSize);
+            } catch (RuntimeException e) {
+                if (!MongoErrors.isIndexNotFound(e)) {
+                    throw e;
                 }
+                textIndex.textIndexMissing(e);
             }
+        }
+        return textIndex.searchPage(text, pageNumber, pageSize, ids -> userCache.getAll(ids, this::loadUsersByIds));
+    }
+
+    /**
+     * RECUENTOS POR FACETA (department, role, active)
+     * ===============================================
+     * MongoDB (una agregación por faceta):               | SQL:
+     * -------------------------------------------------- | ---------------------------------------
+     * aggregate([{ $match: { role: "Dev" } },            | SELECT department, COUNT(*) FROM users
+     *   { $group: { _id: "$department", n: { $sum: 1 } } | WHERE role = 'Dev'
+     * }])                                                | GROUP BY department
+     *
+     * Aquí los recuentos salen de los bitmaps de UserFacetIndex, sin leer documentos.
+     * Solo el filtro de nombre va a MongoDB: { nameSearch: /^garci/ } con proyección
+     * { _id: 1 }. El índice nameSearch localiza las coincidencias (IXSCAN), pero no
+     * cubre la consulta: es multikey y no contiene _id, así que cada coincidencia
+     * lee su documento (FETCH). Los _id no se acumulan en una lista: el cursor se
+     * pasa tal cual a UserFacetIndex, que los va convirtiendo en bits por lotes.
+     */
+    @Override
+    public UserFacetsDto searchFacets(UserQueryDto query) {
+        log.debug("Calculando facetas: {}", query);
+        try {
+            Iterable<String> nameMatches = null;
+            if (query.getName() != null && !query.getName().isBlank()) {
+                nameMatches = getCollection().find(nameFilter(query.getName(), query.getNameMatch()))
+                        .projection(Projections.include("_id"))
+                        .batchSize(defaultBatchSize)
+                        .map(doc -> doc.getObjectId("_id").toHexString());
+            }
+            return facetIndex.facets(query, nameMatches);
+        } catch (Exception e) {
+            log.error("Error al calcular facetas: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * BÚSQUEDA CON PAGINACIÓN POR KEYSET (SEEK)
+     * =========================================
+     * En lugar de skip(), la página siguiente continúa desde el último (valor, _id)
+     * devuelto, codificado en un ContinuationToken:
+     *
+     * db.users.find({ ...filtros, $or: [
+     *     { name: { $gt: ultimoNombre } },
+     *     { name: ultimoNombre, _id: { $gt: ultimoId } }
+     * ]}).sort({ name: 1, _id: 1 }).limit(size + 1)
+     *
+     * Se pide un documento más de los necesarios para saber si hay página siguiente
+     * sin ejecutar un countDocuments() adicional.
+     *
+     * Siempre lee Document (independientemente de decodeMode) porque el token
+     * necesita el valor BSON original del campo de ordenación.
+     */
+    @Override
+    public UserPageDto searchUsersPage(UserQueryDto query) {
+        log.debug("Buscando usuarios por keyset: {}", query);
+        query.checkPaging();
+        ContinuationToken token = query.getContinuationToken() != null
+                ? ContinuationToken.decode(query.getContinuationToken())
+                : null;
+        String sortField = token != null ? token.getSortField() : query.resolveKeysetSortField();
+        boolean ascending = token != null ? token.isAscending() : query.isAscending();
+        int size = query.getSize();
+        try {
+            Bson filter = buildSearchFilter(query);
+            if (token != null) {
+                filter = Filters.and(filter, buildKeysetFilter(token));
+            }
+
+            List<Document> docs = new ArrayList<>();
+            getCollection().find(filter)
+                    .sort(buildSort(sortField, ascending))
+                    .limit(size + 1)
+                    .into(docs);
+
+            boolean hasMore = docs.size() > size;
+            List<Document> pageDocs = hasMore ? docs.subList(0, size) : docs;
+            List<User> users = new ArrayList<>(pageDocs.size());
+            for (Document doc : pageDocs) {
+                users.add(mapDocumentToUser(doc));
+            }
+
+            String nextToken = hasMore
+                    ? ContinuationToken.fromLastDocument(pageDocs.get(pageDocs.size() - 1), sortField, ascending).encode()
+                    : null;
+            log.debug("Página keyset completada: {} usuarios, hay más: {}", users.size(), hasMore);
+            return new UserPageDto(users, nextToken);
+        } catch (Exception e) {
+            log.error("Error al buscar usuarios por keyset: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    private Bson buildProjection(UserProjection projection) {
+        List<String> documentFields = projection.documentFields();
+        // Una proyección vacía ({}) devolvería el documento entero: con solo "id" se incluye _id
+        if (documentFields.isEmpty()) {
+            return Projections.include("_id");
+        }
+        return projection.includesId()
+                ? Projections.include(documentFields)
+                : Projections.fields(Projections.include(documentFields), Projections.excludeId());
+    }
+
+    private Bson departmentFilter(String department) {
+        return Filters.eq("department", department);
+    }
+
+    private Bson buildSearchFilter(UserQueryDto query) {
+        List<Bson> filters = new ArrayList<>();
+        if (query.getName() != null && !query.getName().isBlank()) {
+            filters.add(nameFilter(query.getName(), query.getNameMatch()));
+        }
+        if (query.getDepartment() != null && !query.getDepartment().isBlank()) {
+            filters.add(Filters.eq("department", query.getDepartment()));
+        }
+        if (query.getRole() != null && !query.getRole().isBlank()) {
+            filters.add(Filters.eq("role", query.getRole()));
+        }
+        if (query.getActive() != null) {
+            filters.add(Filters.eq("active", query.getActive()));
+        }
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
+
+    /**
+     * PREFIX: { nameSearch: /^garci/ }, un rango del índice nameSearch.
+     * CONTAINS: { nameSearch: /garci/ }, sin ancla: el servidor evalúa la regex en todas
+     * las entradas del índice (sigue siendo más barato que leer los documentos).
+     * Un texto sin letras ni dígitos no encuentra a nadie ($in vacío).
+     */
+    private Bson nameFilter(String name, UserQueryDto.NameMatch match) {
+        String regex = match == UserQueryDto.NameMatch.CONTAINS
+                ? NameSearch.containsRegex(name)
+                : NameSearch.prefixRegex(name);
+        return regex != null ? Filters.regex(NameSearch.FIELD, regex) : Filters.in(NameSearch.FIELD, List.of());
+    }
+
+    private Bson buildKeysetFilter(ContinuationToken token) {
+        String field = token.getSortField();
+        Object value = token.getLastValue();
+        ObjectId lastId = token.getLastId();
+        if (token.isAscending()) {
+            return Filters.or(
+                    Filters.gt(field, value),
+                    Filters.and(Filters.eq(field, value), Filters.gt("_id", lastId)));
+        }
+        return Filters.or(
+                Filters.lt(field, value),
+                Filters.and(Filters.eq(field, value), Filters.lt("_id", lastId)));
+    }
+
+    private Bson buildSort(String sortField, boolean ascending) {
+        // _id como desempate garantiza un orden total (necesario para keyset)
+        return ascending
+                ? Sorts.ascending(sortField, "_id")
+                : Sorts.descending(sortField, "_id");
+    }
+
+    /**
+     * Formas de las consultas de este servicio, para GET /api/admin/explain.
+     * Se construyen con los mismos helpers (departmentFilter, buildSearchFilter,
+     * buildSort, buildProjection) que las consultas reales.
+     */
+    @Override
+    public List<QueryShape> queryShapes(String department) {
+        UserQueryDto activeInDepartment = new UserQueryDto();
+        activeInDepartment.setDepartment(department);
+        activeInDepartment.setActive(true);
+
+        UserQueryDto byName = new UserQueryDto();
+        byName.setName("a");
+
+        UserQueryDto byNameContains = new UserQueryDto();
+        byNameContains.setName("a");
+        byNameContains.setNameMatch(UserQueryDto.NameMatch.CONTAINS);
+
+        return List.of(
+                // _id inexistente: interesa el plan (IDHACK), no el resultado
+                new QueryShape("findUserById", Filters.eq("_id", new ObjectId()), null, null, 1),
+                new QueryShape("findUsersByDepartment", departmentFilter(department), null, null, 0),
+                new QueryShape("findUsersByDepartment?fields=department,name", departmentFilter(department), null,
+                        buildProjection(UserProjection.parse("department,name")), 0),
+                new QueryShape("searchUsers(department, active) sort name", buildSearchFilter(activeInDepartment),
+                        buildSort(activeInDepartment.resolveSortField(), activeInDepartment.isAscending()),
+                        null, activeInDepartment.getSize()),
+                new QueryShape("searchUsers(name) sort name", buildSearchFilter(byName),
+                        buildSort(byName.resolveSortField(), byName.isAscending()), null, byName.getSize()),
+                new QueryShape("searchUsers(name, CONTAINS) sort name", buildSearchFilter(byNameContains),
+                        buildSort(byNameContains.resolveSortField(), byNameContains.isAscending()), null,
+                        byNameContains.getSize()),
+                new QueryShape("findUsersByNamePrefix", nameFilter("a", UserQueryDto.NameMatch.PREFIX), null, null,
+                        10),
+                new QueryShape("searchUsersPage sort name (página siguiente)",
+                        buildKeysetFilter(new ContinuationToken("name", true, "M", new ObjectId())),
+                        buildSort("name", true), null, UserQueryDto.MAX_PAGE_SIZE + 1),
+                new QueryShape("searchUsersPage sort createdAt DESC (página siguiente)",
+                        buildKeysetFilter(new ContinuationToken("createdAt", false, new Date(), new ObjectId())),
+                        buildSort("createdAt", false), null, UserQueryDto.MAX_PAGE_SIZE + 1));
+    }
 
+    @Override
+    public long countByDepartment(String department) {
+        return countUsersByDepartment(department).getCount();
+    }
+
+    /**
+     * CONTAR POR DEPARTAMENTO (SELECT COUNT(*) ... WHERE department = ?)
+     * =================================================================
+     * MongoDB:                                          | SQL:
+     * ------------------------------------------------- | -----------------------------------------
+     * collection.countDocuments(                        | SELECT COUNT(*) FROM users
+     *     Filters.eq("department", department))         | WHERE department = ?
+     *
+     * countDocuments recorre el índice department_active_name_id en cada llamada; con la
+     * caché de contadores activa (DepartmentCountCache) se responde desde memoria y la
+     * respuesta indica la antigüedad del número (asOf, ageMs, maxStalenessMs).
+     */
+    @Override
+    public UserCountDto countUsersByDepartment(String department) {
+        log.debug("Contando usuarios del departamento: {}", department);
+        if (countCache.isEnabled()) {
+            return countCache.count(department);
+        }
+        try {
+            long count = getCollection().countDocuments(Filters.eq("department", department));
+            return UserCountDto.now(department, count, UserCountDto.Source.COUNT);
+        } catch (Exception e) {
+            log.error("Error al contar usuarios: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al contar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Total de usuarios:
+     * - estimatedDocumentCount(): lee el contador de los metadatos de la colección, sin
+     *   recorrer nada (como las estadísticas de tabla en SQL). Puede desviarse tras un
+     *   apagado brusco o con documentos huérfanos en un cluster con sharding
+     * - si no, la caché de contadores o countDocuments() (SELECT COUNT(*) FROM users)
+     */
+    @Override
+    public UserCountDto countUsers() {
+        try {
+            if (countCache.isEstimatedTotal()) {
+                return UserCountDto.now(null, getCollection().estimatedDocumentCount(), UserCountDto.Source.ESTIMATED);
+            }
+            if (countCache.isEnabled()) {
+                return countCache.countAll();
+            }
+            return UserCountDto.now(null, getCollection().countDocuments(), UserCountDto.Source.COUNT);
+        } catch (Exception e) {
+            log.error("Error al contar usuarios: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al contar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ESTADÍSTICAS POR DEPARTAMENTO (VISTA MATERIALIZADA)
+     * ===================================================
+     * Antes: Aggregation Pipeline ($group + $sort) sobre toda la colección users
+     * en cada petición, O(usuarios). Ahora se lee la colección department_stats,
+     * que create/update/delete mantienen con $inc: O(departamentos).
+     *
+     * MongoDB:                                  | SQL:
+     * ----------------------------------------- | -----------------------------------------
+     * db.department_stats.find()                | SELECT * FROM department_stats
+     *   .sort({ totalUsers: -1 })               |   ORDER BY total_users DESC
+     *                                           | (en vez de GROUP BY sobre users)
+     *
+     * El pipeline original sigue en DepartmentStatsView.aggregateFromUsers() y lo usa
+     * la reconciliación periódica, que corrige cualquier desviación de los contadores.
+     */
+    @Override
+    public List<DepartmentStatsDto> getStatsByDepartment() {
+        log.debug("Obteniendo estadísticas por departamento materializadas");
+        try {
+            List<DepartmentStatsDto> stats = departmentStats.findAll();
             log.info("Estadísticas por departamento obtenidas: {} departamentos", stats.size());
             return stats;
         } catch (Exception e) {
@@ -592,29 +1809,47 @@ public class NativeMongoUserServiceImpl implements NativeMongoUserService {
         }
     }
 
+    private Document toNewUserDocument(UserCreateDto dto, Date now) {
+        return new Document()
+                .append("name", dto.getName())           // En JDBC: stmt.setString(1, dto.getName())
+                .append(NameSearch.FIELD, NameSearch.keys(dto.getName()))
+                .append("email", dto.getEmail())         // En JDBC: stmt.setString(2, dto.getEmail())
+                .append("department", dto.getDepartment())
+                .append("role", dto.getRole())
+                .append("active", true)
+                .append("createdAt", now)                // MongoDB usa java.util.Date
+                .append("updatedAt", now);               // En JDBC: stmt.setTimestamp(6, ...)
+    }
+
+    private User toUserOrNull(Document doc) {
+        return doc == null ? null : mapDocumentToUser(doc);
+    }
+
     private User mapDocumentToUser(Document doc) {
         return mapDocumentToUser(doc, doc.getObjectId("_id").toString());
     }
 
+    /**
+     * Mismo resultado que UserCodec.decode(): constructor completo en lugar de los setters
+     * (setName() recalcularía nameSearch y pondría updatedAt a ahora), nameSearch tal como
+     * está guardado y fechas ausentes como null.
+     */
     private User mapDocumentToUser(Document doc, String id) {
-        User user = new User();
-        user.setId(id);
-        user.setName(doc.getString("name"));
-        user.setEmail(doc.getString("email"));
-        user.setDepartment(doc.getString("department"));
-        user.setRole(doc.getString("role"));
-        user.setActive(doc.getBoolean("active", true));
-
-        Date createdAt = doc.getDate("createdAt");
-        if (createdAt != null) {
-            user.setCreatedAt(LocalDateTime.ofInstant(createdAt.toInstant(), ZoneId.systemDefault()));
-        }
-
-        Date updatedAt = doc.getDate("updatedAt");
-        if (updatedAt != null) {
-            user.setUpdatedAt(LocalDateTime.ofInstant(updatedAt.toInstant(), ZoneId.systemDefault()));
-        }
+        List<String> nameSearch = doc.get(NameSearch.FIELD) instanceof List<?>
+                ? doc.getList(NameSearch.FIELD, String.class)
+                : null;
+        return new User(id,
+                doc.getString("name"),
+                nameSearch,
+                doc.getString("email"),
+                doc.getString("department"),
+                doc.getString("role"),
+                doc.getBoolean("active", true),       // Ausente o null: activo, como en UserCodec
+                toLocalDateTime(doc.getDate("createdAt")),
+                toLocalDateTime(doc.getDate("updatedAt")));
+    }
 
-        return user;
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date == null ? null : LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
     }
 }
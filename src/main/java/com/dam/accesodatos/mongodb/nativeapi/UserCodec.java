@@ -0,0 +1,151 @@
+package com.dam.accesodatos.mongodb.nativeapi;
+
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.User;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CODEC MANUAL BSON ↔ User
+ * ========================
+ * Lee el flujo BSON campo a campo y construye el User directamente,
+ * sin pasar por un org.bson.Document intermedio (un LinkedHashMap con
+ * un objeto por valor) ni por mapDocumentToUser().
+ *
+ * Equivalente JDBC: un RowMapper que lee el ResultSet columna a columna.
+ *
+ * - Los campos desconocidos (p.ej. _class de Spring Data) se saltan con skipValue()
+ * - nameSearch se lee tal como está guardado (no se vuelve a normalizar name);
+ *   los documentos que aún no lo tienen quedan con null hasta el backfill
+ * - La zona horaria se resuelve una sola vez al crear el codec
+ * - Las fechas se guardan como BSON Date, igual que el resto de la aplicación
+ */
+public class UserCodec implements Codec<User> {
+
+    private final ZoneId zone;
+
+    public UserCodec() {
+        this(ZoneId.systemDefault());
+    }
+
+    public UserCodec(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public User decode(BsonReader reader, DecoderContext decoderContext) {
+        String id = null;
+        String name = null;
+        List<String> nameSearch = null;
+        String email = null;
+        String department = null;
+        String role = null;
+        Boolean active = Boolean.TRUE;
+        LocalDateTime createdAt = null;
+        LocalDateTime updatedAt = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String field = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (field) {
+                case "_id" -> id = readId(reader);
+                case "name" -> name = reader.readString();
+                case NameSearch.FIELD -> nameSearch = readStrings(reader);
+                case "email" -> email = reader.readString();
+                case "department" -> department = reader.readString();
+                case "role" -> role = reader.readString();
+                case "active" -> active = reader.readBoolean();
+                case "createdAt" -> createdAt = toLocalDateTime(reader.readDateTime());
+                case "updatedAt" -> updatedAt = toLocalDateTime(reader.readDateTime());
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new User(id, name, nameSearch, email, department, role, active, createdAt, updatedAt);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, User user, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (user.getId() != null) {
+            writer.writeObjectId("_id", new ObjectId(user.getId()));
+        }
+        writeString(writer, "name", user.getName());
+        if (user.getNameSearch() != null) {
+            writer.writeStartArray(NameSearch.FIELD);
+            user.getNameSearch().forEach(writer::writeString);
+            writer.writeEndArray();
+        }
+        writeString(writer, "email", user.getEmail());
+        writeString(writer, "department", user.getDepartment());
+        writeString(writer, "role", user.getRole());
+        if (user.getActive() != null) {
+            writer.writeBoolean("active", user.getActive());
+        }
+        writeDateTime(writer, "createdAt", user.getCreatedAt());
+        writeDateTime(writer, "updatedAt", user.getUpdatedAt());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<User> getEncoderClass() {
+        return User.class;
+    }
+
+    private String readId(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case OBJECT_ID -> reader.readObjectId().toHexString();
+            case STRING -> reader.readString();
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private List<String> readStrings(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            values.add(reader.readString());
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+    }
+
+    private void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private void writeDateTime(BsonWriter writer, String name, LocalDateTime value) {
+        if (value != null) {
+            writer.writeDateTime(name, value.atZone(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dam.accesodatos.mongodb.reactive;
+
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Variante reactiva de NativeMongoUserService: mismas operaciones, pero cada método
+ * devuelve un Mono (0..1 resultado) o un Flux (0..N resultados) en lugar del valor.
+ * Nada se ejecuta hasta que alguien se suscribe.
+ */
+public interface ReactiveMongoUserService {
+
+    Mono<String> testConnection();
+
+    Mono<User> createUser(UserCreateDto dto);
+
+    /**
+     * @return el usuario, o error UserNotFoundException / InvalidUserIdException
+     */
+    Mono<User> findUserById(String id);
+
+    Mono<User> updateUser(String id, UserUpdateDto dto);
+
+    Mono<Boolean> deleteUser(String id);
+
+    /**
+     * Los usuarios se emiten según llegan del cursor: no se acumulan en una lista.
+     */
+    Flux<User> findAll();
+
+    Flux<User> findUsersByDepartment(String department);
+
+    Flux<User> searchUsers(UserQueryDto query);
+
+    Mono<Long> countByDepartment(String department);
+
+    Flux<DepartmentStatsDto> getStatsByDepartment();
+}
@@ -0,0 +1,296 @@
+package com.dam.accesodatos.mongodb.reactive;
+
+import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidPageRequestException;
+import com.dam.accesodatos.exception.InvalidUserIdException;
+import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.MongoErrors;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SERVICIO REACTIVO (REACTIVE STREAMS + REACTIVEMONGOTEMPLATE)
+ * ============================================================
+ * Mismas operaciones que NativeMongoUserServiceImpl, sin bloquear ningún hilo:
+ * cada método construye un Mono/Flux que el driver reactivo completa cuando llega
+ * la respuesta de MongoDB.
+ *
+ * COMPARACIÓN CON LOS SERVICIOS BLOQUEANTES:
+ * ==========================================
+ * Reactivo                                     | Bloqueante (API nativa / Spring Data)
+ * -------------------------------------------- | --------------------------------------------
+ * Mono<User> findById(id, User.class)          | User findById(id) — el hilo espera la respuesta
+ * Flux<User> find(query, User.class)           | List<User> find(query) — toda la lista en memoria
+ * switchIfEmpty(Mono.error(NotFound))          | if (user == null) throw new NotFound
+ * onErrorMap(isDuplicateKey → 409)             | try { ... } catch (Exception e) { ... }
+ *
+ * En el mundo SQL el equivalente es R2DBC: JDBC no tiene API no bloqueante.
+ *
+ * POR QUÉ:
+ * Con los servicios bloqueantes cada petición en curso ocupa un hilo del servidor
+ * mientras espera a MongoDB. Aquí el controlador devuelve el Mono/Flux, Spring MVC
+ * libera el hilo (procesamiento asíncrono de Servlet) y la respuesta se escribe
+ * cuando el driver la completa: miles de peticiones en curso con pocos hilos.
+ *
+ * DIFERENCIAS CON EL SERVICIO NATIVO:
+ * - Las escrituras mantienen al día las mismas estructuras en memoria que las APIs
+ *   bloqueantes: caché de usuarios, contadores por departamento (DepartmentCountCache),
+ *   índice de texto (UserTextIndex) e índice de facetas (UserFacetIndex). Son ajustes
+ *   en memoria sin E/S; las lecturas de este servicio van siempre a MongoDB
+ * - Las estadísticas materializadas (DepartmentStatsView) NO se actualizan con $inc
+ *   desde aquí: sería otra escritura en MongoDB por cada cambio. Las altas llegan
+ *   por el change stream (un $inc por departamento cada change-flush-ms); los cambios
+ *   de departamento, los borrados y todo lo que falte con el change stream desactivado
+ *   los corrige la reconciliación periódica
+ * - searchUsers solo pagina por offset (page/size)
+ */
+@Service
+public class ReactiveMongoUserServiceImpl implements ReactiveMongoUserService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveMongoUserServiceImpl.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final DepartmentCountCache countCache;
+    private final UserTextIndex textIndex;
+    private final UserFacetIndex facetIndex;
+    private final LocalUserWrites localWrites;
+
+    @Autowired
+    public ReactiveMongoUserServiceImpl(ReactiveMongoTemplate mongoTemplate, UserCache userCache,
+                                        DepartmentCountCache countCache, UserTextIndex textIndex,
+                                        UserFacetIndex facetIndex, LocalUserWrites localWrites) {
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.countCache = countCache;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+        this.localWrites = localWrites;
+        log.info("ReactiveMongoUserService inicializado");
+    }
+
+    /**
+     * Las consultas (colecciones, ping y conteo) se lanzan a la vez con Mono.zip
+     * y el resultado se compone cuando han llegado todas.
+     */
+    @Override
+    public Mono<String> testConnection() {
+        return Mono.zip(
+                        mongoTemplate.getMongoDatabase(),
+                        mongoTemplate.getCollectionNames().count(),
+                        mongoTemplate.executeCommand(new Document("ping", 1)),
+                        mongoTemplate.count(new Query(), User.class))
+                .map(result -> String.format("Conexión reactiva exitosa | BD: %s | Colecciones: %d | Usuarios: %d | Ping: %s",
+                        result.getT1().getName(), result.getT2(), result.getT4(), result.getT3().get("ok")));
+    }
+
+    @Override
+    public Mono<User> createUser(UserCreateDto dto) {
+        log.debug("Creando usuario con email: {}", dto.getEmail());
+        // El id se asigna aquí para anotarlo antes de escribir (ver LocalUserWrites)
+        User user = new User(new ObjectId().toHexString(), dto.getName(), dto.getEmail(),
+                dto.getDepartment(), dto.getRole());
+        LocalDateTime now = LocalDateTime.now();
+        user.setActive(true);
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+
+        return Mono.defer(() -> {
+                    localWrites.record(user.getId());
+                    return mongoTemplate.insert(user);
+                })
+                .doOnNext(saved -> {
+                    userCache.put(saved);
+                    countCache.userCreated(saved.getDepartment());
+                    textIndex.userSaved(saved);
+                    facetIndex.userSaved(saved);
+                    log.info("Usuario creado exitosamente con ID: {}", saved.getId());
+                })
+                .onErrorMap(MongoErrors::isDuplicateKey, e -> new DuplicateEmailException(dto.getEmail()));
+    }
+
+    @Override
+    public Mono<User> findUserById(String id) {
+        log.debug("Buscando usuario por ID: {}", id);
+        return validId(id)
+                .flatMap(validId -> mongoTemplate.findById(validId, User.class))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    /**
+     * findAndModify con returnNew(true): un único round trip, igual que en los
+     * servicios bloqueantes (Mono vacío = ningún documento con ese _id).
+     * Si cambia el departamento se pide el documento anterior (returnNew(false)) para
+     * ajustar DepartmentCountCache y se le aplican los cambios del $set, como en la API nativa.
+     */
+    @Override
+    public Mono<User> updateUser(String id, UserUpdateDto dto) {
+        log.debug("Actualizando usuario con ID: {}", id);
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update();
+        dto.changedFields().forEach(update::set);
+        update.set("updatedAt", now);
+        boolean departmentChange = dto.getDepartment() != null;
+
+        return validId(id)
+                .doOnNext(localWrites::record)
+                .flatMap(validId -> mongoTemplate.findAndModify(byId(validId), update,
+                        FindAndModifyOptions.options().returnNew(!departmentChange), User.class))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
+                .map(user -> {
+                    if (departmentChange) {
+                        // user es el documento anterior
+                        String oldDepartment = user.getDepartment();
+                        dto.applyTo(user);
+                        user.setUpdatedAt(now);
+                        countCache.userMoved(oldDepartment, user.getDepartment());
+                    }
+                    return user;
+                })
+                .doOnNext(updated -> {
+                    userCache.put(updated);
+                    textIndex.userSaved(updated);
+                    facetIndex.userSaved(updated);
+                    log.info("Usuario actualizado exitosamente: {}", id);
+                })
+                .onErrorMap(MongoErrors::isDuplicateKey, e -> new DuplicateEmailException(dto.getEmail()));
+    }
+
+    /**
+     * findAndRemove en lugar de remove: el documento borrado indica el departamento
+     * que hay que descontar en DepartmentCountCache.
+     */
+    @Override
+    public Mono<Boolean> deleteUser(String id) {
+        log.debug("Eliminando usuario con ID: {}", id);
+        return validId(id)
+                .doOnNext(localWrites::record)
+                .flatMap(validId -> mongoTemplate.findAndRemove(byId(validId), User.class))
+                .doOnNext(deleted -> {
+                    countCache.userDeleted(deleted.getDepartment());
+                    textIndex.userDeleted(id);
+                    facetIndex.userDeleted(id);
+                    log.info("Usuario eliminado exitosamente: {}", id);
+                })
+                .map(deleted -> true)
+                .defaultIfEmpty(false)
+                .doOnNext(deleted -> {
+                    userCache.invalidate(id);
+                    if (!deleted) {
+                        log.warn("Usuario no encontrado para eliminar: {}", id);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        log.debug("Listando todos los usuarios");
+        return mongoTemplate.findAll(User.class);
+    }
+
+    @Override
+    public Flux<User> findUsersByDepartment(String department) {
+        log.debug("Buscando usuarios del departamento: {}", department);
+        return mongoTemplate.find(Query.query(Criteria.where("department").is(department)), User.class);
+    }
+
+    @Override
+    public Flux<User> searchUsers(UserQueryDto query) {
+        log.debug("Buscando usuarios con filtros: {}", query);
+        try {
+            query.checkPaging();
+        } catch (InvalidPageRequestException e) {
+            return Flux.error(e);
+        }
+        List<Criteria> criteria = new ArrayList<>();
+        if (query.getName() != null && !query.getName().isBlank()) {
+            // Misma búsqueda sobre nameSearch que las APIs bloqueantes (ver NameSearch)
+            String regex = query.getNameMatch() == UserQueryDto.NameMatch.CONTAINS
+                    ? NameSearch.containsRegex(query.getName())
+                    : NameSearch.prefixRegex(query.getName());
+            criteria.add(regex != null
+                    ? Criteria.where(NameSearch.FIELD).regex(regex)
+                    : Criteria.where(NameSearch.FIELD).in(List.of()));
+        }
+        if (query.getDepartment() != null && !query.getDepartment().isBlank()) {
+            criteria.add(Criteria.where("department").is(query.getDepartment()));
+        }
+        if (query.getRole() != null && !query.getRole().isBlank()) {
+            criteria.add(Criteria.where("role").is(query.getRole()));
+        }
+        if (query.getActive() != null) {
+            criteria.add(Criteria.where("active").is(query.getActive()));
+        }
+        Query mongoQuery = (criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria)))
+                .with(Sort.by(query.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC,
+                        query.resolveSortField(), "_id"))
+                .skip(query.getOffset())
+                .limit(query.getSize());
+        return mongoTemplate.find(mongoQuery, User.class);
+    }
+
+    @Override
+    public Mono<Long> countByDepartment(String department) {
+        return mongoTemplate.count(Query.query(Criteria.where("department").is(department)), User.class);
+    }
+
+    /**
+     * Mismo pipeline que SpringDataUserServiceImpl.getStatsByDepartment():
+     * los resultados se emiten según los devuelve el cursor de la agregación.
+     */
+    @Override
+    public Flux<DepartmentStatsDto> getStatsByDepartment() {
+        log.debug("Obteniendo estadísticas por departamento con aggregation reactiva");
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("department")
+                        .count().as("totalUsers")
+                        .sum(ConditionalOperators.when(Criteria.where("active").is(true)).then(1).otherwise(0))
+                        .as("activeUsers"),
+                Aggregation.sort(Sort.Direction.DESC, "totalUsers"));
+        return mongoTemplate.aggregate(aggregation, User.class, Document.class)
+                .map(doc -> new DepartmentStatsDto(
+                        doc.getString("_id"),
+                        ((Number) doc.get("totalUsers")).longValue(),
+                        ((Number) doc.get("activeUsers")).longValue()));
+    }
+
+    /**
+     * El error se emite en el Mono (no se lanza al construirlo), como cualquier otro fallo.
+     */
+    private Mono<String> validId(String id) {
+        return ObjectId.isValid(id) ? Mono.just(id) : Mono.error(() -> new InvalidUserIdException(id));
+    }
+
+    private Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+}
@@ -1,11 +1,25 @@
 package com.dam.accesodatos.mongodb.springdata;
 
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.QueryShape;
 
 import java.util.List;
+import java.util.Map;
 
 public interface SpringDataUserService {
 
@@ -13,10 +27,47 @@ public interface SpringDataUserService {
 
     User createUser(UserCreateDto dto);
 
+    /**
+     * Inserta varios usuarios en lotes no ordenados. Un email duplicado solo
+     * marca su elemento como DUPLICATE_EMAIL; el resto del lote se inserta igualmente.
+     *
+     * @param dtos usuarios a crear
+     * @return totales y resultado por elemento, en el orden de la petición
+     */
+    BulkCreateResultDto createUsers(List<UserCreateDto> dtos);
+
     User findUserById(String id);
 
+    /**
+     * Busca varios usuarios por ID con una sola consulta.
+     *
+     * @param ids IDs a buscar (como máximo app.mongodb.batch-get-max-ids; puede haber repetidos)
+     * @return un resultado por ID en el orden de la petición: FOUND, NOT_FOUND o INVALID_ID
+     * @throws com.dam.accesodatos.exception.BatchTooLargeException si hay demasiados IDs
+     */
+    BatchGetResultDto findUsersByIds(List<String> ids);
+
     User updateUser(String id, UserUpdateDto dto);
 
+    /**
+     * Actualiza varios usuarios, cada uno con sus propios cambios, en lotes no ordenados.
+     * Un ID inexistente o un email duplicado solo marca su elemento; el resto se actualiza.
+     *
+     * @param items pares (id, cambios)
+     * @return matched/modified del servidor y resultado por elemento, en el orden de la petición
+     */
+    BulkUpdateResultDto updateUsers(List<BulkUpdateItemDto> items);
+
+    /**
+     * Aplica los mismos cambios a todos los usuarios que cumplen el filtro, en una sola operación.
+     *
+     * @param request filtro (al menos un criterio) y cambios (sin email, que es único)
+     * @return matched/modified del servidor
+     * @throws com.dam.accesodatos.exception.InvalidBulkUpdateException si el filtro está vacío,
+     *         no hay cambios o se intenta cambiar el email
+     */
+    BulkUpdateResultDto updateUsersByFilter(BulkUpdateByFilterDto request);
+
     boolean deleteUser(String id);
 
     List<User> findAll();
@@ -25,5 +76,82 @@ public interface SpringDataUserService {
 
     List<User> searchUsers(UserQueryDto query);
 
+    /**
+     * Autocompletado: usuarios con alguna palabra del nombre que empieza por prefix
+     * (sin distinguir mayúsculas ni tildes), en el orden del índice nameSearch.
+     *
+     * @param prefix texto escrito por el usuario ("garci", "jose g")
+     * @param limit  número máximo de resultados (como mucho NameSearch.MAX_SUGGESTIONS)
+     */
+    List<User> findUsersByNamePrefix(String prefix, int limit);
+
+    /**
+     * Búsqueda de texto en name, role y department ordenada por relevancia: $text con
+     * el índice de texto o, si no está disponible, el índice en memoria (ver UserTextIndex).
+     *
+     * @param text palabras a buscar (basta con que aparezca una)
+     * @param page página, empezando en 0
+     * @param size resultados por página (como mucho UserTextIndex.MAX_PAGE_SIZE)
+     */
+    TextSearchResultDto fullTextSearch(String text, int page, int size);
+
+    /**
+     * Total y recuentos por department, role y active para los filtros de query
+     * (name, department, role, active), calculados con UserFacetIndex. Cada faceta se
+     * cuenta con el resto de filtros, sin el suyo. page, size y sortBy se ignoran.
+     */
+    UserFacetsDto searchFacets(UserQueryDto query);
+
+    /**
+     * Búsqueda en modo facetado (query.faceted): la página de usuarios (page/size/sortBy)
+     * junto con el total y los recuentos por department, role y active de los usuarios
+     * que cumplen todos los filtros, en una sola agregación con $facet.
+     */
+    FacetedSearchResultDto searchUsersFaceted(UserQueryDto query);
+
+    /**
+     * Variantes de findAll, findUsersByDepartment y searchUsers con proyección:
+     * el servidor solo devuelve los campos pedidos y cada resultado es un mapa
+     * con esos campos (nombres de la API: id, name, department...).
+     *
+     * @param projection campos a devolver (ver UserProjection.parse)
+     * @return un mapa por usuario, en el mismo orden que la variante sin proyección
+     */
+    List<Map<String, Object>> findAll(UserProjection projection);
+
+    List<Map<String, Object>> findUsersByDepartment(String department, UserProjection projection);
+
+    List<Map<String, Object>> searchUsers(UserQueryDto query, UserProjection projection);
+
+    UserPageDto searchUsersPage(UserQueryDto query);
+
     long countByDepartment(String department);
+
+    /**
+     * Como countByDepartment(), indicando de dónde sale el número y su antigüedad
+     * (ver DepartmentCountCache).
+     */
+    UserCountDto countUsersByDepartment(String department);
+
+    /**
+     * Total de usuarios de la colección (estimatedDocumentCount si está configurado).
+     */
+    UserCountDto countUsers();
+
+    /**
+     * Consultas que ejecuta el servicio para un departamento de ejemplo, construidas
+     * con los mismos métodos que las reales. Para diagnóstico de índices (explain).
+     *
+     * @param department departamento usado como valor de los filtros
+     * @return una forma de consulta por operación
+     */
+    List<QueryShape> queryShapes(String department);
+
+    /**
+     * Estadísticas por departamento con Aggregation de Spring Data
+     * (mismo pipeline que la API nativa).
+     *
+     * @return Lista de estadísticas por departamento
+     */
+    List<DepartmentStatsDto> getStatsByDepartment();
 }
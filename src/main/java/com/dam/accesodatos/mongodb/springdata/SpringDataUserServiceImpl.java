@@ -1,22 +1,75 @@
 package com.dam.accesodatos.mongodb.springdata;
 
+import com.dam.accesodatos.exception.BatchTooLargeException;
 import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidBulkUpdateException;
 import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkItemValidator;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
+import com.dam.accesodatos.model.ContinuationToken;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.MongoErrors;
+import com.dam.accesodatos.mongodb.QueryShape;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * SERVICIO CON SPRING DATA MONGODB
@@ -69,14 +122,104 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
      */
     private final UserRepository userRepository;
     private final MongoTemplate mongoTemplate;
+    private final int bulkChunkSize;
+    private final int batchGetMaxIds;
+
+    /**
+     * Caché read-through de findUserById (compartida con NativeMongoUserServiceImpl).
+     * Equivalente JPA: caché de segundo nivel de Hibernate.
+     */
+    private final UserCache userCache;
+
+    /**
+     * Contadores de usuarios por departamento en memoria (compartidos con NativeMongoUserServiceImpl):
+     * create/update/delete los ajustan y countByDepartment() los lee.
+     */
+    private final DepartmentCountCache countCache;
+
+    /**
+     * Índice de texto de users y su alternativa en memoria (compartido con NativeMongoUserServiceImpl):
+     * create/update/delete la mantienen al día y fullTextSearch() la usa si no hay $text.
+     */
+    private final UserTextIndex textIndex;
+
+    /**
+     * Bitmaps de department, role y active (compartidos con NativeMongoUserServiceImpl):
+     * create/update/delete los mantienen al día y searchFacets() cuenta con ellos.
+     */
+    private final UserFacetIndex facetIndex;
+
+    /**
+     * Ids escritos por este servicio (antes de cada escritura por _id): el change stream
+     * marca su eco para que la caché y los contadores no lo apliquen dos veces.
+     */
+    private final LocalUserWrites localWrites;
+
+    private final boolean createIndexes;
 
     @Autowired
-    public SpringDataUserServiceImpl(UserRepository userRepository, MongoTemplate mongoTemplate) {
+    public SpringDataUserServiceImpl(UserRepository userRepository, MongoTemplate mongoTemplate,
+                                     @Value("${app.mongodb.bulk-chunk-size:1000}") int bulkChunkSize,
+                                     @Value("${app.mongodb.batch-get-max-ids:100}") int batchGetMaxIds,
+                                     @Value("${spring.data.mongodb.auto-index-creation:true}") boolean createIndexes,
+                                     UserCache userCache,
+                                     DepartmentCountCache countCache,
+                                     UserTextIndex textIndex,
+                                     UserFacetIndex facetIndex,
+                                     LocalUserWrites localWrites) {
         this.userRepository = userRepository;
         this.mongoTemplate = mongoTemplate;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+        this.batchGetMaxIds = Math.max(1, batchGetMaxIds);
+        this.createIndexes = createIndexes;
+        this.userCache = userCache;
+        this.countCache = countCache;
+        this.textIndex = textIndex;
+        this.facetIndex = facetIndex;
+        this.localWrites = localWrites;
         log.info("SpringDataUserService inicializado");
     }
 
+    /**
+     * CREACIÓN DE ÍNDICES DESDE LAS ANOTACIONES
+     * =========================================
+     * MongoConfig crea su propio MongoTemplate, cuyo MappingContext no tiene activada la
+     * creación automática (spring.data.mongodb.auto-index-creation no llega a él).
+     * Aquí se resuelven los @Indexed/@CompoundIndex de User y se aplican con ensureIndex().
+     *
+     * Equivalente JPA: spring.jpa.hibernate.ddl-auto=update con @Table(indexes = ...)
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!createIndexes) {
+            return;
+        }
+        IndexOperations indexOps = mongoTemplate.indexOps(User.class);
+        for (IndexDefinition index : resolveIndexes()) {
+            indexOps.ensureIndex(index);
+        }
+        log.info("Índices de User verificados");
+    }
+
+    /**
+     * Nombres de los índices que crea ensureIndexes() (los declarados en User).
+     */
+    public List<String> indexNames() {
+        List<String> names = new ArrayList<>();
+        for (IndexDefinition index : resolveIndexes()) {
+            String name = index.getIndexOptions().getString("name");
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private Iterable<? extends IndexDefinition> resolveIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        return resolver.resolveIndexFor(User.class);
+    }
+
     /**
      * EJEMPLO 0: TEST DE CONEXIÓN CON SPRING DATA
      * ============================================
@@ -170,19 +313,27 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
         log.debug("Creando usuario con email: {}", dto.getEmail());
         try {
             // Crear objeto User (no Document como en API nativa)
-            User user = new User(dto.getName(), dto.getEmail(), dto.getDepartment(), dto.getRole());
+            // El id se asigna aquí para anotarlo antes de escribir (ver LocalUserWrites)
+            User user = new User(new ObjectId().toHexString(), dto.getName(), dto.getEmail(),
+                    dto.getDepartment(), dto.getRole());
             user.setActive(true);
             user.setCreatedAt(LocalDateTime.now());
             user.setUpdatedAt(LocalDateTime.now());
+            localWrites.record(user.getId());
 
-            // save() inserta el documento y retorna el User con ID generado
-            User savedUser = userRepository.save(user);
-            // En JPA sería idéntico: entityManager.persist(user) o repository.save(user)
+            // insert() inserta el documento y retorna el User guardado
+            // (con el id ya asignado, save() haría un upsert en lugar de un insert)
+            User savedUser = userRepository.insert(user);
+            // En JPA sería: entityManager.persist(user) o repository.save(user)
+            userCache.put(savedUser);
+            countCache.userCreated(savedUser.getDepartment());
+            textIndex.userSaved(savedUser);
+            facetIndex.userSaved(savedUser);
             
             log.info("Usuario creado exitosamente con ID: {}", savedUser.getId());
             return savedUser;
         } catch (Exception e) {
-            if (e.getMessage().contains("duplicate key") || e.getMessage().contains("E11000")) {
+            if (MongoErrors.isDuplicateKey(e)) {
                 log.warn("Intento de crear usuario con email duplicado: {}", dto.getEmail());
                 throw new DuplicateEmailException(dto.getEmail());
                 // En JPA sería: DataIntegrityViolationException
@@ -192,6 +343,90 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
         }
     }
 
+    /**
+     * INSERCIÓN MASIVA CON BulkOperations
+     * ===================================
+     * Spring Data MongoDB:
+     * mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class).insert(users).execute();
+     *
+     * Spring Data JPA:
+     * repository.saveAll(users) con hibernate.jdbc.batch_size configurado
+     *
+     * Con BulkMode.UNORDERED un email duplicado no detiene el lote: Spring lanza
+     * BulkOperationException con la lista de errores (índice dentro del lote + código).
+     * El id se asigna antes de insertar para poder devolverlo por elemento.
+     * Los elementos que no pasan la validación (BulkItemValidator) no se envían y se
+     * informan como INVALID.
+     */
+    @Override
+    public BulkCreateResultDto createUsers(List<UserCreateDto> dtos) {
+        log.debug("Creando {} usuarios en lotes de {}", dtos.size(), bulkChunkSize);
+        BulkCreateResultDto result = new BulkCreateResultDto(dtos.size());
+
+        for (int from = 0; from < dtos.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, dtos.size());
+            LocalDateTime now = LocalDateTime.now();
+            List<User> users = new ArrayList<>(to - from);
+            Map<Integer, String> invalid = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                UserCreateDto dto = dtos.get(i);
+                String violations = BulkItemValidator.violations(dto);
+                if (violations != null) {
+                    invalid.put(i, violations);
+                    continue;
+                }
+                User user = new User(new ObjectId().toHexString(), dto.getName(), dto.getEmail(),
+                        dto.getDepartment(), dto.getRole());
+                user.setActive(true);
+                user.setCreatedAt(now);
+                user.setUpdatedAt(now);
+                users.add(user);
+                localWrites.record(user.getId());
+            }
+
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            try {
+                if (!users.isEmpty()) {
+                    mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)
+                            .insert(users)
+                            .execute();
+                }
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    errors.put(error.getIndex(), error);
+                }
+            } catch (Exception e) {
+                log.error("Error en inserción masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                throw new RuntimeException("Error en inserción masiva: " + e.getMessage(), e);
+            }
+
+            // position: índice dentro de users (los inválidos no se enviaron)
+            int position = 0;
+            for (int i = from; i < to; i++) {
+                if (invalid.containsKey(i)) {
+                    UserCreateDto dto = dtos.get(i);
+                    result.addInvalid(i, dto != null ? dto.getEmail() : null, invalid.get(i));
+                    continue;
+                }
+                BulkWriteError error = errors.get(position);
+                User user = users.get(position++);
+                if (error == null) {
+                    result.addCreated(i, user.getId(), user.getEmail());
+                    countCache.userCreated(user.getDepartment());
+                    textIndex.userSaved(user);
+                    facetIndex.userSaved(user);
+                } else if (MongoErrors.isDuplicateKey(error)) {
+                    result.addDuplicate(i, user.getEmail());
+                } else {
+                    result.addFailed(i, user.getEmail(), error.getMessage());
+                }
+            }
+        }
+
+        log.info("Inserción masiva completada: {}", result);
+        return result;
+    }
+
     /**
      * EJEMPLO 2: BUSCAR USUARIO POR ID CON SPRING DATA
      * =================================================
@@ -227,6 +462,14 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
     @Override
     public User findUserById(String id) {
         log.debug("Buscando usuario por ID: {}", id);
+        // Solo se consulta MongoDB si el usuario no está en caché (o ha caducado)
+        return userCache.get(id, this::loadUserById);
+    }
+
+    /**
+     * Lectura real con el repositorio, sin pasar por la caché.
+     */
+    private User loadUserById(String id) {
         User user = userRepository.findById(id).orElse(null);
         if (user == null) {
             log.warn("Usuario no encontrado con ID: {}", id);
@@ -236,18 +479,71 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
         return user;
     }
 
+    /**
+     * BUSCAR VARIOS POR ID CON findAllById
+     * ====================================
+     * Spring Data MongoDB:                       | Spring Data JPA:
+     * ------------------------------------------ | ------------------------------------------
+     * userRepository.findAllById(ids)            | userRepository.findAllById(ids)
+     * → find({ _id: { $in: [...] } })            | → SELECT ... WHERE id IN (?, ?, ...)
+     *
+     * Igual que en JPA, findAllById() no respeta el orden de los IDs ni indica cuáles
+     * faltan: el resultado se indexa por ID y se recorren los IDs pedidos. A diferencia
+     * de findById(), aquí un ID que no es un ObjectId se marca como INVALID_ID
+     * (Spring Data lo buscaría como String y no encontraría nada).
+     */
+    @Override
+    public BatchGetResultDto findUsersByIds(List<String> ids) {
+        log.debug("Buscando {} usuarios por ID", ids.size());
+        if (ids.size() > batchGetMaxIds) {
+            throw new BatchTooLargeException(ids.size(), batchGetMaxIds);
+        }
+
+        List<String> normalized = new ArrayList<>(ids.size());
+        Set<String> lookup = new LinkedHashSet<>();
+        for (String id : ids) {
+            String key = id != null && ObjectId.isValid(id) ? new ObjectId(id).toHexString() : null;
+            normalized.add(key);
+            if (key != null) {
+                lookup.add(key);
+            }
+        }
+
+        Map<String, User> users = lookup.isEmpty() ? Map.of() : userCache.getAll(lookup, missing -> {
+            Map<String, User> loaded = new HashMap<>();
+            userRepository.findAllById(missing).forEach(user -> loaded.put(user.getId(), user));
+            return loaded;
+        });
+
+        BatchGetResultDto result = new BatchGetResultDto(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            String key = normalized.get(i);
+            User user = key != null ? users.get(key) : null;
+            if (key == null) {
+                result.addInvalid(i, ids.get(i));
+            } else if (user == null) {
+                result.addNotFound(i, ids.get(i));
+            } else {
+                result.addFound(i, ids.get(i), user);
+            }
+        }
+        log.debug("Búsqueda múltiple completada: {}", result);
+        return result;
+    }
+
     /**
      * EJEMPLO 3: ACTUALIZAR USUARIO CON SPRING DATA
      * =============================================
-     * Demuestra el patrón "load-modify-save" de Spring Data.
+     * Actualización parcial y atómica con MongoTemplate.findAndModify().
      *
      * COMPARACIÓN CON JPA:
      * ====================
      * Spring Data MongoDB:
      * --------------------
-     * User user = userRepository.findById(id).orElseThrow();
-     * user.setName("Nuevo nombre");
-     * userRepository.save(user);  // Spring detecta que es UPDATE
+     * Update update = new Update().set("name", "Nuevo nombre").set("updatedAt", now);
+     * User user = mongoTemplate.findAndModify(
+     *     Query.query(Criteria.where("_id").is(id)), update,
+     *     FindAndModifyOptions.options().returnNew(true), User.class);
      *
      * Spring Data JPA:
      * ----------------
@@ -255,48 +551,66 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
      * user.setName("Nuevo nombre");
      * userRepository.save(user);  // Hibernate detecta dirty checking y hace UPDATE
      *
-     * VENTAJAS vs API NATIVA:
-     * - No necesitas construir Updates.set() manualmente
-     * - No necesitas updateOne() con filtros
-     * - save() detecta automáticamente si es INSERT (id null) o UPDATE (id presente)
-     * - Código más limpio y orientado a objetos
+     * POR QUÉ NO "LOAD-MODIFY-SAVE" (findById + save):
+     * - Son dos round trips (SELECT + UPDATE)
+     * - save() reescribe el documento completo: si otro proceso cambió un campo
+     *   entre findById y save, ese cambio se pierde
+     * - JPA con Hibernate sí hace dirty checking (solo actualiza campos modificados);
+     *   Spring Data MongoDB no, reemplaza el documento entero
      *
-     * SIMILITUDES CON JPA:
-     * - Patrón idéntico: load → modify → save
-     * - save() es suficiente, no necesitas update() explícito
-     * - @LastModifiedDate se actualiza automáticamente
+     * CON findAndModify:
+     * - Un solo round trip: el servidor aplica el $set y devuelve el documento
+     * - Solo viajan los campos informados en el DTO
+     * - returnNew(true): devuelve el documento ya actualizado (por defecto devuelve el anterior)
+     * - null si ningún documento coincide con el filtro
+     * - @LastModifiedDate solo se aplica en save(): updatedAt se pone a mano
      *
-     * DIFERENCIA CON JPA:
-     * - JPA con Hibernate hace dirty checking en memoria (solo actualiza campos modificados)
-     * - MongoDB actualiza el documento completo (o necesitas @Field con Updates.set manual)
+     * Si cambia el departamento se pide el documento ANTERIOR (returnNew(false)) para
+     * mover el usuario en los contadores por departamento; el resultado se obtiene
+     * aplicando los cambios del DTO, sin una segunda consulta.
      */
     @Override
     public User updateUser(String id, UserUpdateDto dto) {
         log.debug("Actualizando usuario con ID: {}", id);
         try {
-            // 1. Buscar usuario existente (load)
-            User user = userRepository.findById(id)
-                    .orElseThrow(() -> {
-                        log.warn("Usuario no encontrado para actualizar con ID: {}", id);
-                        return new UserNotFoundException(id);
-                    });
-            // En JPA sería idéntico: userRepository.findById(id).orElseThrow()
-
-            // 2. Modificar campos (modify)
-            dto.applyTo(user);  // Aplica solo los campos no-null del DTO
-            user.setUpdatedAt(LocalDateTime.now());
+            // 1. $set solo con los campos no-null del DTO (+ updatedAt)
+            Update update = new Update();
+            dto.changedFields().forEach(update::set);
+            LocalDateTime now = LocalDateTime.now();
+            update.set("updatedAt", now);
 
-            // 3. Guardar cambios (save) - Spring Data detecta que es UPDATE por el ID presente
-            User updatedUser = userRepository.save(user);
-            // En JPA: Hibernate detecta dirty state y ejecuta UPDATE automáticamente
-            // En MongoDB: save() reemplaza el documento completo
-            
+            // 2. Actualizar y recibir el resultado en la misma operación
+            boolean departmentChange = dto.getDepartment() != null;
+            localWrites.record(id);
+            User updatedUser = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(id)),
+                    update,
+                    FindAndModifyOptions.options().returnNew(!departmentChange),
+                    User.class);
+            // En SQL: UPDATE users SET ... WHERE id = ? RETURNING *
+
+            if (updatedUser == null) {
+                log.warn("Usuario no encontrado para actualizar con ID: {}", id);
+                throw new UserNotFoundException(id);
+            }
+
+            if (departmentChange) {
+                // updatedUser es el documento anterior: se le aplican los mismos cambios que al $set
+                String oldDepartment = updatedUser.getDepartment();
+                dto.applyTo(updatedUser);
+                updatedUser.setUpdatedAt(now);
+                countCache.userMoved(oldDepartment, updatedUser.getDepartment());
+            }
+
+            userCache.put(updatedUser);
+            textIndex.userSaved(updatedUser);
+            facetIndex.userUpdated(id, dto);
             log.info("Usuario actualizado exitosamente: {}", id);
             return updatedUser;
         } catch (UserNotFoundException e) {
             throw e;
         } catch (Exception e) {
-            if (e.getMessage() != null && (e.getMessage().contains("duplicate key") || e.getMessage().contains("E11000"))) {
+            if (MongoErrors.isDuplicateKey(e)) {
                 log.warn("Intento de actualizar con email duplicado: {}", dto.getEmail());
                 throw new DuplicateEmailException(dto.getEmail());
             }
@@ -305,95 +619,786 @@ public class SpringDataUserServiceImpl implements SpringDataUserService {
         }
     }
 
+    /**
+     * ACTUALIZACIÓN MASIVA CON BulkOperations
+     * =======================================
+     * Spring Data MongoDB:
+     * BulkOperations ops = mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class);
+     * ops.updateOne(Query.query(Criteria.where("_id").is(id)), update);  // por cada elemento
+     * BulkWriteResult result = ops.execute();
+     *
+     * Spring Data JPA:
+     * repository.saveAll(users) tras cargarlos con findAllById (load-modify-save)
+     * o un UPDATE JPQL por elemento con hibernate.jdbc.batch_size configurado
+     *
+     * Un $set por elemento en lotes de bulkChunkSize, como createUsers(). BulkWriteResult
+     * solo da totales (matched/modified): antes de cada lote se leen _id y department de
+     * los IDs pedidos (una consulta $in) para marcar los que no existen y mover los
+     * contadores por departamento. Con BulkMode.UNORDERED un email duplicado no detiene
+     * el lote: BulkOperationException trae los errores por índice y el resultado parcial.
+     * Los elementos que no pasan la validación (BulkItemValidator) no se envían y se
+     * informan como INVALID.
+     */
+    @Override
+    public BulkUpdateResultDto updateUsers(List<BulkUpdateItemDto> items) {
+        log.debug("Actualizando {} usuarios en lotes de {}", items.size(), bulkChunkSize);
+        BulkUpdateResultDto result = new BulkUpdateResultDto(items.size());
+
+        for (int from = 0; from < items.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, items.size());
+
+            // 1. Elementos válidos y departamento actual de los usuarios que existen (clave: ID normalizado)
+            String[] violations = new String[to - from];
+            Set<String> lookup = new LinkedHashSet<>();
+            for (int i = from; i < to; i++) {
+                violations[i - from] = BulkItemValidator.violations(items.get(i));
+                String key = violations[i - from] == null ? normalizeId(items.get(i).getId()) : null;
+                if (key != null) {
+                    lookup.add(key);
+                }
+            }
+            Map<String, String> departments = new HashMap<>();
+            try {
+                if (!lookup.isEmpty()) {
+                    Query existing = Query.query(Criteria.where("_id").in(lookup));
+                    existing.fields().include("department");
+                    mongoTemplate.find(existing, User.class)
+                            .forEach(user -> departments.put(user.getId(), user.getDepartment()));
+                }
+            } catch (Exception e) {
+                log.error("Error en actualización masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                throw new RuntimeException("Error en actualización masiva: " + e.getMessage(), e);
+            }
+
+            // 2. Un updateOne por cada usuario que existe; writeIndex = posición en el lote (-1 = ninguna)
+            LocalDateTime now = LocalDateTime.now();
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            int writes = 0;
+            int[] writeIndex = new int[to - from];
+            for (int i = from; i < to; i++) {
+                writeIndex[i - from] = -1;
+                if (violations[i - from] != null) {
+                    continue;
+                }
+                BulkUpdateItemDto item = items.get(i);
+                String key = normalizeId(item.getId());
+                if (key != null && departments.containsKey(key)) {
+                    writeIndex[i - from] = writes++;
+                    ops.updateOne(Query.query(Criteria.where("_id").is(key)), buildUpdate(item.getUpdate(), now));
+                    localWrites.record(key);
+                }
+            }
+
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            if (writes > 0) {
+                try {
+                    BulkWriteResult written = ops.execute();
+                    result.addCounts(written.getMatchedCount(), written.getModifiedCount());
+                } catch (BulkOperationException e) {
+                    result.addCounts(e.getResult().getMatchedCount(), e.getResult().getModifiedCount());
+                    for (BulkWriteError error : e.getErrors()) {
+                        errors.put(error.getIndex(), error);
+                    }
+                } catch (Exception e) {
+                    log.error("Error en actualización masiva (lote {}-{}): {}", from, to, e.getMessage(), e);
+                    throw new RuntimeException("Error en actualización masiva: " + e.getMessage(), e);
+                }
+            }
+
+            // 3. Resultado por elemento, caché y contadores
+            for (int i = from; i < to; i++) {
+                BulkUpdateItemDto item = items.get(i);
+                if (violations[i - from] != null) {
+                    result.addInvalidItem(i, item != null ? item.getId() : null, violations[i - from]);
+                    continue;
+                }
+                String key = normalizeId(item.getId());
+                int write = writeIndex[i - from];
+                if (key == null) {
+                    result.addInvalid(i, item.getId());
+                } else if (write < 0) {
+                    result.addNotFound(i, item.getId());
+                } else if (errors.containsKey(write)) {
+                    BulkWriteError error = errors.get(write);
+                    if (MongoErrors.isDuplicateKey(error)) {
+                        result.addDuplicate(i, item.getId(), item.getUpdate().getEmail());
+                    } else {
+                        result.addFailed(i, item.getId(), error.getMessage());
+                    }
+                } else {
+                    result.addUpdated(i, item.getId());
+                    userCache.invalidate(key);
+                    facetIndex.userUpdated(key, item.getUpdate());
+                    String newDepartment = item.getUpdate().getDepartment();
+                    if (newDepartment != null) {
+                        // Se guarda el nuevo por si el mismo ID vuelve a aparecer en el lote
+                        countCache.userMoved(departments.put(key, newDepartment), newDepartment);
+                    }
+                }
+            }
+        }
+        if (result.getUpdated() > 0) {
+            textIndex.invalidate();
+        }
+
+        log.info("Actualización masiva completada: {}", result);
+        return result;
+    }
+
+    /**
+     * ACTUALIZACIÓN POR FILTRO CON updateMulti
+     * ========================================
+     * Spring Data MongoDB:
+     * UpdateResult result = mongoTemplate.updateMulti(
+     *     Query.query(Criteria.where("department").is("Ventas")),
+     *     new Update().set("department", "Comercial").set("updatedAt", now), User.class);
+     *
+     * Spring Data JPA:
+     * @Modifying @Query("UPDATE User u SET u.department = :to WHERE u.department = :from")
+     * int moveDepartment(String from, String to);
+     *
+     * Un solo updateMany en el servidor: no se cargan entidades ni se guardan una a una.
+     * Como con @Modifying en JPA, la caché de primer nivel (aquí UserCache) no se entera
+     * de qué usuarios han cambiado: se vacía, y si cambia el departamento los contadores
+     * se vuelven a sembrar. El email no se admite (es único) y el filtro debe tener
+     * algún criterio.
+     */
+    @Override
+    public BulkUpdateResultDto updateUsersByFilter(BulkUpdateByFilterDto request) {
+        log.debug("Actualizando usuarios por filtro: {}", request);
+        checkUpdateByFilter(request);
+        UserUpdateDto update = request.getUpdate();
+        try {
+            UpdateResult updated = mongoTemplate.updateMulti(
+                    buildSearchQuery(request.getFilter(), null), buildUpdate(update, LocalDateTime.now()), User.class);
+
+            if (updated.getMatchedCount() > 0) {
+                userCache.clear();
+                textIndex.invalidate();
+                facetIndex.invalidate();
+                if (update.getDepartment() != null) {
+                    countCache.invalidate();
+                }
+            }
+            BulkUpdateResultDto result = BulkUpdateResultDto.ofUpdateMany(updated.getMatchedCount(), updated.getModifiedCount());
+            log.info("Actualización por filtro completada: {}", result);
+            return result;
+        } catch (Exception e) {
+            log.error("Error en actualización por filtro: {}", e.getMessage(), e);
+            throw new RuntimeException("Error en actualización por filtro: " + e.getMessage(), e);
+        }
+    }
+
+    private static void checkUpdateByFilter(BulkUpdateByFilterDto request) {
+        if (!request.hasCriteria()) {
+            throw new InvalidBulkUpdateException("filter",
+                    "El filtro debe incluir name, department, role o active: sin criterios se actualizarían todos los usuarios");
+        }
+        if (request.getUpdate() == null || request.getUpdate().changedFields().isEmpty()) {
+            throw new InvalidBulkUpdateException("update", "No hay campos que actualizar");
+        }
+        if (request.getUpdate().getEmail() != null) {
+            throw new InvalidBulkUpdateException("update.email",
+                    "El email es único: no se puede asignar el mismo a varios usuarios");
+        }
+    }
+
+    /**
+     * $set con los campos informados del DTO + updatedAt.
+     */
+    private static Update buildUpdate(UserUpdateDto dto, LocalDateTime now) {
+        Update update = new Update();
+        dto.changedFields().forEach(update::set);
+        update.set("updatedAt", now);
+        return update;
+    }
+
+    /**
+     * ID en hexadecimal en minúsculas, o null si no es un ObjectId.
+     */
+    private static String normalizeId(String id) {
+        return id != null && ObjectId.isValid(id) ? new ObjectId(id).toHexString() : null;
+    }
+
     /**
      * EJEMPLO 4: ELIMINAR USUARIO CON SPRING DATA
      * ============================================
-     * Demuestra cómo Spring Data simplifica las eliminaciones.
+     * Un único findAndRemove: borra y devuelve el documento borrado (o null si no existía).
+     * La proyección limita la respuesta al departamento, que hace falta para descontarlo
+     * de los contadores.
      *
      * COMPARACIÓN CON JPA:
      * ====================
      * Spring Data MongoDB:
      * --------------------
-     * if (userRepository.existsById(id)) {
-     *     userRepository.deleteById(id);
-     *     return true;
-     * }
-     * return false;
+     * Query query = Query.query(Criteria.where("_id").is(id));
+     * query.fields().include("department");
+     * User deleted = mongoTemplate.findAndRemove(query, User.class);
+     * return deleted != null;
      *
      * Spring Data JPA:
      * ----------------
-     * if (userRepository.existsById(id)) {
-     *     userRepository.deleteById(id);
-     *     return true;
-     * }
-     * return false;
+     * String department = em.createNativeQuery(
+     *     "DELETE FROM users WHERE id = ? RETURNING department")
+     *     .setParameter(1, id).getSingleResult();   (PostgreSQL)
      *
-     * VENTAJAS vs API NATIVA:
-     * - No necesitas convertir String a ObjectId
-     * - No necesitas Filters.eq("_id", objectId)
-     * - No necesitas collection.deleteOne()
-     * - No necesitas verificar getDeletedCount()
-     * - existsById() + deleteById() es más legible
+     * POR QUÉ NO existsById() + deleteById():
+     * - Son dos round trips por cada borrado
+     * - Entre las dos llamadas otro hilo puede borrar el mismo usuario:
+     *   los dos ven existsById() == true y ambos responden "eliminado"
+     * - findAndRemove lo resuelve el servidor de forma atómica: solo una de dos
+     *   peticiones concurrentes recibe el documento, la otra recibe null
      *
-     * SIMILITUDES CON JPA:
-     * - Métodos idénticos: existsById(), deleteById()
-     * - Lógica idéntica: verificar existencia antes de eliminar
-     * - Retorna boolean indicando éxito
+     * SIMILITUDES CON LA API NATIVA:
+     * - Misma operación que collection.findOneAndDelete(Filters.eq("_id", objectId), options)
+     *   con una proyección (la nativa pide además active, para department_stats)
+     * - Spring Data convierte el String a ObjectId por nosotros
      *
      * COMPARACIÓN SQL:
-     * DELETE FROM users WHERE id = ?
-     *
-     * ALTERNATIVA (sin verificación previa):
-     * userRepository.deleteById(id);  // Lanza excepción si no existe
+     * DELETE FROM users WHERE id = ? RETURNING department
      */
     @Override
     public boolean deleteUser(String id) {
         log.debug("Eliminando usuario con ID: {}", id);
-        if (!userRepository.existsById(id)) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("department");
+        localWrites.record(id);
+        User deleted = mongoTemplate.findAndRemove(query, User.class);
+        userCache.invalidate(id);
+        textIndex.userDeleted(id);
+        facetIndex.userDeleted(id);
+
+        if (deleted == null) {
             log.warn("Usuario no encontrado para eliminar: {}", id);
             return false;
         }
-        userRepository.deleteById(id);
+        countCache.userDeleted(deleted.getDepartment());
         log.info("Usuario eliminado exitosamente: {}", id);
         return true;
     }
 
+    /**
+     * LISTAR TODOS (SELECT * FROM users)
+     * ==================================
+     * Spring Data MongoDB y Spring Data JPA: userRepository.findAll()
+     */
     @Override
     public List<User> findAll() {
-        // TODO: Implementar findAll() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Usar userRepository.findAll()
-        // 2. Es una sola línea de código
-        throw new UnsupportedOperationException("TODO: Implementar findAll() - Los estudiantes deben completar este método");
+        log.debug("Listando todos los usuarios");
+        return userRepository.findAll();
     }
 
+    /**
+     * QUERY METHOD DERIVADO DEL NOMBRE
+     * ================================
+     * findByDepartment(department) → { department: ? }
+     * En JPA el mismo método genera: SELECT u FROM User u WHERE u.department = ?1
+     */
     @Override
     public List<User> findUsersByDepartment(String department) {
-        // TODO: Implementar findUsersByDepartment() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Usar userRepository.findByDepartment(department)
-        // 2. El método ya está definido en UserRepository
-        throw new UnsupportedOperationException("TODO: Implementar findUsersByDepartment() - Los estudiantes deben completar este método");
+        log.debug("Buscando usuarios del departamento: {}", department);
+        return userRepository.findByDepartment(department);
     }
 
+    /**
+     * CONSULTAS CON PROYECCIÓN
+     * ========================
+     * Spring Data MongoDB:                          | Spring Data JPA:
+     * --------------------------------------------- | ---------------------------------------------
+     * query.fields().include("name", "department")  | interface UserSummary { String getName(); ... }
+     * mongoTemplate.find(query, Document.class,     | repository.findBy(..., UserSummary.class)
+     *     "users")                                  | o SELECT new UserSummary(u.name, ...) en JPQL
+     *
+     * Se lee como Document (no como User) para no construir la entidad completa:
+     * cada resultado es un mapa con los campos pedidos (UserProjection.toView).
+     */
+    @Override
+    public List<Map<String, Object>> findAll(UserProjection projection) {
+        log.debug("Listando todos los usuarios con {}", projection);
+        return findProjected(new Query(), projection);
+    }
+
+    @Override
+    public List<Map<String, Object>> findUsersByDepartment(String department, UserProjection projection) {
+        log.debug("Buscando usuarios del departamento {} con {}", department, projection);
+        return findProjected(departmentQuery(department), projection);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchUsers(UserQueryDto query, UserProjection projection) {
+        log.debug("Buscando usuarios con filtros: {} y {}", query, projection);
+        query.checkPaging();
+        if (query.getContinuationToken() == null) {
+            return findProjected(buildSearchQuery(query, null)
+                    .with(buildSort(query.resolveSortField(), query.isAscending()))
+                    .skip(query.getOffset())
+                    .limit(query.getSize()), projection);
+        }
+        // Con token: misma página que searchUsersPage, pero proyectada
+        ContinuationToken token = ContinuationToken.decode(query.getContinuationToken());
+        return findProjected(buildSearchQuery(query, token)
+                .with(buildSort(token.getSortField(), token.isAscending()))
+                .limit(query.getSize()), projection);
+    }
+
+    private List<Map<String, Object>> findProjected(Query mongoQuery, UserProjection projection) {
+        applyProjection(mongoQuery, projection);
+        List<Document> docs = mongoTemplate.find(mongoQuery, Document.class, mongoTemplate.getCollectionName(User.class));
+        List<Map<String, Object>> views = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            views.add(projection.toView(doc));
+        }
+        log.debug("Consulta proyectada completada: {} usuarios", views.size());
+        return views;
+    }
+
+    /**
+     * BÚSQUEDA CON CRITERIA API Y PAGINACIÓN POR OFFSET
+     * ================================================
+     * Spring Data MongoDB:
+     * Query query = new Query(Criteria.where("department").is("IT"))
+     *         .with(Sort.by("name")).skip(20).limit(10);
+     * mongoTemplate.find(query, User.class);
+     *
+     * Spring Data JPA:
+     * cb.equal(root.get("department"), "IT") + setFirstResult(20).setMaxResults(10)
+     *
+     * name se busca como prefijo de palabra sobre nameSearch (ver NameSearch), sin
+     * distinguir mayúsculas ni tildes; con nameMatch = CONTAINS, en cualquier posición.
+     *
+     * IMPORTANTE: skip(n) tiene coste O(n) en el servidor. Para recorrer páginas
+     * profundas usar searchUsersPage() (keyset).
+     */
     @Override
     public List<User> searchUsers(UserQueryDto query) {
-        // TODO: Implementar searchUsers() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Usar mongoTemplate con Query y Criteria
-        // 2. Construir criterios dinámicos: Criteria.where("campo").is(valor)
-        // 3. Para búsqueda parcial: Criteria.where("name").regex(query.getName(), "i")
-        // 4. Aplicar paginación con query.skip() y query.limit()
-        // 5. Aplicar ordenamiento con query.with(Sort.by(...))
-        throw new UnsupportedOperationException("TODO: Implementar searchUsers() - Los estudiantes deben completar este método");
+        log.debug("Buscando usuarios con filtros: {}", query);
+        query.checkPaging();
+        if (query.getContinuationToken() != null) {
+            return searchUsersPage(query).getContent();
+        }
+        Query mongoQuery = buildSearchQuery(query, null)
+                .with(buildSort(query.resolveSortField(), query.isAscending()))
+                .skip(query.getOffset())
+                .limit(query.getSize());
+        List<User> users = mongoTemplate.find(mongoQuery, User.class);
+        log.debug("Búsqueda completada: {} usuarios", users.size());
+        return users;
+    }
+
+    /**
+     * BÚSQUEDA FACETADA EN UNA SOLA AGREGACIÓN
+     * ========================================
+     * Mismo pipeline que NativeMongoUserServiceImpl.searchUsersFaceted(), con la API
+     * fluida de Aggregation:
+     *
+     * Aggregation.newAggregation(
+     *     match(filtros),
+     *     facet(sort(...), skip(20), limit(10)).as("users")
+     *         .and(count().as("count")).as("total")
+     *         .and(sortByCount("department")).as("departments")
+     *         .and(sortByCount("role")).as("roles")
+     *         .and(sortByCount("active")).as("active"))
+     *
+     * En Spring Data JPA harían falta varias consultas: la página (Pageable), el
+     * COUNT(*) y un "SELECT u.department, COUNT(u) ... GROUP BY u.department" por faceta.
+     */
+    @Override
+    public FacetedSearchResultDto searchUsersFaceted(UserQueryDto query) {
+        log.debug("Búsqueda facetada: {}", query);
+        query.checkPaging();
+        List<Criteria> criteria = searchCriteria(query);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria)),
+                Aggregation.facet(
+                                Aggregation.sort(buildSort(query.resolveSortField(), query.isAscending())),
+                                Aggregation.skip((long) query.getOffset()),
+                                Aggregation.limit(query.getSize())).as("users")
+                        .and(Aggregation.count().as("count")).as("total")
+                        .and(Aggregation.sortByCount("department")).as("departments")
+                        .and(Aggregation.sortByCount("role")).as("roles")
+                        .and(Aggregation.sortByCount("active")).as("active"));
+
+        Document result = mongoTemplate.aggregate(aggregation, User.class, Document.class).getUniqueMappedResult();
+        List<User> users = new ArrayList<>();
+        for (Document doc : result.getList("users", Document.class)) {
+            users.add(mongoTemplate.getConverter().read(User.class, doc));
+        }
+        List<Document> total = result.getList("total", Document.class);
+        Map<Boolean, Long> active = new LinkedHashMap<>();
+        for (Document doc : result.getList("active", Document.class)) {
+            if (doc.get("_id") instanceof Boolean value) {
+                active.put(value, ((Number) doc.get("count")).longValue());
+            }
+        }
+        UserFacetsDto facets = new UserFacetsDto(
+                total.isEmpty() ? 0 : ((Number) total.get(0).get("count")).longValue(),
+                toFacetCounts(result.getList("departments", Document.class)),
+                toFacetCounts(result.getList("roles", Document.class)),
+                active);
+        log.debug("Búsqueda facetada completada: {} usuarios de {}", users.size(), facets.getTotal());
+        return new FacetedSearchResultDto(users, query.getPage(), query.getSize(), facets);
+    }
+
+    /**
+     * Salida de $sortByCount ({ _id: valor, count: n }) como mapa ordenado; sin los null.
+     */
+    private Map<String, Long> toFacetCounts(List<Document> buckets) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Document bucket : buckets) {
+            if (bucket.get("_id") instanceof String value) {
+                counts.put(value, ((Number) bucket.get("count")).longValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * AUTOCOMPLETADO POR PREFIJO DE NOMBRE
+     * ====================================
+     * Spring Data MongoDB:                             | Spring Data JPA:
+     * ------------------------------------------------ | ----------------------------------------
+     * Query.query(Criteria.where("nameSearch")         | cb.like(root.get("nameSearch"), "garci%")
+     *         .regex("^garci")).limit(10)              | + setMaxResults(10)
+     *
+     * Sin sort, como en la API nativa: IXSCAN de nameSearch que se detiene en limit.
+     * findByNameContainingIgnoreCase (/garci/i sobre name) recorre toda la colección.
+     */
+    @Override
+    public List<User> findUsersByNamePrefix(String prefix, int limit) {
+        log.debug("Autocompletando nombres con prefijo: {}", prefix);
+        String regex = NameSearch.prefixRegex(prefix);
+        if (regex == null) {
+            return new ArrayList<>();
+        }
+        Query mongoQuery = Query.query(Criteria.where(NameSearch.FIELD).regex(regex))
+                .limit(NameSearch.clampLimit(limit));
+        return mongoTemplate.find(mongoQuery, User.class);
+    }
+
+    /**
+     * BÚSQUEDA DE TEXTO CON TextQuery
+     * ===============================
+     * Spring Data MongoDB:
+     * TextQuery.queryText(TextCriteria.forDefaultLanguage().matching("ana ventas"))
+     *         .includeScore("score").sortByScore()
+     *         .skip(page * size).limit(size + 1);
+     *
+     * Spring Data JPA (Hibernate Search):
+     * searchSession.search(User.class).where(f -> f.match().fields("name", "role")
+     *         .matching("ana ventas")).sort(f -> f.score()).fetch(page * size, size)
+     *
+     * Se lee como Document para conservar la puntuación (no es un campo de User).
+     * Si $text no está disponible responde el índice en memoria de UserTextIndex.
+     */
+    @Override
+    public TextSearchResultDto fullTextSearch(String text, int page, int size) {
+        log.debug("Búsqueda de texto: {} (página {}, tamaño {})", text, page, size);
+        int pageNumber = UserTextIndex.pageNumber(page);
+        int pageSize = UserTextIndex.pageSize(size);
+        if (textIndex.isTextIndexAvailable() && !UserTextIndex.terms(text).isEmpty()) {
+            try {
+                Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                        .includeScore(UserTextIndex.SCORE_FIELD)
+                        .sortByScore()
+                        .skip((long) pageNumber * pageSize)
+                        .limit(pageSize + 1);
+                List<Document> docs = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(User.class));
+                textIndex.textQueryExecuted();
+
+                List<TextSearchResultDto.Hit> hits = new ArrayList<>(pageSize);
+                for (Document doc : docs.subList(0, Math.min(pageSize, docs.size()))) {
+                    double score = ((Number) doc.get(UserTextIndex.SCORE_FIELD)).doubleValue();
+                    hits.add(new TextSearchResultDto.Hit(mongoTemplate.getConverter().read(User.class, doc), score));
+                }
+                return new TextSearchResultDto(text, TextSearchResultDto.Source.TEXT_INDEX, pageNumber, pageSize,
+                        hits, docs.size() > pageSize);
+            } catch (RuntimeException e) {
+                if (!MongoErrors.isIndexNotFound(e)) {
+                    throw e;
+                }
+                textIndex.textIndexMissing(e);
+            }
+        }
+        return textIndex.searchPage(text, pageNumber, pageSize, ids -> userCache.getAll(ids, missing -> {
+            Map<String, User> loaded = new HashMap<>();
+            userRepository.findAllById(missing).forEach(user -> loaded.put(user.getId(), user));
+            return loaded;
+        }));
+    }
+
+    /**
+     * RECUENTOS POR FACETA
+     * ====================
+     * Los recuentos salen de los bitmaps de UserFacetIndex (ver NativeMongoUserServiceImpl).
+     * Con filtro de nombre se piden a MongoDB solo los _id que lo cumplen, con un
+     * stream sobre el cursor: no se cargan todos en una lista.
+     *
+     * Spring Data:                                   | JPA:
+     * ---------------------------------------------- | ------------------------------------------
+     * mongoTemplate.stream(query con fields()        | em.createQuery("SELECT u.id FROM User u
+     *   .include("_id"), Document.class, "users")    |   WHERE u.nameSearch LIKE :p", String.class)
+     *                                                |   .getResultStream()
+     */
+    @Override
+    public UserFacetsDto searchFacets(UserQueryDto query) {
+        log.debug("Calculando facetas: {}", query);
+        try {
+            if (query.getName() == null || query.getName().isBlank()) {
+                return facetIndex.facets(query, null);
+            }
+            Query idQuery = Query.query(nameCriteria(query.getName(), query.getNameMatch()));
+            idQuery.fields().include("_id");
+            try (Stream<Document> ids = mongoTemplate.stream(idQuery, Document.class,
+                    mongoTemplate.getCollectionName(User.class))) {
+                Iterable<String> nameMatches = ids.map(doc -> doc.getObjectId("_id").toHexString())::iterator;
+                return facetIndex.facets(query, nameMatches);
+            }
+        } catch (Exception e) {
+            log.error("Error al calcular facetas: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al buscar usuarios: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * BÚSQUEDA CON PAGINACIÓN POR KEYSET (SEEK)
+     * =========================================
+     * Misma estrategia que en la API nativa: filtro de rango sobre (campo, _id)
+     * a partir del ContinuationToken en lugar de skip().
+     *
+     * Se consulta como Document para poder construir el token con los valores BSON
+     * originales (Date, ObjectId) y después se convierte a User con el MongoConverter.
+     */
+    @Override
+    public UserPageDto searchUsersPage(UserQueryDto query) {
+        log.debug("Buscando usuarios por keyset: {}", query);
+        query.checkPaging();
+        ContinuationToken token = query.getContinuationToken() != null
+                ? ContinuationToken.decode(query.getContinuationToken())
+                : null;
+        String sortField = token != null ? token.getSortField() : query.resolveKeysetSortField();
+        boolean ascending = token != null ? token.isAscending() : query.isAscending();
+        int size = query.getSize();
+
+        Query mongoQuery = buildSearchQuery(query, token)
+                .with(buildSort(sortField, ascending))
+                .limit(size + 1);
+        List<Document> docs = mongoTemplate.find(mongoQuery, Document.class, mongoTemplate.getCollectionName(User.class));
+
+        boolean hasMore = docs.size() > size;
+        List<Document> pageDocs = hasMore ? docs.subList(0, size) : docs;
+        List<User> users = new ArrayList<>(pageDocs.size());
+        for (Document doc : pageDocs) {
+            users.add(mongoTemplate.getConverter().read(User.class, doc));
+        }
+
+        String nextToken = hasMore
+                ? ContinuationToken.fromLastDocument(pageDocs.get(pageDocs.size() - 1), sortField, ascending).encode()
+                : null;
+        log.debug("Página keyset completada: {} usuarios, hay más: {}", users.size(), hasMore);
+        return new UserPageDto(users, nextToken);
+    }
+
+    private Query applyProjection(Query mongoQuery, UserProjection projection) {
+        List<String> documentFields = projection.documentFields();
+        if (documentFields.isEmpty()) {
+            // Sin campos incluidos la proyección estaría vacía y devolvería el documento entero
+            mongoQuery.fields().include("_id");
+        } else {
+            mongoQuery.fields().include(documentFields.toArray(new String[0]));
+            if (!projection.includesId()) {
+                mongoQuery.fields().exclude("_id");
+            }
+        }
+        return mongoQuery;
+    }
+
+    private Query departmentQuery(String department) {
+        return Query.query(Criteria.where("department").is(department));
+    }
+
+    private Query buildSearchQuery(UserQueryDto query, ContinuationToken token) {
+        List<Criteria> criteria = searchCriteria(query);
+        if (token != null) {
+            String field = token.getSortField();
+            Criteria after = token.isAscending()
+                    ? Criteria.where(field).gt(token.getLastValue())
+                    : Criteria.where(field).lt(token.getLastValue());
+            Criteria tie = token.isAscending()
+                    ? Criteria.where("_id").gt(token.getLastId())
+                    : Criteria.where("_id").lt(token.getLastId());
+            criteria.add(new Criteria().orOperator(
+                    after,
+                    new Criteria().andOperator(Criteria.where(field).is(token.getLastValue()), tie)));
+        }
+        return criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+    }
+
+    private List<Criteria> searchCriteria(UserQueryDto query) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (query.getName() != null && !query.getName().isBlank()) {
+            criteria.add(nameCriteria(query.getName(), query.getNameMatch()));
+        }
+        if (query.getDepartment() != null && !query.getDepartment().isBlank()) {
+            criteria.add(Criteria.where("department").is(query.getDepartment()));
+        }
+        if (query.getRole() != null && !query.getRole().isBlank()) {
+            criteria.add(Criteria.where("role").is(query.getRole()));
+        }
+        if (query.getActive() != null) {
+            criteria.add(Criteria.where("active").is(query.getActive()));
+        }
+        return criteria;
+    }
+
+    /**
+     * name sobre nameSearch (ver NameSearch): PREFIX → /^texto/ (rango del índice),
+     * CONTAINS → /texto/ (recorre todas las entradas del índice).
+     * Un texto sin letras ni dígitos no encuentra a nadie ($in vacío).
+     */
+    private Criteria nameCriteria(String name, UserQueryDto.NameMatch match) {
+        String regex = match == UserQueryDto.NameMatch.CONTAINS
+                ? NameSearch.containsRegex(name)
+                : NameSearch.prefixRegex(name);
+        return regex != null
+                ? Criteria.where(NameSearch.FIELD).regex(regex)
+                : Criteria.where(NameSearch.FIELD).in(List.of());
+    }
+
+    private Sort buildSort(String sortField, boolean ascending) {
+        // _id como desempate garantiza un orden total (necesario para keyset)
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, sortField, "_id");
+    }
+
+    /**
+     * Formas de las consultas de este servicio, para GET /api/admin/explain.
+     * Se construyen con los mismos helpers que las consultas reales y se traducen
+     * a BSON con el QueryMapper de Spring Data (el mismo paso que hace MongoTemplate
+     * antes de enviar la consulta: nombres de propiedad → campos, String → ObjectId).
+     */
+    @Override
+    public List<QueryShape> queryShapes(String department) {
+        UserQueryDto activeInDepartment = new UserQueryDto();
+        activeInDepartment.setDepartment(department);
+        activeInDepartment.setActive(true);
+
+        UserQueryDto byName = new UserQueryDto();
+        byName.setName("a");
+
+        UserQueryDto byNameContains = new UserQueryDto();
+        byNameContains.setName("a");
+        byNameContains.setNameMatch(UserQueryDto.NameMatch.CONTAINS);
+
+        return List.of(
+                toShape("findUserById", Query.query(Criteria.where("_id").is(new ObjectId().toHexString())).limit(1)),
+                toShape("findUsersByDepartment", departmentQuery(department)),
+                toShape("findUsersByDepartment?fields=department,name",
+                        applyProjection(departmentQuery(department), UserProjection.parse("department,name"))),
+                toShape("searchUsers(department, active) sort name", buildSearchQuery(activeInDepartment, null)
+                        .with(buildSort(activeInDepartment.resolveSortField(), activeInDepartment.isAscending()))
+                        .limit(activeInDepartment.getSize())),
+                toShape("searchUsers(name) sort name", buildSearchQuery(byName, null)
+                        .with(buildSort(byName.resolveSortField(), byName.isAscending()))
+                        .limit(byName.getSize())),
+                toShape("searchUsers(name, CONTAINS) sort name", buildSearchQuery(byNameContains, null)
+                        .with(buildSort(byNameContains.resolveSortField(), byNameContains.isAscending()))
+                        .limit(byNameContains.getSize())),
+                toShape("findUsersByNamePrefix",
+                        Query.query(nameCriteria("a", UserQueryDto.NameMatch.PREFIX)).limit(10)),
+                toShape("searchUsersPage sort name (página siguiente)",
+                        buildSearchQuery(new UserQueryDto(), new ContinuationToken("name", true, "M", new ObjectId()))
+                                .with(buildSort("name", true)).limit(UserQueryDto.MAX_PAGE_SIZE + 1)),
+                toShape("searchUsersPage sort createdAt DESC (página siguiente)",
+                        buildSearchQuery(new UserQueryDto(),
+                                new ContinuationToken("createdAt", false, new Date(), new ObjectId()))
+                                .with(buildSort("createdAt", false)).limit(UserQueryDto.MAX_PAGE_SIZE + 1)));
+    }
+
+    private QueryShape toShape(String operation, Query query) {
+        QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(User.class);
+        Document sort = query.getSortObject();
+        Document fields = query.getFieldsObject();
+        return new QueryShape(operation,
+                mapper.getMappedObject(query.getQueryObject(), entity),
+                sort.isEmpty() ? null : mapper.getMappedSort(sort, entity),
+                fields.isEmpty() ? null : mapper.getMappedFields(fields, entity),
+                query.getLimit());
     }
 
     @Override
     public long countByDepartment(String department) {
-        // TODO: Implementar countByDepartment() - Los estudiantes deben completar este método
-        // PISTAS:
-        // 1. Usar userRepository.countByDepartment(department)
-        // 2. El método ya está definido en UserRepository
-        throw new UnsupportedOperationException("TODO: Implementar countByDepartment() - Los estudiantes deben completar este método");
+        return countUsersByDepartment(department).getCount();
+    }
+
+    /**
+     * CONTAR CON UN QUERY METHOD
+     * ==========================
+     * userRepository.countByDepartment(department) → db.users.countDocuments({ department: ? })
+     * En JPA el mismo método genera: SELECT COUNT(u) FROM User u WHERE u.department = ?1
+     *
+     * Con la caché de contadores activa (DepartmentCountCache) se responde desde memoria
+     * y la respuesta indica la antigüedad del número (asOf, ageMs, maxStalenessMs).
+     */
+    @Override
+    public UserCountDto countUsersByDepartment(String department) {
+        log.debug("Contando usuarios del departamento: {}", department);
+        if (countCache.isEnabled()) {
+            return countCache.count(department);
+        }
+        return UserCountDto.now(department, userRepository.countByDepartment(department), UserCountDto.Source.COUNT);
+    }
+
+    /**
+     * Total de usuarios: mongoTemplate.estimatedCount() (metadatos de la colección,
+     * sin recorrerla) si está configurado; si no, la caché de contadores o
+     * userRepository.count() (SELECT COUNT(*) FROM users).
+     */
+    @Override
+    public UserCountDto countUsers() {
+        if (countCache.isEstimatedTotal()) {
+            return UserCountDto.now(null, mongoTemplate.estimatedCount(User.class), UserCountDto.Source.ESTIMATED);
+        }
+        if (countCache.isEnabled()) {
+            return countCache.countAll();
+        }
+        return UserCountDto.now(null, userRepository.count(), UserCountDto.Source.COUNT);
+    }
+
+    /**
+     * AGGREGATION CON SPRING DATA
+     * ===========================
+     * Mismo pipeline que NativeMongoUserServiceImpl.getStatsByDepartment(),
+     * construido con la API fluida de Aggregation en lugar de Aggregates/Accumulators:
+     *
+     * Aggregation.newAggregation(
+     *     group("department").count().as("totalUsers")
+     *         .sum(when(active == true).then(1).otherwise(0)).as("activeUsers"),
+     *     sort(DESC, "totalUsers"))
+     *
+     * Equivalente SQL:
+     * SELECT department, COUNT(*), SUM(CASE WHEN active THEN 1 ELSE 0 END)
+     * FROM users GROUP BY department ORDER BY 2 DESC
+     */
+    @Override
+    public List<DepartmentStatsDto> getStatsByDepartment() {
+        log.debug("Obteniendo estadísticas por departamento con Spring Data Aggregation");
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("department")
+                        .count().as("totalUsers")
+                        .sum(ConditionalOperators.when(Criteria.where("active").is(true)).then(1).otherwise(0))
+                        .as("activeUsers"),
+                Aggregation.sort(Sort.Direction.DESC, "totalUsers"));
+
+        List<DepartmentStatsDto> stats = new ArrayList<>();
+        for (Document doc : mongoTemplate.aggregate(aggregation, User.class, Document.class)) {
+            stats.add(new DepartmentStatsDto(
+                    doc.getString("_id"),
+                    ((Number) doc.get("totalUsers")).longValue(),
+                    ((Number) doc.get("activeUsers")).longValue()));
+        }
+        log.info("Estadísticas por departamento obtenidas: {} departamentos", stats.size());
+        return stats;
     }
 }
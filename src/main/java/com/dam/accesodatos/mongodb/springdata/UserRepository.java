@@ -100,6 +100,9 @@ public interface UserRepository extends MongoRepository<User, String> {
      * - StartingWith: LIKE valor%
      * - EndingWith: LIKE %valor
      * - Between, LessThan, GreaterThan: comparaciones
+     *
+     * Un $regex sin ancla y con la opción i no puede usar el índice de name: recorre
+     * toda la colección. Para buscar desde la API se usa nameSearch (ver NameSearch).
      */
     List<User> findByNameContainingIgnoreCase(String name);
 }
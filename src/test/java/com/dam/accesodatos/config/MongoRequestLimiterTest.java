@@ -0,0 +1,107 @@
+package com.dam.accesodatos.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+    properties = {
+        "spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration",
+        "app.mongodb.request-permits=1",
+        "app.mongodb.request-permit-wait-ms=100"
+    }
+)
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = MongoInMemoryInitializer.class)
+@DisplayName("MongoRequestLimiter Tests")
+class MongoRequestLimiterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MongoRequestLimiter limiter;
+
+    @AfterEach
+    void checkNoPermitLeaked() {
+        assertThat(limiter.snapshot().get("inUse")).isEqualTo(0);
+    }
+
+    @Nested
+    @DisplayName("Sin permiso libre")
+    class Busy {
+
+        @Test
+        @DisplayName("Responde 503 con Retry-After si no hay permiso a tiempo")
+        void request_NoPermit_Returns503WithRetryAfter() throws Exception {
+            assertThat(limiter.acquire()).isTrue();
+            try {
+                mockMvc.perform(get("/api/native/users"))
+                        .andExpect(status().isServiceUnavailable())
+                        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+                assertThat((Long) limiter.snapshot().get("rejected")).isPositive();
+            } finally {
+                limiter.release();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Devolución del permiso")
+    class Release {
+
+        @Test
+        @DisplayName("Una petición síncrona devuelve el permiso al terminar")
+        void request_Completed_ReleasesPermit() throws Exception {
+            mockMvc.perform(get("/api/native/users")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/springdata/users")).andExpect(status().isOk());
+
+            assertThat(limiter.snapshot().get("inUse")).isEqualTo(0);
+        }
+
+        @Test
+        @DisplayName("/users/stream conserva el permiso hasta el despacho ASYNC")
+        void stream_KeepsPermitUntilAsyncDispatch() throws Exception {
+            MvcResult result = mockMvc.perform(get("/api/native/users/stream"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            result.getAsyncResult();
+
+            assertThat(limiter.snapshot().get("inUse")).isEqualTo(1);
+            mockMvc.perform(get("/api/native/users")).andExpect(status().isServiceUnavailable());
+
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+            assertThat(limiter.snapshot().get("inUse")).isEqualTo(0);
+        }
+
+        @Test
+        @DisplayName("Si el AsyncContext se completa sin despacho ASYNC el permiso se devuelve una sola vez")
+        void stream_AsyncContextCompleted_ReleasesPermitOnce() throws Exception {
+            MvcResult result = mockMvc.perform(get("/api/native/users/stream"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            result.getAsyncResult();
+
+            result.getRequest().getAsyncContext().complete();
+            assertThat(limiter.snapshot().get("inUse")).isEqualTo(0);
+
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+            assertThat(limiter.snapshot().get("inUse")).isEqualTo(0);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserServiceImpl;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(
+    properties = "spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration"
+)
+@ContextConfiguration(initializers = MongoInMemoryInitializer.class)
+@DisplayName("SyntheticDataGenerator Tests")
+class SyntheticDataGeneratorTest {
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Autowired
+    private NativeMongoUserServiceImpl nativeService;
+
+    @Autowired
+    private SpringDataUserServiceImpl springDataService;
+
+    @Autowired
+    private UserTextIndex textIndex;
+
+    @Autowired
+    private UserFacetIndex facetIndex;
+
+    @Autowired
+    private DepartmentCountCache countCache;
+
+    /**
+     * Generador sobre una base de datos propia (los índices se recrean en la de la aplicación,
+     * así que aquí solo queda lo que la carga no ha eliminado).
+     */
+    private SyntheticDataGenerator generator(String database, int users, int threads, boolean createIndexes) {
+        return new SyntheticDataGenerator(mongoClient, database, users, "IT:30,HR:10", 0.1, 42, 100, threads,
+                createIndexes, nativeService, springDataService, textIndex, facetIndex, countCache);
+    }
+
+    private String uniqueDatabase() {
+        return "synthetic_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private MongoCollection<Document> usersOf(String database) {
+        return mongoClient.getDatabase(database).getCollection("users");
+    }
+
+    @Nested
+    @DisplayName("Pesos por departamento")
+    class DepartmentWeights {
+
+        @Test
+        @DisplayName("Debe leer departamento:peso, con peso 1 por defecto y sumando repetidos")
+        void parseWeights_ValidSpec() {
+            Map<String, Double> weights = SyntheticDataGenerator.parseWeights(" IT:30 , HR , Sales:2.5,,IT:10");
+
+            assertThat(weights).containsExactly(Map.entry("IT", 40.0), Map.entry("HR", 1.0), Map.entry("Sales", 2.5));
+        }
+
+        @Test
+        @DisplayName("Debe rechazar pesos no numéricos, no positivos, departamentos vacíos y listas vacías")
+        void parseWeights_InvalidSpec_Throws() {
+            for (String spec : List.of("IT:abc", "IT:", "IT:0", "IT:-1", ":5", "", " , ")) {
+                assertThatThrownBy(() -> SyntheticDataGenerator.parseWeights(spec))
+                        .as(spec)
+                        .isInstanceOf(IllegalArgumentException.class);
+            }
+        }
+
+        @Test
+        @DisplayName("Cada punto de [0, peso total) cae en su tramo, también en los extremos")
+        void departmentAt_Bounds() {
+            SyntheticDataGenerator generator = generator(uniqueDatabase(), 0, 1, false);
+
+            assertThat(generator.departmentAt(0)).isEqualTo("IT");
+            assertThat(generator.departmentAt(Math.nextDown(30.0))).isEqualTo("IT");
+            assertThat(generator.departmentAt(30.0)).isEqualTo("HR");
+            assertThat(generator.departmentAt(Math.nextDown(40.0))).isEqualTo("HR");
+            assertThat(generator.departmentAt(40.0)).isEqualTo("HR");
+        }
+    }
+
+    @Nested
+    @DisplayName("Carga")
+    class Load {
+
+        private List<Document> documents(String database) {
+            return usersOf(database).find()
+                    .projection(Projections.excludeId())
+                    .sort(Sorts.ascending("email"))
+                    .into(new ArrayList<>());
+        }
+
+        @Test
+        @DisplayName("Misma semilla = mismos usuarios con cualquier número de hilos")
+        void load_SameSeed_SameDocumentsAnyThreadCount() {
+            String single = uniqueDatabase();
+            String parallel = uniqueDatabase();
+
+            assertThat(generator(single, 1050, 1, false).load()).isEqualTo(1050);
+            assertThat(generator(parallel, 1050, 4, false).load()).isEqualTo(1050);
+
+            List<Document> expected = documents(single);
+            assertThat(expected).hasSize(1050)
+                    .allSatisfy(doc -> assertThat(doc.getString("department")).isIn("IT", "HR"));
+            assertThat(documents(parallel)).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("Solo elimina los índices no únicos que se recrean: el de email, updatedAt y los manuales se mantienen")
+        void load_KeepsUniqueAndForeignIndexes() {
+            String database = uniqueDatabase();
+            MongoCollection<Document> users = usersOf(database);
+            users.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true).name("email"));
+            users.createIndex(Indexes.ascending("nameSearch"), new IndexOptions().name("nameSearch"));
+            users.createIndex(Indexes.ascending("updatedAt"), new IndexOptions().name("updatedAt"));
+            users.createIndex(Indexes.ascending("role"), new IndexOptions().name("manual_role"));
+
+            assertThat(generator(database, 200, 2, true).load()).isEqualTo(200);
+
+            List<String> indexes = users.listIndexes().map(index -> index.getString("name")).into(new ArrayList<>());
+            assertThat(indexes).contains("_id_", "email", "updatedAt", "manual_role").doesNotContain("nameSearch");
+
+            // Los mismos emails otra vez: el insertMany desordenado informa de los duplicados sin abortar
+            assertThat(generator(database, 200, 2, true).load()).isZero();
+            assertThat(users.countDocuments()).isEqualTo(200);
+        }
+    }
+}
@@ -1,26 +1,67 @@
 package com.dam.accesodatos.mongodb.nativeapi;
 
 import com.dam.accesodatos.config.MongoInMemoryInitializer;
+import com.dam.accesodatos.exception.BatchTooLargeException;
 import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidBulkUpdateException;
+import com.dam.accesodatos.exception.InvalidContinuationTokenException;
+import com.dam.accesodatos.exception.InvalidPageRequestException;
+import com.dam.accesodatos.exception.InvalidProjectionException;
 import com.dam.accesodatos.exception.InvalidUserIdException;
 import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
 import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.QueryShape;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserChangeEvent;
+import com.dam.accesodatos.mongodb.UserChangeStream;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.springdata.SpringDataUserService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest(
@@ -33,6 +74,27 @@ class NativeMongoUserServiceTest {
     @Autowired
     private NativeMongoUserService service;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DepartmentStatsView departmentStats;
+
+    @Autowired
+    private SpringDataUserService springDataService;
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Autowired
+    private DepartmentCountCache countCache;
+
+    @Autowired
+    private LocalUserWrites localWrites;
+
+    @Value("${spring.data.mongodb.database}")
+    private String databaseName;
+
     private String uniqueEmail() {
         return "test-" + UUID.randomUUID().toString().substring(0, 8) + "@test.com";
     }
@@ -73,7 +135,6 @@ class NativeMongoUserServiceTest {
 
         @Test
         @DisplayName("Debe lanzar DuplicateEmailException con email duplicado")
-        @org.junit.jupiter.api.Disabled("Requiere índice único en MongoDB - funciona en producción pero no en MongoDB embebido sin configuración adicional")
         void createUser_DuplicateEmail_ThrowsException() {
             String duplicateEmail = uniqueEmail();
             UserCreateDto dto1 = new UserCreateDto("User 1", duplicateEmail, "IT", "Dev");
@@ -86,6 +147,110 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Create Users (Bulk)")
+    class CreateUsersBulk {
+
+        @Test
+        @DisplayName("Debe crear todos los usuarios del lote y devolver un resultado por elemento")
+        void createUsers_ValidBatch_CreatesEveryItem() {
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk 1", uniqueEmail(), "IT", "Dev"),
+                    new UserCreateDto("Bulk 2", uniqueEmail(), "HR", "Manager"),
+                    new UserCreateDto("Bulk 3", uniqueEmail(), "Sales", "Representative"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getRequested()).isEqualTo(3);
+            assertThat(result.getCreated()).isEqualTo(3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2);
+            assertThat(result.getItems()).allMatch(item ->
+                    item.getStatus() == BulkCreateResultDto.ItemStatus.CREATED && item.getId() != null);
+            assertThat(service.findUserById(result.getItems().get(1).getId()).getEmail())
+                    .isEqualTo(dtos.get(1).getEmail());
+        }
+
+        @Test
+        @DisplayName("Debe marcar emails duplicados sin abortar el lote")
+        void createUsers_DuplicateEmail_MarksItemAndContinues() {
+            String duplicateEmail = uniqueEmail();
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk A", duplicateEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk B", duplicateEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk C", uniqueEmail(), "IT", "Dev"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getDuplicates()).isEqualTo(1);
+            assertThat(result.getItems().get(1).getStatus()).isEqualTo(BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL);
+        }
+
+        @Test
+        @DisplayName("Debe marcar como INVALID los elementos que no pasan la validación (y los nulos) sin abortar el lote")
+        void createUsers_InvalidItems_MarksItemsAndContinues() {
+            List<UserCreateDto> dtos = Arrays.asList(
+                    new UserCreateDto("Bulk Valid", uniqueEmail(), "IT", "Dev"),
+                    new UserCreateDto("Bulk Bad Email", "no-es-un-email", "IT", "Dev"),
+                    null,
+                    new UserCreateDto("X", uniqueEmail(), "", "Dev"),
+                    new UserCreateDto("Bulk After", uniqueEmail(), "HR", "Manager"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getInvalid()).isEqualTo(3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2, 3, 4);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getStatus)
+                    .containsExactly(BulkCreateResultDto.ItemStatus.CREATED,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.CREATED);
+            assertThat(result.getItems().get(1).getError()).contains("email");
+            assertThat(result.getItems().get(3).getError()).contains("name", "department");
+            assertThat(service.findUserById(result.getItems().get(4).getId()).getEmail())
+                    .isEqualTo(dtos.get(4).getEmail());
+        }
+
+        @Test
+        @DisplayName("Debe informar por elemento del E11000, contra emails existentes y repetidos en el lote")
+        void createUsers_DuplicateEmails_ReportsEachItem() {
+            String existingEmail = uniqueEmail();
+            service.createUser(new UserCreateDto("Existing", existingEmail, "IT", "Dev"));
+            String repeatedEmail = uniqueEmail();
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk Existing", existingEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk First", repeatedEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk Repeated", repeatedEmail, "HR", "Manager"),
+                    new UserCreateDto("Bulk After", uniqueEmail(), "Sales", "Representative"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getRequested()).isEqualTo(4);
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getDuplicates()).isEqualTo(2);
+            assertThat(result.getFailed()).isZero();
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2, 3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getStatus)
+                    .containsExactly(BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL,
+                            BulkCreateResultDto.ItemStatus.CREATED,
+                            BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL,
+                            BulkCreateResultDto.ItemStatus.CREATED);
+            assertThat(result.getItems().get(0).getId()).isNull();
+            assertThat(result.getItems().get(0).getError()).contains(existingEmail);
+            assertThat(result.getItems().get(2).getEmail()).isEqualTo(repeatedEmail);
+
+            // El duplicado no aborta el lote: el elemento posterior se ha insertado
+            assertThat(service.findUserById(result.getItems().get(3).getId()).getEmail())
+                    .isEqualTo(dtos.get(3).getEmail());
+            assertThat(service.findUserById(result.getItems().get(1).getId()).getName()).isEqualTo("Bulk First");
+        }
+    }
+
     @Nested
     @DisplayName("Find User By ID")
     class FindUserById {
@@ -125,10 +290,118 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Find Users By Ids")
+    class FindUsersByIds {
+
+        @Test
+        @DisplayName("Debe devolver los resultados en el orden pedido, con fallos e IDs inválidos por elemento")
+        void findUsersByIds_MixedIds_ReturnsResultPerIdInOrder() {
+            User first = service.createUser(new UserCreateDto("Batch 1", uniqueEmail(), "IT", "Dev"));
+            User second = service.createUser(new UserCreateDto("Batch 2", uniqueEmail(), "HR", "Dev"));
+            userCache.clear();
+            String missing = new ObjectId().toHexString();
+
+            BatchGetResultDto result = service.findUsersByIds(
+                    List.of(second.getId(), "not-an-id", missing, first.getId(), second.getId().toUpperCase()));
+
+            assertThat(result.getRequested()).isEqualTo(5);
+            assertThat(result.getFound()).isEqualTo(3);
+            assertThat(result.getNotFound()).isEqualTo(1);
+            assertThat(result.getInvalid()).isEqualTo(1);
+            assertThat(result.getItems()).extracting(BatchGetResultDto.ItemResult::getStatus).containsExactly(
+                    BatchGetResultDto.ItemStatus.FOUND,
+                    BatchGetResultDto.ItemStatus.INVALID_ID,
+                    BatchGetResultDto.ItemStatus.NOT_FOUND,
+                    BatchGetResultDto.ItemStatus.FOUND,
+                    BatchGetResultDto.ItemStatus.FOUND);
+            assertThat(result.getItems().get(0).getUser().getEmail()).isEqualTo(second.getEmail());
+            assertThat(result.getItems().get(3).getUser().getEmail()).isEqualTo(first.getEmail());
+            assertThat(result.getItems().get(4).getUser().getId()).isEqualTo(second.getId());
+        }
+
+        @Test
+        @DisplayName("Debe rechazar peticiones con más IDs que el máximo configurado")
+        void findUsersByIds_TooManyIds_Throws() {
+            List<String> ids = Collections.nCopies(101, new ObjectId().toHexString());
+
+            assertThatThrownBy(() -> service.findUsersByIds(ids))
+                    .isInstanceOf(BatchTooLargeException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("User Cache")
+    class UserCacheBehaviour {
+
+        private long hits() {
+            return (long) userCache.snapshot().get("hits");
+        }
+
+        @Test
+        @DisplayName("Las lecturas repetidas por ID se sirven desde la caché")
+        void findUserById_RepeatedReads_HitCache() {
+            User created = service.createUser(new UserCreateDto("Cache Native", uniqueEmail(), "IT", "Dev"));
+            long hitsBefore = hits();
+
+            service.findUserById(created.getId());
+            service.findUserById(created.getId());
+
+            assertThat(hits() - hitsBefore).isGreaterThanOrEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Modificar el usuario devuelto no altera la caché")
+        void findUserById_MutatingResult_DoesNotAffectCache() {
+            User created = service.createUser(new UserCreateDto("Cache Native", uniqueEmail(), "IT", "Dev"));
+
+            service.findUserById(created.getId()).setName("Modificado en memoria");
+
+            assertThat(service.findUserById(created.getId()).getName()).isEqualTo("Cache Native");
+        }
+
+        @Test
+        @DisplayName("updateUser refresca la entrada cacheada")
+        void updateUser_RefreshesCachedUser() {
+            User created = service.createUser(new UserCreateDto("Cache Native", uniqueEmail(), "IT", "Dev"));
+            service.findUserById(created.getId());
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setRole("Lead");
+            service.updateUser(created.getId(), dto);
+
+            assertThat(service.findUserById(created.getId()).getRole()).isEqualTo("Lead");
+        }
+
+        @Test
+        @DisplayName("deleteUser invalida la entrada cacheada")
+        void deleteUser_InvalidatesCachedUser() {
+            User created = service.createUser(new UserCreateDto("Cache Native", uniqueEmail(), "IT", "Dev"));
+            service.findUserById(created.getId());
+
+            service.deleteUser(created.getId());
+
+            assertThatThrownBy(() -> service.findUserById(created.getId()))
+                    .isInstanceOf(UserNotFoundException.class);
+        }
+    }
+
     @Nested
     @DisplayName("Update User")
     class UpdateUser {
 
+        @Test
+        @DisplayName("Debe lanzar DuplicateEmailException al actualizar con un email ya registrado")
+        void updateUser_DuplicateEmail_ThrowsException() {
+            User first = service.createUser(new UserCreateDto("Dup Update 1", uniqueEmail(), "IT", "Dev"));
+            User second = service.createUser(new UserCreateDto("Dup Update 2", uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setEmail(first.getEmail());
+
+            assertThatThrownBy(() -> service.updateUser(second.getId(), dto))
+                    .isInstanceOf(DuplicateEmailException.class);
+        }
+
         @Test
         @DisplayName("Debe actualizar usuario existente")
         void updateUser_ValidData_ReturnsUpdatedUser() {
@@ -157,6 +430,160 @@ class NativeMongoUserServiceTest {
             assertThatThrownBy(() -> service.updateUser(nonExistingId, dto))
                     .isInstanceOf(UserNotFoundException.class);
         }
+
+        @Test
+        @DisplayName("Solo modifica los campos informados y actualiza updatedAt")
+        void updateUser_PartialUpdate_KeepsOtherFields() {
+            String email = uniqueEmail();
+            User created = service.createUser(new UserCreateDto("Partial Update", email, "IT", "Dev"));
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setActive(false);
+            User updated = service.updateUser(created.getId(), dto);
+
+            assertThat(updated.getActive()).isFalse();
+            assertThat(updated.getName()).isEqualTo("Partial Update");
+            assertThat(updated.getEmail()).isEqualTo(email);
+            assertThat(updated.getRole()).isEqualTo("Dev");
+            assertThat(updated.getUpdatedAt()).isAfterOrEqualTo(created.getUpdatedAt());
+            assertThat(service.findUserById(created.getId()).getActive()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe lanzar InvalidUserIdException al actualizar con ID inválido")
+        void updateUser_InvalidId_ThrowsException() {
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setName("New Name");
+
+            assertThatThrownBy(() -> service.updateUser("invalid-id", dto))
+                    .isInstanceOf(InvalidUserIdException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk Update")
+    class BulkUpdate {
+
+        private UserUpdateDto departmentUpdate(String department) {
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setDepartment(department);
+            return dto;
+        }
+
+        @Test
+        @DisplayName("Debe aplicar los cambios de cada elemento y marcar los que fallan")
+        void updateUsers_MixedItems_ReturnsResultPerItem() {
+            String from = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User first = service.createUser(new UserCreateDto("Bulk Update 1", uniqueEmail(), from, "Dev"));
+            User second = service.createUser(new UserCreateDto("Bulk Update 2", uniqueEmail(), from, "Dev"));
+            UserUpdateDto duplicateEmail = new UserUpdateDto();
+            duplicateEmail.setEmail(first.getEmail());
+
+            BulkUpdateResultDto result = service.updateUsers(List.of(
+                    new BulkUpdateItemDto(first.getId(), departmentUpdate(to)),
+                    new BulkUpdateItemDto("not-an-id", departmentUpdate(to)),
+                    new BulkUpdateItemDto(new ObjectId().toHexString(), departmentUpdate(to)),
+                    new BulkUpdateItemDto(second.getId(), duplicateEmail)));
+
+            assertThat(result.getItems()).extracting(BulkUpdateResultDto.ItemResult::getStatus).containsExactly(
+                    BulkUpdateResultDto.ItemStatus.UPDATED,
+                    BulkUpdateResultDto.ItemStatus.INVALID_ID,
+                    BulkUpdateResultDto.ItemStatus.NOT_FOUND,
+                    BulkUpdateResultDto.ItemStatus.DUPLICATE_EMAIL);
+            assertThat(result.getMatched()).isEqualTo(1);
+            assertThat(result.getUpdated()).isEqualTo(1);
+            assertThat(service.findUserById(first.getId()).getDepartment()).isEqualTo(to);
+            assertThat(service.findUserById(second.getId()).getEmail()).isEqualTo(second.getEmail());
+            assertThat(service.countUsersByDepartment(from).getCount()).isEqualTo(1);
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe marcar como INVALID los elementos que no pasan la validación (y los nulos) sin abortar el lote")
+        void updateUsers_InvalidItems_MarksItemsAndContinues() {
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User user = service.createUser(new UserCreateDto("Bulk Invalid 1", uniqueEmail(), "IT", "Dev"));
+            User untouched = service.createUser(new UserCreateDto("Bulk Invalid 2", uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto badEmail = new UserUpdateDto();
+            badEmail.setEmail("no-es-un-email");
+
+            BulkUpdateResultDto result = service.updateUsers(Arrays.asList(
+                    new BulkUpdateItemDto(untouched.getId(), badEmail),
+                    null,
+                    new BulkUpdateItemDto(untouched.getId(), null),
+                    new BulkUpdateItemDto(user.getId(), departmentUpdate(to))));
+
+            assertThat(result.getItems()).extracting(BulkUpdateResultDto.ItemResult::getStatus).containsExactly(
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.UPDATED);
+            assertThat(result.getInvalidItems()).isEqualTo(3);
+            assertThat(result.getItems().get(0).getError()).contains("update.email");
+            assertThat(result.getItems().get(2).getError()).contains("update");
+            assertThat(result.getMatched()).isEqualTo(1);
+            assertThat(service.findUserById(untouched.getId()).getEmail()).isEqualTo(untouched.getEmail());
+            assertThat(service.findUserById(user.getId()).getDepartment()).isEqualTo(to);
+        }
+
+        @Test
+        @DisplayName("Debe actualizar todos los usuarios que cumplen el filtro en una operación")
+        void updateUsersByFilter_MovesWholeDepartment() {
+            String from = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User cached = service.createUser(new UserCreateDto("Bulk Filter 1", uniqueEmail(), from, "Dev"));
+            service.createUser(new UserCreateDto("Bulk Filter 2", uniqueEmail(), from, "Dev"));
+            service.findUserById(cached.getId());
+
+            UserQueryDto filter = new UserQueryDto();
+            filter.setDepartment(from);
+            BulkUpdateResultDto result = service.updateUsersByFilter(new BulkUpdateByFilterDto(filter, departmentUpdate(to)));
+
+            assertThat(result.getMatched()).isEqualTo(2);
+            assertThat(result.getModified()).isEqualTo(2);
+            assertThat(service.findUserById(cached.getId()).getDepartment()).isEqualTo(to);
+            assertThat(service.countUsersByDepartment(from).getCount()).isZero();
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar filtros vacíos y cambios de email")
+        void updateUsersByFilter_InvalidRequest_Throws() {
+            UserUpdateDto email = new UserUpdateDto();
+            email.setEmail(uniqueEmail());
+            UserQueryDto filter = new UserQueryDto();
+            filter.setDepartment("IT");
+
+            assertThatThrownBy(() -> service.updateUsersByFilter(
+                    new BulkUpdateByFilterDto(new UserQueryDto(), departmentUpdate("HR"))))
+                    .isInstanceOf(InvalidBulkUpdateException.class);
+            assertThatThrownBy(() -> service.updateUsersByFilter(new BulkUpdateByFilterDto(filter, email)))
+                    .isInstanceOf(InvalidBulkUpdateException.class);
+        }
+
+        @Test
+        @DisplayName("Debe recontar las estadísticas de los departamentos afectados")
+        void updateUsersByFilter_MovesDepartmentStats() {
+            String from = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            service.createUsers(List.of(
+                    new UserCreateDto("Bulk Stats 1", uniqueEmail(), from, "Dev"),
+                    new UserCreateDto("Bulk Stats 2", uniqueEmail(), from, "Dev")));
+
+            UserQueryDto filter = new UserQueryDto();
+            filter.setDepartment(from);
+            UserUpdateDto update = new UserUpdateDto();
+            update.setDepartment(to);
+            service.updateUsersByFilter(new BulkUpdateByFilterDto(filter, update));
+
+            assertThat(service.getStatsByDepartment())
+                    .noneMatch(stat -> from.equals(stat.getDepartment()))
+                    .anySatisfy(stat -> {
+                        assertThat(stat.getDepartment()).isEqualTo(to);
+                        assertThat(stat.getTotalUsers()).isEqualTo(2);
+                    });
+        }
     }
 
     @Nested
@@ -194,10 +621,79 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Projections")
+    class ProjectedQueries {
+
+        @Test
+        @DisplayName("Solo devuelve los campos pedidos")
+        void findUsersByDepartment_WithProjection_ReturnsOnlyRequestedFields() {
+            String department = "Proj-" + UUID.randomUUID().toString().substring(0, 8);
+            User created = service.createUser(new UserCreateDto("Projection Native", uniqueEmail(), department, "Dev"));
+
+            List<Map<String, Object>> views = service.findUsersByDepartment(department,
+                    UserProjection.parse("name,id,department"));
+
+            assertThat(views).hasSize(1);
+            assertThat(views.get(0)).containsOnlyKeys("id", "name", "department");
+            assertThat(views.get(0)).containsEntry("id", created.getId())
+                    .containsEntry("name", "Projection Native");
+        }
+
+        @Test
+        @DisplayName("Sin id en fields no se devuelve el _id")
+        void findAll_WithoutId_ExcludesId() {
+            service.createUser(new UserCreateDto("Projection Native", uniqueEmail(), "IT", "Dev"));
+
+            List<Map<String, Object>> views = service.findAll(UserProjection.parse("name"));
+
+            assertThat(views).isNotEmpty();
+            assertThat(views).allSatisfy(view -> assertThat(view).containsOnlyKeys("name"));
+        }
+
+        @Test
+        @DisplayName("Solo id devuelve únicamente el identificador")
+        void searchUsers_OnlyId_ReturnsIds() {
+            service.createUser(new UserCreateDto("Projection Only Id Native", uniqueEmail(), "IT", "Dev"));
+            UserQueryDto query = new UserQueryDto();
+            query.setName("Projection Only Id Native");
+
+            List<Map<String, Object>> views = service.searchUsers(query, UserProjection.parse("id"));
+
+            assertThat(views).hasSize(1);
+            assertThat(views.get(0)).containsOnlyKeys("id");
+        }
+
+        @Test
+        @DisplayName("Debe rechazar campos que no existen en User")
+        void parse_UnknownField_ThrowsException() {
+            assertThatThrownBy(() -> UserProjection.parse("name,password"))
+                    .isInstanceOf(InvalidProjectionException.class)
+                    .hasMessageContaining("password");
+        }
+    }
+
     @Nested
     @DisplayName("Search Users")
     class SearchUsers {
 
+        @Test
+        @DisplayName("Debe rechazar size fuera de [1, MAX_PAGE_SIZE] y page negativo")
+        void searchUsers_InvalidPaging_ThrowsException() {
+            UserQueryDto zeroSize = new UserQueryDto();
+            zeroSize.setSize(0);
+            UserQueryDto tooLarge = new UserQueryDto();
+            tooLarge.setSize(UserQueryDto.MAX_PAGE_SIZE + 1);
+            UserQueryDto negativePage = new UserQueryDto();
+            negativePage.setPage(-1);
+
+            assertThatThrownBy(() -> service.searchUsers(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsersPage(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsersFaceted(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsers(tooLarge)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsers(negativePage)).isInstanceOf(InvalidPageRequestException.class);
+        }
+
         @Test
         @DisplayName("Debe buscar usuarios por nombre parcial")
         void searchUsers_ByName_ReturnsMatchingUsers() {
@@ -264,6 +760,63 @@ class NativeMongoUserServiceTest {
             assertThat(results.size()).isLessThanOrEqualTo(3);
         }
 
+        @Test
+        @DisplayName("Debe recorrer todas las páginas con token de continuación sin repetir usuarios")
+        void searchUsersPage_WithContinuationToken_VisitsEveryUserOnce() {
+            String department = "Keyset-" + UUID.randomUUID().toString().substring(0, 8);
+            for (int i = 0; i < 7; i++) {
+                // Nombres repetidos para forzar el desempate por _id
+                service.createUser(new UserCreateDto("Keyset " + (i % 3), uniqueEmail(), department, "Dev"));
+            }
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(department);
+            query.setSize(3);
+
+            List<String> visitedIds = new java.util.ArrayList<>();
+            List<String> visitedNames = new java.util.ArrayList<>();
+            UserPageDto page;
+            do {
+                page = service.searchUsersPage(query);
+                page.getContent().forEach(user -> {
+                    visitedIds.add(user.getId());
+                    visitedNames.add(user.getName());
+                });
+                query.setContinuationToken(page.getNextToken());
+            } while (page.getNextToken() != null);
+
+            assertThat(visitedIds).hasSize(7).doesNotHaveDuplicates();
+            assertThat(visitedNames).isSorted();
+        }
+
+        @Test
+        @DisplayName("Debe lanzar InvalidContinuationTokenException con token corrupto")
+        void searchUsersPage_InvalidToken_ThrowsException() {
+            UserQueryDto query = new UserQueryDto();
+            query.setContinuationToken("no-es-un-token");
+
+            assertThatThrownBy(() -> service.searchUsersPage(query))
+                    .isInstanceOf(InvalidContinuationTokenException.class);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar un token con valor no escalar, nulo o campo sin índice keyset")
+        void searchUsersPage_TokenWithOperatorOrNullValue_ThrowsException() {
+            String id = new ObjectId().toHexString();
+            for (String json : List.of(
+                    "{\"f\": \"name\", \"a\": true, \"v\": {\"$ne\": null}, \"id\": {\"$oid\": \"" + id + "\"}}",
+                    "{\"f\": \"name\", \"a\": true, \"v\": null, \"id\": {\"$oid\": \"" + id + "\"}}",
+                    "{\"f\": \"role\", \"a\": true, \"v\": \"Dev\", \"id\": {\"$oid\": \"" + id + "\"}}")) {
+                UserQueryDto query = new UserQueryDto();
+                query.setContinuationToken(Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(json.getBytes(StandardCharsets.UTF_8)));
+
+                assertThatThrownBy(() -> service.searchUsersPage(query))
+                        .as(json)
+                        .isInstanceOf(InvalidContinuationTokenException.class);
+            }
+        }
+
         @Test
         @DisplayName("Debe combinar múltiples filtros")
         void searchUsers_MultipleFilters_ReturnsMatchingUsers() {
@@ -287,6 +840,273 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Name Search")
+    class NameSearchQueries {
+
+        private String uniqueTag() {
+            return "t" + UUID.randomUUID().toString().substring(0, 8);
+        }
+
+        @Test
+        @DisplayName("Debe encontrar por prefijo de cualquier palabra sin distinguir mayúsculas ni tildes")
+        void searchUsers_ByNamePrefix_IgnoresCaseAndAccents() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("José García-Pérez " + tag, uniqueEmail(), "IT", "Dev"));
+
+            for (String text : List.of("JOSE garcía pérez " + tag, "garcia-PEREZ " + tag, "pérez " + tag, tag.toUpperCase())) {
+                UserQueryDto query = new UserQueryDto();
+                query.setName(text);
+
+                assertThat(service.searchUsers(query)).extracting(User::getId).containsExactly(created.getId());
+            }
+        }
+
+        @Test
+        @DisplayName("Debe buscar en mitad de palabra solo con nameMatch CONTAINS")
+        void searchUsers_ByNameInsideWord_RequiresContains() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("Maximiliano " + tag, uniqueEmail(), "IT", "Dev"));
+
+            UserQueryDto query = new UserQueryDto();
+            query.setName("miliano " + tag);
+            assertThat(service.searchUsers(query)).isEmpty();
+
+            query.setNameMatch(UserQueryDto.NameMatch.CONTAINS);
+            assertThat(service.searchUsers(query)).extracting(User::getId).containsExactly(created.getId());
+        }
+
+        @Test
+        @DisplayName("Debe recalcular nameSearch al cambiar el nombre")
+        void updateUser_Name_RefreshesNameSearch() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("Antiguo " + tag, uniqueEmail(), "IT", "Dev"));
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setName("Nuevo " + tag);
+            service.updateUser(created.getId(), update);
+
+            Document stored = mongoClient.getDatabase(databaseName).getCollection("users")
+                    .find(Filters.eq("_id", new ObjectId(created.getId()))).first();
+            assertThat(stored.getList("nameSearch", String.class)).containsExactly("nuevo " + tag, tag);
+            assertThat(service.findUsersByNamePrefix("antiguo " + tag, 10)).isEmpty();
+            assertThat(service.findUsersByNamePrefix("nuevo " + tag, 10))
+                    .extracting(User::getId).containsExactly(created.getId());
+        }
+
+        @Test
+        @DisplayName("Debe limitar el autocompletado y no buscar sin letras ni dígitos")
+        void findUsersByNamePrefix_RespectsLimit() {
+            String tag = uniqueTag();
+            for (int i = 0; i < 3; i++) {
+                service.createUser(new UserCreateDto("Autocompletar " + tag + " " + i, uniqueEmail(), "IT", "Dev"));
+            }
+
+            assertThat(service.findUsersByNamePrefix(tag, 2)).hasSize(2);
+            assertThat(service.findUsersByNamePrefix("autocompletar " + tag, 100)).hasSize(3);
+            assertThat(service.findUsersByNamePrefix(" -- ", 10)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Debe calcular nameSearch en documentos insertados sin él")
+        void backfillNameSearch_FillsMissingField() {
+            String tag = uniqueTag();
+            ObjectId id = new ObjectId();
+            mongoClient.getDatabase(databaseName).getCollection("users").insertOne(new Document("_id", id)
+                    .append("name", "Ñandú " + tag)
+                    .append("email", uniqueEmail())
+                    .append("department", "IT")
+                    .append("active", true));
+
+            assertThat(((NativeMongoUserServiceImpl) service).backfillNameSearch()).isGreaterThanOrEqualTo(1);
+            assertThat(service.findUsersByNamePrefix("nandu " + tag, 10))
+                    .extracting(User::getId).containsExactly(id.toHexString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Full Text Search")
+    class FullTextSearch {
+
+        @Test
+        @DisplayName("Debe ordenar por relevancia: name pesa más que role y role más que department")
+        void fullTextSearch_RanksByFieldWeight() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            User byDepartment = service.createUser(new UserCreateDto("Carmen Ruiz", uniqueEmail(), tag, "Dev"));
+            User byName = service.createUser(new UserCreateDto("Lucía " + tag, uniqueEmail(), "IT", "Dev"));
+            User byRole = service.createUser(new UserCreateDto("Pedro Gil", uniqueEmail(), "IT", "Analista " + tag));
+
+            TextSearchResultDto result = service.fullTextSearch(tag.toUpperCase(), 0, 10);
+
+            assertThat(result.getSource()).isEqualTo(TextSearchResultDto.Source.MEMORY_INDEX);
+            assertThat(result.getHits()).extracting(hit -> hit.getUser().getId())
+                    .containsExactly(byName.getId(), byRole.getId(), byDepartment.getId());
+            assertThat(result.getHits().get(0).getScore()).isGreaterThan(result.getHits().get(1).getScore());
+            assertThat(result.isHasMore()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe paginar los resultados")
+        void fullTextSearch_Paginates() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            for (int i = 0; i < 3; i++) {
+                service.createUser(new UserCreateDto("Texto " + tag + " " + i, uniqueEmail(), "IT", "Dev"));
+            }
+
+            TextSearchResultDto first = service.fullTextSearch(tag, 0, 2);
+            TextSearchResultDto second = service.fullTextSearch(tag, 1, 2);
+
+            assertThat(first.getHits()).hasSize(2);
+            assertThat(first.isHasMore()).isTrue();
+            assertThat(second.getHits()).hasSize(1);
+            assertThat(second.isHasMore()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe acotar una página enorme sin desbordar page × size")
+        void fullTextSearch_HugePage_IsBounded() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            service.createUser(new UserCreateDto("Texto " + tag, uniqueEmail(), "IT", "Dev"));
+
+            TextSearchResultDto result = service.fullTextSearch(tag, Integer.MAX_VALUE, UserTextIndex.MAX_PAGE_SIZE);
+
+            assertThat(result.getPage()).isEqualTo(UserTextIndex.MAX_PAGE);
+            assertThat(result.getHits()).isEmpty();
+            assertThat(result.isHasMore()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe reflejar altas, cambios y bajas posteriores a la construcción del índice")
+        void fullTextSearch_FollowsWrites() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            User created = service.createUser(new UserCreateDto("Ramón " + tag, uniqueEmail(), "IT", "Dev"));
+            assertThat(service.fullTextSearch("ramon " + tag, 0, 10).getHits()).hasSize(1);
+
+            User added = service.createUser(new UserCreateDto("Otra " + tag, uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto update = new UserUpdateDto();
+            update.setName("Ramón Sin Etiqueta");
+            service.updateUser(created.getId(), update);
+
+            assertThat(service.fullTextSearch(tag, 0, 10).getHits())
+                    .extracting(hit -> hit.getUser().getId()).containsExactly(added.getId());
+
+            service.deleteUser(added.getId());
+            assertThat(service.fullTextSearch(tag, 0, 10).getHits()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Facets")
+    class SearchFacets {
+
+        @Test
+        @DisplayName("Debe contar cada faceta con el resto de filtros")
+        void searchFacets_CountsEachFacetWithOtherFilters() {
+            String tag = "f" + UUID.randomUUID().toString().substring(0, 8);
+            String dev = "Dev " + tag;
+            String qa = "QA " + tag;
+            service.createUser(new UserCreateDto("Ana Facetas", uniqueEmail(), tag, dev));
+            User inactive = service.createUser(new UserCreateDto("Luis Facetas", uniqueEmail(), tag, dev));
+            service.createUser(new UserCreateDto("Eva Facetas", uniqueEmail(), tag, qa));
+            UserUpdateDto deactivate = new UserUpdateDto();
+            deactivate.setActive(false);
+            service.updateUser(inactive.getId(), deactivate);
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(tag);
+            UserFacetsDto byDepartment = service.searchFacets(query);
+
+            assertThat(byDepartment.getTotal()).isEqualTo(3);
+            assertThat(byDepartment.getRoles()).containsExactly(Map.entry(dev, 2L), Map.entry(qa, 1L));
+            assertThat(byDepartment.getActive()).containsExactly(Map.entry(true, 2L), Map.entry(false, 1L));
+
+            query.setRole(dev);
+            UserFacetsDto byRole = service.searchFacets(query);
+
+            assertThat(byRole.getTotal()).isEqualTo(2);
+            assertThat(byRole.getDepartments()).containsExactly(Map.entry(tag, 2L));
+            assertThat(byRole.getRoles()).containsExactly(Map.entry(dev, 2L), Map.entry(qa, 1L));
+            assertThat(byRole.getActive()).containsExactly(Map.entry(true, 1L), Map.entry(false, 1L));
+        }
+
+        @Test
+        @DisplayName("Debe combinar el filtro de nombre y reflejar cambios y bajas")
+        void searchFacets_FiltersByNameAndFollowsWrites() {
+            String tag = "f" + UUID.randomUUID().toString().substring(0, 8);
+            User moved = service.createUser(new UserCreateDto("Íñigo " + tag, uniqueEmail(), tag, "Dev"));
+            User deleted = service.createUser(new UserCreateDto("Irene " + tag, uniqueEmail(), tag, "Dev"));
+            service.createUser(new UserCreateDto("Otro " + tag, uniqueEmail(), tag, "Dev"));
+
+            UserQueryDto query = new UserQueryDto();
+            query.setName("i");
+            query.setDepartment(tag);
+            assertThat(service.searchFacets(query).getTotal()).isEqualTo(2);
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setDepartment(tag + "-2");
+            service.updateUser(moved.getId(), update);
+            service.deleteUser(deleted.getId());
+
+            query.setDepartment(null);
+            query.setName(tag);
+            UserFacetsDto facets = service.searchFacets(query);
+
+            assertThat(facets.getTotal()).isEqualTo(2);
+            assertThat(facets.getDepartments()).containsOnly(Map.entry(tag, 1L), Map.entry(tag + "-2", 1L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Faceted Search")
+    class FacetedSearch {
+
+        @Test
+        @DisplayName("Debe devolver la página, el total y los recuentos en una sola búsqueda")
+        void searchUsersFaceted_ReturnsPageTotalAndCounts() {
+            String tag = "g" + UUID.randomUUID().toString().substring(0, 8);
+            service.createUser(new UserCreateDto("Ana Facetada", uniqueEmail(), tag, "Dev"));
+            User inactive = service.createUser(new UserCreateDto("Bea Facetada", uniqueEmail(), tag, "Dev"));
+            service.createUser(new UserCreateDto("Carla Facetada", uniqueEmail(), tag, "QA"));
+            UserUpdateDto deactivate = new UserUpdateDto();
+            deactivate.setActive(false);
+            service.updateUser(inactive.getId(), deactivate);
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(tag);
+            query.setFaceted(true);
+            query.setSize(2);
+            FacetedSearchResultDto first = service.searchUsersFaceted(query);
+
+            assertThat(first.getUsers()).extracting(User::getName).containsExactly("Ana Facetada", "Bea Facetada");
+            assertThat(first.getFacets().getTotal()).isEqualTo(3);
+            assertThat(first.getFacets().getDepartments()).containsExactly(Map.entry(tag, 3L));
+            assertThat(first.getFacets().getRoles()).containsExactly(Map.entry("Dev", 2L), Map.entry("QA", 1L));
+            assertThat(first.getFacets().getActive()).containsExactly(Map.entry(true, 2L), Map.entry(false, 1L));
+
+            query.setPage(1);
+            FacetedSearchResultDto second = service.searchUsersFaceted(query);
+
+            assertThat(second.getUsers()).extracting(User::getName).containsExactly("Carla Facetada");
+            assertThat(second.getFacets().getTotal()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Debe devolver total 0 y recuentos vacíos sin coincidencias")
+        void searchUsersFaceted_NoMatches_ReturnsEmptyCounts() {
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment("g" + UUID.randomUUID());
+            query.setFaceted(true);
+
+            FacetedSearchResultDto result = service.searchUsersFaceted(query);
+
+            assertThat(result.getUsers()).isEmpty();
+            assertThat(result.getFacets().getTotal()).isZero();
+            assertThat(result.getFacets().getDepartments()).isEmpty();
+            assertThat(result.getFacets().getRoles()).isEmpty();
+            assertThat(result.getFacets().getActive()).isEmpty();
+        }
+    }
+
     @Nested
     @DisplayName("Get Stats By Department")
     class GetStatsByDepartment {
@@ -325,6 +1145,212 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Materialized Department Stats")
+    class MaterializedDepartmentStats {
+
+        private String uniqueDepartment() {
+            return "Stats-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+
+        private DepartmentStatsDto statsOf(String department) {
+            return service.getStatsByDepartment().stream()
+                    .filter(stat -> department.equals(stat.getDepartment()))
+                    .findFirst().orElse(null);
+        }
+
+        @Test
+        @DisplayName("Debe contar los usuarios creados, individualmente y en bloque")
+        void create_IncrementsDepartmentCounters() {
+            String department = uniqueDepartment();
+            service.createUser(new UserCreateDto("Stats User 1", uniqueEmail(), department, "Dev"));
+            service.createUsers(List.of(
+                    new UserCreateDto("Stats User 2", uniqueEmail(), department, "Dev"),
+                    new UserCreateDto("Stats User 3", uniqueEmail(), department, "Dev")));
+
+            DepartmentStatsDto stats = statsOf(department);
+
+            assertThat(stats).isNotNull();
+            assertThat(stats.getTotalUsers()).isEqualTo(3);
+            assertThat(stats.getActiveUsers()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Debe mover el usuario al cambiar de departamento o de estado")
+        void update_MovesUserBetweenCounters() {
+            String from = uniqueDepartment();
+            String to = uniqueDepartment();
+            User created = service.createUser(new UserCreateDto("Stats Move", uniqueEmail(), from, "Dev"));
+            service.createUser(new UserCreateDto("Stats Stay", uniqueEmail(), from, "Dev"));
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setDepartment(to);
+            dto.setActive(false);
+            User updated = service.updateUser(created.getId(), dto);
+
+            assertThat(updated.getDepartment()).isEqualTo(to);
+            assertThat(updated.getActive()).isFalse();
+            userCache.clear();
+            assertThat(service.findUserById(created.getId()).getUpdatedAt()).isEqualTo(updated.getUpdatedAt());
+            assertThat(statsOf(from).getTotalUsers()).isEqualTo(1);
+            assertThat(statsOf(to).getTotalUsers()).isEqualTo(1);
+            assertThat(statsOf(to).getActiveUsers()).isEqualTo(0);
+        }
+
+        @Test
+        @DisplayName("Debe descontar los usuarios borrados y ocultar departamentos vacíos")
+        void delete_DecrementsDepartmentCounters() {
+            String department = uniqueDepartment();
+            User created = service.createUser(new UserCreateDto("Stats Delete", uniqueEmail(), department, "Dev"));
+
+            assertThat(service.deleteUser(created.getId())).isTrue();
+
+            assertThat(statsOf(department)).isNull();
+        }
+
+        @Test
+        @DisplayName("La reconciliación detecta y corrige escrituras que no pasan por la API nativa")
+        void reconcile_ReportsAndFixesDrift() {
+            String department = uniqueDepartment();
+            service.createUser(new UserCreateDto("Stats Native", uniqueEmail(), department, "Dev"));
+            springDataService.createUser(new UserCreateDto("Stats Spring", uniqueEmail(), department, "Dev"));
+            assertThat(statsOf(department).getTotalUsers()).isEqualTo(1);
+
+            Map<String, Object> report = departmentStats.reconcile();
+
+            assertThat((List<?>) report.get("drift")).anySatisfy(entry ->
+                    assertThat((Map<?, ?>) entry).containsEntry("department", department)
+                            .containsEntry("expectedTotalUsers", 2L)
+                            .containsEntry("actualTotalUsers", 1L));
+            assertThat(statsOf(department).getTotalUsers()).isEqualTo(2);
+            assertThat(departmentStats.lastReconciliation()).isSameAs(report);
+        }
+
+        private MongoCollection<Document> users() {
+            return mongoClient.getDatabase(databaseName).getCollection("users");
+        }
+
+        @Test
+        @DisplayName("Un alta externa recibida por el change stream se suma con un $inc, sin recontar")
+        void changeEvent_ExternalInsert_AppliesDelta() {
+            String department = uniqueDepartment();
+            Document external = new Document("name", "Stats External").append("email", uniqueEmail())
+                    .append("department", department).append("active", true).append("createdAt", new Date());
+            users().insertOne(external);
+
+            departmentStats.onUserChange(new UserChangeEvent(UserChangeEvent.Type.INSERT,
+                    external.getObjectId("_id").toHexString(), external));
+            departmentStats.flushPendingChanges();
+
+            assertThat(statsOf(department).getTotalUsers()).isEqualTo(1);
+            assertThat(statsOf(department).getActiveUsers()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Ecos propios, borrados y cambios de departamento no recuentan: quedan para la reconciliación")
+        void changeEvent_EchoMoveOrDelete_LeftToReconciliation() {
+            String from = uniqueDepartment();
+            String to = uniqueDepartment();
+            User moved = service.createUser(new UserCreateDto("Stats External Move", uniqueEmail(), from, "Dev"));
+            User deleted = service.createUser(new UserCreateDto("Stats External Delete", uniqueEmail(), from, "Dev"));
+            Map<String, Object> lastReport = departmentStats.lastReconciliation();
+            Document echo = users().find(Filters.eq("_id", new ObjectId(moved.getId()))).first();
+            users().updateOne(Filters.eq("_id", new ObjectId(moved.getId())), Updates.set("department", to));
+            users().deleteOne(Filters.eq("_id", new ObjectId(deleted.getId())));
+
+            UserChangeEvent move = new UserChangeEvent(UserChangeEvent.Type.UPDATE, moved.getId(),
+                    users().find(Filters.eq("_id", new ObjectId(moved.getId()))).first(), Set.of("department", "updatedAt"));
+            assertThat(move.mayHaveChanged("department")).isTrue();
+            assertThat(new UserChangeEvent(UserChangeEvent.Type.UPDATE, moved.getId(), move.document(), Set.of("role"))
+                    .mayHaveChanged("department")).isFalse();
+            departmentStats.onUserChange(new UserChangeEvent(UserChangeEvent.Type.INSERT, moved.getId(), echo)
+                    .withLocalWrite(UserChangeEvent.LocalWrite.WITH_STATS));
+            departmentStats.onUserChange(move);
+            departmentStats.onUserChange(new UserChangeEvent(UserChangeEvent.Type.DELETE, deleted.getId(), null));
+            departmentStats.flushPendingChanges();
+
+            assertThat(statsOf(from).getTotalUsers()).isEqualTo(2);
+            assertThat(statsOf(to)).isNull();
+            assertThat(departmentStats.lastReconciliation()).isSameAs(lastReport);
+
+            departmentStats.reconcile();
+            assertThat(statsOf(from)).isNull();
+            assertThat(statsOf(to).getTotalUsers()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Un alta que ya contó la última reconciliación no se suma otra vez")
+        void changeEvent_InsertBeforeReconcile_NotCountedTwice() {
+            String department = uniqueDepartment();
+            Date anHourAgo = new Date(System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+            Document external = new Document("name", "Stats Reconciled").append("email", uniqueEmail())
+                    .append("department", department).append("active", false).append("createdAt", anHourAgo);
+            users().insertOne(external);
+            departmentStats.reconcile();
+
+            departmentStats.onUserChange(new UserChangeEvent(UserChangeEvent.Type.INSERT,
+                    external.getObjectId("_id").toHexString(), external));
+            departmentStats.flushPendingChanges();
+
+            assertThat(statsOf(department).getTotalUsers()).isEqualTo(1);
+            assertThat(statsOf(department).getActiveUsers()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("User Change Stream")
+    class UserChangeStreamPolling {
+
+        @Test
+        @DisplayName("Un cambio hecho fuera del servicio invalida la caché (polling sobre updatedAt)")
+        void externalWrite_InvalidatesCachedUser() {
+            List<UserChangeEvent> events = new CopyOnWriteArrayList<>();
+            // Sin las anotaciones del servicio: la escritura directa no debe tomarse por propia
+            UserChangeStream changeStream = new UserChangeStream(mongoClient, databaseName,
+                    List.of(userCache, events::add), LocalUserWrites.disabled(), true,
+                    UserChangeStream.Mode.POLLING, 10, 50, 1000);
+            changeStream.start();
+            try {
+                User created = service.createUser(new UserCreateDto("Change Stream", uniqueEmail(), "IT", "Dev"));
+                service.findUserById(created.getId());
+
+                // Escritura directa en MongoDB, como la haría otra instancia o un proceso batch
+                mongoClient.getDatabase(databaseName).getCollection("users").updateOne(
+                        Filters.eq("_id", new ObjectId(created.getId())),
+                        Updates.combine(Updates.set("role", "Batch"), Updates.set("updatedAt", new Date())));
+
+                await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                        assertThat(service.findUserById(created.getId()).getRole()).isEqualTo("Batch"));
+                assertThat(events).anyMatch(event -> created.getId().equals(event.userId()));
+            } finally {
+                changeStream.stop();
+            }
+        }
+
+        @Test
+        @DisplayName("El eco de una escritura del servicio llega marcado como local y no invalida la caché")
+        void localWrite_EchoKeepsCachedUser() {
+            List<UserChangeEvent> events = new CopyOnWriteArrayList<>();
+            UserChangeStream changeStream = new UserChangeStream(mongoClient, databaseName,
+                    List.of(userCache, events::add), localWrites, true, UserChangeStream.Mode.POLLING, 10, 50, 1000);
+            changeStream.start();
+            try {
+                User created = service.createUser(new UserCreateDto("Local Echo", uniqueEmail(), "IT", "Dev"));
+
+                await().atMost(Duration.ofSeconds(5)).until(() ->
+                        events.stream().anyMatch(event -> created.getId().equals(event.userId())));
+                assertThat(events).filteredOn(event -> created.getId().equals(event.userId()))
+                        .allMatch(event -> event.localWrite() == UserChangeEvent.LocalWrite.WITH_STATS);
+
+                long hits = (Long) userCache.snapshot().get("hits");
+                service.findUserById(created.getId());
+                assertThat((Long) userCache.snapshot().get("hits")).isEqualTo(hits + 1);
+            } finally {
+                changeStream.stop();
+            }
+        }
+    }
+
     @Nested
     @DisplayName("Find All Users")
     class FindAllUsers {
@@ -347,6 +1373,21 @@ class NativeMongoUserServiceTest {
             assertThat(users).isNotNull();
             assertThat(users.size()).isGreaterThanOrEqualTo(2);
         }
+
+        @Test
+        @DisplayName("Debe recorrer todos los usuarios en streaming con lotes pequeños")
+        void streamAll_SmallBatches_DeliversEveryUser() {
+            String email = uniqueEmail();
+            service.createUser(new UserCreateDto("Stream User", email, "IT", "Dev"));
+            service.createUser(new UserCreateDto("Stream User 2", uniqueEmail(), "HR", "Manager"));
+
+            List<User> streamed = new java.util.ArrayList<>();
+            long count = service.streamAll(1, streamed::add);
+
+            assertThat(count).isEqualTo(streamed.size());
+            assertThat(count).isEqualTo(service.findAll().size());
+            assertThat(streamed).anyMatch(user -> email.equals(user.getEmail()));
+        }
     }
 
     @Nested
@@ -377,6 +1418,24 @@ class NativeMongoUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Query Shapes")
+    class QueryShapes {
+
+        @Test
+        @DisplayName("Debe describir las consultas con el mismo filtro que las consultas reales")
+        void queryShapes_Department_UsesDepartmentFilter() {
+            List<QueryShape> shapes = service.queryShapes("IT");
+
+            assertThat(shapes).extracting(QueryShape::operation)
+                    .contains("findUserById", "findUsersByDepartment", "findUsersByDepartment?fields=department,name");
+            QueryShape byDepartment = shapes.stream()
+                    .filter(shape -> shape.operation().equals("findUsersByDepartment"))
+                    .findFirst().orElseThrow();
+            assertThat(byDepartment.filter().toBsonDocument().getString("department").getValue()).isEqualTo("IT");
+        }
+    }
+
     @Nested
     @DisplayName("Count By Department")
     class CountByDepartment {
@@ -399,5 +1458,73 @@ class NativeMongoUserServiceTest {
 
             assertThat(count).isEqualTo(0);
         }
+
+        @Test
+        @DisplayName("Debe ajustar los contadores en memoria al crear, mover y borrar usuarios")
+        void countUsersByDepartment_FollowsWrites() {
+            String from = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            assertThat(service.countUsersByDepartment(from).getCount()).isZero();
+
+            User moved = service.createUser(new UserCreateDto("Count Move", uniqueEmail(), from, "Dev"));
+            service.createUsers(List.of(
+                    new UserCreateDto("Count Stay", uniqueEmail(), from, "Dev"),
+                    new UserCreateDto("Count Delete", uniqueEmail(), from, "Dev")));
+            User deleted = service.findUsersByDepartment(from).stream()
+                    .filter(user -> user.getName().equals("Count Delete"))
+                    .findFirst().orElseThrow();
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setDepartment(to);
+            service.updateUser(moved.getId(), dto);
+            service.deleteUser(deleted.getId());
+
+            UserCountDto count = service.countUsersByDepartment(from);
+            assertThat(count.getCount()).isEqualTo(1);
+            assertThat(count.getSource()).isEqualTo(UserCountDto.Source.CACHE);
+            assertThat(count.getAsOf()).isNotNull();
+            // Se resiembra en segundo plano: la antigüedad puede pasar un poco de maxStalenessMs
+            assertThat(count.getAgeMs()).isNotNegative();
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Las escrituras externas aparecen al volver a sembrar los contadores")
+        void countUsersByDepartment_ExternalWrite_VisibleAfterReseed() {
+            String department = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            service.countUsersByDepartment(department);
+            mongoClient.getDatabase(databaseName).getCollection("users")
+                    .insertOne(new Document("name", "Count External").append("email", uniqueEmail())
+                            .append("department", department).append("active", true));
+
+            countCache.invalidate();
+
+            assertThat(service.countUsersByDepartment(department).getCount()).isEqualTo(1);
+            assertThat(service.countUsers().getCount()).isGreaterThanOrEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Un alta externa recibida por el change stream suma sin volver a sembrar; un eco propio no")
+        void countUsersByDepartment_ChangeEvent_AppliesDelta() {
+            String department = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            service.countUsersByDepartment(department);
+            Object seeds = countCache.snapshot().get("seeds");
+            MongoCollection<Document> users = mongoClient.getDatabase(databaseName).getCollection("users");
+            Document external = new Document("name", "Count Event").append("email", uniqueEmail())
+                    .append("department", department).append("active", true).append("createdAt", new Date());
+            users.insertOne(external);
+            Document echo = new Document("name", "Count Echo").append("email", uniqueEmail())
+                    .append("department", department).append("active", true).append("createdAt", new Date());
+            users.insertOne(echo);
+
+            countCache.onUserChange(new UserChangeEvent(UserChangeEvent.Type.INSERT,
+                    external.getObjectId("_id").toHexString(), external));
+            countCache.onUserChange(new UserChangeEvent(UserChangeEvent.Type.INSERT,
+                    echo.getObjectId("_id").toHexString(), echo).withLocalWrite(UserChangeEvent.LocalWrite.IN_MEMORY));
+
+            // Solo el alta externa: el eco se habría ajustado al escribir (aquí se insertó a mano)
+            assertThat(service.countUsersByDepartment(department).getCount()).isEqualTo(1);
+            assertThat(countCache.snapshot()).containsEntry("seeds", seeds);
+        }
     }
 }
@@ -0,0 +1,228 @@
+package com.dam.accesodatos.mongodb.nativeapi;
+
+import com.dam.accesodatos.config.MongoInMemoryInitializer;
+import com.dam.accesodatos.model.NameSearch;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.mongodb.DepartmentCountCache;
+import com.dam.accesodatos.mongodb.LocalUserWrites;
+import com.dam.accesodatos.mongodb.UserCache;
+import com.dam.accesodatos.mongodb.UserFacetIndex;
+import com.dam.accesodatos.mongodb.UserTextIndex;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserServiceImpl.DecodeMode;
+import com.mongodb.client.MongoClient;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+    properties = "spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration"
+)
+@ContextConfiguration(initializers = MongoInMemoryInitializer.class)
+@DisplayName("UserCodec Tests")
+class UserCodecTest {
+
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Value("${spring.data.mongodb.database}")
+    private String databaseName;
+
+    @Autowired
+    private DepartmentStatsView departmentStats;
+
+    @Autowired
+    private DepartmentCountCache countCache;
+
+    @Autowired
+    private UserTextIndex textIndex;
+
+    @Autowired
+    private UserFacetIndex facetIndex;
+
+    private String uniqueEmail() {
+        return "codec-" + UUID.randomUUID().toString().substring(0, 8) + "@test.com";
+    }
+
+    private static BsonDocument encode(UserCodec codec, User user) {
+        BsonDocument doc = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(doc), user, EncoderContext.builder().build());
+        return doc;
+    }
+
+    private static User decode(UserCodec codec, BsonDocument doc) {
+        return codec.decode(new BsonDocumentReader(doc), DecoderContext.builder().build());
+    }
+
+    @Nested
+    @DisplayName("Codificación y decodificación")
+    class RoundTrip {
+
+        @Test
+        @DisplayName("Debe conservar todos los campos, con _id como ObjectId y fechas como BSON Date")
+        void roundTrip_AllFields() {
+            ObjectId id = new ObjectId();
+            // Cambios de hora en Madrid: 31/03 (02:00 → 03:00) y 27/10 (03:00 → 02:00, las 02:30 se repiten)
+            LocalDateTime createdAt = LocalDateTime.of(2024, 3, 31, 1, 59, 59, 123_000_000);
+            LocalDateTime updatedAt = LocalDateTime.of(2024, 10, 27, 2, 30, 0, 456_000_000);
+            User user = new User(id.toHexString(), "José Núñez", NameSearch.keys("José Núñez"), "jose@test.com",
+                    "IT", "Developer", false, createdAt, updatedAt);
+            UserCodec codec = new UserCodec(MADRID);
+
+            BsonDocument doc = encode(codec, user);
+
+            assertThat(doc.get("_id")).isEqualTo(new BsonObjectId(id));
+            assertThat(doc.getDateTime("createdAt").getValue())
+                    .isEqualTo(createdAt.atZone(MADRID).toInstant().toEpochMilli());
+            assertThat(doc.get("active")).isEqualTo(BsonBoolean.FALSE);
+            assertThat(decode(codec, doc)).usingRecursiveComparison().isEqualTo(user);
+        }
+
+        @Test
+        @DisplayName("Debe convertir LocalDateTime con la zona del codec al escribir y al leer")
+        void roundTrip_ZoneConversion() {
+            LocalDateTime madridNoon = LocalDateTime.of(2024, 7, 1, 12, 0);
+            User user = new User(new ObjectId().toHexString(), "Zona", null, "zona@test.com",
+                    "IT", "Developer", true, madridNoon, madridNoon);
+
+            BsonDocument doc = encode(new UserCodec(MADRID), user);
+
+            // Verano en Madrid: UTC+2
+            assertThat(doc.getDateTime("createdAt").getValue())
+                    .isEqualTo(Instant.parse("2024-07-01T10:00:00Z").toEpochMilli());
+            User inUtc = decode(new UserCodec(ZoneOffset.UTC), doc);
+            assertThat(inUtc.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 7, 1, 10, 0));
+            assertThat(inUtc.getUpdatedAt()).isEqualTo(LocalDateTime.of(2024, 7, 1, 10, 0));
+        }
+
+        @Test
+        @DisplayName("active y fechas null no se escriben; al leer, active ausente es true y las fechas null")
+        void roundTrip_NullActiveAndDates() {
+            User user = new User(new ObjectId().toHexString(), "Sin Fechas", null, "nulls@test.com",
+                    null, null, null, null, null);
+            UserCodec codec = new UserCodec(MADRID);
+
+            BsonDocument doc = encode(codec, user);
+
+            assertThat(doc.keySet()).containsExactly("_id", "name", "email");
+            User decoded = decode(codec, doc);
+            assertThat(decoded.getActive()).isTrue();
+            assertThat(decoded.getCreatedAt()).isNull();
+            assertThat(decoded.getUpdatedAt()).isNull();
+            assertThat(decoded.getNameSearch()).isNull();
+            assertThat(decoded.getDepartment()).isNull();
+        }
+
+        @Test
+        @DisplayName("Los valores BSON null se leen igual que los campos ausentes")
+        void decode_ExplicitNulls() {
+            BsonDocument doc = new BsonDocument("_id", new BsonObjectId(new ObjectId()))
+                    .append("name", new BsonString("Nulos"))
+                    .append("active", BsonNull.VALUE)
+                    .append("createdAt", BsonNull.VALUE)
+                    .append("updatedAt", BsonNull.VALUE);
+
+            User decoded = decode(new UserCodec(MADRID), doc);
+
+            assertThat(decoded.getActive()).isTrue();
+            assertThat(decoded.getCreatedAt()).isNull();
+            assertThat(decoded.getUpdatedAt()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Modos de decodificación")
+    class DecodeModes {
+
+        private NativeMongoUserServiceImpl service(DecodeMode decodeMode) {
+            return new NativeMongoUserServiceImpl(mongoClient, databaseName, 500, 1000, 100, "ACKNOWLEDGED",
+                    "primary", decodeMode, false, UserCache.disabled(), departmentStats, countCache, textIndex,
+                    facetIndex, LocalUserWrites.disabled());
+        }
+
+        /**
+         * Inserta doc tal cual (sin pasar por los servicios) y devuelve su _id.
+         * Se borra al terminar cada test: un usuario sin departamento no debe llegar a otros tests.
+         */
+        private String insertRaw(Document doc) {
+            mongoClient.getDatabase(databaseName).getCollection("users").insertOne(doc);
+            return doc.getObjectId("_id").toHexString();
+        }
+
+        private void deleteRaw(String id) {
+            mongoClient.getDatabase(databaseName).getCollection("users").deleteOne(new Document("_id", new ObjectId(id)));
+        }
+
+        private void assertSameUser(String id) {
+            User codec = service(DecodeMode.CODEC).findUserById(id);
+            User document = service(DecodeMode.DOCUMENT).findUserById(id);
+            assertThat(document).usingRecursiveComparison().isEqualTo(codec);
+        }
+
+        @Test
+        @DisplayName("CODEC y DOCUMENT deben dar el mismo User para un documento completo")
+        void decodeModes_FullDocument_SameUser() {
+            Document doc = new Document("name", "Ana Códec")
+                    .append(NameSearch.FIELD, NameSearch.keys("Ana Códec"))
+                    .append("email", uniqueEmail())
+                    .append("department", "IT")
+                    .append("role", "Developer")
+                    .append("active", false)
+                    .append("createdAt", Date.from(Instant.parse("2024-03-31T00:59:59.123Z")))
+                    .append("updatedAt", Date.from(Instant.parse("2024-10-27T01:30:00.456Z")));
+            String id = insertRaw(doc);
+
+            try {
+                assertSameUser(id);
+            } finally {
+                deleteRaw(id);
+            }
+        }
+
+        @Test
+        @DisplayName("CODEC y DOCUMENT deben dar el mismo User con active null y sin fechas ni nameSearch")
+        void decodeModes_SparseDocument_SameUser() {
+            Document doc = new Document("name", "Sin Datos")
+                    .append("email", uniqueEmail())
+                    .append("active", null)
+                    .append("createdAt", null);
+            String id = insertRaw(doc);
+
+            try {
+                assertSameUser(id);
+                User user = service(DecodeMode.DOCUMENT).findUserById(id);
+                assertThat(user.getActive()).isTrue();
+                assertThat(user.getCreatedAt()).isNull();
+                assertThat(user.getUpdatedAt()).isNull();
+                assertThat(user.getNameSearch()).isNull();
+            } finally {
+                deleteRaw(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.dam.accesodatos.mongodb.reactive;
+
+import com.dam.accesodatos.config.MongoInMemoryInitializer;
+import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidPageRequestException;
+import com.dam.accesodatos.exception.InvalidUserIdException;
+import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.nativeapi.NativeMongoUserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(
+    properties = "spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration"
+)
+@ContextConfiguration(initializers = MongoInMemoryInitializer.class)
+@DisplayName("ReactiveMongoUserService Tests")
+class ReactiveMongoUserServiceTest {
+
+    @Autowired
+    private ReactiveMongoUserService service;
+
+    @Autowired
+    private NativeMongoUserService nativeService;
+
+    private String uniqueEmail() {
+        return "test-" + UUID.randomUUID().toString().substring(0, 8) + "@test.com";
+    }
+
+    private String uniqueDepartment() {
+        return "Reactive-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Nested
+    @DisplayName("Test Connection")
+    class TestConnection {
+
+        @Test
+        @DisplayName("Debe conectar exitosamente con el driver reactivo")
+        void testConnection_Success() {
+            String result = service.testConnection().block();
+            assertThat(result).contains("Conexión reactiva exitosa");
+            assertThat(result).contains("pedagogico_db");
+        }
+    }
+
+    @Nested
+    @DisplayName("CRUD reactivo")
+    class Crud {
+
+        @Test
+        @DisplayName("Debe crear, leer, actualizar y eliminar un usuario")
+        void crud_RoundTrip() {
+            User created = service.createUser(
+                    new UserCreateDto("Reactive Test", uniqueEmail(), "IT", "Developer")).block();
+            assertThat(created.getId()).isNotNull();
+            assertThat(created.getActive()).isTrue();
+
+            User found = service.findUserById(created.getId()).block();
+            assertThat(found.getEmail()).isEqualTo(created.getEmail());
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setName("Reactive Updated");
+            User updated = service.updateUser(created.getId(), update).block();
+            assertThat(updated.getName()).isEqualTo("Reactive Updated");
+            assertThat(updated.getDepartment()).isEqualTo("IT");
+
+            assertThat(service.deleteUser(created.getId()).block()).isTrue();
+            assertThat(service.deleteUser(created.getId()).block()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Los usuarios creados en reactivo son visibles desde la API nativa")
+        void createUser_VisibleFromNativeApi() {
+            User created = service.createUser(
+                    new UserCreateDto("Reactive Shared", uniqueEmail(), "HR", "Analyst")).block();
+
+            assertThat(nativeService.findUserById(created.getId()).getEmail()).isEqualTo(created.getEmail());
+        }
+
+        @Test
+        @DisplayName("Las escrituras reactivas se reflejan en las facetas de la API nativa")
+        void writes_UpdateFacetIndex() {
+            String department = uniqueDepartment();
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(department);
+            assertThat(nativeService.searchFacets(query).getTotal()).isZero();
+
+            User created = service.createUser(
+                    new UserCreateDto("Reactive Facet", uniqueEmail(), department, "Developer")).block();
+            assertThat(nativeService.searchFacets(query).getTotal()).isEqualTo(1);
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setActive(false);
+            service.updateUser(created.getId(), update).block();
+            assertThat(nativeService.searchFacets(query).getActive()).containsEntry(false, 1L);
+
+            service.deleteUser(created.getId()).block();
+            assertThat(nativeService.searchFacets(query).getTotal()).isZero();
+        }
+
+        @Test
+        @DisplayName("Las escrituras reactivas ajustan los contadores por departamento en memoria")
+        void writes_UpdateDepartmentCounts() {
+            String from = uniqueDepartment();
+            String to = uniqueDepartment();
+            assertThat(nativeService.countUsersByDepartment(from).getCount()).isZero();
+
+            User moved = service.createUser(new UserCreateDto("Reactive Move", uniqueEmail(), from, "Dev")).block();
+            User deleted = service.createUser(new UserCreateDto("Reactive Delete", uniqueEmail(), from, "Dev")).block();
+            assertThat(nativeService.countUsersByDepartment(from).getCount()).isEqualTo(2);
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setDepartment(to);
+            User updated = service.updateUser(moved.getId(), update).block();
+            assertThat(updated.getDepartment()).isEqualTo(to);
+            assertThat(service.deleteUser(deleted.getId()).block()).isTrue();
+
+            assertThat(nativeService.countUsersByDepartment(from).getCount()).isZero();
+            assertThat(nativeService.countUsersByDepartment(to).getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Email duplicado debe emitir DuplicateEmailException")
+        void createUser_DuplicateEmail_EmitsError() {
+            String email = uniqueEmail();
+            service.createUser(new UserCreateDto("First", email, "IT", "Developer")).block();
+
+            assertThatThrownBy(() -> service.createUser(new UserCreateDto("Second", email, "IT", "Developer")).block())
+                    .isInstanceOf(DuplicateEmailException.class);
+        }
+
+        @Test
+        @DisplayName("ID inexistente o inválido debe emitir el error correspondiente")
+        void findUserById_Errors() {
+            assertThatThrownBy(() -> service.findUserById("507f1f77bcf86cd799439011").block())
+                    .isInstanceOf(UserNotFoundException.class);
+            assertThatThrownBy(() -> service.findUserById("not-an-id").block())
+                    .isInstanceOf(InvalidUserIdException.class);
+        }
+
+        @Test
+        @DisplayName("Nada se ejecuta hasta la suscripción")
+        void createUser_IsLazy() {
+            String email = uniqueEmail();
+            service.createUser(new UserCreateDto("Lazy", email, "IT", "Developer"));
+
+            UserQueryDto query = new UserQueryDto();
+            query.setName("Lazy");
+            assertThat(service.searchUsers(query).map(User::getEmail).collectList().block()).doesNotContain(email);
+        }
+    }
+
+    @Nested
+    @DisplayName("Consultas reactivas")
+    class Queries {
+
+        @Test
+        @DisplayName("Debe filtrar, contar y agregar por departamento")
+        void department_FindCountAndStats() {
+            String department = uniqueDepartment();
+            Flux.range(0, 3)
+                    .concatMap(i -> service.createUser(new UserCreateDto("Reactive " + i, uniqueEmail(), department, "Dev")))
+                    .blockLast();
+
+            assertThat(service.findUsersByDepartment(department).collectList().block()).hasSize(3);
+            assertThat(service.countByDepartment(department).block()).isEqualTo(3);
+
+            List<DepartmentStatsDto> stats = service.getStatsByDepartment().collectList().block();
+            assertThat(stats).anySatisfy(s -> {
+                assertThat(s.getDepartment()).isEqualTo(department);
+                assertThat(s.getTotalUsers()).isEqualTo(3);
+                assertThat(s.getActiveUsers()).isEqualTo(3);
+            });
+        }
+
+        @Test
+        @DisplayName("searchUsers debe rechazar size 0 en lugar de devolver toda la colección")
+        void searchUsers_ZeroSize_EmitsError() {
+            UserQueryDto query = new UserQueryDto();
+            query.setSize(0);
+
+            assertThatThrownBy(() -> service.searchUsers(query).collectList().block())
+                    .isInstanceOf(InvalidPageRequestException.class);
+        }
+
+        @Test
+        @DisplayName("searchUsers debe aplicar filtros, orden y paginación")
+        void searchUsers_FiltersSortsAndPages() {
+            String department = uniqueDepartment();
+            for (String name : List.of("Carla", "Ana", "Bruno")) {
+                service.createUser(new UserCreateDto(name, uniqueEmail(), department, "Dev")).block();
+            }
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(department);
+            query.setSortBy("name");
+            query.setSortDirection("asc");
+            query.setPage(0);
+            query.setSize(2);
+
+            assertThat(service.searchUsers(query).map(User::getName).collectList().block())
+                    .containsExactly("Ana", "Bruno");
+
+            query.setPage(1);
+            assertThat(service.searchUsers(query).map(User::getName).collectList().block())
+                    .containsExactly("Carla");
+        }
+    }
+}
@@ -1,12 +1,32 @@
 package com.dam.accesodatos.mongodb.springdata;
 
 import com.dam.accesodatos.config.MongoInMemoryInitializer;
+import com.dam.accesodatos.exception.BatchTooLargeException;
 import com.dam.accesodatos.exception.DuplicateEmailException;
+import com.dam.accesodatos.exception.InvalidBulkUpdateException;
+import com.dam.accesodatos.exception.InvalidContinuationTokenException;
+import com.dam.accesodatos.exception.InvalidPageRequestException;
+import com.dam.accesodatos.exception.InvalidProjectionException;
 import com.dam.accesodatos.exception.UserNotFoundException;
+import com.dam.accesodatos.model.BatchGetResultDto;
+import com.dam.accesodatos.model.BulkCreateResultDto;
+import com.dam.accesodatos.model.BulkUpdateByFilterDto;
+import com.dam.accesodatos.model.BulkUpdateItemDto;
+import com.dam.accesodatos.model.BulkUpdateResultDto;
+import com.dam.accesodatos.model.DepartmentStatsDto;
+import com.dam.accesodatos.model.FacetedSearchResultDto;
+import com.dam.accesodatos.model.TextSearchResultDto;
 import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCountDto;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserFacetsDto;
+import com.dam.accesodatos.model.UserPageDto;
+import com.dam.accesodatos.model.UserProjection;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.mongodb.QueryShape;
+import com.dam.accesodatos.mongodb.UserCache;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -14,8 +34,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -31,6 +58,9 @@ class SpringDataUserServiceTest {
     @Autowired
     private SpringDataUserService service;
 
+    @Autowired
+    private UserCache userCache;
+
     private String uniqueEmail() {
         return "test-" + UUID.randomUUID().toString().substring(0, 8) + "@test.com";
     }
@@ -70,7 +100,6 @@ class SpringDataUserServiceTest {
 
         @Test
         @DisplayName("Debe lanzar DuplicateEmailException con email duplicado")
-        @org.junit.jupiter.api.Disabled("Requiere índice único en MongoDB - funciona en producción pero no en MongoDB embebido sin configuración adicional")
         void createUser_DuplicateEmail_ThrowsException() {
             String duplicateEmail = uniqueEmail();
             UserCreateDto dto1 = new UserCreateDto("User 1", duplicateEmail, "IT", "Dev");
@@ -83,6 +112,110 @@ class SpringDataUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Create Users (Bulk)")
+    class CreateUsersBulk {
+
+        @Test
+        @DisplayName("Debe crear todos los usuarios del lote y devolver un resultado por elemento")
+        void createUsers_ValidBatch_CreatesEveryItem() {
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk 1", uniqueEmail(), "IT", "Dev"),
+                    new UserCreateDto("Bulk 2", uniqueEmail(), "HR", "Manager"),
+                    new UserCreateDto("Bulk 3", uniqueEmail(), "Sales", "Representative"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getRequested()).isEqualTo(3);
+            assertThat(result.getCreated()).isEqualTo(3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2);
+            assertThat(result.getItems()).allMatch(item ->
+                    item.getStatus() == BulkCreateResultDto.ItemStatus.CREATED && item.getId() != null);
+            assertThat(service.findUserById(result.getItems().get(1).getId()).getEmail())
+                    .isEqualTo(dtos.get(1).getEmail());
+        }
+
+        @Test
+        @DisplayName("Debe marcar emails duplicados sin abortar el lote")
+        void createUsers_DuplicateEmail_MarksItemAndContinues() {
+            String duplicateEmail = uniqueEmail();
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk A", duplicateEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk B", duplicateEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk C", uniqueEmail(), "IT", "Dev"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getDuplicates()).isEqualTo(1);
+            assertThat(result.getItems().get(1).getStatus()).isEqualTo(BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL);
+        }
+
+        @Test
+        @DisplayName("Debe marcar como INVALID los elementos que no pasan la validación (y los nulos) sin abortar el lote")
+        void createUsers_InvalidItems_MarksItemsAndContinues() {
+            List<UserCreateDto> dtos = Arrays.asList(
+                    new UserCreateDto("Bulk Valid", uniqueEmail(), "IT", "Dev"),
+                    new UserCreateDto("Bulk Bad Email", "no-es-un-email", "IT", "Dev"),
+                    null,
+                    new UserCreateDto("X", uniqueEmail(), "", "Dev"),
+                    new UserCreateDto("Bulk After", uniqueEmail(), "HR", "Manager"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getInvalid()).isEqualTo(3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2, 3, 4);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getStatus)
+                    .containsExactly(BulkCreateResultDto.ItemStatus.CREATED,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.INVALID,
+                            BulkCreateResultDto.ItemStatus.CREATED);
+            assertThat(result.getItems().get(1).getError()).contains("email");
+            assertThat(result.getItems().get(3).getError()).contains("name", "department");
+            assertThat(service.findUserById(result.getItems().get(4).getId()).getEmail())
+                    .isEqualTo(dtos.get(4).getEmail());
+        }
+
+        @Test
+        @DisplayName("Debe informar por elemento del E11000, contra emails existentes y repetidos en el lote")
+        void createUsers_DuplicateEmails_ReportsEachItem() {
+            String existingEmail = uniqueEmail();
+            service.createUser(new UserCreateDto("Existing", existingEmail, "IT", "Dev"));
+            String repeatedEmail = uniqueEmail();
+            List<UserCreateDto> dtos = List.of(
+                    new UserCreateDto("Bulk Existing", existingEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk First", repeatedEmail, "IT", "Dev"),
+                    new UserCreateDto("Bulk Repeated", repeatedEmail, "HR", "Manager"),
+                    new UserCreateDto("Bulk After", uniqueEmail(), "Sales", "Representative"));
+
+            BulkCreateResultDto result = service.createUsers(dtos);
+
+            assertThat(result.getRequested()).isEqualTo(4);
+            assertThat(result.getCreated()).isEqualTo(2);
+            assertThat(result.getDuplicates()).isEqualTo(2);
+            assertThat(result.getFailed()).isZero();
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getIndex)
+                    .containsExactly(0, 1, 2, 3);
+            assertThat(result.getItems()).extracting(BulkCreateResultDto.ItemResult::getStatus)
+                    .containsExactly(BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL,
+                            BulkCreateResultDto.ItemStatus.CREATED,
+                            BulkCreateResultDto.ItemStatus.DUPLICATE_EMAIL,
+                            BulkCreateResultDto.ItemStatus.CREATED);
+            assertThat(result.getItems().get(0).getId()).isNull();
+            assertThat(result.getItems().get(0).getError()).contains(existingEmail);
+            assertThat(result.getItems().get(2).getEmail()).isEqualTo(repeatedEmail);
+
+            // El duplicado no aborta el lote: el elemento posterior se ha insertado
+            assertThat(service.findUserById(result.getItems().get(3).getId()).getEmail())
+                    .isEqualTo(dtos.get(3).getEmail());
+            assertThat(service.findUserById(result.getItems().get(1).getId()).getName()).isEqualTo("Bulk First");
+        }
+    }
+
     @Nested
     @DisplayName("Find User By ID")
     class FindUserById {
@@ -112,10 +245,118 @@ class SpringDataUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Find Users By Ids")
+    class FindUsersByIds {
+
+        @Test
+        @DisplayName("Debe devolver los resultados en el orden pedido, con fallos e IDs inválidos por elemento")
+        void findUsersByIds_MixedIds_ReturnsResultPerIdInOrder() {
+            User first = service.createUser(new UserCreateDto("Spring Batch 1", uniqueEmail(), "IT", "Dev"));
+            User second = service.createUser(new UserCreateDto("Spring Batch 2", uniqueEmail(), "HR", "Dev"));
+            userCache.clear();
+            String missing = new ObjectId().toHexString();
+
+            BatchGetResultDto result = service.findUsersByIds(
+                    List.of(second.getId(), "not-an-id", missing, first.getId(), second.getId().toUpperCase()));
+
+            assertThat(result.getRequested()).isEqualTo(5);
+            assertThat(result.getFound()).isEqualTo(3);
+            assertThat(result.getNotFound()).isEqualTo(1);
+            assertThat(result.getInvalid()).isEqualTo(1);
+            assertThat(result.getItems()).extracting(BatchGetResultDto.ItemResult::getStatus).containsExactly(
+                    BatchGetResultDto.ItemStatus.FOUND,
+                    BatchGetResultDto.ItemStatus.INVALID_ID,
+                    BatchGetResultDto.ItemStatus.NOT_FOUND,
+                    BatchGetResultDto.ItemStatus.FOUND,
+                    BatchGetResultDto.ItemStatus.FOUND);
+            assertThat(result.getItems().get(0).getUser().getEmail()).isEqualTo(second.getEmail());
+            assertThat(result.getItems().get(3).getUser().getEmail()).isEqualTo(first.getEmail());
+            assertThat(result.getItems().get(4).getUser().getId()).isEqualTo(second.getId());
+        }
+
+        @Test
+        @DisplayName("Debe rechazar peticiones con más IDs que el máximo configurado")
+        void findUsersByIds_TooManyIds_Throws() {
+            List<String> ids = Collections.nCopies(101, new ObjectId().toHexString());
+
+            assertThatThrownBy(() -> service.findUsersByIds(ids))
+                    .isInstanceOf(BatchTooLargeException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("User Cache")
+    class UserCacheBehaviour {
+
+        private long hits() {
+            return (long) userCache.snapshot().get("hits");
+        }
+
+        @Test
+        @DisplayName("Las lecturas repetidas por ID se sirven desde la caché")
+        void findUserById_RepeatedReads_HitCache() {
+            User created = service.createUser(new UserCreateDto("Cache SpringData", uniqueEmail(), "IT", "Dev"));
+            long hitsBefore = hits();
+
+            service.findUserById(created.getId());
+            service.findUserById(created.getId());
+
+            assertThat(hits() - hitsBefore).isGreaterThanOrEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Modificar el usuario devuelto no altera la caché")
+        void findUserById_MutatingResult_DoesNotAffectCache() {
+            User created = service.createUser(new UserCreateDto("Cache SpringData", uniqueEmail(), "IT", "Dev"));
+
+            service.findUserById(created.getId()).setName("Modificado en memoria");
+
+            assertThat(service.findUserById(created.getId()).getName()).isEqualTo("Cache SpringData");
+        }
+
+        @Test
+        @DisplayName("updateUser refresca la entrada cacheada")
+        void updateUser_RefreshesCachedUser() {
+            User created = service.createUser(new UserCreateDto("Cache SpringData", uniqueEmail(), "IT", "Dev"));
+            service.findUserById(created.getId());
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setRole("Lead");
+            service.updateUser(created.getId(), dto);
+
+            assertThat(service.findUserById(created.getId()).getRole()).isEqualTo("Lead");
+        }
+
+        @Test
+        @DisplayName("deleteUser invalida la entrada cacheada")
+        void deleteUser_InvalidatesCachedUser() {
+            User created = service.createUser(new UserCreateDto("Cache SpringData", uniqueEmail(), "IT", "Dev"));
+            service.findUserById(created.getId());
+
+            service.deleteUser(created.getId());
+
+            assertThatThrownBy(() -> service.findUserById(created.getId()))
+                    .isInstanceOf(UserNotFoundException.class);
+        }
+    }
+
     @Nested
     @DisplayName("Update User")
     class UpdateUser {
 
+        @Test
+        @DisplayName("Debe lanzar DuplicateEmailException al actualizar con un email ya registrado")
+        void updateUser_DuplicateEmail_ThrowsException() {
+            User first = service.createUser(new UserCreateDto("Spring Dup Update 1", uniqueEmail(), "IT", "Dev"));
+            User second = service.createUser(new UserCreateDto("Spring Dup Update 2", uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setEmail(first.getEmail());
+
+            assertThatThrownBy(() -> service.updateUser(second.getId(), dto))
+                    .isInstanceOf(DuplicateEmailException.class);
+        }
+
         @Test
         @DisplayName("Debe actualizar usuario existente")
         void updateUser_ValidData_ReturnsUpdatedUser() {
@@ -144,6 +385,127 @@ class SpringDataUserServiceTest {
             assertThatThrownBy(() -> service.updateUser(nonExistingId, dto))
                     .isInstanceOf(UserNotFoundException.class);
         }
+
+        @Test
+        @DisplayName("Solo modifica los campos informados y actualiza updatedAt")
+        void updateUser_PartialUpdate_KeepsOtherFields() {
+            String email = uniqueEmail();
+            User created = service.createUser(new UserCreateDto("Partial Update", email, "IT", "Dev"));
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setActive(false);
+            User updated = service.updateUser(created.getId(), dto);
+
+            assertThat(updated.getActive()).isFalse();
+            assertThat(updated.getName()).isEqualTo("Partial Update");
+            assertThat(updated.getEmail()).isEqualTo(email);
+            assertThat(updated.getRole()).isEqualTo("Dev");
+            assertThat(updated.getUpdatedAt()).isAfterOrEqualTo(created.getUpdatedAt());
+            assertThat(service.findUserById(created.getId()).getActive()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk Update")
+    class BulkUpdate {
+
+        private UserUpdateDto departmentUpdate(String department) {
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setDepartment(department);
+            return dto;
+        }
+
+        @Test
+        @DisplayName("Debe aplicar los cambios de cada elemento y marcar los que fallan")
+        void updateUsers_MixedItems_ReturnsResultPerItem() {
+            String from = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User first = service.createUser(new UserCreateDto("Spring Bulk Update 1", uniqueEmail(), from, "Dev"));
+            User second = service.createUser(new UserCreateDto("Spring Bulk Update 2", uniqueEmail(), from, "Dev"));
+            UserUpdateDto duplicateEmail = new UserUpdateDto();
+            duplicateEmail.setEmail(first.getEmail());
+
+            BulkUpdateResultDto result = service.updateUsers(List.of(
+                    new BulkUpdateItemDto(first.getId(), departmentUpdate(to)),
+                    new BulkUpdateItemDto("not-an-id", departmentUpdate(to)),
+                    new BulkUpdateItemDto(new ObjectId().toHexString(), departmentUpdate(to)),
+                    new BulkUpdateItemDto(second.getId(), duplicateEmail)));
+
+            assertThat(result.getItems()).extracting(BulkUpdateResultDto.ItemResult::getStatus).containsExactly(
+                    BulkUpdateResultDto.ItemStatus.UPDATED,
+                    BulkUpdateResultDto.ItemStatus.INVALID_ID,
+                    BulkUpdateResultDto.ItemStatus.NOT_FOUND,
+                    BulkUpdateResultDto.ItemStatus.DUPLICATE_EMAIL);
+            assertThat(result.getMatched()).isEqualTo(1);
+            assertThat(result.getUpdated()).isEqualTo(1);
+            assertThat(service.findUserById(first.getId()).getDepartment()).isEqualTo(to);
+            assertThat(service.findUserById(second.getId()).getEmail()).isEqualTo(second.getEmail());
+            assertThat(service.countUsersByDepartment(from).getCount()).isEqualTo(1);
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe marcar como INVALID los elementos que no pasan la validación (y los nulos) sin abortar el lote")
+        void updateUsers_InvalidItems_MarksItemsAndContinues() {
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User user = service.createUser(new UserCreateDto("Spring Bulk Invalid 1", uniqueEmail(), "IT", "Dev"));
+            User untouched = service.createUser(new UserCreateDto("Spring Bulk Invalid 2", uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto badEmail = new UserUpdateDto();
+            badEmail.setEmail("no-es-un-email");
+
+            BulkUpdateResultDto result = service.updateUsers(Arrays.asList(
+                    new BulkUpdateItemDto(untouched.getId(), badEmail),
+                    null,
+                    new BulkUpdateItemDto(untouched.getId(), null),
+                    new BulkUpdateItemDto(user.getId(), departmentUpdate(to))));
+
+            assertThat(result.getItems()).extracting(BulkUpdateResultDto.ItemResult::getStatus).containsExactly(
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.INVALID,
+                    BulkUpdateResultDto.ItemStatus.UPDATED);
+            assertThat(result.getInvalidItems()).isEqualTo(3);
+            assertThat(result.getItems().get(0).getError()).contains("update.email");
+            assertThat(result.getItems().get(2).getError()).contains("update");
+            assertThat(result.getMatched()).isEqualTo(1);
+            assertThat(service.findUserById(untouched.getId()).getEmail()).isEqualTo(untouched.getEmail());
+            assertThat(service.findUserById(user.getId()).getDepartment()).isEqualTo(to);
+        }
+
+        @Test
+        @DisplayName("Debe actualizar todos los usuarios que cumplen el filtro en una operación")
+        void updateUsersByFilter_MovesWholeDepartment() {
+            String from = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Bulk-" + UUID.randomUUID().toString().substring(0, 8);
+            User cached = service.createUser(new UserCreateDto("Spring Bulk Filter 1", uniqueEmail(), from, "Dev"));
+            service.createUser(new UserCreateDto("Spring Bulk Filter 2", uniqueEmail(), from, "Dev"));
+            service.findUserById(cached.getId());
+
+            UserQueryDto filter = new UserQueryDto();
+            filter.setDepartment(from);
+            BulkUpdateResultDto result = service.updateUsersByFilter(new BulkUpdateByFilterDto(filter, departmentUpdate(to)));
+
+            assertThat(result.getMatched()).isEqualTo(2);
+            assertThat(result.getModified()).isEqualTo(2);
+            assertThat(service.findUserById(cached.getId()).getDepartment()).isEqualTo(to);
+            assertThat(service.countUsersByDepartment(from).getCount()).isZero();
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar filtros vacíos y cambios de email")
+        void updateUsersByFilter_InvalidRequest_Throws() {
+            UserUpdateDto email = new UserUpdateDto();
+            email.setEmail(uniqueEmail());
+            UserQueryDto filter = new UserQueryDto();
+            filter.setDepartment("IT");
+
+            assertThatThrownBy(() -> service.updateUsersByFilter(
+                    new BulkUpdateByFilterDto(new UserQueryDto(), departmentUpdate("HR"))))
+                    .isInstanceOf(InvalidBulkUpdateException.class);
+            assertThatThrownBy(() -> service.updateUsersByFilter(new BulkUpdateByFilterDto(filter, email)))
+                    .isInstanceOf(InvalidBulkUpdateException.class);
+        }
     }
 
     @Nested
@@ -170,6 +532,28 @@ class SpringDataUserServiceTest {
 
             assertThat(deleted).isFalse();
         }
+
+        @Test
+        @DisplayName("Borrados concurrentes del mismo usuario: solo uno tiene éxito")
+        void deleteUser_ConcurrentDeletes_OnlyOneSucceeds() throws Exception {
+            User created = service.createUser(new UserCreateDto("Delete Concurrent", uniqueEmail(), "IT", "Dev"));
+
+            Callable<Boolean> delete = () -> service.deleteUser(created.getId());
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Boolean>> results = executor.invokeAll(Collections.nCopies(4, delete));
+
+                long successes = 0;
+                for (Future<Boolean> result : results) {
+                    if (result.get()) {
+                        successes++;
+                    }
+                }
+                assertThat(successes).isEqualTo(1);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
     }
 
     @Nested
@@ -224,10 +608,79 @@ class SpringDataUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Projections")
+    class ProjectedQueries {
+
+        @Test
+        @DisplayName("Solo devuelve los campos pedidos")
+        void findUsersByDepartment_WithProjection_ReturnsOnlyRequestedFields() {
+            String department = "Proj-" + UUID.randomUUID().toString().substring(0, 8);
+            User created = service.createUser(new UserCreateDto("Projection Spring", uniqueEmail(), department, "Dev"));
+
+            List<Map<String, Object>> views = service.findUsersByDepartment(department,
+                    UserProjection.parse("name,id,department"));
+
+            assertThat(views).hasSize(1);
+            assertThat(views.get(0)).containsOnlyKeys("id", "name", "department");
+            assertThat(views.get(0)).containsEntry("id", created.getId())
+                    .containsEntry("name", "Projection Spring");
+        }
+
+        @Test
+        @DisplayName("Sin id en fields no se devuelve el _id")
+        void findAll_WithoutId_ExcludesId() {
+            service.createUser(new UserCreateDto("Projection Spring", uniqueEmail(), "IT", "Dev"));
+
+            List<Map<String, Object>> views = service.findAll(UserProjection.parse("name"));
+
+            assertThat(views).isNotEmpty();
+            assertThat(views).allSatisfy(view -> assertThat(view).containsOnlyKeys("name"));
+        }
+
+        @Test
+        @DisplayName("Solo id devuelve únicamente el identificador")
+        void searchUsers_OnlyId_ReturnsIds() {
+            service.createUser(new UserCreateDto("Projection Only Id Spring", uniqueEmail(), "IT", "Dev"));
+            UserQueryDto query = new UserQueryDto();
+            query.setName("Projection Only Id Spring");
+
+            List<Map<String, Object>> views = service.searchUsers(query, UserProjection.parse("id"));
+
+            assertThat(views).hasSize(1);
+            assertThat(views.get(0)).containsOnlyKeys("id");
+        }
+
+        @Test
+        @DisplayName("Debe rechazar campos que no existen en User")
+        void parse_UnknownField_ThrowsException() {
+            assertThatThrownBy(() -> UserProjection.parse("name,password"))
+                    .isInstanceOf(InvalidProjectionException.class)
+                    .hasMessageContaining("password");
+        }
+    }
+
     @Nested
     @DisplayName("Search Users")
     class SearchUsers {
 
+        @Test
+        @DisplayName("Debe rechazar size fuera de [1, MAX_PAGE_SIZE] y page negativo")
+        void searchUsers_InvalidPaging_ThrowsException() {
+            UserQueryDto zeroSize = new UserQueryDto();
+            zeroSize.setSize(0);
+            UserQueryDto tooLarge = new UserQueryDto();
+            tooLarge.setSize(UserQueryDto.MAX_PAGE_SIZE + 1);
+            UserQueryDto negativePage = new UserQueryDto();
+            negativePage.setPage(-1);
+
+            assertThatThrownBy(() -> service.searchUsers(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsersPage(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsersFaceted(zeroSize)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsers(tooLarge)).isInstanceOf(InvalidPageRequestException.class);
+            assertThatThrownBy(() -> service.searchUsers(negativePage)).isInstanceOf(InvalidPageRequestException.class);
+        }
+
         @Test
         @DisplayName("Debe buscar usuarios por nombre parcial")
         void searchUsers_ByName_ReturnsMatchingUsers() {
@@ -294,6 +747,45 @@ class SpringDataUserServiceTest {
             assertThat(results.size()).isLessThanOrEqualTo(3);
         }
 
+        @Test
+        @DisplayName("Debe recorrer todas las páginas con token de continuación sin repetir usuarios")
+        void searchUsersPage_WithContinuationToken_VisitsEveryUserOnce() {
+            String department = "Keyset-" + UUID.randomUUID().toString().substring(0, 8);
+            for (int i = 0; i < 7; i++) {
+                // Nombres repetidos para forzar el desempate por _id
+                service.createUser(new UserCreateDto("Keyset " + (i % 3), uniqueEmail(), department, "Dev"));
+            }
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(department);
+            query.setSize(3);
+
+            List<String> visitedIds = new java.util.ArrayList<>();
+            List<String> visitedNames = new java.util.ArrayList<>();
+            UserPageDto page;
+            do {
+                page = service.searchUsersPage(query);
+                page.getContent().forEach(user -> {
+                    visitedIds.add(user.getId());
+                    visitedNames.add(user.getName());
+                });
+                query.setContinuationToken(page.getNextToken());
+            } while (page.getNextToken() != null);
+
+            assertThat(visitedIds).hasSize(7).doesNotHaveDuplicates();
+            assertThat(visitedNames).isSorted();
+        }
+
+        @Test
+        @DisplayName("Debe lanzar InvalidContinuationTokenException con token corrupto")
+        void searchUsersPage_InvalidToken_ThrowsException() {
+            UserQueryDto query = new UserQueryDto();
+            query.setContinuationToken("no-es-un-token");
+
+            assertThatThrownBy(() -> service.searchUsersPage(query))
+                    .isInstanceOf(InvalidContinuationTokenException.class);
+        }
+
         @Test
         @DisplayName("Debe combinar múltiples filtros")
         void searchUsers_MultipleFilters_ReturnsMatchingUsers() {
@@ -317,6 +809,156 @@ class SpringDataUserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Name Search")
+    class NameSearchQueries {
+
+        private String uniqueTag() {
+            return "t" + UUID.randomUUID().toString().substring(0, 8);
+        }
+
+        @Test
+        @DisplayName("Debe encontrar por prefijo de cualquier palabra sin distinguir mayúsculas ni tildes")
+        void searchUsers_ByNamePrefix_IgnoresCaseAndAccents() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("María Ángeles Núñez " + tag, uniqueEmail(), "HR", "Dev"));
+
+            for (String text : List.of("MARIA angeles nuñez " + tag, "NUÑEZ " + tag, tag.toUpperCase())) {
+                UserQueryDto query = new UserQueryDto();
+                query.setName(text);
+
+                assertThat(service.searchUsers(query)).extracting(User::getId).containsExactly(created.getId());
+            }
+        }
+
+        @Test
+        @DisplayName("Debe buscar en mitad de palabra solo con nameMatch CONTAINS")
+        void searchUsers_ByNameInsideWord_RequiresContains() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("Bartolomé " + tag, uniqueEmail(), "HR", "Dev"));
+
+            UserQueryDto query = new UserQueryDto();
+            query.setName("tolome " + tag);
+            assertThat(service.searchUsers(query)).isEmpty();
+
+            query.setNameMatch(UserQueryDto.NameMatch.CONTAINS);
+            assertThat(service.searchUsers(query)).extracting(User::getId).containsExactly(created.getId());
+        }
+
+        @Test
+        @DisplayName("Debe recalcular nameSearch al cambiar el nombre")
+        void updateUser_Name_RefreshesNameSearch() {
+            String tag = uniqueTag();
+            User created = service.createUser(new UserCreateDto("Antiguo " + tag, uniqueEmail(), "HR", "Dev"));
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setName("Nuevo " + tag);
+            User updated = service.updateUser(created.getId(), update);
+
+            assertThat(updated.getNameSearch()).containsExactly("nuevo " + tag, tag);
+            assertThat(service.findUsersByNamePrefix("antiguo " + tag, 10)).isEmpty();
+            assertThat(service.findUsersByNamePrefix("nuevo " + tag, 10))
+                    .extracting(User::getId).containsExactly(created.getId());
+        }
+
+        @Test
+        @DisplayName("Debe limitar el autocompletado")
+        void findUsersByNamePrefix_RespectsLimit() {
+            String tag = uniqueTag();
+            for (int i = 0; i < 3; i++) {
+                service.createUser(new UserCreateDto("Autocompletar " + tag + " " + i, uniqueEmail(), "HR", "Dev"));
+            }
+
+            assertThat(service.findUsersByNamePrefix(tag, 2)).hasSize(2);
+            assertThat(service.findUsersByNamePrefix("autocompletar " + tag, 100)).hasSize(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Full Text Search")
+    class FullTextSearch {
+
+        @Test
+        @DisplayName("Debe ordenar por relevancia: name pesa más que role y role más que department")
+        void fullTextSearch_RanksByFieldWeight() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            User byDepartment = service.createUser(new UserCreateDto("Carmen Ruiz", uniqueEmail(), tag, "Dev"));
+            User byName = service.createUser(new UserCreateDto("Lucía " + tag, uniqueEmail(), "IT", "Dev"));
+            User byRole = service.createUser(new UserCreateDto("Pedro Gil", uniqueEmail(), "IT", "Analista " + tag));
+
+            TextSearchResultDto result = service.fullTextSearch(tag.toUpperCase(), 0, 10);
+
+            assertThat(result.getSource()).isEqualTo(TextSearchResultDto.Source.MEMORY_INDEX);
+            assertThat(result.getHits()).extracting(hit -> hit.getUser().getId())
+                    .containsExactly(byName.getId(), byRole.getId(), byDepartment.getId());
+            assertThat(result.getHits().get(0).getScore()).isGreaterThan(result.getHits().get(1).getScore());
+            assertThat(result.isHasMore()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe paginar los resultados")
+        void fullTextSearch_Paginates() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            for (int i = 0; i < 3; i++) {
+                service.createUser(new UserCreateDto("Texto " + tag + " " + i, uniqueEmail(), "IT", "Dev"));
+            }
+
+            TextSearchResultDto first = service.fullTextSearch(tag, 0, 2);
+            TextSearchResultDto second = service.fullTextSearch(tag, 1, 2);
+
+            assertThat(first.getHits()).hasSize(2);
+            assertThat(first.isHasMore()).isTrue();
+            assertThat(second.getHits()).hasSize(1);
+            assertThat(second.isHasMore()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe reflejar altas, cambios y bajas posteriores a la construcción del índice")
+        void fullTextSearch_FollowsWrites() {
+            String tag = "t" + UUID.randomUUID().toString().substring(0, 8);
+            User created = service.createUser(new UserCreateDto("Ramón " + tag, uniqueEmail(), "IT", "Dev"));
+            assertThat(service.fullTextSearch("ramon " + tag, 0, 10).getHits()).hasSize(1);
+
+            User added = service.createUser(new UserCreateDto("Otra " + tag, uniqueEmail(), "IT", "Dev"));
+            UserUpdateDto update = new UserUpdateDto();
+            update.setName("Ramón Sin Etiqueta");
+            service.updateUser(created.getId(), update);
+
+            assertThat(service.fullTextSearch(tag, 0, 10).getHits())
+                    .extracting(hit -> hit.getUser().getId()).containsExactly(added.getId());
+
+            service.deleteUser(added.getId());
+            assertThat(service.fullTextSearch(tag, 0, 10).getHits()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Query Shapes")
+    class QueryShapes {
+
+        @Test
+        @DisplayName("Debe describir las consultas con el mismo filtro que las consultas reales")
+        void queryShapes_Department_UsesDepartmentFilter() {
+            List<QueryShape> shapes = service.queryShapes("IT");
+
+            assertThat(shapes).extracting(QueryShape::operation)
+                    .contains("findUserById", "findUsersByDepartment", "findUsersByDepartment?fields=department,name");
+            QueryShape byDepartment = shapes.stream()
+                    .filter(shape -> shape.operation().equals("findUsersByDepartment"))
+                    .findFirst().orElseThrow();
+            assertThat(byDepartment.filter().toBsonDocument().getString("department").getValue()).isEqualTo("IT");
+        }
+
+        @Test
+        @DisplayName("Debe traducir las consultas de Spring Data a los nombres y tipos de MongoDB")
+        void queryShapes_MapsQueriesToMongoTypes() {
+            QueryShape byId = service.queryShapes("IT").get(0);
+
+            assertThat(byId.filter().toBsonDocument().get("_id").isObjectId()).isTrue();
+            assertThat(byId.limit()).isEqualTo(1);
+        }
+    }
+
     @Nested
     @DisplayName("Count By Department")
     class CountByDepartment {
@@ -339,5 +981,167 @@ class SpringDataUserServiceTest {
 
             assertThat(count).isEqualTo(0);
         }
+
+        @Test
+        @DisplayName("Debe ajustar los contadores en memoria al crear, mover y borrar usuarios")
+        void countUsersByDepartment_FollowsWrites() {
+            String from = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            String to = "Count-" + UUID.randomUUID().toString().substring(0, 8);
+            assertThat(service.countUsersByDepartment(from).getCount()).isZero();
+
+            User moved = service.createUser(new UserCreateDto("Spring Count Move", uniqueEmail(), from, "Dev"));
+            User deleted = service.createUser(new UserCreateDto("Spring Count Delete", uniqueEmail(), from, "Dev"));
+            service.createUsers(List.of(new UserCreateDto("Spring Count Stay", uniqueEmail(), from, "Dev")));
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setDepartment(to);
+            User updated = service.updateUser(moved.getId(), dto);
+            service.deleteUser(deleted.getId());
+
+            assertThat(updated.getDepartment()).isEqualTo(to);
+            assertThat(updated.getName()).isEqualTo("Spring Count Move");
+            UserCountDto count = service.countUsersByDepartment(from);
+            assertThat(count.getCount()).isEqualTo(1);
+            assertThat(count.getSource()).isEqualTo(UserCountDto.Source.CACHE);
+            assertThat(service.countUsersByDepartment(to).getCount()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Facets")
+    class SearchFacets {
+
+        @Test
+        @DisplayName("Debe contar cada faceta con el resto de filtros")
+        void searchFacets_CountsEachFacetWithOtherFilters() {
+            String tag = "f" + UUID.randomUUID().toString().substring(0, 8);
+            String dev = "Dev " + tag;
+            String qa = "QA " + tag;
+            service.createUser(new UserCreateDto("Ana Facetas", uniqueEmail(), tag, dev));
+            User inactive = service.createUser(new UserCreateDto("Luis Facetas", uniqueEmail(), tag, dev));
+            service.createUser(new UserCreateDto("Eva Facetas", uniqueEmail(), tag, qa));
+            UserUpdateDto deactivate = new UserUpdateDto();
+            deactivate.setActive(false);
+            service.updateUser(inactive.getId(), deactivate);
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(tag);
+            UserFacetsDto byDepartment = service.searchFacets(query);
+
+            assertThat(byDepartment.getTotal()).isEqualTo(3);
+            assertThat(byDepartment.getRoles()).containsExactly(Map.entry(dev, 2L), Map.entry(qa, 1L));
+            assertThat(byDepartment.getActive()).containsExactly(Map.entry(true, 2L), Map.entry(false, 1L));
+
+            query.setRole(dev);
+            UserFacetsDto byRole = service.searchFacets(query);
+
+            assertThat(byRole.getTotal()).isEqualTo(2);
+            assertThat(byRole.getDepartments()).containsExactly(Map.entry(tag, 2L));
+            assertThat(byRole.getRoles()).containsExactly(Map.entry(dev, 2L), Map.entry(qa, 1L));
+            assertThat(byRole.getActive()).containsExactly(Map.entry(true, 1L), Map.entry(false, 1L));
+        }
+
+        @Test
+        @DisplayName("Debe combinar el filtro de nombre y reflejar cambios y bajas")
+        void searchFacets_FiltersByNameAndFollowsWrites() {
+            String tag = "f" + UUID.randomUUID().toString().substring(0, 8);
+            User moved = service.createUser(new UserCreateDto("Íñigo " + tag, uniqueEmail(), tag, "Dev"));
+            User deleted = service.createUser(new UserCreateDto("Irene " + tag, uniqueEmail(), tag, "Dev"));
+            service.createUser(new UserCreateDto("Otro " + tag, uniqueEmail(), tag, "Dev"));
+
+            UserQueryDto query = new UserQueryDto();
+            query.setName("i");
+            query.setDepartment(tag);
+            assertThat(service.searchFacets(query).getTotal()).isEqualTo(2);
+
+            UserUpdateDto update = new UserUpdateDto();
+            update.setDepartment(tag + "-2");
+            service.updateUser(moved.getId(), update);
+            service.deleteUser(deleted.getId());
+
+            query.setDepartment(null);
+            query.setName(tag);
+            UserFacetsDto facets = service.searchFacets(query);
+
+            assertThat(facets.getTotal()).isEqualTo(2);
+            assertThat(facets.getDepartments()).containsOnly(Map.entry(tag, 1L), Map.entry(tag + "-2", 1L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Faceted Search")
+    class FacetedSearch {
+
+        @Test
+        @DisplayName("Debe devolver la página, el total y los recuentos en una sola búsqueda")
+        void searchUsersFaceted_ReturnsPageTotalAndCounts() {
+            String tag = "g" + UUID.randomUUID().toString().substring(0, 8);
+            service.createUser(new UserCreateDto("Ana Facetada", uniqueEmail(), tag, "Dev"));
+            User inactive = service.createUser(new UserCreateDto("Bea Facetada", uniqueEmail(), tag, "Dev"));
+            service.createUser(new UserCreateDto("Carla Facetada", uniqueEmail(), tag, "QA"));
+            UserUpdateDto deactivate = new UserUpdateDto();
+            deactivate.setActive(false);
+            service.updateUser(inactive.getId(), deactivate);
+
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment(tag);
+            query.setFaceted(true);
+            query.setSize(2);
+            FacetedSearchResultDto first = service.searchUsersFaceted(query);
+
+            assertThat(first.getUsers()).extracting(User::getName).containsExactly("Ana Facetada", "Bea Facetada");
+            assertThat(first.getFacets().getTotal()).isEqualTo(3);
+            assertThat(first.getFacets().getDepartments()).containsExactly(Map.entry(tag, 3L));
+            assertThat(first.getFacets().getRoles()).containsExactly(Map.entry("Dev", 2L), Map.entry("QA", 1L));
+            assertThat(first.getFacets().getActive()).containsExactly(Map.entry(true, 2L), Map.entry(false, 1L));
+
+            query.setPage(1);
+            FacetedSearchResultDto second = service.searchUsersFaceted(query);
+
+            assertThat(second.getUsers()).extracting(User::getName).containsExactly("Carla Facetada");
+            assertThat(second.getFacets().getTotal()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Debe devolver total 0 y recuentos vacíos sin coincidencias")
+        void searchUsersFaceted_NoMatches_ReturnsEmptyCounts() {
+            UserQueryDto query = new UserQueryDto();
+            query.setDepartment("g" + UUID.randomUUID());
+            query.setFaceted(true);
+
+            FacetedSearchResultDto result = service.searchUsersFaceted(query);
+
+            assertThat(result.getUsers()).isEmpty();
+            assertThat(result.getFacets().getTotal()).isZero();
+            assertThat(result.getFacets().getDepartments()).isEmpty();
+            assertThat(result.getFacets().getRoles()).isEmpty();
+            assertThat(result.getFacets().getActive()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Get Stats By Department")
+    class GetStatsByDepartment {
+
+        @Test
+        @DisplayName("Debe calcular totales y activos por departamento")
+        void getStatsByDepartment_CalculatesCorrectly() {
+            String department = "Stats-" + UUID.randomUUID().toString().substring(0, 8);
+            service.createUser(new UserCreateDto("Stats User 1", uniqueEmail(), department, "Dev"));
+            User inactive = service.createUser(new UserCreateDto("Stats User 2", uniqueEmail(), department, "Dev"));
+            UserUpdateDto deactivate = new UserUpdateDto();
+            deactivate.setActive(false);
+            service.updateUser(inactive.getId(), deactivate);
+
+            List<DepartmentStatsDto> stats = service.getStatsByDepartment();
+
+            assertThat(stats).filteredOn(stat -> department.equals(stat.getDepartment()))
+                    .singleElement()
+                    .satisfies(stat -> {
+                        assertThat(stat.getTotalUsers()).isEqualTo(2);
+                        assertThat(stat.getActiveUsers()).isEqualTo(1);
+                        assertThat(stat.getInactiveUsers()).isEqualTo(1);
+                    });
+        }
     }
 }